@@ -86,7 +86,8 @@ public class PhaseMetadata extends AMetadataPhase {
 			throw new TorrentException("Failed to read metadata", e);
 		}
 
-		torrent.setFileSet(new TorrentFileSet(torrent.getMetadata(), new File(downloadFolderRoot, torrent.getDisplayName())));
+		File downloadFolder = new File(downloadFolderRoot, torrent.getDisplayName());
+		torrent.setFileSet(new TorrentFileSet(torrent.getMetadata(), downloadFolder, torrent.createStorage()));
 	}
 
 	private Collection<Peer> getRelevantPeers(Collection<Peer> peers) {
@@ -12,6 +12,7 @@ import org.mockito.ArgumentCaptor;
 
 import org.johnnei.javatorrent.TorrentClient;
 import org.johnnei.javatorrent.bittorrent.encoding.SHA1;
+import org.johnnei.javatorrent.disk.RandomAccessFileStorage;
 import org.johnnei.javatorrent.module.UTMetadataExtension;
 import org.johnnei.javatorrent.protocol.extension.ExtensionModule;
 import org.johnnei.javatorrent.protocol.extension.PeerExtensions;
@@ -154,6 +155,7 @@ public class PhaseMetadataTest {
 	public void testOnPhaseExit() throws Exception {
 		when(torrentMock.isDownloadingMetadata()).thenReturn(true);
 		when(torrentMock.getDisplayName()).thenReturn("OnPhaseExit");
+		when(torrentMock.createStorage()).thenReturn(new RandomAccessFileStorage());
 
 		when(metadataMock.getFileEntries()).thenReturn(Collections.emptyList());
 		when(metadataMock.getPieceHashes()).thenReturn(Collections.emptyList());
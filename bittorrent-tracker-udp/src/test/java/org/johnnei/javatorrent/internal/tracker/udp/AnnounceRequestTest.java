@@ -3,6 +3,7 @@ package org.johnnei.javatorrent.internal.tracker.udp;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.time.Clock;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.jupiter.api.Test;
 import org.powermock.reflect.Whitebox;
@@ -102,7 +103,7 @@ public class AnnounceRequestTest {
 				.build();
 		torrent.setFileSet(torrentFileSetMock);
 
-		Whitebox.setInternalState(torrent, "downloadedBytes", 5);
+		Whitebox.<AtomicLong>getInternalState(torrent, "downloadedBytes").set(5);
 		torrent.addUploadedBytes(7);
 
 		TorrentInfo info = new TorrentInfo(torrent, Clock.systemDefaultZone());
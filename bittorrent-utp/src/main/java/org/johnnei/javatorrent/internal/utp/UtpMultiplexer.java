@@ -18,6 +18,7 @@ import org.johnnei.javatorrent.internal.utp.protocol.PacketType;
 import org.johnnei.javatorrent.internal.utp.protocol.UtpProtocolViolationException;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpPacket;
 import org.johnnei.javatorrent.internal.utp.stream.PacketReader;
+import org.johnnei.javatorrent.network.ByteBufferPool;
 import org.johnnei.javatorrent.network.socket.ISocket;
 
 public class UtpMultiplexer {
@@ -38,18 +39,21 @@ public class UtpMultiplexer {
 
 	private final DatagramChannel channel;
 
+	private final ByteBufferPool bufferPool;
+
 	private final Future<?> poller;
 
 	public UtpMultiplexer(TorrentClient client, UtpPeerConnectionAcceptor connectionAcceptor, PacketReader packetReader, int port) throws IOException {
 		this.connectionAcceptor = connectionAcceptor;
 		this.packetReader = packetReader;
+		this.bufferPool = client.getBufferPool();
 		connectionAcceptorRunnable = new LoopingRunnable(connectionAcceptor);
 		connectionAcceptorThread = new Thread(connectionAcceptorRunnable, "uTP Connection Acceptor");
 		channel = DatagramChannel.open();
 		channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
 		channel.bind(new InetSocketAddress(port));
 		channel.configureBlocking(false);
-		socketRegistry = new UtpSocketRegistry(channel);
+		socketRegistry = new UtpSocketRegistry(channel, bufferPool);
 		connectionAcceptorThread.start();
 		LOGGER.trace("Configured to listen on {}", channel.getLocalAddress());
 
@@ -57,8 +61,8 @@ public class UtpMultiplexer {
 	}
 
 	void pollPackets() {
+		ByteBuffer buffer = bufferPool.acquireDirect(BUFFER_SIZE);
 		try {
-			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
 			SocketAddress socketAddress = channel.receive(buffer);
 
 			if (socketAddress == null) {
@@ -69,6 +73,9 @@ public class UtpMultiplexer {
 			onPacketReceived(socketAddress, buffer);
 		} catch (IOException e) {
 			LOGGER.warn("Failed to process uTP packets.", e);
+		} finally {
+			// The packet payloads copy their data, so the buffer is no longer referenced.
+			bufferPool.release(buffer);
 		}
 	}
 
@@ -94,7 +101,7 @@ public class UtpMultiplexer {
 	}
 
 	public ISocket createUnconnectedSocket() {
-		return socketRegistry.allocateSocket(connectionId -> UtpSocket.createInitiatingSocket(channel, connectionId));
+		return socketRegistry.allocateSocket(connectionId -> UtpSocket.createInitiatingSocket(channel, bufferPool, connectionId));
 	}
 
 	public void updateSockets() {
@@ -34,6 +34,7 @@ import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpPacket;
 import org.johnnei.javatorrent.internal.utp.stream.InputPacketSorter;
 import org.johnnei.javatorrent.internal.utp.stream.PacketWriter;
 import org.johnnei.javatorrent.internal.utp.stream.StreamState;
+import org.johnnei.javatorrent.network.ByteBufferPool;
 import org.johnnei.javatorrent.network.socket.ISocket;
 
 import static org.johnnei.javatorrent.internal.utp.protocol.PacketType.STATE;
@@ -51,6 +52,8 @@ public class UtpSocket implements ISocket, Closeable {
 
 	private final PacketWriter packetWriter;
 
+	private final ByteBufferPool bufferPool;
+
 	private final PrecisionTimer precisionTimer;
 
 	private final short sendConnectionId;
@@ -97,32 +100,34 @@ public class UtpSocket implements ISocket, Closeable {
 	 * Creates a new {@link UtpSocket} and configures it to be the initiating side.
 	 *
 	 * @param channel The channel to write data on.
+	 * @param bufferPool The pool from which the packet buffers are taken.
 	 * @param receiveConnectionId The ID on which this socket will receive data.
 	 * @return The newly created socket.
 	 */
-	public static UtpSocket createInitiatingSocket(DatagramChannel channel, short receiveConnectionId) {
-		UtpSocket socket = new UtpSocket(channel, (short) (receiveConnectionId + 1));
+	public static UtpSocket createInitiatingSocket(DatagramChannel channel, ByteBufferPool bufferPool, short receiveConnectionId) {
+		UtpSocket socket = new UtpSocket(channel, bufferPool, (short) (receiveConnectionId + 1));
 		socket.sequenceNumberCounter = 0;
 		socket.packetAckHandler = new PacketAckHandler(socket);
 		return socket;
 	}
 
-	public static UtpSocket createRemoteConnecting(DatagramChannel channel, UtpPacket synPacket) {
+	public static UtpSocket createRemoteConnecting(DatagramChannel channel, ByteBufferPool bufferPool, UtpPacket synPacket) {
 		short sendConnectionId = synPacket.getHeader().getConnectionId();
-		UtpSocket socket = new UtpSocket(channel, sendConnectionId);
+		UtpSocket socket = new UtpSocket(channel, bufferPool, sendConnectionId);
 		socket.sequenceNumberCounter = (short) new Random().nextInt();
 		socket.packetAckHandler = new PacketAckHandler(socket, (short) (synPacket.getHeader().getSequenceNumber() - 1));
 		return socket;
 	}
 
-	private UtpSocket(DatagramChannel channel, short sendConnectionId) {
+	private UtpSocket(DatagramChannel channel, ByteBufferPool bufferPool, short sendConnectionId) {
 		this.channel = channel;
+		this.bufferPool = bufferPool;
 		this.sendConnectionId = sendConnectionId;
 		clock = Clock.systemDefaultZone();
 		connectionState = ConnectionState.PENDING;
 		acknowledgeQueue = new LinkedList<>();
 		resendQueue = new LinkedList<>();
-		packetWriter = new PacketWriter();
+		packetWriter = new PacketWriter(bufferPool);
 		precisionTimer = new PrecisionTimer();
 		timeoutHandler = new SocketTimeoutHandler(precisionTimer);
 		packetLossHandler = new PacketLossHandler(this);
@@ -223,12 +228,21 @@ public class UtpSocket implements ISocket, Closeable {
 				} else {
 					int maxPayloadSize = Math.max(0, Math.min(getPacketPayloadSize(), windowHandler.getMaxWindow() - windowHandler.getBytesInFlight() - PacketWriter.OVERHEAD_IN_BYTES));
 
-					ByteBuffer sendBuffer = ByteBuffer.allocate(maxPayloadSize);
-					int bytesRead = outputPipe.source().read(sendBuffer);
-					sendBuffer.flip();
+					ByteBuffer sendBuffer = bufferPool.acquire(maxPayloadSize);
+					int bytesRead;
+					try {
+						bytesRead = outputPipe.source().read(sendBuffer);
+						sendBuffer.flip();
+
+						if (bytesRead > 0) {
+							// The payload copies the data, so the buffer can be released right after.
+							send(new DataPayload(sendBuffer));
+						}
+					} finally {
+						bufferPool.release(sendBuffer);
+					}
 
 					if (bytesRead > 0) {
-						send(new DataPayload(sendBuffer));
 						canSendMultiple = bytesRead == maxPayloadSize;
 					} else if (bytesRead == 0 && outputStreamState == StreamState.SHUTDOWN_PENDING) {
 						send(new FinPayload());
@@ -304,6 +318,7 @@ public class UtpSocket implements ISocket, Closeable {
 		packet.getHeader().renew(ackNumber, precisionTimer.getCurrentMicros(), delayHandler.getMeasuredDelay());
 
 		ByteBuffer buffer = packetWriter.write(packet);
+		boolean completeWrite;
 
 		try (MDC.MDCCloseable ignored = MDC.putCloseable("context", Integer.toString(Short.toUnsignedInt(sendConnectionId)))) {
 			LOGGER.trace(
@@ -315,13 +330,15 @@ public class UtpSocket implements ISocket, Closeable {
 			);
 
 			channel.send(buffer, remoteAddress);
+			completeWrite = !buffer.hasRemaining();
+			bufferPool.release(buffer);
 			packetLossHandler.onSentPacket(packet);
 			timeoutHandler.onSentPacket();
 			windowHandler.onSentPacket(packet);
 			packetSizeHandler.onSentPacket(packet);
 		}
 
-		if (buffer.hasRemaining()) {
+		if (!completeWrite) {
 			throw new IOException("Write buffer utilization exceeded.");
 		}
 	}
@@ -15,6 +15,7 @@ import org.slf4j.LoggerFactory;
 
 import org.johnnei.javatorrent.internal.utp.protocol.UtpProtocolViolationException;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpPacket;
+import org.johnnei.javatorrent.network.ByteBufferPool;
 
 public class UtpSocketRegistry {
 
@@ -24,12 +25,15 @@ public class UtpSocketRegistry {
 
 	private final DatagramChannel channel;
 
+	private final ByteBufferPool bufferPool;
+
 	private final Map<Short, UtpSocket> socketMap;
 
 	private final Random random;
 
-	public UtpSocketRegistry(DatagramChannel channel) {
+	public UtpSocketRegistry(DatagramChannel channel, ByteBufferPool bufferPool) {
 		this.channel = channel;
+		this.bufferPool = bufferPool;
 		socketMap = new HashMap<>();
 		random = new Random();
 	}
@@ -74,7 +78,7 @@ public class UtpSocketRegistry {
 				throw new UtpProtocolViolationException(String.format("Connection [%s] already registered before.", synPacket.getHeader().getConnectionId()));
 			}
 
-			UtpSocket socket = UtpSocket.createRemoteConnecting(channel, synPacket);
+			UtpSocket socket = UtpSocket.createRemoteConnecting(channel, bufferPool, synPacket);
 			socket.bind(socketAddress);
 			LOGGER.trace("Registered received socket on to receive on id [{}] and send to [{}]", Short.toUnsignedInt(receiveId), socketAddress);
 			socketMap.put(receiveId, socket);
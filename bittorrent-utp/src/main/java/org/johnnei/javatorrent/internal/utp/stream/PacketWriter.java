@@ -3,6 +3,7 @@ package org.johnnei.javatorrent.internal.utp.stream;
 import java.nio.ByteBuffer;
 
 import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpPacket;
+import org.johnnei.javatorrent.network.ByteBufferPool;
 
 public class PacketWriter {
 
@@ -11,8 +12,23 @@ public class PacketWriter {
 	 */
 	public static final int OVERHEAD_IN_BYTES = 20;
 
+	private final ByteBufferPool bufferPool;
+
+	/**
+	 * Creates a new writer.
+	 * @param bufferPool The pool from which the packet buffers are taken.
+	 */
+	public PacketWriter(ByteBufferPool bufferPool) {
+		this.bufferPool = bufferPool;
+	}
+
+	/**
+	 * Writes the packet into a direct buffer taken from the pool. The caller is responsible for releasing the buffer once it has been sent.
+	 * @param packet The packet to write.
+	 * @return The buffer containing the packet.
+	 */
 	public ByteBuffer write(UtpPacket packet) {
-		ByteBuffer buffer = ByteBuffer.allocate(packet.getSize());
+		ByteBuffer buffer = bufferPool.acquireDirect(packet.getSize());
 
 		byte typeAndVersion = (byte) ((packet.getHeader().getType() << 4) | (packet.getHeader().getVersion() & 0xF));
 		buffer.put(typeAndVersion);
@@ -10,6 +10,7 @@ import org.junit.jupiter.api.Test;
 import org.johnnei.javatorrent.internal.utp.protocol.UtpProtocolViolationException;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpHeader;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpPacket;
+import org.johnnei.javatorrent.network.ByteBufferPool;
 
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
@@ -29,7 +30,7 @@ public class UtpSocketRegistryTest {
 	@BeforeEach
 	public void setUp() {
 		channelMock = mock(DatagramChannel.class);
-		cut = new UtpSocketRegistry(channelMock);
+		cut = new UtpSocketRegistry(channelMock, new ByteBufferPool(1 << 16, 0));
 	}
 
 	private UtpSocket createSocket(int connectionId) throws IOException {
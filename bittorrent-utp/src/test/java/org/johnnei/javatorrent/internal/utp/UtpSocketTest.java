@@ -19,6 +19,7 @@ import org.johnnei.javatorrent.internal.utp.protocol.packet.StatePayload;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.SynPayload;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpHeader;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpPacket;
+import org.johnnei.javatorrent.network.ByteBufferPool;
 
 import static com.jayway.awaitility.Awaitility.await;
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -38,6 +39,11 @@ public class UtpSocketTest {
 
 	private DatagramChannel channel;
 
+	/**
+	 * Pool which doesn't retain buffers so captured packets can't be overwritten.
+	 */
+	private ByteBufferPool bufferPool = new ByteBufferPool(1 << 16, 0);
+
 	@BeforeEach
 	public void setUp() throws Exception {
 		channel = mock(DatagramChannel.class);
@@ -62,7 +68,7 @@ public class UtpSocketTest {
 			new SynPayload()
 		);
 
-		UtpSocket socket = UtpSocket.createRemoteConnecting(channel, synPacket);
+		UtpSocket socket = UtpSocket.createRemoteConnecting(channel, bufferPool, synPacket);
 		socket.onReceivedPacket(synPacket);
 
 		socket.processSendQueue();
@@ -98,7 +104,7 @@ public class UtpSocketTest {
 
 	@Test
 	public void testInitiateConnection() throws Exception {
-		UtpSocket socket = UtpSocket.createInitiatingSocket(channel, (short) 42);
+		UtpSocket socket = UtpSocket.createInitiatingSocket(channel, bufferPool, (short) 42);
 		final InetSocketAddress socketAddress = mock(InetSocketAddress.class);
 
 		Thread connector = new Thread(() -> {
@@ -150,7 +156,7 @@ public class UtpSocketTest {
 	}
 
 	private UtpSocket prepareSocketAfterHandshake() throws Exception {
-		UtpSocket socket = UtpSocket.createInitiatingSocket(channel, (short) 42);
+		UtpSocket socket = UtpSocket.createInitiatingSocket(channel, bufferPool, (short) 42);
 
 		Thread connector = new Thread(() -> {
 			try {
@@ -7,6 +7,7 @@ import org.junit.jupiter.api.Test;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.Payload;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpHeader;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpPacket;
+import org.johnnei.javatorrent.network.ByteBufferPool;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -17,7 +18,7 @@ public class PacketWriterTest {
 
 	@Test
 	public void testWrite() throws Exception {
-		PacketWriter cut = new PacketWriter();
+		PacketWriter cut = new PacketWriter(new ByteBufferPool(1 << 16, 0));
 
 		UtpPacket packet = mock(UtpPacket.class);
 		UtpHeader header = mock(UtpHeader.class);
@@ -39,6 +40,7 @@ public class PacketWriterTest {
 		ByteBuffer buffer = cut.write(packet);
 
 		assertThat("20 packet overhead + 5 bytes of payload.", buffer.limit(), equalTo(25));
+		assertThat("Packets should be written into direct buffers.", buffer.isDirect(), equalTo(true));
 		assertThat("Bits   0 -   8 should be the type and version", buffer.get(), equalTo((byte) 0x31));
 		assertThat("Bits   8 -  16 should be the extension (none supported)", buffer.get(), equalTo((byte) 0));
 		assertThat("Bits  16 -  32 should be the connection id", buffer.getShort(), equalTo(header.getConnectionId()));
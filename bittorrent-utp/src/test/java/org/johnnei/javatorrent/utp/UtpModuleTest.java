@@ -8,6 +8,7 @@ import org.junit.jupiter.api.Test;
 
 import org.johnnei.javatorrent.TorrentClient;
 import org.johnnei.javatorrent.module.ModuleBuildException;
+import org.johnnei.javatorrent.network.ByteBufferPool;
 import org.johnnei.javatorrent.test.DummyEntity;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -53,6 +54,7 @@ public class UtpModuleTest {
 		ScheduledFuture scheduledFuture = mock(ScheduledFuture.class);
 		TorrentClient clientMock = mock(TorrentClient.class);
 		when(clientMock.getExecutorService()).thenReturn(scheduleServiceMock);
+		when(clientMock.getBufferPool()).thenReturn(new ByteBufferPool(1 << 16, 0));
 		when(scheduleServiceMock.scheduleAtFixedRate(any(), eq(0L), eq(1L), eq(TimeUnit.MILLISECONDS))).thenReturn(scheduledFuture);
 		when(scheduleServiceMock.scheduleWithFixedDelay(any(), eq(50L), eq(10L), eq(TimeUnit.MILLISECONDS))).thenReturn(scheduledFuture);
 
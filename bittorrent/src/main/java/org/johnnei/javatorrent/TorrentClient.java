@@ -8,7 +8,9 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -16,20 +18,26 @@ import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import org.johnnei.javatorrent.async.LoopingRunnable;
 import org.johnnei.javatorrent.bittorrent.protocol.MessageFactory;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.IMessage;
 import org.johnnei.javatorrent.bittorrent.tracker.ITracker;
 import org.johnnei.javatorrent.bittorrent.tracker.TrackerException;
 import org.johnnei.javatorrent.bittorrent.tracker.TrackerFactory;
+import org.johnnei.javatorrent.disk.BlockReadCache;
+import org.johnnei.javatorrent.disk.DiskBackpressure;
+import org.johnnei.javatorrent.disk.DiskJobStatistics;
+import org.johnnei.javatorrent.disk.FileHandlePool;
 import org.johnnei.javatorrent.disk.IDiskJob;
+import org.johnnei.javatorrent.disk.PieceWriteCache;
 import org.johnnei.javatorrent.internal.disk.IOManager;
 import org.johnnei.javatorrent.internal.network.PeerIoHandler;
 import org.johnnei.javatorrent.internal.network.connector.BitTorrentHandshakeHandlerImpl;
 import org.johnnei.javatorrent.internal.torrent.TorrentManager;
 import org.johnnei.javatorrent.internal.tracker.TrackerManager;
 import org.johnnei.javatorrent.module.IModule;
+import org.johnnei.javatorrent.network.ByteBufferPool;
 import org.johnnei.javatorrent.network.ConnectionDegradation;
+import org.johnnei.javatorrent.network.TokenBucket;
 import org.johnnei.javatorrent.network.connector.BitTorrentHandshakeHandler;
 import org.johnnei.javatorrent.phases.PhaseRegulator;
 import org.johnnei.javatorrent.torrent.Torrent;
@@ -47,6 +55,21 @@ public class TorrentClient {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(TorrentClient.class);
 
+	/**
+	 * The largest buffer size which is retained for reuse (128KiB).
+	 */
+	private static final int MAX_POOLED_BUFFER_SIZE = 1 << 17;
+
+	/**
+	 * The maximum amount of buffers per size class which are retained for reuse.
+	 */
+	private static final int MAX_POOLED_BUFFERS = 256;
+
+	/**
+	 * The maximum time to wait on shutdown for the queued disk jobs to be processed.
+	 */
+	private static final long DISK_SHUTDOWN_TIMEOUT_SECONDS = 30;
+
 	private ConnectionDegradation connectionDegradation;
 
 	private MessageFactory messageFactory;
@@ -67,8 +90,6 @@ public class TorrentClient {
 
 	private IOManager ioManager;
 
-	private LoopingRunnable ioManagerRunner;
-
 	private int downloadPort;
 
 	private final byte[] extensionBytes;
@@ -83,6 +104,20 @@ public class TorrentClient {
 
 	private PeerIoHandler peerIoHandler;
 
+	private ByteBufferPool bufferPool;
+
+	private TokenBucket uploadLimiter;
+
+	private TokenBucket downloadLimiter;
+
+	private PieceWriteCache pieceWriteCache;
+
+	private ForkJoinPool hashCheckPool;
+
+	private BlockReadCache readCache;
+
+	private FileHandlePool fileHandlePool;
+
 	private TorrentClient(Builder builder) {
 		peerDistributor = Objects.requireNonNull(builder.peerDistributor.apply(this), "Peer distributor is invalid.");
 		connectionDegradation = Objects.requireNonNull(builder.connectionDegradation, "Connection degradation is required to setup connections with peers.");
@@ -113,14 +148,18 @@ public class TorrentClient {
 		peerId = createPeerId();
 		transactionId = new AtomicInteger(new Random().nextInt());
 
-		peerIoHandler = new PeerIoHandler(executorService);
+		bufferPool = new ByteBufferPool(MAX_POOLED_BUFFER_SIZE, MAX_POOLED_BUFFERS);
+		uploadLimiter = new TokenBucket();
+		downloadLimiter = new TokenBucket();
+		DiskBackpressure diskBackpressure = new DiskBackpressure(builder.diskWriteLowWatermark, builder.diskWriteHighWatermark);
+		peerIoHandler = new PeerIoHandler(builder.peerIoThreadCount, diskBackpressure);
 		handshakeHandler = new BitTorrentHandshakeHandlerImpl(this, peerIoHandler);
 
-		ioManager = new IOManager();
-		ioManagerRunner = new LoopingRunnable(ioManager, true);
-		Thread ioManagerThread = new Thread(ioManagerRunner, String.format("Disk Manager - %s", ioManager.toString()));
-		ioManagerThread.setDaemon(true);
-		ioManagerThread.start();
+		ioManager = new IOManager(builder.diskIoThreadCount, diskBackpressure);
+		pieceWriteCache = new PieceWriteCache(builder.pieceWriteCacheSize);
+		hashCheckPool = new ForkJoinPool(builder.hashCheckThreadCount);
+		readCache = new BlockReadCache(builder.readCacheSize, builder.readAheadSize);
+		fileHandlePool = new FileHandlePool(builder.maxOpenFiles);
 
 		torrentManager.start(this);
 		if (builder.acceptIncomingConnections) {
@@ -172,13 +211,28 @@ public class TorrentClient {
 	public void shutdown() {
 		peerConnector.stop();
 		handshakeHandler.stop();
-		torrentManager.stop();
-		ioManagerRunner.stop();
 		peerIoHandler.shutdown();
+		awaitDiskJobs();
+		// The resume data is saved once the received blocks have been written, otherwise it could mark pieces as stored which are not on disk.
+		torrentManager.stop();
+		ioManager.shutdown();
+		hashCheckPool.shutdownNow();
+		fileHandlePool.close();
 		executorService.shutdown();
 		modules.stream().forEach(IModule::onShutdown);
 	}
 
+	private void awaitDiskJobs() {
+		try {
+			if (!ioManager.awaitIdle(DISK_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				LOGGER.warn("Disk jobs did not complete within {} seconds, remaining jobs will be discarded.", DISK_SHUTDOWN_TIMEOUT_SECONDS);
+			}
+		} catch (InterruptedException e) {
+			LOGGER.warn("Interrupted while waiting for the disk jobs to complete.", e);
+			Thread.currentThread().interrupt();
+		}
+	}
+
 	public int createUniqueTransactionId() {
 		return transactionId.incrementAndGet();
 	}
@@ -191,6 +245,38 @@ public class TorrentClient {
 		ioManager.addTask(task);
 	}
 
+	/**
+	 * Gets the live statistics of the disk jobs per type of job. A growing queue depth or wait time indicates that the disk can't keep up.
+	 * @return The statistics of every type of job which has been submitted.
+	 */
+	public Collection<DiskJobStatistics> getDiskJobStatistics() {
+		return ioManager.getStatistics();
+	}
+
+	/**
+	 * Gets the amount of disk jobs which are waiting to be processed.
+	 * @return The amount of queued jobs.
+	 */
+	public int getDiskQueueSize() {
+		return ioManager.getQueueSize();
+	}
+
+	/**
+	 * Gets the tracker of the bytes which are held in memory by the queued disk jobs.
+	 * @return The disk backpressure.
+	 */
+	public DiskBackpressure getDiskBackpressure() {
+		return ioManager.getBackpressure();
+	}
+
+	/**
+	 * Checks if the disk is falling behind on writing the received blocks. While throttled no new blocks should be requested.
+	 * @return <code>true</code> when the pending writes exceeded the high watermark and haven't drained to the low watermark yet.
+	 */
+	public boolean isDiskThrottled() {
+		return ioManager.getBackpressure().isThrottled();
+	}
+
 	/**
 	 * Calculates how many connections are assigned to the torrent but haven't passed the BitTorrent handshake yet.
 	 * @param torrent The torrent for which connections must be counted.
@@ -323,6 +409,63 @@ public class TorrentClient {
 		return requestLimiter;
 	}
 
+	/**
+	 * Gets the client-wide pool of heap and direct buffers. Modules can take short lived buffers from this pool and release them once they are
+	 * no longer used to reduce the allocation rate. The pool tracks how many requests could be served by pooled buffers.
+	 * @return The buffer pool.
+	 */
+	public ByteBufferPool getBufferPool() {
+		return bufferPool;
+	}
+
+	/**
+	 * Gets the limiter which caps the upload rate of all torrents combined. The limit can be changed at any time with {@link TokenBucket#setRate(int)}.
+	 * @return The client-wide upload limiter.
+	 */
+	public TokenBucket getUploadLimiter() {
+		return uploadLimiter;
+	}
+
+	/**
+	 * Gets the limiter which caps the download rate of all torrents combined. The limit can be changed at any time with {@link TokenBucket#setRate(int)}.
+	 * @return The client-wide download limiter.
+	 */
+	public TokenBucket getDownloadLimiter() {
+		return downloadLimiter;
+	}
+
+	/**
+	 * Gets the cache in which pieces are assembled before being written to disk.
+	 * @return The piece write cache.
+	 */
+	public PieceWriteCache getPieceWriteCache() {
+		return pieceWriteCache;
+	}
+
+	/**
+	 * Gets the cache which serves the blocks which are uploaded to peers.
+	 * @return The block read cache.
+	 */
+	public BlockReadCache getReadCache() {
+		return readCache;
+	}
+
+	/**
+	 * Gets the pool of file handles which is shared by the storages of all torrents.
+	 * @return The file handle pool.
+	 */
+	public FileHandlePool getFileHandlePool() {
+		return fileHandlePool;
+	}
+
+	/**
+	 * Gets the pool on which the pieces which are already on disk are verified when a torrent starts.
+	 * @return The hash check pool.
+	 */
+	public ForkJoinPool getHashCheckPool() {
+		return hashCheckPool;
+	}
+
 	/**
 	 * @return A handler instance which is able to process the BitTorrent handshake on freshly connected sockets.
 	 */
@@ -332,6 +475,16 @@ public class TorrentClient {
 
 	public static class Builder {
 
+		/**
+		 * The default amount of memory used to assemble pieces (32MiB).
+		 */
+		private static final long DEFAULT_PIECE_WRITE_CACHE_SIZE = 32L << 20;
+
+		/**
+		 * The default amount of memory used to cache the blocks which are uploaded (32MiB).
+		 */
+		private static final long DEFAULT_READ_CACHE_SIZE = 32L << 20;
+
 		private final MessageFactory.Builder messageFactoryBuilder;
 
 		private final Collection<IModule> modules;
@@ -356,11 +509,38 @@ public class TorrentClient {
 
 		private byte[] extensionBytes;
 
+		private int peerIoThreadCount;
+
+		private int diskIoThreadCount;
+
+		private long pieceWriteCacheSize;
+
+		private int hashCheckThreadCount;
+
+		private long readCacheSize;
+
+		private int readAheadSize;
+
+		private int maxOpenFiles;
+
+		private long diskWriteLowWatermark;
+
+		private long diskWriteHighWatermark;
+
 		public Builder() {
 			messageFactoryBuilder = new MessageFactory.Builder();
 			trackerFactoryBuilder = new TrackerFactory.Builder();
 			modules = new ArrayList<>();
 			extensionBytes = new byte[8];
+			peerIoThreadCount = 1;
+			diskIoThreadCount = 1;
+			pieceWriteCacheSize = DEFAULT_PIECE_WRITE_CACHE_SIZE;
+			hashCheckThreadCount = Runtime.getRuntime().availableProcessors();
+			readCacheSize = DEFAULT_READ_CACHE_SIZE;
+			readAheadSize = Integer.MAX_VALUE;
+			maxOpenFiles = FileHandlePool.DEFAULT_MAX_OPEN_FILES;
+			diskWriteLowWatermark = DiskBackpressure.DEFAULT_LOW_WATERMARK;
+			diskWriteHighWatermark = DiskBackpressure.DEFAULT_HIGH_WATERMARK;
 		}
 
 		public Builder registerModule(IModule module) {
@@ -445,6 +625,120 @@ public class TorrentClient {
 			return this;
 		}
 
+		/**
+		 * Sets the amount of threads which process the IO of connected peers. Peers are spread over the threads based on the amount of peers
+		 * each thread is serving at the moment of connecting.
+		 * By default a single thread is used.
+		 * @param peerIoThreadCount The amount of threads (at least 1)
+		 * @return The modified instance
+		 */
+		public Builder setPeerIoThreadCount(int peerIoThreadCount) {
+			Argument.requireWithinBounds(peerIoThreadCount, 1, Integer.MAX_VALUE, () -> "Peer IO thread count must be at least 1.");
+			this.peerIoThreadCount = peerIoThreadCount;
+			return this;
+		}
+
+		/**
+		 * Sets the amount of threads which process the disk jobs. Jobs are spread over the threads by the piece they operate on, so jobs of the
+		 * same piece are processed in order while other pieces are processed in parallel.
+		 * By default a single thread is used.
+		 * @param diskIoThreadCount The amount of threads (at least 1)
+		 * @return The modified instance
+		 */
+		public Builder setDiskIoThreadCount(int diskIoThreadCount) {
+			Argument.requireWithinBounds(diskIoThreadCount, 1, Integer.MAX_VALUE, () -> "Disk IO thread count must be at least 1.");
+			this.diskIoThreadCount = diskIoThreadCount;
+			return this;
+		}
+
+		/**
+		 * Sets the amount of memory which can be used to assemble pieces before they are written to disk. Pieces which are assembled in memory are
+		 * hash checked without reading them back and are only written once they have been verified.
+		 * By default 32MiB is used.
+		 * @param pieceWriteCacheSize The amount of bytes, 0 disables the cache.
+		 * @return The modified instance
+		 */
+		public Builder setPieceWriteCacheSize(long pieceWriteCacheSize) {
+			if (pieceWriteCacheSize < 0) {
+				throw new IllegalArgumentException("Piece write cache size cannot be negative.");
+			}
+			this.pieceWriteCacheSize = pieceWriteCacheSize;
+			return this;
+		}
+
+		/**
+		 * Sets the amount of memory which can be used to cache the data of pieces which are being uploaded.
+		 * By default 32MiB is used.
+		 * @param readCacheSize The amount of bytes, 0 disables the cache.
+		 * @return The modified instance
+		 */
+		public Builder setReadCacheSize(long readCacheSize) {
+			if (readCacheSize < 0) {
+				throw new IllegalArgumentException("Read cache size cannot be negative.");
+			}
+			this.readCacheSize = readCacheSize;
+			return this;
+		}
+
+		/**
+		 * Sets the amount of bytes which are read at once when an uploaded block is not cached. The read is limited to the piece which
+		 * contains the block. By default the entire piece is read.
+		 * @param readAheadSize The amount of bytes (at least 1)
+		 * @return The modified instance
+		 */
+		public Builder setReadAheadSize(int readAheadSize) {
+			// The upper bound of Argument#requireWithinBounds is exclusive, which would reject the default of Integer.MAX_VALUE.
+			if (readAheadSize < 1) {
+				throw new IllegalArgumentException("Read ahead size must be at least 1 byte.");
+			}
+			this.readAheadSize = readAheadSize;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum amount of files which are open at the same time for all torrents combined. The least recently used files are closed
+		 * when more files are needed. By default {@value FileHandlePool#DEFAULT_MAX_OPEN_FILES} files are kept open.
+		 * @param maxOpenFiles The amount of files (at least 1)
+		 * @return The modified instance
+		 */
+		public Builder setMaxOpenFiles(int maxOpenFiles) {
+			Argument.requireWithinBounds(maxOpenFiles, 1, Integer.MAX_VALUE, () -> "Max open files must be at least 1.");
+			this.maxOpenFiles = maxOpenFiles;
+			return this;
+		}
+
+		/**
+		 * Sets the amount of received data which may wait to be written to disk. Once more than the high watermark is pending, no new blocks are
+		 * requested and reading from peers which mainly send us data is suspended until the pending data has drained to the low watermark.
+		 * By default the network is throttled above 64MiB and resumed at 32MiB.
+		 * @param lowWatermark The amount of bytes at which the network is resumed.
+		 * @param highWatermark The amount of bytes above which the network is throttled (at least the low watermark)
+		 * @return The modified instance
+		 */
+		public Builder setDiskWriteWatermarks(long lowWatermark, long highWatermark) {
+			if (lowWatermark < 0) {
+				throw new IllegalArgumentException("Low watermark cannot be negative.");
+			}
+			if (highWatermark < lowWatermark) {
+				throw new IllegalArgumentException("High watermark cannot be lower than the low watermark.");
+			}
+			this.diskWriteLowWatermark = lowWatermark;
+			this.diskWriteHighWatermark = highWatermark;
+			return this;
+		}
+
+		/**
+		 * Sets the amount of threads which verify the pieces which are already on disk when torrents start. The threads are shared by all torrents.
+		 * By default one thread per available processor is used.
+		 * @param hashCheckThreadCount The amount of threads (at least 1)
+		 * @return The modified instance
+		 */
+		public Builder setHashCheckThreadCount(int hashCheckThreadCount) {
+			Argument.requireWithinBounds(hashCheckThreadCount, 1, Integer.MAX_VALUE, () -> "Hash check thread count must be at least 1.");
+			this.hashCheckThreadCount = hashCheckThreadCount;
+			return this;
+		}
+
 		/**
 		 * Sets the peer distributor which is being used by the {@link IPeerConnector} implementation.
 		 * @param peerDistributor The peer distributor.
@@ -1,7 +1,6 @@
 package org.johnnei.javatorrent.bittorrent.protocol;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.function.Supplier;
 
 import org.johnnei.javatorrent.bittorrent.protocol.messages.IMessage;
@@ -14,6 +13,7 @@ import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageInterested;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageRequest;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageUnchoke;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageUninterested;
+import org.johnnei.javatorrent.utils.Argument;
 
 /**
  * The factory which maps the message IDs to the {@link IMessage} instances.
@@ -21,10 +21,18 @@ import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageUninterested;
  */
 public class MessageFactory {
 
-	private final Map<Integer, Supplier<IMessage>> messageSuppliers;
+	/**
+	 * The amount of message IDs which can be encoded in the single byte ID of the protocol.
+	 */
+	private static final int MESSAGE_ID_COUNT = 256;
+
+	/**
+	 * The suppliers indexed by the message ID. Unknown IDs map to <code>null</code>.
+	 */
+	private final Supplier<IMessage>[] messageSuppliers;
 
 	private MessageFactory(Builder builder) {
-		messageSuppliers = builder.messageSuppliers;
+		messageSuppliers = Arrays.copyOf(builder.messageSuppliers, MESSAGE_ID_COUNT);
 	}
 
 	/**
@@ -33,41 +41,62 @@ public class MessageFactory {
 	 * @return New instance of the associated message
 	 */
 	public IMessage createById(int id) {
-		if (!messageSuppliers.containsKey(id)) {
+		Supplier<IMessage> supplier = id >= 0 && id < MESSAGE_ID_COUNT ? messageSuppliers[id] : null;
+		if (supplier == null) {
 			throw new IllegalArgumentException(String.format("Message %d is not known.", id));
 		}
 
-		return messageSuppliers.get(id).get();
+		return supplier.get();
 	}
 
 	public static class Builder {
 
-		private Map<Integer, Supplier<IMessage>> messageSuppliers;
+		private Supplier<IMessage>[] messageSuppliers;
 
+		@SuppressWarnings("unchecked")
 		public Builder() {
-			messageSuppliers = new HashMap<>();
+			messageSuppliers = new Supplier[MESSAGE_ID_COUNT];
 
 			// Register BitTorrent messages
 			registerMessage(BitTorrent.MESSAGE_BITFIELD, MessageBitfield::new);
 			registerMessage(BitTorrent.MESSAGE_CANCEL, MessageCancel::new);
-			registerMessage(BitTorrent.MESSAGE_CHOKE, MessageChoke::new);
+			registerStatelessMessage(BitTorrent.MESSAGE_CHOKE, new MessageChoke());
 			registerMessage(BitTorrent.MESSAGE_HAVE, MessageHave::new);
-			registerMessage(BitTorrent.MESSAGE_INTERESTED, MessageInterested::new);
+			registerStatelessMessage(BitTorrent.MESSAGE_INTERESTED, new MessageInterested());
 			registerMessage(BitTorrent.MESSAGE_PIECE, MessageBlock::new);
 			registerMessage(BitTorrent.MESSAGE_REQUEST, MessageRequest::new);
-			registerMessage(BitTorrent.MESSAGE_UNCHOKE, MessageUnchoke::new);
-			registerMessage(BitTorrent.MESSAGE_UNINTERESTED, MessageUninterested::new);
+			registerStatelessMessage(BitTorrent.MESSAGE_UNCHOKE, new MessageUnchoke());
+			registerStatelessMessage(BitTorrent.MESSAGE_UNINTERESTED, new MessageUninterested());
 		}
 
+		/**
+		 * Registers a message of which a new instance is created for every received message.
+		 * @param id The ID of the message
+		 * @param messageSupplier The supplier which creates new instances of the message
+		 * @return This builder with the message registered
+		 */
 		public Builder registerMessage(int id, Supplier<IMessage> messageSupplier) {
-			if (messageSuppliers.containsKey(id)) {
+			Argument.requireNonNull(messageSupplier, "Message supplier must be set.");
+			Argument.requireWithinBounds(id, 0, MESSAGE_ID_COUNT, () -> String.format("Message id %d is outside of the range [0, 255].", id));
+			if (messageSuppliers[id] != null) {
 				throw new IllegalStateException(String.format("Failed to add message with id %d: Already taken.", id));
 			}
 
-			messageSuppliers.put(id, messageSupplier);
+			messageSuppliers[id] = messageSupplier;
 			return this;
 		}
 
+		/**
+		 * Registers a message which has no payload and thus no state. The given instance is reused for every received message.
+		 * @param id The ID of the message
+		 * @param message The instance which is returned for every message with the given ID
+		 * @return This builder with the message registered
+		 */
+		public Builder registerStatelessMessage(int id, IMessage message) {
+			Argument.requireNonNull(message, "Message must be set.");
+			return registerMessage(id, () -> message);
+		}
+
 		public MessageFactory build() {
 			return new MessageFactory(this);
 		}
@@ -1,19 +1,48 @@
 package org.johnnei.javatorrent.bittorrent.protocol.messages;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.time.Duration;
 import java.util.Optional;
 
 import org.johnnei.javatorrent.bittorrent.protocol.BitTorrent;
+import org.johnnei.javatorrent.network.ByteBufferPool;
 import org.johnnei.javatorrent.network.InStream;
 import org.johnnei.javatorrent.network.OutStream;
 import org.johnnei.javatorrent.torrent.TorrentFileSet;
+import org.johnnei.javatorrent.torrent.files.Piece;
 import org.johnnei.javatorrent.torrent.peer.Peer;
 
 public class MessageBlock implements IMessage {
 
 	private int index;
 	private int offset;
-	private byte[] data;
+	/**
+	 * The payload of the block. When read from the socket this is a buffer which is pooled by the torrent client.
+	 */
+	private ByteBuffer data;
+
+	/**
+	 * The pool to which {@link #data} is returned once it has been written.
+	 */
+	private ByteBufferPool bufferPool;
+
+	/**
+	 * The piece from which the block data is transferred when the data isn't loaded in memory.
+	 */
+	private Piece piece;
+
+	/**
+	 * The length of the block data which is transferred from {@link #piece}.
+	 */
+	private int length;
+
+	/**
+	 * The amount of bytes of the block data which have been transferred from {@link #piece}.
+	 */
+	private int transferredBytes;
 
 	private Duration readDuration;
 
@@ -22,23 +51,132 @@ public class MessageBlock implements IMessage {
 	}
 
 	public MessageBlock(int index, int offset, byte[] data) {
+		this.index = index;
+		this.offset = offset;
+		this.data = ByteBuffer.wrap(data);
+	}
+
+	/**
+	 * Creates a block message of which the payload is taken from a pool.
+	 * @param index The index of the piece
+	 * @param offset The offset within the piece
+	 * @param data The buffer of which the remaining bytes are the block data
+	 * @param bufferPool The pool to which the buffer is released after the message has been written
+	 */
+	public MessageBlock(int index, int offset, ByteBuffer data, ByteBufferPool bufferPool) {
 		this.index = index;
 		this.offset = offset;
 		this.data = data;
+		this.bufferPool = bufferPool;
+	}
+
+	/**
+	 * Creates a block message of which the payload isn't loaded in memory but is transferred straight from the file to the socket.
+	 * @param piece The piece containing the block
+	 * @param offset The offset within the piece
+	 * @param length The length of the block
+	 *
+	 * @see #transferTo(WritableByteChannel, int)
+	 */
+	public MessageBlock(Piece piece, int offset, int length) {
+		this.index = piece.getIndex();
+		this.offset = offset;
+		this.piece = piece;
+		this.length = length;
 	}
 
 	@Override
 	public void write(OutStream outStream) {
+		writeHeader(outStream);
+
+		if (piece != null) {
+			// The socket can't transfer the data from the file, load it instead.
+			ByteBuffer buffer = ByteBuffer.allocate(length);
+			try {
+				piece.loadPiece(offset, buffer);
+			} catch (IOException e) {
+				throw new UncheckedIOException(String.format("Failed to load block %d:%d", index, offset), e);
+			}
+			outStream.write(buffer);
+			return;
+		}
+
+		outStream.write(data);
+		discard();
+	}
+
+	/**
+	 * Returns the block data to the pool it was taken from. This must be invoked when a message which won't be written is dropped.
+	 */
+	public void discard() {
+		if (bufferPool != null) {
+			bufferPool.release(data);
+			bufferPool = null;
+		}
+	}
+
+	/**
+	 * Writes the fields of this message which precede the block data.
+	 * @param outStream The stream to write on
+	 */
+	public void writeHeader(OutStream outStream) {
 		outStream.writeInt(index);
 		outStream.writeInt(offset);
-		outStream.write(data);
+	}
+
+	/**
+	 * @return <code>true</code> when the block data has to be transferred with {@link #transferTo(WritableByteChannel, int)}.
+	 */
+	public boolean isTransferredFromFile() {
+		return piece != null;
+	}
+
+	/**
+	 * Transfers the remaining block data from the file to the given channel.
+	 * @param channel The channel to transfer the data to
+	 * @param maxBytes The maximum amount of bytes to transfer
+	 * @return The amount of bytes transferred
+	 * @throws IOException When the transfer fails
+	 */
+	public long transferTo(WritableByteChannel channel, int maxBytes) throws IOException {
+		long transferred = piece.transferTo(offset + transferredBytes, Math.min(maxBytes, getRemainingTransferLength()), channel);
+		transferredBytes += (int) transferred;
+		return transferred;
+	}
+
+	/**
+	 * @return The amount of bytes of the block data which have not yet been transferred with {@link #transferTo(WritableByteChannel, int)}.
+	 */
+	public int getRemainingTransferLength() {
+		return length - transferredBytes;
+	}
+
+	/**
+	 * @return <code>true</code> when all block data has been transferred with {@link #transferTo(WritableByteChannel, int)}.
+	 */
+	public boolean isTransferComplete() {
+		return transferredBytes >= length;
 	}
 
 	@Override
 	public void read(InStream inStream) {
 		index = inStream.readInt();
 		offset = inStream.readInt();
-		data = inStream.readFully(inStream.available());
+		// Copy the data as the stream buffer is reused for the next message, while the torrent takes ownership of the block data.
+		data = ByteBuffer.wrap(inStream.readFully(inStream.available()));
+		readDuration = inStream.getReadDuration().orElse(null);
+	}
+
+	/**
+	 * Reads the fields which precede the block data from the stream and takes the block data from a separate buffer. This allows the block
+	 * data to be read into a buffer which fits exactly one block.
+	 * @param inStream The stream containing the index and offset
+	 * @param blockData The buffer of which the remaining bytes are the block data. The buffer is owned by this message from now on.
+	 */
+	public void read(InStream inStream, ByteBuffer blockData) {
+		index = inStream.readInt();
+		offset = inStream.readInt();
+		data = blockData;
 		readDuration = inStream.getReadDuration().orElse(null);
 	}
 
@@ -47,7 +185,9 @@ public class MessageBlock implements IMessage {
 		TorrentFileSet torrentFileSet = peer.getTorrent().getFileSet();
 
 		peer.onReceivedBlock(torrentFileSet.getPiece(index), offset);
-		if (data.length <= 0) {
+		if (!data.hasRemaining()) {
+			// The torrent didn't take ownership of the block data, so return it to the pool.
+			peer.getTorrent().getBufferPool().release(data);
 			peer.addStrike(1);
 			return;
 		}
@@ -60,7 +200,7 @@ public class MessageBlock implements IMessage {
 
 	@Override
 	public int getLength() {
-		return 9 + data.length;
+		return 9 + getBlockLength();
 	}
 
 	@Override
@@ -70,7 +210,11 @@ public class MessageBlock implements IMessage {
 
 	@Override
 	public String toString() {
-		return String.format("MessageBlock[index=%d, offset=%d, length=%d]", index, offset, data != null ? data.length : -1);
+		return String.format("MessageBlock[index=%d, offset=%d, length=%d]", index, offset, piece != null || data != null ? getBlockLength() : -1);
+	}
+
+	private int getBlockLength() {
+		return piece != null ? length : data.remaining();
 	}
 
 	public Optional<Duration> getReadDuration() {
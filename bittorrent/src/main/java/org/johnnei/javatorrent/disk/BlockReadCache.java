@@ -0,0 +1,203 @@
+package org.johnnei.javatorrent.disk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.johnnei.javatorrent.torrent.AbstractFileSet;
+import org.johnnei.javatorrent.torrent.files.Piece;
+
+/**
+ * A size bounded LRU cache of the data of pieces which are being uploaded.
+ * Peers usually request the remaining blocks of a piece after the first one, so a miss reads an entire read-ahead window of the piece (by default
+ * the entire piece) at once. The following requests for that window are served from memory without reading the storage again.
+ */
+public class BlockReadCache {
+
+	private final long capacity;
+
+	private final int readAheadSize;
+
+	private final Map<WindowKey, byte[]> windows;
+
+	private long usedBytes;
+
+	private long hits;
+
+	private long misses;
+
+	/**
+	 * Creates a new cache.
+	 * @param capacity The maximum amount of bytes which are cached. A capacity of 0 disables the cache.
+	 * @param readAheadSize The amount of bytes which are read at once on a miss, limited to the size of the piece.
+	 */
+	public BlockReadCache(long capacity, int readAheadSize) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Cache capacity cannot be negative.");
+		}
+		if (readAheadSize < 1) {
+			throw new IllegalArgumentException("Read ahead size must be at least 1 byte.");
+		}
+
+		this.capacity = capacity;
+		this.readAheadSize = readAheadSize;
+		windows = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	/**
+	 * Copies the requested section of the piece into the remaining bytes of the given buffer when it is cached. The position of the given
+	 * buffer is not modified.
+	 * @param piece The piece to read from.
+	 * @param offset The offset within the piece.
+	 * @param target The buffer to fill.
+	 * @return <code>true</code> when the data was cached, otherwise <code>false</code>.
+	 */
+	public boolean read(Piece piece, int offset, ByteBuffer target) {
+		WindowKey key = new WindowKey(piece, getWindowStart(offset));
+		synchronized (windows) {
+			byte[] window = windows.get(key);
+			if (window == null || offset - key.windowStart + target.remaining() > window.length) {
+				return false;
+			}
+
+			hits++;
+			target.duplicate().put(window, offset - key.windowStart, target.remaining());
+			return true;
+		}
+	}
+
+	/**
+	 * Copies the requested section of the piece into the remaining bytes of the given buffer. On a miss the read-ahead window which contains the
+	 * section is read from the piece and cached. The position of the given buffer is not modified.
+	 * @param piece The piece to read from.
+	 * @param offset The offset within the piece.
+	 * @param target The buffer to fill.
+	 * @throws IOException When the piece could not be read.
+	 */
+	public void load(Piece piece, int offset, ByteBuffer target) throws IOException {
+		if (read(piece, offset, target)) {
+			return;
+		}
+
+		synchronized (windows) {
+			misses++;
+		}
+
+		int windowStart = getWindowStart(offset);
+		int windowLength = Math.min(readAheadSize, piece.getSize() - windowStart);
+		if (offset + target.remaining() > windowStart + windowLength || windowLength > capacity) {
+			// The section doesn't fit in a single window, don't pollute the cache.
+			piece.loadPiece(offset, target);
+			return;
+		}
+
+		byte[] window = piece.loadPiece(windowStart, windowLength);
+		target.duplicate().put(window, offset - windowStart, target.remaining());
+
+		synchronized (windows) {
+			byte[] previous = windows.put(new WindowKey(piece, windowStart), window);
+			if (previous != null) {
+				usedBytes -= previous.length;
+			}
+			usedBytes += window.length;
+			evict();
+		}
+	}
+
+	/**
+	 * Drops the cached windows of the pieces of the given file set (ex. when its torrent is stopped or removed).
+	 * @param fileSet The file set of which the windows are dropped.
+	 */
+	public void invalidate(AbstractFileSet fileSet) {
+		synchronized (windows) {
+			Iterator<Map.Entry<WindowKey, byte[]>> iterator = windows.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Map.Entry<WindowKey, byte[]> entry = iterator.next();
+				if (entry.getKey().piece.getFileSet() == fileSet) {
+					usedBytes -= entry.getValue().length;
+					iterator.remove();
+				}
+			}
+		}
+	}
+
+	private void evict() {
+		Iterator<byte[]> iterator = windows.values().iterator();
+		while (usedBytes > capacity && iterator.hasNext()) {
+			usedBytes -= iterator.next().length;
+			iterator.remove();
+		}
+	}
+
+	private int getWindowStart(int offset) {
+		return (offset / readAheadSize) * readAheadSize;
+	}
+
+	/**
+	 * @return The amount of bytes which are cached.
+	 */
+	public long getUsedBytes() {
+		synchronized (windows) {
+			return usedBytes;
+		}
+	}
+
+	/**
+	 * @return The amount of reads which have been served from the cache.
+	 */
+	public long getHitCount() {
+		synchronized (windows) {
+			return hits;
+		}
+	}
+
+	/**
+	 * @return The amount of loads which had to read the piece.
+	 */
+	public long getMissCount() {
+		synchronized (windows) {
+			return misses;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("BlockReadCache[used=%d, capacity=%d, readAhead=%d]", getUsedBytes(), capacity, readAheadSize);
+	}
+
+	/**
+	 * Identifies a window by the piece instance, as the index of pieces is only unique within a single torrent.
+	 */
+	private static final class WindowKey {
+
+		private final Piece piece;
+
+		private final int windowStart;
+
+		WindowKey(Piece piece, int windowStart) {
+			this.piece = piece;
+			this.windowStart = windowStart;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+
+			if (!(o instanceof WindowKey)) {
+				return false;
+			}
+
+			WindowKey other = (WindowKey) o;
+			return piece == other.piece && windowStart == other.windowStart;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(piece) + windowStart;
+		}
+	}
+}
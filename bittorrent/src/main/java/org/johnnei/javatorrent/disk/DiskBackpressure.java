@@ -0,0 +1,113 @@
+package org.johnnei.javatorrent.disk;
+
+/**
+ * Tracks the amount of bytes which are held in memory by disk jobs which have not been processed yet (ex. received blocks which still have to
+ * be written). Once the pending bytes exceed the high watermark the disk is considered to be falling behind and the network should stop adding
+ * data until the pending bytes have drained to the low watermark.
+ */
+public class DiskBackpressure {
+
+	/**
+	 * The default amount of pending bytes at which the network gets throttled (64MiB).
+	 */
+	public static final long DEFAULT_HIGH_WATERMARK = 64L * 1024 * 1024;
+
+	/**
+	 * The default amount of pending bytes at which the network is resumed (32MiB).
+	 */
+	public static final long DEFAULT_LOW_WATERMARK = 32L * 1024 * 1024;
+
+	private final long lowWatermark;
+
+	private final long highWatermark;
+
+	private long pendingBytes;
+
+	private volatile boolean throttled;
+
+	/**
+	 * Creates a new backpressure tracker with the default watermarks.
+	 */
+	public DiskBackpressure() {
+		this(DEFAULT_LOW_WATERMARK, DEFAULT_HIGH_WATERMARK);
+	}
+
+	/**
+	 * Creates a new backpressure tracker.
+	 * @param lowWatermark The amount of pending bytes at or below which a throttled network is resumed.
+	 * @param highWatermark The amount of pending bytes above which the network is throttled.
+	 */
+	public DiskBackpressure(long lowWatermark, long highWatermark) {
+		if (lowWatermark < 0) {
+			throw new IllegalArgumentException("Low watermark cannot be negative.");
+		}
+		if (highWatermark < lowWatermark) {
+			throw new IllegalArgumentException("High watermark cannot be lower than the low watermark.");
+		}
+		this.lowWatermark = lowWatermark;
+		this.highWatermark = highWatermark;
+	}
+
+	/**
+	 * Records that a job which holds the given amount of bytes has been queued.
+	 * @param bytes The amount of bytes.
+	 */
+	public synchronized void onQueued(long bytes) {
+		if (bytes == 0) {
+			return;
+		}
+
+		pendingBytes += bytes;
+		if (pendingBytes > highWatermark) {
+			throttled = true;
+		}
+	}
+
+	/**
+	 * Records that a job which holds the given amount of bytes has been processed or discarded.
+	 * @param bytes The amount of bytes.
+	 */
+	public synchronized void onReleased(long bytes) {
+		if (bytes == 0) {
+			return;
+		}
+
+		pendingBytes -= bytes;
+		if (pendingBytes <= lowWatermark) {
+			throttled = false;
+		}
+	}
+
+	/**
+	 * @return <code>true</code> when the pending bytes exceeded the high watermark and haven't drained to the low watermark yet.
+	 */
+	public boolean isThrottled() {
+		return throttled;
+	}
+
+	/**
+	 * @return The amount of bytes held by the queued jobs.
+	 */
+	public synchronized long getPendingBytes() {
+		return pendingBytes;
+	}
+
+	/**
+	 * @return The amount of pending bytes at or below which a throttled network is resumed.
+	 */
+	public long getLowWatermark() {
+		return lowWatermark;
+	}
+
+	/**
+	 * @return The amount of pending bytes above which the network is throttled.
+	 */
+	public long getHighWatermark() {
+		return highWatermark;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("DiskBackpressure[pending=%d, low=%d, high=%d, throttled=%s]", getPendingBytes(), lowWatermark, highWatermark, throttled);
+	}
+}
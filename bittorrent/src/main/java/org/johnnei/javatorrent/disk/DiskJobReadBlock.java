@@ -1,9 +1,11 @@
 package org.johnnei.javatorrent.disk;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.function.Consumer;
 
 import org.johnnei.javatorrent.internal.disk.DiskJobPriority;
+import org.johnnei.javatorrent.network.ByteBufferPool;
 import org.johnnei.javatorrent.torrent.files.Piece;
 
 public class DiskJobReadBlock implements IDiskJob {
@@ -14,13 +16,48 @@ public class DiskJobReadBlock implements IDiskJob {
 
 	private final int length;
 
+	private final ByteBufferPool bufferPool;
+
+	private final BlockReadCache readCache;
+
 	private byte[] blockData;
 
+	private ByteBuffer blockBuffer;
+
 	public DiskJobReadBlock(Piece piece, int offset, int length, Consumer<DiskJobReadBlock> callback) {
+		this(piece, offset, length, null, callback);
+	}
+
+	/**
+	 * Creates a read job which reads into a buffer taken from the given pool.
+	 * The consumer of {@link #getBlockBuffer()} becomes the owner of the buffer and is responsible for releasing it.
+	 * @param piece The piece to read from
+	 * @param offset The offset within the piece
+	 * @param length The amount of bytes to read
+	 * @param bufferPool The pool to take the buffer from or <code>null</code> to allocate a new buffer
+	 * @param callback The callback to invoke once the data has been read
+	 */
+	public DiskJobReadBlock(Piece piece, int offset, int length, ByteBufferPool bufferPool, Consumer<DiskJobReadBlock> callback) {
+		this(piece, offset, length, bufferPool, null, callback);
+	}
+
+	/**
+	 * Creates a read job which reads into a buffer taken from the given pool through the given cache.
+	 * The consumer of {@link #getBlockBuffer()} becomes the owner of the buffer and is responsible for releasing it.
+	 * @param piece The piece to read from
+	 * @param offset The offset within the piece
+	 * @param length The amount of bytes to read
+	 * @param bufferPool The pool to take the buffer from or <code>null</code> to allocate a new buffer
+	 * @param readCache The cache to read through or <code>null</code> to read from the piece directly
+	 * @param callback The callback to invoke once the data has been read
+	 */
+	public DiskJobReadBlock(Piece piece, int offset, int length, ByteBufferPool bufferPool, BlockReadCache readCache, Consumer<DiskJobReadBlock> callback) {
 		this.callback = callback;
 		this.piece = piece;
 		this.offset = offset;
 		this.length = length;
+		this.bufferPool = bufferPool;
+		this.readCache = readCache;
 	}
 
 	/**
@@ -28,10 +65,29 @@ public class DiskJobReadBlock implements IDiskJob {
 	 */
 	@Override
 	public void process() throws IOException {
-		blockData = piece.loadPiece(offset, length);
+		if (bufferPool == null) {
+			blockData = new byte[length];
+			load(ByteBuffer.wrap(blockData));
+		} else {
+			blockBuffer = bufferPool.acquire(length);
+			try {
+				load(blockBuffer);
+			} catch (IOException e) {
+				bufferPool.release(blockBuffer);
+				throw e;
+			}
+		}
 		callback.accept(this);
 	}
 
+	private void load(ByteBuffer buffer) throws IOException {
+		if (readCache == null) {
+			piece.loadPiece(offset, buffer);
+		} else {
+			readCache.load(piece, offset, buffer);
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -40,13 +96,48 @@ public class DiskJobReadBlock implements IDiskJob {
 		return DiskJobPriority.OUTGOING_DATA.getPriority();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object getStripeKey() {
+		return piece.getStripeKey();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object getFairnessKey() {
+		return piece.getFileSet();
+	}
+
 	/**
 	 * The read data from the piece
 	 * @return The read data
 	 * @see #getPiece()
 	 */
 	public byte[] getBlockData() {
-		return blockData;
+		if (blockBuffer == null) {
+			return blockData;
+		}
+
+		byte[] data = new byte[blockBuffer.remaining()];
+		blockBuffer.duplicate().get(data);
+		return data;
+	}
+
+	/**
+	 * The read data from the piece
+	 * @return The buffer of which the remaining bytes are the read data
+	 * @see #getBlockData()
+	 */
+	public ByteBuffer getBlockBuffer() {
+		if (blockBuffer == null) {
+			return ByteBuffer.wrap(blockData);
+		}
+
+		return blockBuffer;
 	}
 
 	/**
@@ -0,0 +1,130 @@
+package org.johnnei.javatorrent.disk;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The live statistics of a single type of {@link IDiskJob}. A growing queue depth or wait time indicates that the disk is falling behind on the
+ * submitted jobs.
+ */
+public class DiskJobStatistics {
+
+	private final String jobType;
+
+	private final AtomicInteger queueDepth;
+
+	private final LongAdder completedCount;
+
+	private final LongAdder failedCount;
+
+	private final LatencyHistogram waitTimes;
+
+	private final LatencyHistogram serviceTimes;
+
+	/**
+	 * Creates new statistics.
+	 * @param jobType The name of the type of job.
+	 */
+	public DiskJobStatistics(String jobType) {
+		this.jobType = jobType;
+		queueDepth = new AtomicInteger();
+		completedCount = new LongAdder();
+		failedCount = new LongAdder();
+		waitTimes = new LatencyHistogram();
+		serviceTimes = new LatencyHistogram();
+	}
+
+	/**
+	 * Records that a job has been submitted.
+	 */
+	public void onQueued() {
+		queueDepth.incrementAndGet();
+	}
+
+	/**
+	 * Records that a job has been taken from the queue to be processed.
+	 * @param waitNanos The time the job has been waiting in the queue.
+	 */
+	public void onStarted(long waitNanos) {
+		waitTimes.record(waitNanos);
+	}
+
+	/**
+	 * Records that a job has been processed successfully and left the queue.
+	 * @param serviceNanos The time it took to process the job.
+	 */
+	public void onCompleted(long serviceNanos) {
+		serviceTimes.record(serviceNanos);
+		completedCount.increment();
+		queueDepth.decrementAndGet();
+	}
+
+	/**
+	 * Records that an attempt to process a job failed. The job remains queued to be retried.
+	 * @param serviceNanos The time the failed attempt took.
+	 */
+	public void onFailed(long serviceNanos) {
+		serviceTimes.record(serviceNanos);
+		failedCount.increment();
+	}
+
+	/**
+	 * Records that a job has been removed from the queue without completing.
+	 */
+	public void onDiscarded() {
+		queueDepth.decrementAndGet();
+	}
+
+	/**
+	 * @return The name of the type of job.
+	 */
+	public String getJobType() {
+		return jobType;
+	}
+
+	/**
+	 * @return The amount of jobs which have been submitted but not yet completed, including jobs which are waiting to be retried.
+	 */
+	public int getQueueDepth() {
+		return queueDepth.get();
+	}
+
+	/**
+	 * @return The amount of jobs which have been completed.
+	 */
+	public long getCompletedCount() {
+		return completedCount.sum();
+	}
+
+	/**
+	 * @return The amount of attempts which failed.
+	 */
+	public long getFailedCount() {
+		return failedCount.sum();
+	}
+
+	/**
+	 * @return The time between queueing a job (or the retry of a job) and starting to process it.
+	 */
+	public LatencyHistogram getWaitTimes() {
+		return waitTimes;
+	}
+
+	/**
+	 * @return The time it took to process the jobs.
+	 */
+	public LatencyHistogram getServiceTimes() {
+		return serviceTimes;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("DiskJobStatistics[type=%s, queued=%d, completed=%d, failed=%d, wait=%s, service=%s]",
+				jobType,
+				getQueueDepth(),
+				getCompletedCount(),
+				getFailedCount(),
+				waitTimes,
+				serviceTimes);
+	}
+}
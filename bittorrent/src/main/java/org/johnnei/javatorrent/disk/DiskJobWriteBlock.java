@@ -1,6 +1,8 @@
 package org.johnnei.javatorrent.disk;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.function.Consumer;
 
 import org.johnnei.javatorrent.internal.disk.DiskJobPriority;
@@ -11,7 +13,7 @@ public class DiskJobWriteBlock implements IDiskJob {
 	private final Consumer<DiskJobWriteBlock> callback;
 	private final Piece piece;
 	private final int blockIndex;
-	private final byte[] data;
+	private final ByteBuffer data;
 
 	/**
 	 * Creates a new job to store a block of a piece.
@@ -21,6 +23,17 @@ public class DiskJobWriteBlock implements IDiskJob {
 	 * @param callback The callback which gets called on completion of this job
 	 */
 	public DiskJobWriteBlock(Piece piece, int blockIndex, byte[] data, Consumer<DiskJobWriteBlock> callback) {
+		this(piece, blockIndex, ByteBuffer.wrap(data), callback);
+	}
+
+	/**
+	 * Creates a new job to store a block of a piece.
+	 * @param piece The piece in which this block is found
+	 * @param blockIndex The index of the block within the given piece.
+	 * @param data The buffer of which the remaining bytes will be written for the block
+	 * @param callback The callback which gets called on completion of this job
+	 */
+	public DiskJobWriteBlock(Piece piece, int blockIndex, ByteBuffer data, Consumer<DiskJobWriteBlock> callback) {
 		this.callback = callback;
 		this.piece = piece;
 		this.blockIndex = blockIndex;
@@ -33,6 +46,35 @@ public class DiskJobWriteBlock implements IDiskJob {
 		callback.accept(this);
 	}
 
+	/**
+	 * Stores the blocks of multiple jobs with a single write per file and notifies the callback of each job afterwards.
+	 * @param jobs The jobs of which the blocks are consecutive blocks of the same piece, in order.
+	 * @throws IOException When the blocks could not be written. None of the callbacks have been notified in that case.
+	 *
+	 * @see #isSuccessorOf(DiskJobWriteBlock)
+	 */
+	public static void process(List<DiskJobWriteBlock> jobs) throws IOException {
+		DiskJobWriteBlock first = jobs.get(0);
+		ByteBuffer[] blocks = new ByteBuffer[jobs.size()];
+		for (int i = 0; i < blocks.length; i++) {
+			blocks[i] = jobs.get(i).data;
+		}
+
+		first.piece.storeBlocks(first.blockIndex, blocks);
+		for (DiskJobWriteBlock job : jobs) {
+			job.callback.accept(job);
+		}
+	}
+
+	/**
+	 * Checks if this job writes the block directly after the block of the given job, which allows both blocks to be written at once.
+	 * @param previous The job to check against.
+	 * @return <code>true</code> when this job stores the next block of the same piece.
+	 */
+	public boolean isSuccessorOf(DiskJobWriteBlock previous) {
+		return piece == previous.piece && blockIndex == previous.blockIndex + 1;
+	}
+
 	/**
 	 * Gets the piece for which this store task is being used.
 	 * @return The piece for which a block is/was being written.
@@ -41,6 +83,14 @@ public class DiskJobWriteBlock implements IDiskJob {
 		return piece;
 	}
 
+	/**
+	 * Gets the buffer containing the data of the block.
+	 * @return The buffer of which the remaining bytes are the block.
+	 */
+	public ByteBuffer getBlockData() {
+		return data;
+	}
+
 	/**
 	 * Gets the block index within the owning piece.
 	 * @return The index of the block within the piece.
@@ -59,6 +109,31 @@ public class DiskJobWriteBlock implements IDiskJob {
 		return DiskJobPriority.RECEIVED_DATA.getPriority();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object getStripeKey() {
+		return piece.getStripeKey();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object getFairnessKey() {
+		return piece.getFileSet();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The full capacity of the buffer is counted as buffers from a pool are generally larger than the block they hold.
+	 */
+	@Override
+	public int getBufferedBytes() {
+		return data.capacity();
+	}
+
 	@Override
 	public String toString() {
 		return String.format("DiskJobWriteBlock[piece=%d, block=%d]", piece.getIndex(), blockIndex);
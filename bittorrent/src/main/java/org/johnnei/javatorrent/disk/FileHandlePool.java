@@ -0,0 +1,237 @@
+package org.johnnei.javatorrent.disk;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.johnnei.javatorrent.torrent.FileInfo;
+import org.johnnei.javatorrent.utils.Argument;
+
+/**
+ * A pool of file handles which limits the amount of files which are open at the same time.
+ * Files are opened on first use and the least recently used files are closed once more than the maximum amount of files are open. A handle is
+ * borrowed with {@link #acquire(FileInfo)} for the duration of a single operation and must be returned with {@link #release(FileInfo)}. Borrowed
+ * handles are closed once they are returned, so the limit is exceeded temporarily when all handles are in use instead of blocking the caller.
+ * Files are opened outside of the lock of the pool, so a slow file system only stalls the threads which need that file.
+ */
+public class FileHandlePool implements Closeable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(FileHandlePool.class);
+
+	/**
+	 * The default maximum amount of files which are open at the same time.
+	 */
+	public static final int DEFAULT_MAX_OPEN_FILES = 256;
+
+	private final int maxOpenFiles;
+
+	private final Map<File, Handle> handles;
+
+	/**
+	 * Creates a new pool.
+	 * @param maxOpenFiles The maximum amount of files which are open at the same time.
+	 */
+	public FileHandlePool(int maxOpenFiles) {
+		Argument.requireWithinBounds(maxOpenFiles, 1, Integer.MAX_VALUE, () -> "Max open files must be at least 1.");
+		this.maxOpenFiles = maxOpenFiles;
+		handles = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	/**
+	 * Borrows the handle of the given file. The file (and its parent directories) is created when it doesn't exist yet.
+	 * @param file The file to open.
+	 * @return The read/write channel of the file.
+	 * @throws IOException When the file can't be opened.
+	 */
+	public FileChannel acquire(FileInfo file) throws IOException {
+		File key = getKey(file);
+		synchronized (handles) {
+			Handle handle = handles.get(key);
+			if (handle != null && handle.isOpen()) {
+				return borrow(handle);
+			}
+		}
+
+		RandomAccessFile fileAccess = open(key);
+		RandomAccessFile unusedFileAccess = null;
+		try {
+			synchronized (handles) {
+				Handle handle = handles.get(key);
+				if (handle != null && handle.isOpen()) {
+					// Another thread opened the file in the meantime.
+					unusedFileAccess = fileAccess;
+					return borrow(handle);
+				}
+
+				Handle openedHandle = new Handle(fileAccess);
+				if (handle != null) {
+					// The channel got closed underneath the pool (ex. by interrupting a thread which was using it). The borrowers of the closed handle
+					// will return it by file, so they are accounted on the replacement.
+					openedHandle.borrowCount = handle.borrowCount;
+					openedHandle.closeOnRelease = handle.closeOnRelease;
+					unusedFileAccess = handle.fileAccess;
+				}
+
+				handles.put(key, openedHandle);
+				return borrow(openedHandle);
+			}
+		} finally {
+			if (unusedFileAccess != null) {
+				closeQuietly(key, unusedFileAccess);
+			}
+		}
+	}
+
+	private FileChannel borrow(Handle handle) {
+		handle.borrowCount++;
+		closeIdleHandles();
+		return handle.fileAccess.getChannel();
+	}
+
+	/**
+	 * Returns the handle which has been borrowed with {@link #acquire(FileInfo)}.
+	 * @param file The file of which the handle is returned.
+	 */
+	public void release(FileInfo file) {
+		synchronized (handles) {
+			Handle handle = handles.get(getKey(file));
+			if (handle == null || handle.borrowCount == 0) {
+				throw new IllegalStateException(String.format("Handle of %s has not been acquired.", file.getFileName()));
+			}
+
+			handle.borrowCount--;
+			if (handle.borrowCount == 0 && (handle.closeOnRelease || !handle.isOpen())) {
+				handles.remove(getKey(file));
+				closeQuietly(getKey(file), handle.fileAccess);
+			}
+			closeIdleHandles();
+		}
+	}
+
+	/**
+	 * Closes the handle of the given file. When the handle is borrowed it is closed once all borrowers have returned it.
+	 * @param file The file to close.
+	 */
+	public void close(FileInfo file) {
+		synchronized (handles) {
+			File key = getKey(file);
+			Handle handle = handles.get(key);
+			if (handle == null) {
+				return;
+			}
+
+			if (handle.borrowCount == 0) {
+				handles.remove(key);
+				closeQuietly(key, handle.fileAccess);
+			} else {
+				handle.closeOnRelease = true;
+			}
+		}
+	}
+
+	/**
+	 * Closes all handles, including the borrowed ones.
+	 */
+	@Override
+	public void close() {
+		synchronized (handles) {
+			handles.forEach((file, handle) -> closeQuietly(file, handle.fileAccess));
+			handles.clear();
+		}
+	}
+
+	private void closeIdleHandles() {
+		Iterator<Map.Entry<File, Handle>> iterator = handles.entrySet().iterator();
+		while (handles.size() > maxOpenFiles && iterator.hasNext()) {
+			Map.Entry<File, Handle> entry = iterator.next();
+			if (entry.getValue().borrowCount == 0) {
+				iterator.remove();
+				closeQuietly(entry.getKey(), entry.getValue().fileAccess);
+			}
+		}
+	}
+
+	/**
+	 * Opens the given file for read/write access, the file and its parent directories are created when they don't exist yet.
+	 * @param file The file to open.
+	 * @return The opened file.
+	 * @throws IOException When the file can't be opened.
+	 */
+	static RandomAccessFile open(File file) throws IOException {
+		createParentDirectories(file);
+		return new RandomAccessFile(file, "rw");
+	}
+
+	/**
+	 * Creates the parent directories of the given file when they don't exist yet.
+	 * @param file The file which is about to be opened.
+	 * @throws IOException When the directories can't be created.
+	 */
+	static void createParentDirectories(File file) throws IOException {
+		File parent = file.getParentFile();
+		if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+			throw new IOException(String.format("Failed to create directory %s", parent));
+		}
+	}
+
+	private static void closeQuietly(File file, RandomAccessFile fileAccess) {
+		try {
+			fileAccess.close();
+		} catch (IOException e) {
+			LOGGER.warn("Failed to close {}", file, e);
+		}
+	}
+
+	private static File getKey(FileInfo file) {
+		return file.getFile().getAbsoluteFile();
+	}
+
+	/**
+	 * @return The amount of files which are open.
+	 */
+	public int getOpenFileCount() {
+		synchronized (handles) {
+			return handles.size();
+		}
+	}
+
+	/**
+	 * @return The maximum amount of files which are open at the same time.
+	 */
+	public int getMaxOpenFiles() {
+		return maxOpenFiles;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("FileHandlePool[open=%d, max=%d]", getOpenFileCount(), maxOpenFiles);
+	}
+
+	private static final class Handle {
+
+		private final RandomAccessFile fileAccess;
+
+		private int borrowCount;
+
+		/**
+		 * If the handle must be closed once it is no longer borrowed.
+		 */
+		private boolean closeOnRelease;
+
+		Handle(RandomAccessFile fileAccess) {
+			this.fileAccess = fileAccess;
+		}
+
+		boolean isOpen() {
+			return fileAccess.getChannel().isOpen();
+		}
+	}
+}
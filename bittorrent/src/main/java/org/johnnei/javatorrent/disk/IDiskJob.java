@@ -16,4 +16,34 @@ public interface IDiskJob {
 	 */
 	int getPriority();
 
+	/**
+	 * The key which defines the region on disk this job operates on. Jobs with equal keys are processed in order of their priority and submission,
+	 * jobs with different keys may be processed in parallel.
+	 *
+	 * @return The stripe key or <code>null</code> when the job can be processed independently of other jobs.
+	 */
+	default Object getStripeKey() {
+		return null;
+	}
+
+	/**
+	 * The key which identifies the owner of this job (ex. the file set of a torrent). Jobs of equal priority are served round-robin over the
+	 * owners, so a single busy owner can't starve the others.
+	 *
+	 * @return The owner key or <code>null</code> when the job has no specific owner.
+	 */
+	default Object getFairnessKey() {
+		return null;
+	}
+
+	/**
+	 * The amount of bytes of memory which this job holds until it has been processed (ex. the data of a block which is to be written). These
+	 * bytes count towards the {@link DiskBackpressure} which throttles the network when the disk falls behind.
+	 *
+	 * @return The amount of bytes.
+	 */
+	default int getBufferedBytes() {
+		return 0;
+	}
+
 }
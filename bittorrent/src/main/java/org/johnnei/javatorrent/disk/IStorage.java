@@ -0,0 +1,96 @@
+package org.johnnei.javatorrent.disk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+
+import org.johnnei.javatorrent.torrent.FileInfo;
+
+/**
+ * The backend which stores the data of the files within a {@link org.johnnei.javatorrent.torrent.AbstractFileSet}.
+ * All offsets are relative to the start of the given file. Implementations must allow concurrent access to different regions.
+ */
+public interface IStorage extends Closeable {
+
+	/**
+	 * Reads the bytes at the given offset into the remaining bytes of the given buffer. The position of the buffer is advanced.
+	 * @param file The file to read from.
+	 * @param offset The offset within the file.
+	 * @param target The buffer to fill.
+	 * @throws IOException When the bytes could not be read.
+	 */
+	void read(FileInfo file, long offset, ByteBuffer target) throws IOException;
+
+	/**
+	 * Writes the remaining bytes of the given buffer at the given offset. The position of the buffer is advanced.
+	 * @param file The file to write to.
+	 * @param offset The offset within the file.
+	 * @param source The buffer to write.
+	 * @throws IOException When the bytes could not be written.
+	 */
+	void write(FileInfo file, long offset, ByteBuffer source) throws IOException;
+
+	/**
+	 * Writes the remaining bytes of the given buffers as one contiguous range starting at the given offset. The positions of the buffers are
+	 * advanced. Implementations which support gathering writes should override this to write all buffers with a single call.
+	 * @param file The file to write to.
+	 * @param offset The offset within the file.
+	 * @param sources The buffers to write, in order.
+	 * @throws IOException When the bytes could not be written.
+	 */
+	default void writeGathered(FileInfo file, long offset, ByteBuffer[] sources) throws IOException {
+		long position = offset;
+		for (ByteBuffer source : sources) {
+			int length = source.remaining();
+			write(file, position, source);
+			position += length;
+		}
+	}
+
+	/**
+	 * Feeds the given range of the file to the digest.
+	 * @param file The file to hash.
+	 * @param offset The offset within the file.
+	 * @param length The amount of bytes to hash.
+	 * @param digest The digest to update.
+	 * @throws IOException When the bytes could not be read.
+	 */
+	void hash(FileInfo file, long offset, int length, MessageDigest digest) throws IOException;
+
+	/**
+	 * Transfers bytes of the file to the given channel. Depending on the channel fewer bytes than requested can be transferred.
+	 * @param file The file to transfer from.
+	 * @param offset The offset within the file.
+	 * @param length The maximum amount of bytes to transfer.
+	 * @param target The channel to write to.
+	 * @return The amount of transferred bytes.
+	 * @throws IOException When the bytes could not be transferred.
+	 */
+	long transferTo(FileInfo file, long offset, long length, WritableByteChannel target) throws IOException;
+
+	/**
+	 * Checks if {@link #transferTo(FileInfo, long, long, WritableByteChannel)} lets the operating system copy the bytes to the channel without
+	 * loading them into the JVM. Only in that case blocks are transferred while the socket is being written, other storages are read by a disk job.
+	 * @return <code>true</code> when the transfer doesn't copy the bytes through a buffer.
+	 */
+	default boolean supportsZeroCopyTransfer() {
+		return false;
+	}
+
+	/**
+	 * Gets the amount of bytes of the file which are present in the storage.
+	 * @param file The file to check.
+	 * @return The stored size of the file.
+	 * @throws IOException When the size could not be determined.
+	 */
+	long getStoredSize(FileInfo file) throws IOException;
+
+	/**
+	 * Forces all written bytes to be written to the storage device.
+	 * @throws IOException When the bytes could not be written.
+	 */
+	void flush() throws IOException;
+
+}
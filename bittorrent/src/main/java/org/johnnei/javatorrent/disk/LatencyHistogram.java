@@ -0,0 +1,127 @@
+package org.johnnei.javatorrent.disk;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.johnnei.javatorrent.utils.Argument;
+
+/**
+ * A histogram of durations with buckets of increasing powers of two nanoseconds. Recording is lock free, so the values which are read while
+ * durations are being recorded are a best effort snapshot.
+ */
+public class LatencyHistogram {
+
+	/**
+	 * The amount of buckets, the last bucket contains all durations of 2^38ns (~4.5 minutes) and longer.
+	 */
+	private static final int BUCKET_COUNT = 40;
+
+	private final AtomicLongArray buckets;
+
+	private final LongAdder totalNanos;
+
+	private final LongAccumulator maxNanos;
+
+	public LatencyHistogram() {
+		buckets = new AtomicLongArray(BUCKET_COUNT);
+		totalNanos = new LongAdder();
+		maxNanos = new LongAccumulator(Math::max, 0);
+	}
+
+	/**
+	 * Records a duration.
+	 * @param nanos The duration in nanoseconds, negative values are recorded as 0.
+	 */
+	public void record(long nanos) {
+		long duration = Math.max(0, nanos);
+		buckets.incrementAndGet(getBucket(duration));
+		totalNanos.add(duration);
+		maxNanos.accumulate(duration);
+	}
+
+	private static int getBucket(long nanos) {
+		// Bucket i contains the durations in [2^(i-1), 2^i) nanoseconds.
+		return Math.min(BUCKET_COUNT - 1, Long.SIZE - Long.numberOfLeadingZeros(nanos));
+	}
+
+	/**
+	 * @return The amount of recorded durations.
+	 */
+	public long getCount() {
+		long count = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			count += buckets.get(i);
+		}
+		return count;
+	}
+
+	/**
+	 * @return The average of the recorded durations.
+	 */
+	public Duration getMean() {
+		long count = getCount();
+		if (count == 0) {
+			return Duration.ZERO;
+		}
+
+		return Duration.ofNanos(totalNanos.sum() / count);
+	}
+
+	/**
+	 * @return The longest recorded duration.
+	 */
+	public Duration getMax() {
+		return Duration.ofNanos(maxNanos.get());
+	}
+
+	/**
+	 * Estimates the duration below which the given fraction of the recorded durations fall. The estimate is the upper bound of the bucket which
+	 * contains the percentile, so it overestimates by less than a factor two.
+	 * @param percentile The fraction of the durations (ex. 0.99 for the 99th percentile).
+	 * @return The estimated percentile or {@link Duration#ZERO} when nothing has been recorded.
+	 */
+	public Duration getPercentile(double percentile) {
+		if (percentile < 0 || percentile > 1) {
+			throw new IllegalArgumentException("Percentile must be between 0 and 1.");
+		}
+
+		long[] counts = new long[BUCKET_COUNT];
+		long count = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts[i] = buckets.get(i);
+			count += counts[i];
+		}
+
+		if (count == 0) {
+			return Duration.ZERO;
+		}
+
+		long threshold = (long) Math.ceil(count * percentile);
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT - 1; i++) {
+			seen += counts[i];
+			if (seen >= threshold) {
+				return Duration.ofNanos(Math.min(1L << i, maxNanos.get()));
+			}
+		}
+
+		return getMax();
+	}
+
+	/**
+	 * Gets the amount of durations which have been recorded in the given bucket.
+	 * @param bucket The bucket index, bucket i contains the durations in [2^(i-1), 2^i) nanoseconds.
+	 * @return The amount of durations.
+	 */
+	public long getBucketCount(int bucket) {
+		Argument.requireWithinBounds(bucket, 0, BUCKET_COUNT, () -> String.format("Bucket %d is not within the %d buckets.", bucket, BUCKET_COUNT));
+		return buckets.get(bucket);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("LatencyHistogram[count=%d, mean=%s, p99=%s, max=%s]", getCount(), getMean(), getPercentile(0.99), getMax());
+	}
+}
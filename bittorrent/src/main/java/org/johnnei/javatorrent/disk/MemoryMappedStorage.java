@@ -0,0 +1,110 @@
+package org.johnnei.javatorrent.disk;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.johnnei.javatorrent.internal.disk.MappedFile;
+import org.johnnei.javatorrent.torrent.FileInfo;
+
+/**
+ * A storage which accesses the files through {@link java.nio.MappedByteBuffer}s.
+ * Blocks are copied straight between the given buffers and the mapped regions without locking the file, and hashes are computed over the
+ * mapped regions. Files grow as the regions which are accessed get mapped and are unmapped when the storage is closed.
+ * The regions of a file are mapped on first use, so the storage keeps its own handle open for every file which has been accessed until the storage
+ * is closed instead of borrowing handles from a {@link FileHandlePool}.
+ *
+ * @see MappedFile
+ */
+public class MemoryMappedStorage implements IStorage {
+
+	private final Map<FileInfo, MappedFile> mappedFiles;
+
+	private final Map<FileInfo, RandomAccessFile> openFiles;
+
+	public MemoryMappedStorage() {
+		mappedFiles = new ConcurrentHashMap<>();
+		openFiles = new HashMap<>();
+	}
+
+	@Override
+	public void read(FileInfo file, long offset, ByteBuffer target) throws IOException {
+		getMappedFile(file).read(offset, target);
+	}
+
+	@Override
+	public void write(FileInfo file, long offset, ByteBuffer source) throws IOException {
+		getMappedFile(file).write(offset, source);
+	}
+
+	@Override
+	public void hash(FileInfo file, long offset, int length, MessageDigest digest) throws IOException {
+		getMappedFile(file).digest(offset, length, digest);
+	}
+
+	@Override
+	public long transferTo(FileInfo file, long offset, long length, WritableByteChannel target) throws IOException {
+		// The channel transfer allows the operating system to serve the data from the same page cache as the mapping.
+		return getChannel(file).transferTo(offset, length, target);
+	}
+
+	@Override
+	public boolean supportsZeroCopyTransfer() {
+		return true;
+	}
+
+	@Override
+	public long getStoredSize(FileInfo file) {
+		return file.getFile().length();
+	}
+
+	@Override
+	public void flush() {
+		mappedFiles.values().forEach(MappedFile::flush);
+	}
+
+	@Override
+	public void close() throws IOException {
+		mappedFiles.values().forEach(MappedFile::close);
+		mappedFiles.clear();
+		synchronized (openFiles) {
+			for (RandomAccessFile fileAccess : openFiles.values()) {
+				fileAccess.close();
+			}
+			openFiles.clear();
+		}
+	}
+
+	private MappedFile getMappedFile(FileInfo file) throws IOException {
+		MappedFile mappedFile = mappedFiles.get(file);
+		if (mappedFile == null) {
+			FileChannel channel = getChannel(file);
+			mappedFile = mappedFiles.computeIfAbsent(file, key -> new MappedFile(channel, key.getSize()));
+		}
+
+		return mappedFile;
+	}
+
+	private FileChannel getChannel(FileInfo file) throws IOException {
+		synchronized (openFiles) {
+			RandomAccessFile fileAccess = openFiles.get(file);
+			if (fileAccess == null) {
+				fileAccess = FileHandlePool.open(file.getFile());
+				openFiles.put(file, fileAccess);
+			}
+
+			return fileAccess.getChannel();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("MemoryMappedStorage[files=%d]", mappedFiles.size());
+	}
+}
@@ -0,0 +1,117 @@
+package org.johnnei.javatorrent.disk;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A memory budget for pieces which are assembled in memory before they are written to the {@link IStorage}.
+ * A piece which received a buffer from this cache collects its blocks in that buffer, verifies the hash from memory and only writes the data once
+ * the hash matched. When the budget is exhausted pieces fall back to writing each block to the storage directly.
+ * Released buffers are kept for the next piece of the same size as long as the allocated and idle buffers together fit in the budget.
+ */
+public class PieceWriteCache {
+
+	private final long capacity;
+
+	/**
+	 * The released buffers which can be handed out again, grouped by their capacity.
+	 */
+	private final Map<Integer, Deque<ByteBuffer>> idleBuffers;
+
+	private long usedBytes;
+
+	private long idleBytes;
+
+	/**
+	 * Creates a new cache.
+	 * @param capacity The maximum amount of bytes which can be allocated at once. A capacity of 0 disables the cache.
+	 */
+	public PieceWriteCache(long capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Cache capacity cannot be negative.");
+		}
+
+		this.capacity = capacity;
+		idleBuffers = new HashMap<>();
+	}
+
+	/**
+	 * Allocates a buffer to assemble a piece in when the budget allows it.
+	 * @param size The size of the piece.
+	 * @return The allocated buffer or {@link Optional#empty()} when the budget is exhausted.
+	 */
+	public synchronized Optional<ByteBuffer> allocate(int size) {
+		if (usedBytes + size > capacity) {
+			return Optional.empty();
+		}
+
+		usedBytes += size;
+
+		Deque<ByteBuffer> buffers = idleBuffers.get(size);
+		if (buffers != null && !buffers.isEmpty()) {
+			idleBytes -= size;
+			ByteBuffer buffer = buffers.pop();
+			buffer.clear();
+			return Optional.of(buffer);
+		}
+
+		// Drop idle buffers of other sizes to stay within the budget.
+		evictIdleBuffers(capacity - usedBytes);
+		return Optional.of(ByteBuffer.allocate(size));
+	}
+
+	/**
+	 * Returns a buffer which was created by {@link #allocate(int)} to the cache. The buffer must not be used anymore after this call.
+	 * @param buffer The buffer to release.
+	 */
+	public synchronized void release(ByteBuffer buffer) {
+		usedBytes -= buffer.capacity();
+		idleBytes += buffer.capacity();
+		idleBuffers.computeIfAbsent(buffer.capacity(), key -> new ArrayDeque<>()).push(buffer);
+	}
+
+	private void evictIdleBuffers(long maxIdleBytes) {
+		Iterator<Deque<ByteBuffer>> iterator = idleBuffers.values().iterator();
+		while (idleBytes > maxIdleBytes && iterator.hasNext()) {
+			Deque<ByteBuffer> buffers = iterator.next();
+			while (idleBytes > maxIdleBytes && !buffers.isEmpty()) {
+				idleBytes -= buffers.pop().capacity();
+			}
+
+			if (buffers.isEmpty()) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * @return The amount of bytes which are currently allocated.
+	 */
+	public synchronized long getUsedBytes() {
+		return usedBytes;
+	}
+
+	/**
+	 * @return The amount of bytes of the released buffers which are kept for reuse.
+	 */
+	public synchronized long getIdleBytes() {
+		return idleBytes;
+	}
+
+	/**
+	 * @return The maximum amount of bytes which can be allocated at once.
+	 */
+	public long getCapacity() {
+		return capacity;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("PieceWriteCache[used=%d, idle=%d, capacity=%d]", usedBytes, idleBytes, capacity);
+	}
+}
@@ -0,0 +1,195 @@
+package org.johnnei.javatorrent.disk;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.johnnei.javatorrent.torrent.FileInfo;
+import org.johnnei.javatorrent.utils.Argument;
+
+/**
+ * The default storage which performs positional reads and writes on {@link java.io.RandomAccessFile}s. The files are opened on demand through a
+ * {@link FileHandlePool} which is usually shared by all torrents of a client. Positional operations don't lock the file, concurrent jobs
+ * operate on distinct regions of it.
+ */
+public class RandomAccessFileStorage implements IStorage {
+
+	/**
+	 * The maximum amount of bytes which are read at once to be hashed.
+	 */
+	private static final int HASH_BUFFER_SIZE = 1 << 16;
+
+	private final FileHandlePool handlePool;
+
+	/**
+	 * If the pool has been created by this storage and must be closed with it.
+	 */
+	private final boolean ownsHandlePool;
+
+	/**
+	 * The files which have been accessed through this storage.
+	 */
+	private final Set<FileInfo> usedFiles;
+
+	/**
+	 * The files which have been written to since the last flush.
+	 */
+	private final Set<FileInfo> modifiedFiles;
+
+	/**
+	 * Creates a new storage with its own pool of {@link FileHandlePool#DEFAULT_MAX_OPEN_FILES} handles.
+	 */
+	public RandomAccessFileStorage() {
+		this(new FileHandlePool(FileHandlePool.DEFAULT_MAX_OPEN_FILES), true);
+	}
+
+	/**
+	 * Creates a new storage which borrows the file handles from the given pool.
+	 * @param handlePool The pool of file handles.
+	 */
+	public RandomAccessFileStorage(FileHandlePool handlePool) {
+		this(handlePool, false);
+	}
+
+	private RandomAccessFileStorage(FileHandlePool handlePool, boolean ownsHandlePool) {
+		this.handlePool = Argument.requireNonNull(handlePool, "Handle pool cannot be null.");
+		this.ownsHandlePool = ownsHandlePool;
+		usedFiles = ConcurrentHashMap.newKeySet();
+		modifiedFiles = ConcurrentHashMap.newKeySet();
+	}
+
+	@Override
+	public void read(FileInfo file, long offset, ByteBuffer target) throws IOException {
+		int startPosition = target.position();
+		FileChannel channel = acquire(file);
+		try {
+			while (target.hasRemaining()) {
+				long filePosition = offset + (target.position() - startPosition);
+				if (channel.read(target, filePosition) < 0) {
+					throw new EOFException(String.format("Reached end of file while reading %d bytes at %d.", target.limit() - startPosition, offset));
+				}
+			}
+		} finally {
+			handlePool.release(file);
+		}
+	}
+
+	@Override
+	public void write(FileInfo file, long offset, ByteBuffer source) throws IOException {
+		int startPosition = source.position();
+		FileChannel channel = acquire(file);
+		try {
+			while (source.hasRemaining()) {
+				channel.write(source, offset + (source.position() - startPosition));
+			}
+		} finally {
+			handlePool.release(file);
+		}
+		modifiedFiles.add(file);
+	}
+
+	@Override
+	public void writeGathered(FileInfo file, long offset, ByteBuffer[] sources) throws IOException {
+		FileChannel channel = acquire(file);
+		try {
+			synchronized (file.fileLock) {
+				// There is no positional gathering write. The other operations are positional and don't need the lock, it only guards the
+				// channel position against concurrent gathering writes.
+				channel.position(offset);
+				while (hasRemaining(sources)) {
+					channel.write(sources);
+				}
+			}
+		} finally {
+			handlePool.release(file);
+		}
+		modifiedFiles.add(file);
+	}
+
+	private static boolean hasRemaining(ByteBuffer[] buffers) {
+		for (ByteBuffer buffer : buffers) {
+			if (buffer.hasRemaining()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void hash(FileInfo file, long offset, int length, MessageDigest digest) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(Math.min(length, HASH_BUFFER_SIZE));
+		int hashedBytes = 0;
+		while (hashedBytes < length) {
+			buffer.clear();
+			buffer.limit(Math.min(buffer.capacity(), length - hashedBytes));
+			read(file, offset + hashedBytes, buffer);
+			buffer.flip();
+			hashedBytes += buffer.remaining();
+			digest.update(buffer);
+		}
+	}
+
+	@Override
+	public long transferTo(FileInfo file, long offset, long length, WritableByteChannel target) throws IOException {
+		FileChannel channel = acquire(file);
+		try {
+			if (offset >= channel.size()) {
+				throw new EOFException(String.format("Cannot transfer bytes at %d, file is only %d bytes.", offset, channel.size()));
+			}
+
+			return channel.transferTo(offset, length, target);
+		} finally {
+			handlePool.release(file);
+		}
+	}
+
+	@Override
+	public boolean supportsZeroCopyTransfer() {
+		return true;
+	}
+
+	@Override
+	public long getStoredSize(FileInfo file) {
+		// Inspect the file without opening it, the written data is visible regardless of the handle which wrote it.
+		return file.getFile().length();
+	}
+
+	@Override
+	public void flush() throws IOException {
+		for (FileInfo file : modifiedFiles) {
+			modifiedFiles.remove(file);
+			FileChannel channel = acquire(file);
+			try {
+				channel.force(false);
+			} finally {
+				handlePool.release(file);
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		flush();
+		if (ownsHandlePool) {
+			handlePool.close();
+		} else {
+			usedFiles.forEach(handlePool::close);
+		}
+		usedFiles.clear();
+	}
+
+	private FileChannel acquire(FileInfo file) throws IOException {
+		usedFiles.add(file);
+		return handlePool.acquire(file);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("RandomAccessFileStorage[pool=%s]", handlePool);
+	}
+}
@@ -0,0 +1,332 @@
+package org.johnnei.javatorrent.internal.disk;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * The queue of a {@link DiskWorker} which decides which job is processed next.
+ * <ul>
+ *     <li>Jobs are ordered by their priority, but every {@link #AGING_INTERVAL_NANOS} a job waits improves its priority by one so jobs with a
+ *     low priority are not starved by a steady stream of jobs with a higher priority.</li>
+ *     <li>Jobs of equal priority are served round-robin over their {@link org.johnnei.javatorrent.disk.IDiskJob#getFairnessKey()}, within a
+ *     single owner the jobs are kept in submission order.</li>
+ *     <li>Failed jobs are queued with a delay and are not handed out before that delay has passed. Until the failed job has been handed out
+ *     again, the other jobs of its {@link org.johnnei.javatorrent.disk.IDiskJob#getStripeKey() stripe} are held back so they can't overtake
+ *     it.</li>
+ * </ul>
+ * This class is not thread-safe, the {@link DiskWorker} guards all access.
+ */
+class DiskJobQueue {
+
+	/**
+	 * The wait time which improves the priority of a job by one.
+	 */
+	static final long AGING_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+	private final LongSupplier clock;
+
+	/**
+	 * The jobs which may be processed, grouped by priority.
+	 */
+	private final TreeMap<Integer, PriorityGroup> groups;
+
+	/**
+	 * The jobs which are waiting for their retry delay to pass, ordered by the time at which they become ready.
+	 */
+	private final PriorityQueue<DiskJobWrapper> delayedJobs;
+
+	/**
+	 * The failed jobs which have not been handed out again since they failed.
+	 */
+	private final Set<DiskJobWrapper> retryingJobs;
+
+	/**
+	 * The amount of {@link #retryingJobs} per stripe key.
+	 */
+	private final Map<Object, Integer> retryingJobsPerStripe;
+
+	/**
+	 * The jobs which are held back as another job of their stripe is awaiting its retry.
+	 */
+	private final Map<Object, List<DiskJobWrapper>> heldJobs;
+
+	private int size;
+
+	DiskJobQueue() {
+		this(System::nanoTime);
+	}
+
+	DiskJobQueue(LongSupplier clock) {
+		this.clock = clock;
+		groups = new TreeMap<>();
+		delayedJobs = new PriorityQueue<>(Comparator.comparingLong(DiskJobWrapper::getReadyTime));
+		retryingJobs = Collections.newSetFromMap(new IdentityHashMap<>());
+		retryingJobsPerStripe = new HashMap<>();
+		heldJobs = new HashMap<>();
+	}
+
+	/**
+	 * Adds a job which may be processed immediately.
+	 * @param job The job to add.
+	 */
+	void add(DiskJobWrapper job) {
+		addDelayed(job, 0);
+	}
+
+	/**
+	 * Adds a job which may only be processed once the given delay has passed.
+	 * @param job The job to add.
+	 * @param delay The delay in nanoseconds.
+	 */
+	void addDelayed(DiskJobWrapper job, long delay) {
+		job.onQueued(clock.getAsLong(), delay);
+		Object stripeKey = job.getDiskJob().getStripeKey();
+		if (delay > 0) {
+			delayedJobs.add(job);
+			if (stripeKey != null && retryingJobs.add(job)) {
+				retryingJobsPerStripe.merge(stripeKey, 1, Integer::sum);
+				holdStripe(stripeKey);
+			}
+		} else if (stripeKey != null && heldJobs.containsKey(stripeKey)) {
+			heldJobs.get(stripeKey).add(job);
+		} else {
+			addReady(job);
+		}
+		size++;
+	}
+
+	/**
+	 * Moves the ready jobs of the given stripe out of turn until the retrying jobs of the stripe have been handed out.
+	 * @param stripeKey The stripe to hold back.
+	 */
+	private void holdStripe(Object stripeKey) {
+		List<DiskJobWrapper> held = heldJobs.computeIfAbsent(stripeKey, key -> new ArrayList<>());
+		Iterator<PriorityGroup> iterator = groups.values().iterator();
+		while (iterator.hasNext()) {
+			PriorityGroup group = iterator.next();
+			group.removeIf(job -> !retryingJobs.contains(job) && stripeKey.equals(job.getDiskJob().getStripeKey()), held);
+			if (group.isEmpty()) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Releases the held jobs of the stripe of the given job when it was the last job of the stripe which awaited its retry.
+	 * @param job The job which is handed out.
+	 */
+	private void onHandedOut(DiskJobWrapper job) {
+		if (!retryingJobs.remove(job)) {
+			return;
+		}
+
+		Object stripeKey = job.getDiskJob().getStripeKey();
+		if (retryingJobsPerStripe.merge(stripeKey, -1, Integer::sum) > 0) {
+			return;
+		}
+
+		retryingJobsPerStripe.remove(stripeKey);
+		// The released jobs are put back in submission order, so they are processed after the retried job.
+		heldJobs.remove(stripeKey).forEach(this::addReady);
+	}
+
+	private void addReady(DiskJobWrapper job) {
+		groups.computeIfAbsent(job.getDiskJob().getPriority(), key -> new PriorityGroup()).add(job);
+	}
+
+	/**
+	 * Takes the job which must be processed next.
+	 * @return The job or <code>null</code> when no job is ready to be processed.
+	 */
+	DiskJobWrapper poll() {
+		long now = clock.getAsLong();
+		while (!delayedJobs.isEmpty() && delayedJobs.peek().getReadyTime() - now <= 0) {
+			addReady(delayedJobs.poll());
+		}
+
+		Map.Entry<Integer, PriorityGroup> selectedGroup = null;
+		long selectedPriority = 0;
+		for (Map.Entry<Integer, PriorityGroup> group : groups.entrySet()) {
+			long waitTime = now - group.getValue().getOldestQueueTime();
+			long effectivePriority = group.getKey() - waitTime / AGING_INTERVAL_NANOS;
+			// The groups are iterated from the highest priority, so on ties the group with the higher base priority is kept.
+			if (selectedGroup == null || effectivePriority < selectedPriority) {
+				selectedGroup = group;
+				selectedPriority = effectivePriority;
+			}
+		}
+
+		if (selectedGroup == null) {
+			return null;
+		}
+
+		DiskJobWrapper job = selectedGroup.getValue().poll();
+		if (selectedGroup.getValue().isEmpty()) {
+			groups.remove(selectedGroup.getKey());
+		}
+
+		size--;
+		job.onDequeued(now);
+		onHandedOut(job);
+		return job;
+	}
+
+	/**
+	 * Takes the oldest ready job of the same priority and owner as the given job which matches the predicate, regardless of its turn. This allows
+	 * the worker to combine related jobs (ex. writes to adjacent blocks) with the job it is about to process.
+	 * @param job The job which is being processed.
+	 * @param predicate The test which the job must pass.
+	 * @return The matching job or <code>null</code> when no ready job matches.
+	 */
+	DiskJobWrapper pollMatching(DiskJobWrapper job, Predicate<DiskJobWrapper> predicate) {
+		int priority = job.getDiskJob().getPriority();
+		PriorityGroup group = groups.get(priority);
+		if (group == null) {
+			return null;
+		}
+
+		DiskJobWrapper match = group.pollMatching(job.getDiskJob().getFairnessKey(), predicate);
+		if (match == null) {
+			return null;
+		}
+
+		if (group.isEmpty()) {
+			groups.remove(priority);
+		}
+
+		size--;
+		match.onDequeued(clock.getAsLong());
+		onHandedOut(match);
+		return match;
+	}
+
+	/**
+	 * @return The time in nanoseconds until the next job is ready, 0 when a job is ready or {@link Long#MAX_VALUE} when the queue is empty.
+	 */
+	long getNanosUntilReady() {
+		if (!groups.isEmpty()) {
+			return 0;
+		}
+
+		if (delayedJobs.isEmpty()) {
+			return Long.MAX_VALUE;
+		}
+
+		return Math.max(0, delayedJobs.peek().getReadyTime() - clock.getAsLong());
+	}
+
+	/**
+	 * @return The amount of jobs in this queue, including the jobs which are waiting for their retry delay.
+	 */
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * The jobs of a single priority, grouped by owner. The owners are served round-robin.
+	 */
+	private static final class PriorityGroup {
+
+		private final LinkedHashMap<Object, PriorityQueue<DiskJobWrapper>> owners;
+
+		PriorityGroup() {
+			owners = new LinkedHashMap<>();
+		}
+
+		void add(DiskJobWrapper job) {
+			// Retried jobs are put back in their original position to keep the jobs of a stripe in order.
+			owners.computeIfAbsent(job.getDiskJob().getFairnessKey(), key -> new PriorityQueue<>(Comparator.comparingLong(DiskJobWrapper::getSequence)))
+					.add(job);
+		}
+
+		DiskJobWrapper poll() {
+			Iterator<Map.Entry<Object, PriorityQueue<DiskJobWrapper>>> iterator = owners.entrySet().iterator();
+			Map.Entry<Object, PriorityQueue<DiskJobWrapper>> owner = iterator.next();
+			iterator.remove();
+
+			DiskJobWrapper job = owner.getValue().poll();
+			if (!owner.getValue().isEmpty()) {
+				// Move the owner to the back of the line.
+				owners.put(owner.getKey(), owner.getValue());
+			}
+			return job;
+		}
+
+		DiskJobWrapper pollMatching(Object owner, Predicate<DiskJobWrapper> predicate) {
+			PriorityQueue<DiskJobWrapper> jobs = owners.get(owner);
+			if (jobs == null) {
+				return null;
+			}
+
+			// The queue doesn't iterate in order, so the entire queue is searched for the oldest match.
+			DiskJobWrapper match = null;
+			for (DiskJobWrapper candidate : jobs) {
+				if ((match == null || candidate.getSequence() < match.getSequence()) && predicate.test(candidate)) {
+					match = candidate;
+				}
+			}
+
+			if (match != null) {
+				jobs.remove(match);
+				if (jobs.isEmpty()) {
+					owners.remove(owner);
+				}
+			}
+			return match;
+		}
+
+		void removeIf(Predicate<DiskJobWrapper> predicate, Collection<DiskJobWrapper> removedJobs) {
+			Iterator<PriorityQueue<DiskJobWrapper>> iterator = owners.values().iterator();
+			while (iterator.hasNext()) {
+				PriorityQueue<DiskJobWrapper> jobs = iterator.next();
+				Iterator<DiskJobWrapper> jobIterator = jobs.iterator();
+				while (jobIterator.hasNext()) {
+					DiskJobWrapper job = jobIterator.next();
+					if (predicate.test(job)) {
+						removedJobs.add(job);
+						jobIterator.remove();
+					}
+				}
+
+				if (jobs.isEmpty()) {
+					iterator.remove();
+				}
+			}
+		}
+
+		long getOldestQueueTime() {
+			long oldestQueueTime = Long.MAX_VALUE;
+			boolean first = true;
+			for (PriorityQueue<DiskJobWrapper> jobs : owners.values()) {
+				long queueTime = jobs.peek().getQueueTime();
+				if (first || queueTime - oldestQueueTime < 0) {
+					oldestQueueTime = queueTime;
+					first = false;
+				}
+			}
+			return oldestQueueTime;
+		}
+
+		boolean isEmpty() {
+			return owners.isEmpty();
+		}
+	}
+}
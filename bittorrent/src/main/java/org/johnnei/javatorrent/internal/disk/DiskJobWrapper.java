@@ -1,34 +1,74 @@
 package org.johnnei.javatorrent.internal.disk;
 
 import java.io.IOException;
-import java.time.Clock;
-import java.time.Duration;
-import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.johnnei.javatorrent.disk.DiskBackpressure;
+import org.johnnei.javatorrent.disk.DiskJobStatistics;
+import org.johnnei.javatorrent.disk.DiskJobWriteBlock;
 import org.johnnei.javatorrent.disk.IDiskJob;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * A wrapper around the {@link IDiskJob} which records the amount of tries and defines the priority.
+ * A wrapper around the {@link IDiskJob} which records the amount of tries, the timing statistics and the buffered bytes, and defines the priority.
  */
 class DiskJobWrapper implements Comparable<DiskJobWrapper> {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(DiskJobWrapper.class);
 
-	private static final Clock clock = Clock.systemDefaultZone();
+	/**
+	 * The delay before the first retry of a failed job.
+	 */
+	static final long INITIAL_RETRY_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+	/**
+	 * The maximum delay between retries of a failed job.
+	 */
+	static final long MAX_RETRY_DELAY_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+	/**
+	 * The source of the submission order of the jobs.
+	 */
+	private static final AtomicLong SEQUENCE = new AtomicLong();
 
 	private final IDiskJob diskJob;
 
-	private final Instant submitTime;
+	private final DiskJobStatistics statistics;
+
+	private final DiskBackpressure backpressure;
+
+	/**
+	 * The submission order of this job, used to keep jobs with equal priority in order.
+	 */
+	private final long sequence;
+
+	/**
+	 * The time (in {@link System#nanoTime()}) at which this job has been (re)queued.
+	 */
+	private long queueTime;
+
+	/**
+	 * The earliest time (in {@link System#nanoTime()}) at which this job may be processed.
+	 */
+	private long readyTime;
 
 	private int attempt;
 
 	DiskJobWrapper(IDiskJob diskJob) {
+		this(diskJob, new DiskJobStatistics(diskJob.getClass().getSimpleName()), new DiskBackpressure());
+	}
+
+	DiskJobWrapper(IDiskJob diskJob, DiskJobStatistics statistics, DiskBackpressure backpressure) {
 		this.diskJob = Objects.requireNonNull(diskJob, "Can't wrap a null-job");
-		this.submitTime = clock.instant();
+		this.statistics = Objects.requireNonNull(statistics, "Statistics are required to record the timings");
+		this.backpressure = Objects.requireNonNull(backpressure, "Backpressure is required to release the buffered bytes");
+		this.sequence = SEQUENCE.getAndIncrement();
 	}
 
 	/**
@@ -36,28 +76,128 @@ class DiskJobWrapper implements Comparable<DiskJobWrapper> {
 	 * @return <code>true</code> when this job has been completed, otherwise <code>false</code>
 	 */
 	public boolean process() {
+		long startTime = System.nanoTime();
 		try {
-			Instant startTime = clock.instant();
 			diskJob.process();
-			Instant runTime = clock.instant();
-			LOGGER.trace("Processed {}. Wait Time: {}ms, Run Time: {}ns",
-					diskJob,
-					Duration.between(submitTime, startTime).toMillis(),
-					Duration.between(startTime, runTime).toNanos());
+			long serviceTime = System.nanoTime() - startTime;
+			statistics.onCompleted(serviceTime);
+			backpressure.onReleased(diskJob.getBufferedBytes());
+			LOGGER.trace("Processed {}. Run Time: {}ns", diskJob, serviceTime);
 			return true;
 		} catch (IOException e) {
+			statistics.onFailed(System.nanoTime() - startTime);
 			attempt++;
-			LOGGER.warn("Failed to process {}. (Attempt: {})", diskJob, attempt, e);
+			LOGGER.warn("Failed to process {}. (Attempt: {}, Retry in: {}ms)", diskJob, attempt, TimeUnit.NANOSECONDS.toMillis(getRetryDelay()), e);
 			return false;
 		}
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * Processes the given write jobs with a single write per file. On success every job is completed and its share of the time is recorded.
+	 * @param jobs The wrappers of {@link DiskJobWriteBlock} jobs which write consecutive blocks of the same piece, in order.
+	 * @return <code>true</code> when all jobs have been completed, <code>false</code> when the write failed and none of the jobs are completed.
+	 */
+	static boolean processCoalesced(List<DiskJobWrapper> jobs) {
+		List<DiskJobWriteBlock> writeJobs = new ArrayList<>(jobs.size());
+		for (DiskJobWrapper job : jobs) {
+			writeJobs.add((DiskJobWriteBlock) job.diskJob);
+		}
+
+		long startTime = System.nanoTime();
+		try {
+			DiskJobWriteBlock.process(writeJobs);
+		} catch (IOException e) {
+			LOGGER.debug("Failed to process {} coalesced writes starting at {}.", jobs.size(), writeJobs.get(0), e);
+			return false;
+		}
+
+		long serviceTime = System.nanoTime() - startTime;
+		for (DiskJobWrapper job : jobs) {
+			job.statistics.onCompleted(serviceTime / jobs.size());
+			job.backpressure.onReleased(job.diskJob.getBufferedBytes());
+		}
+		LOGGER.trace("Processed {} coalesced writes starting at {}. Run Time: {}ns", jobs.size(), writeJobs.get(0), serviceTime);
+		return true;
+	}
+
+	/**
+	 * Calculates the delay before the next attempt, which doubles with every failed attempt up to {@link #MAX_RETRY_DELAY_NANOS}.
+	 * @return The delay in nanoseconds.
+	 */
+	long getRetryDelay() {
+		if (attempt == 0) {
+			return 0;
+		}
+
+		// Limit the shift to prevent overflowing, the delay is capped long before that.
+		int doublings = Math.min(attempt - 1, 20);
+		return Math.min(MAX_RETRY_DELAY_NANOS, INITIAL_RETRY_DELAY_NANOS << doublings);
+	}
+
+	/**
+	 * Marks this job as queued.
+	 * @param now The current time in nanoseconds.
+	 * @param delay The time in nanoseconds the job must wait before it may be processed.
+	 */
+	void onQueued(long now, long delay) {
+		queueTime = now;
+		readyTime = now + delay;
+	}
+
+	/**
+	 * Marks this job as taken from the queue to be processed.
+	 * @param now The current time in nanoseconds.
+	 */
+	void onDequeued(long now) {
+		statistics.onStarted(now - queueTime);
+	}
+
+	/**
+	 * @return The time (in nanoseconds) at which this job has been (re)queued.
+	 */
+	long getQueueTime() {
+		return queueTime;
+	}
+
+	/**
+	 * @return The earliest time (in nanoseconds) at which this job may be processed.
+	 */
+	long getReadyTime() {
+		return readyTime;
+	}
+
+	/**
+	 * @return The submission order of this job.
+	 */
+	long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * @return The wrapped job.
+	 */
+	IDiskJob getDiskJob() {
+		return diskJob;
+	}
+
+	/**
+	 * @return The statistics of the type of the wrapped job.
+	 */
+	DiskJobStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Orders the jobs by priority. Jobs with equal priority are ordered by submission to keep writes to the same region in order.
 	 */
 	@Override
 	public int compareTo(DiskJobWrapper o) {
-		return diskJob.getPriority() - o.diskJob.getPriority();
+		int priorityDifference = diskJob.getPriority() - o.diskJob.getPriority();
+		if (priorityDifference != 0) {
+			return priorityDifference;
+		}
+
+		return Long.compare(sequence, o.sequence);
 	}
 
 	/**
@@ -0,0 +1,187 @@
+package org.johnnei.javatorrent.internal.disk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.johnnei.javatorrent.disk.DiskJobWriteBlock;
+import org.johnnei.javatorrent.internal.utils.Sync;
+
+/**
+ * A single disk thread which processes the jobs of the stripes assigned to it in the order decided by the {@link DiskJobQueue}.
+ * Queued writes of consecutive blocks of the same piece are combined into a single write per file to reduce the amount of seeks.
+ */
+class DiskWorker implements Runnable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(DiskWorker.class);
+
+	/**
+	 * The maximum amount of bytes which are combined into a single write.
+	 */
+	static final int MAX_COALESCED_BYTES = 1 << 20;
+
+	private final Lock lock;
+
+	private final Condition newTaskEvent;
+
+	private final DiskJobQueue taskQueue;
+
+	/**
+	 * If the worker has taken tasks from the queue which have not been processed yet.
+	 */
+	private boolean processing;
+
+	DiskWorker() {
+		this(new DiskJobQueue());
+	}
+
+	DiskWorker(DiskJobQueue taskQueue) {
+		this.taskQueue = taskQueue;
+		lock = new ReentrantLock();
+		newTaskEvent = lock.newCondition();
+	}
+
+	/**
+	 * Adds a task to the queue
+	 *
+	 * @param task The task to add
+	 */
+	void addTask(DiskJobWrapper task) {
+		synchronized (this) {
+			taskQueue.add(task);
+		}
+		Sync.signalAll(lock, newTaskEvent);
+	}
+
+	/**
+	 * Gets the amount of jobs which are waiting to be processed, including the failed jobs which are waiting to be retried.
+	 * This is a best effort value as it is read outside of the worker thread.
+	 * @return The amount of queued jobs.
+	 */
+	int getQueueSize() {
+		synchronized (this) {
+			return taskQueue.size();
+		}
+	}
+
+	/**
+	 * Checks if the worker has processed all of its tasks. Failed tasks which are waiting to be retried are considered pending work.
+	 * @return <code>true</code> when no task is queued or being processed.
+	 */
+	boolean isIdle() {
+		synchronized (this) {
+			return !processing && taskQueue.isEmpty();
+		}
+	}
+
+	/**
+	 * Waits until a task is ready to be processed.
+	 * @return The task or <code>null</code> when the thread got interrupted.
+	 */
+	private DiskJobWrapper awaitTask() {
+		// The queue is checked while holding the lock to not miss the signal of a task which is added in between.
+		lock.lock();
+		try {
+			while (true) {
+				long waitTime;
+				synchronized (this) {
+					DiskJobWrapper task = taskQueue.poll();
+					if (task != null) {
+						processing = true;
+						return task;
+					}
+					waitTime = taskQueue.getNanosUntilReady();
+				}
+
+				if (waitTime == Long.MAX_VALUE) {
+					newTaskEvent.await();
+				} else {
+					newTaskEvent.awaitNanos(waitTime);
+				}
+			}
+		} catch (InterruptedException e) {
+			LOGGER.info("Disk worker was interrupted. Stopping thread.", e);
+			return null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private boolean isQueueEmpty() {
+		synchronized (this) {
+			return taskQueue.isEmpty();
+		}
+	}
+
+	/**
+	 * Processes all pending tasks, including the failed tasks once their retry delay has passed.
+	 */
+	@Override
+	public void run() {
+		DiskJobWrapper task = awaitTask();
+		while (task != null) {
+			LOGGER.trace("Processing task: {}", task);
+
+			List<DiskJobWrapper> coalescedTasks = collectAdjacentWrites(task);
+			if (coalescedTasks.size() == 1 || !DiskJobWrapper.processCoalesced(coalescedTasks)) {
+				// Either nothing to combine or the combined write failed, in which case every block is written (and retried) on its own.
+				coalescedTasks.forEach(this::process);
+			}
+
+			synchronized (this) {
+				processing = false;
+			}
+
+			task = isQueueEmpty() ? null : awaitTask();
+		}
+	}
+
+	private void process(DiskJobWrapper task) {
+		if (!task.process()) {
+			synchronized (this) {
+				taskQueue.addDelayed(task, task.getRetryDelay());
+			}
+		}
+	}
+
+	/**
+	 * Takes the queued writes of the blocks which directly follow the block written by the given task.
+	 * @param task The task which is about to be processed.
+	 * @return The given task followed by the tasks which write the next blocks of the same piece.
+	 */
+	private List<DiskJobWrapper> collectAdjacentWrites(DiskJobWrapper task) {
+		if (!(task.getDiskJob() instanceof DiskJobWriteBlock)) {
+			return Collections.singletonList(task);
+		}
+
+		List<DiskJobWrapper> tasks = new ArrayList<>();
+		tasks.add(task);
+		DiskJobWriteBlock lastWrite = (DiskJobWriteBlock) task.getDiskJob();
+		int coalescedBytes = lastWrite.getBufferedBytes();
+		synchronized (this) {
+			while (true) {
+				DiskJobWriteBlock previousWrite = lastWrite;
+				DiskJobWrapper nextTask = taskQueue.pollMatching(task, candidate -> candidate.getDiskJob() instanceof DiskJobWriteBlock &&
+						((DiskJobWriteBlock) candidate.getDiskJob()).isSuccessorOf(previousWrite));
+				if (nextTask == null) {
+					break;
+				}
+
+				tasks.add(nextTask);
+				lastWrite = (DiskJobWriteBlock) nextTask.getDiskJob();
+				coalescedBytes += lastWrite.getBufferedBytes();
+				if (coalescedBytes >= MAX_COALESCED_BYTES) {
+					break;
+				}
+			}
+		}
+		return tasks;
+	}
+
+}
@@ -1,89 +1,169 @@
 package org.johnnei.javatorrent.internal.disk;
 
-import java.util.PriorityQueue;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
-
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.johnnei.javatorrent.async.LoopingRunnable;
+import org.johnnei.javatorrent.disk.DiskBackpressure;
+import org.johnnei.javatorrent.disk.DiskJobStatistics;
 import org.johnnei.javatorrent.disk.IDiskJob;
-import org.johnnei.javatorrent.internal.utils.Sync;
+import org.johnnei.javatorrent.utils.Argument;
+
+/**
+ * Class which processes the {@link IDiskJob}s of all torrents.
+ * The jobs are striped over one or more {@link DiskWorker} instances based on {@link IDiskJob#getStripeKey()}. Jobs with an equal stripe key are
+ * processed by the same worker and thus stay ordered, while jobs of other stripes (ex. other regions or files) are processed in parallel.
+ * The queue depth and timings are recorded per type of job and are available through {@link #getStatistics()}. The memory held by the queued
+ * jobs is tracked by the {@link DiskBackpressure} which signals the network to slow down when the disk falls behind.
+ */
+public class IOManager {
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+	/**
+	 * The interval at which {@link #awaitIdle(long, TimeUnit)} checks if the workers have processed their jobs.
+	 */
+	private static final long IDLE_POLL_INTERVAL_MILLIS = 10;
 
-public class IOManager implements Runnable {
+	private final DiskWorker[] workers;
 
-	private static final Logger LOGGER = LoggerFactory.getLogger(IOManager.class);
+	private final LoopingRunnable[] runners;
 
-	private final Lock lock;
+	private final Thread[] threads;
 
-	private final Condition newTaskEvent;
+	/**
+	 * The next worker to assign a job without a stripe key to.
+	 */
+	private final AtomicInteger nextWorker;
 
-	private PriorityQueue<DiskJobWrapper> taskQueue;
+	private final ConcurrentMap<Class<?>, DiskJobStatistics> statistics;
 
+	private final DiskBackpressure backpressure;
+
+	/**
+	 * Creates a new manager which is served by a single disk thread.
+	 */
 	public IOManager() {
-		taskQueue = new PriorityQueue<>();
-		lock = new ReentrantLock();
-		newTaskEvent = lock.newCondition();
+		this(1);
 	}
 
 	/**
-	 * Adds a task to the queue
+	 * Creates a new manager which is served by the given amount of disk threads.
+	 * @param workerCount The amount of disk threads.
+	 */
+	public IOManager(int workerCount) {
+		this(workerCount, new DiskBackpressure());
+	}
+
+	/**
+	 * Creates a new manager which is served by the given amount of disk threads.
+	 * @param workerCount The amount of disk threads.
+	 * @param backpressure The tracker of the bytes held by the queued jobs.
+	 */
+	public IOManager(int workerCount, DiskBackpressure backpressure) {
+		Argument.requireWithinBounds(workerCount, 1, Integer.MAX_VALUE, () -> "At least one disk worker is required.");
+		nextWorker = new AtomicInteger();
+		statistics = new ConcurrentHashMap<>();
+		this.backpressure = Argument.requireNonNull(backpressure, "Backpressure is required to track the buffered bytes.");
+		workers = new DiskWorker[workerCount];
+		runners = new LoopingRunnable[workerCount];
+		threads = new Thread[workerCount];
+		for (int i = 0; i < workerCount; i++) {
+			workers[i] = new DiskWorker();
+			runners[i] = new LoopingRunnable(workers[i], true);
+			threads[i] = new Thread(runners[i], String.format("Disk Manager - %d", i));
+			threads[i].setDaemon(true);
+			threads[i].start();
+		}
+	}
+
+	/**
+	 * Adds a task to the queue of the worker which serves the stripe of the task.
 	 *
 	 * @param task The task to add
 	 */
 	public void addTask(IDiskJob task) {
-		synchronized (this) {
-			taskQueue.add(new DiskJobWrapper(task));
+		DiskJobStatistics jobStatistics = statistics.computeIfAbsent(task.getClass(), type -> new DiskJobStatistics(type.getSimpleName()));
+		jobStatistics.onQueued();
+		backpressure.onQueued(task.getBufferedBytes());
+		getWorker(task.getStripeKey()).addTask(new DiskJobWrapper(task, jobStatistics, backpressure));
+	}
+
+	private DiskWorker getWorker(Object stripeKey) {
+		if (stripeKey == null) {
+			return workers[Math.floorMod(nextWorker.getAndIncrement(), workers.length)];
 		}
-		Sync.signalAll(lock, newTaskEvent);
 
+		return workers[Math.floorMod(stripeKey.hashCode(), workers.length)];
 	}
 
-	private boolean awaitTask() {
-		while (taskQueue.isEmpty()) {
-			try {
-				lock.lock();
-				newTaskEvent.await();
-			} catch (InterruptedException e) {
-				LOGGER.info("IO Manager was interrupted. Stopping thread.", e);
-				return false;
-			} finally {
-				lock.unlock();
-			}
+	/**
+	 * Gets the amount of jobs which are waiting to be processed by all workers.
+	 * This is a best effort value as the workers are processing jobs concurrently.
+	 * @return The amount of queued jobs.
+	 */
+	public int getQueueSize() {
+		int size = 0;
+		for (DiskWorker worker : workers) {
+			size += worker.getQueueSize();
 		}
+		return size;
+	}
 
-		return true;
+	/**
+	 * Gets the statistics of every type of job which has been submitted.
+	 * @return A snapshot of the types, the statistics themselves are live.
+	 */
+	public Collection<DiskJobStatistics> getStatistics() {
+		return new ArrayList<>(statistics.values());
+	}
+
+	/**
+	 * Gets the tracker of the bytes which are held by the queued jobs.
+	 * @return The backpressure of the disk.
+	 */
+	public DiskBackpressure getBackpressure() {
+		return backpressure;
 	}
 
-	private void processTasks() {
-		while (!taskQueue.isEmpty()) {
-			DiskJobWrapper task;
-			synchronized (this) {
-				task = taskQueue.remove();
+	/**
+	 * Waits until all workers have processed their jobs. Jobs which keep failing are retried until the timeout expires.
+	 * @param timeout The maximum time to wait.
+	 * @param unit The unit of the timeout.
+	 * @return <code>true</code> when all jobs have been processed, <code>false</code> when the timeout expired first.
+	 * @throws InterruptedException When the thread got interrupted while waiting.
+	 */
+	public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while (!isIdle()) {
+			if (System.nanoTime() - deadline >= 0) {
+				return false;
 			}
 
-			LOGGER.trace("Processing task: {}", task);
+			Thread.sleep(IDLE_POLL_INTERVAL_MILLIS);
+		}
+		return true;
+	}
 
-			if (!task.process()) {
-				synchronized (this) {
-					taskQueue.add(task);
-				}
+	private boolean isIdle() {
+		for (DiskWorker worker : workers) {
+			if (!worker.isIdle()) {
+				return false;
 			}
 		}
+		return true;
 	}
 
 	/**
-	 * Processes all pending tasks.
-	 *
+	 * Stops the disk threads. Jobs which are still queued are discarded, use {@link #awaitIdle(long, TimeUnit)} to process them first.
 	 */
-	@Override
-	public void run() {
-		if (!awaitTask()) {
-			return;
+	public void shutdown() {
+		for (int i = 0; i < workers.length; i++) {
+			runners[i].stop();
+			threads[i].interrupt();
 		}
-
-		processTasks();
 	}
 
 }
@@ -0,0 +1,283 @@
+package org.johnnei.javatorrent.internal.disk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.johnnei.javatorrent.utils.Argument;
+
+/**
+ * Provides access to a file through {@link MappedByteBuffer}s.
+ * The file is mapped in windows of {@link #WINDOW_SIZE} bytes which are mapped on first use, so the file only grows up to the end of the regions
+ * which have been accessed.
+ * The data is copied straight between the given buffers and the mapped windows, so no lock on the file is required. Concurrent access to the same
+ * region must be ordered by the caller. The windows are unmapped by {@link #close()} instead of waiting for the garbage collector to do so.
+ */
+public class MappedFile implements Closeable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(MappedFile.class);
+
+	/**
+	 * The maximum amount of bytes which are mapped by a single window.
+	 */
+	static final int WINDOW_SIZE = 1 << 26;
+
+	private final FileChannel channel;
+
+	private final long size;
+
+	private final int windowSize;
+
+	private final MappedByteBuffer[] windows;
+
+	/**
+	 * Lock which prevents the windows from being unmapped while they are accessed. Accessing an unmapped buffer crashes the JVM.
+	 */
+	private final ReadWriteLock closeLock;
+
+	private boolean closed;
+
+	/**
+	 * Creates a new mapped view on the given channel. The file grows up to the end of each window when it is mapped.
+	 * @param channel The read/write channel of the file.
+	 * @param size The size of the file.
+	 */
+	public MappedFile(FileChannel channel, long size) {
+		this(channel, size, WINDOW_SIZE);
+	}
+
+	MappedFile(FileChannel channel, long size, int windowSize) {
+		this.channel = Argument.requireNonNull(channel, "Channel cannot be null.");
+		Argument.requireWithinBounds(windowSize, 1, Integer.MAX_VALUE, () -> "Window size must be at least 1.");
+		this.size = size;
+		this.windowSize = windowSize;
+		windows = new MappedByteBuffer[(int) ((size + windowSize - 1) / windowSize)];
+		closeLock = new ReentrantReadWriteLock();
+	}
+
+	/**
+	 * Copies the bytes at the given position into the remaining bytes of the given buffer. The position of the buffer is advanced.
+	 * @param position The position within the file.
+	 * @param target The buffer to fill.
+	 * @throws IOException When the region can't be mapped.
+	 */
+	public void read(long position, ByteBuffer target) throws IOException {
+		lockOpen();
+		try {
+			long filePosition = position;
+			while (target.hasRemaining()) {
+				ByteBuffer window = getRegion(filePosition, target.remaining());
+				filePosition += window.remaining();
+				target.put(window);
+			}
+		} finally {
+			closeLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Copies the remaining bytes of the given buffer to the given position. The position of the buffer is advanced.
+	 * @param position The position within the file.
+	 * @param source The buffer to write.
+	 * @throws IOException When the region can't be mapped.
+	 */
+	public void write(long position, ByteBuffer source) throws IOException {
+		lockOpen();
+		try {
+			long filePosition = position;
+			while (source.hasRemaining()) {
+				ByteBuffer window = getRegion(filePosition, source.remaining());
+				int length = window.remaining();
+				ByteBuffer section = source.duplicate();
+				section.limit(section.position() + length);
+				window.put(section);
+				source.position(source.position() + length);
+				filePosition += length;
+			}
+		} finally {
+			closeLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Feeds the given region of the file to the digest without copying it onto the heap.
+	 * @param position The position within the file.
+	 * @param length The amount of bytes to digest.
+	 * @param digest The digest to update.
+	 * @throws IOException When the region can't be mapped.
+	 */
+	public void digest(long position, int length, MessageDigest digest) throws IOException {
+		lockOpen();
+		try {
+			long filePosition = position;
+			int remainingBytes = length;
+			while (remainingBytes > 0) {
+				ByteBuffer window = getRegion(filePosition, remainingBytes);
+				int windowLength = window.remaining();
+				digest.update(window);
+				filePosition += windowLength;
+				remainingBytes -= windowLength;
+			}
+		} finally {
+			closeLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Acquires the read lock of {@link #closeLock} when the file hasn't been closed.
+	 * @throws ClosedChannelException When the file has been closed.
+	 */
+	private void lockOpen() throws ClosedChannelException {
+		closeLock.readLock().lock();
+		if (closed) {
+			closeLock.readLock().unlock();
+			throw new ClosedChannelException();
+		}
+	}
+
+	/**
+	 * Creates a view on the mapped window which contains the given position.
+	 * @param position The position within the file.
+	 * @param length The desired amount of bytes.
+	 * @return A buffer of which the remaining bytes are at most <code>length</code> bytes of the file, limited by the end of the window.
+	 * @throws IOException When the window can't be mapped.
+	 */
+	private ByteBuffer getRegion(long position, int length) throws IOException {
+		if (position < 0 || position + length > size) {
+			throw new IOException(String.format("Region of %d bytes at %d is outside of the file of %d bytes.", length, position, size));
+		}
+
+		int windowIndex = (int) (position / windowSize);
+		int offsetInWindow = (int) (position % windowSize);
+
+		ByteBuffer region = getWindow(windowIndex).duplicate();
+		region.position(offsetInWindow);
+		region.limit(Math.min(region.capacity(), offsetInWindow + length));
+		return region;
+	}
+
+	private MappedByteBuffer getWindow(int windowIndex) throws IOException {
+		synchronized (windows) {
+			if (windows[windowIndex] == null) {
+				long windowStart = (long) windowIndex * windowSize;
+				long windowLength = Math.min(windowSize, size - windowStart);
+				windows[windowIndex] = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, windowLength);
+			}
+
+			return windows[windowIndex];
+		}
+	}
+
+	/**
+	 * Forces the changes made to the mapped windows to be written to the storage device.
+	 */
+	public void flush() {
+		synchronized (windows) {
+			for (MappedByteBuffer window : windows) {
+				if (window != null) {
+					window.force();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the changes to the storage device and unmaps all windows. Operations which are in progress complete first, later operations fail.
+	 */
+	@Override
+	public void close() {
+		closeLock.writeLock().lock();
+		try {
+			if (closed) {
+				return;
+			}
+
+			closed = true;
+			flush();
+			synchronized (windows) {
+				for (int i = 0; i < windows.length; i++) {
+					if (windows[i] != null) {
+						Unmapper.unmap(windows[i]);
+						windows[i] = null;
+					}
+				}
+			}
+		} finally {
+			closeLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @return The size of the mapped file.
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("MappedFile[size=%d, windows=%d]", size, windows.length);
+	}
+
+	/**
+	 * Releases mappings through the cleaner of the JVM as there is no public API to unmap a buffer. When the cleaner isn't accessible the mappings
+	 * are left to the garbage collector.
+	 */
+	private static final class Unmapper {
+
+		private static final Object UNSAFE;
+
+		private static final Method INVOKE_CLEANER;
+
+		static {
+			Object unsafe = null;
+			Method invokeCleaner = null;
+			try {
+				Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+				// Java 9 and later expose the cleaner through Unsafe.
+				invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+				Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+				theUnsafe.setAccessible(true);
+				unsafe = theUnsafe.get(null);
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				LOGGER.trace("Unsafe#invokeCleaner is not available, falling back to DirectBuffer#cleaner.", e);
+				invokeCleaner = null;
+			}
+
+			UNSAFE = unsafe;
+			INVOKE_CLEANER = invokeCleaner;
+		}
+
+		private Unmapper() {
+			/* No unmapper instances */
+		}
+
+		static void unmap(MappedByteBuffer buffer) {
+			try {
+				if (INVOKE_CLEANER != null) {
+					INVOKE_CLEANER.invoke(UNSAFE, buffer);
+				} else {
+					Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+					cleanerMethod.setAccessible(true);
+					Object cleaner = cleanerMethod.invoke(buffer);
+					if (cleaner != null) {
+						cleaner.getClass().getMethod("clean").invoke(cleaner);
+					}
+				}
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				LOGGER.debug("Failed to unmap buffer, the mapping is released by the garbage collector.", e);
+			}
+		}
+	}
+}
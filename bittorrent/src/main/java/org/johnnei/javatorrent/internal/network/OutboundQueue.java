@@ -0,0 +1,105 @@
+package org.johnnei.javatorrent.internal.network;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.johnnei.javatorrent.bittorrent.protocol.messages.IMessage;
+import org.johnnei.javatorrent.utils.Argument;
+
+/**
+ * A lock-free queue of outbound messages which can be filled by multiple threads and is drained by a single thread.
+ * Next to the amount of messages the queue keeps track of the amount of bytes the queued messages will occupy on the wire.
+ * Messages are never rejected as the protocol does not allow them to be dropped. Instead the capacity is a soft limit which producers can consult
+ * with {@link #isSaturated()} to hold back new work.
+ */
+public class OutboundQueue {
+
+	private static final int MESSAGE_LENGTH_SIZE = 4;
+
+	private final Queue<IMessage> queue;
+
+	/**
+	 * The amount of messages in the queue. This is incremented before the message is added to keep the count from going negative.
+	 */
+	private final AtomicInteger size;
+
+	private final AtomicLong queuedBytes;
+
+	private final int byteCapacity;
+
+	/**
+	 * Creates a new queue.
+	 * @param byteCapacity The amount of queued bytes from which the queue is considered to be saturated.
+	 */
+	public OutboundQueue(int byteCapacity) {
+		Argument.requirePositive(byteCapacity, "Byte capacity cannot be negative.");
+		this.byteCapacity = byteCapacity;
+		queue = new ConcurrentLinkedQueue<>();
+		size = new AtomicInteger();
+		queuedBytes = new AtomicLong();
+	}
+
+	/**
+	 * Adds the message to the end of the queue.
+	 * @param message The message to add.
+	 * @return <code>true</code> when the queue was empty before the message was added.
+	 */
+	public boolean offer(IMessage message) {
+		queuedBytes.addAndGet(getEncodedLength(message));
+		boolean wasEmpty = size.getAndIncrement() == 0;
+		queue.add(message);
+		return wasEmpty;
+	}
+
+	/**
+	 * Takes the first message of the queue. This <em>must</em> only be called by the consuming thread.
+	 * @return The first message, or <code>null</code> when the queue is empty.
+	 */
+	public IMessage poll() {
+		IMessage message = queue.poll();
+		if (message != null) {
+			size.decrementAndGet();
+			queuedBytes.addAndGet(-getEncodedLength(message));
+		}
+		return message;
+	}
+
+	/**
+	 * @return <code>true</code> when no messages are queued.
+	 */
+	public boolean isEmpty() {
+		return size.get() == 0;
+	}
+
+	/**
+	 * @return The amount of queued messages.
+	 */
+	public int size() {
+		return size.get();
+	}
+
+	/**
+	 * @return The amount of bytes the queued messages will occupy when written, including their length prefix.
+	 */
+	public long getQueuedBytes() {
+		return queuedBytes.get();
+	}
+
+	/**
+	 * @return <code>true</code> when the amount of queued bytes has reached the capacity of this queue.
+	 */
+	public boolean isSaturated() {
+		return queuedBytes.get() >= byteCapacity;
+	}
+
+	private static int getEncodedLength(IMessage message) {
+		return MESSAGE_LENGTH_SIZE + message.getLength();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("OutboundQueue[size=%d, bytes=%d]", size.get(), queuedBytes.get());
+	}
+}
@@ -1,13 +1,7 @@
 package org.johnnei.javatorrent.internal.network;
 
 import java.io.IOException;
-import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectionKey;
-import java.nio.channels.Selector;
-import java.util.Iterator;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,84 +9,131 @@ import org.slf4j.MDC;
 
 import org.johnnei.javatorrent.bittorrent.protocol.BitTorrentProtocolViolationException;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.IMessage;
+import org.johnnei.javatorrent.disk.DiskBackpressure;
 import org.johnnei.javatorrent.network.BitTorrentSocket;
 import org.johnnei.javatorrent.network.socket.ISocket;
 import org.johnnei.javatorrent.torrent.peer.Peer;
+import org.johnnei.javatorrent.torrent.peer.PeerDirection;
+import org.johnnei.javatorrent.utils.Argument;
 
 /**
  * Class which handles the processing of IO on {@link org.johnnei.javatorrent.network.socket.ISocket}.
+ * The channels are spread over one or more {@link PeerIoReactor} instances which each serve their channels on a dedicated thread.
+ * While the {@link DiskBackpressure} is throttled, reading is suspended on the peers which mostly send us blocks so the TCP receive windows
+ * slow them down instead of the received blocks piling up in memory.
  */
 public class PeerIoHandler {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(PeerIoHandler.class);
 
-	private final ScheduledFuture<?> task;
+	private final PeerIoReactor[] reactors;
 
-	private final Selector selector;
+	private final DiskBackpressure diskBackpressure;
 
-	public PeerIoHandler(ScheduledExecutorService scheduledExecutorService) {
-		try {
-			selector = Selector.open();
-		} catch (IOException e) {
-			throw new IllegalStateException("Failed to create async selector.", e);
-		}
+	/**
+	 * Creates a new handler which is served by a single reactor thread.
+	 */
+	public PeerIoHandler() {
+		this(1);
+	}
 
-		task = scheduledExecutorService.scheduleWithFixedDelay(this::pollChannels, 50, 50, TimeUnit.MILLISECONDS);
+	/**
+	 * Creates a new handler which is served by the given amount of reactor threads.
+	 * @param reactorCount The amount of reactor threads.
+	 */
+	public PeerIoHandler(int reactorCount) {
+		this(reactorCount, new DiskBackpressure());
+	}
+
+	/**
+	 * Creates a new handler which is served by the given amount of reactor threads.
+	 * @param reactorCount The amount of reactor threads.
+	 * @param diskBackpressure The backpressure which indicates that the disk can't keep up with the received blocks.
+	 */
+	public PeerIoHandler(int reactorCount, DiskBackpressure diskBackpressure) {
+		Argument.requireWithinBounds(reactorCount, 1, Integer.MAX_VALUE, () -> "At least one IO reactor is required.");
+		this.diskBackpressure = Argument.requireNonNull(diskBackpressure, "Disk backpressure is required to throttle the downloads.");
+		reactors = new PeerIoReactor[reactorCount];
+		for (int i = 0; i < reactorCount; i++) {
+			reactors[i] = new PeerIoReactor(this, String.format("Peer IO Handler - %d", i));
+		}
 	}
 
+	/**
+	 * Registers the peer on the reactor which is currently serving the least channels.
+	 * @param peer The peer to handle.
+	 * @param socket The socket on which the peer is connected.
+	 */
 	public void registerPeer(Peer peer, ISocket socket) {
-		try {
-			if ((socket.getReadableChannel().validOps() & SelectionKey.OP_WRITE) != 0) {
-				socket.getReadableChannel().register(selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE, peer);
-			} else {
-				socket.getReadableChannel().register(selector, SelectionKey.OP_READ, peer);
-				socket.getWritableChannel().register(selector, SelectionKey.OP_WRITE, peer);
+		PeerIoReactor reactor = reactors[0];
+		for (int i = 1; i < reactors.length; i++) {
+			if (reactors[i].getLoad() < reactor.getLoad()) {
+				reactor = reactors[i];
 			}
-		} catch (ClosedChannelException e) {
-			throw new IllegalStateException("Channel mustn't be closed to be handled.", e);
 		}
-	}
 
-	public void shutdown() {
-		task.cancel(false);
+		reactor.registerPeer(peer, socket);
 	}
 
-	public void pollChannels() {
-		try {
-			selector.selectNow();
-
-			Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
-			while (keys.hasNext()) {
-				SelectionKey key = keys.next();
-				Peer peer = (Peer) key.attachment();
-
-				handlePeer(key, peer);
-
-				keys.remove();
-			}
-		} catch (Exception e) {
-			LOGGER.warn("Failed to process ready channels.", e);
+	public void shutdown() {
+		for (PeerIoReactor reactor : reactors) {
+			reactor.shutdown();
 		}
 	}
 
-	public void handlePeer(SelectionKey key, Peer peer) {
+	/**
+	 * Processes the ready operations of the given key.
+	 * @param key The key which has been selected.
+	 * @param peer The peer which is attached to the key.
+	 * @return The interest operations which should be suspended as the bandwidth limit of the peer has been reached or the disk can't keep up.
+	 */
+	public int handlePeer(SelectionKey key, Peer peer) {
 		try (MDC.MDCCloseable ignored = MDC.putCloseable("context", peer.getIdAsString())) {
 			BitTorrentSocket socket = peer.getBitTorrentSocket();
 
+			int throttledOps = 0;
 			try {
 				if (key.isReadable()) {
-					onDataAvailable(peer, socket);
+					if (isSuspendedByDisk(peer)) {
+						// Leave the data in the socket buffer, the suspension is re-evaluated when the reactor resumes the read interest.
+						throttledOps |= SelectionKey.OP_READ;
+					} else {
+						onDataAvailable(peer, socket);
+						if (socket.isDownloadThrottled()) {
+							throttledOps |= SelectionKey.OP_READ;
+						}
+					}
 				}
 				if (key.isWritable()) {
-					onDataRequested(peer, socket);
+					onDataRequested(key, peer, socket);
+					if (socket.isUploadThrottled()) {
+						throttledOps |= SelectionKey.OP_WRITE;
+					}
 				}
 			} catch (IOException e) {
 				LOGGER.info("Failed to process peer.", e);
 				socket.close();
+				return 0;
 			}
+
+			return throttledOps;
 		}
 	}
 
+	/**
+	 * Checks if reading from the peer must be suspended because the disk can't keep up. Only peers from which we have more outstanding block
+	 * requests than they have from us are suspended, so seeding to other peers continues.
+	 * @param peer The peer to check.
+	 * @return <code>true</code> when reading must be suspended.
+	 */
+	private boolean isSuspendedByDisk(Peer peer) {
+		if (!diskBackpressure.isThrottled()) {
+			return false;
+		}
+
+		return peer.getWorkQueueSize(PeerDirection.Download) > peer.getWorkQueueSize(PeerDirection.Upload);
+	}
+
 	private void onDataAvailable(Peer peer, BitTorrentSocket socket) throws IOException {
 		try {
 			while (socket.canReadMessage()) {
@@ -104,10 +145,16 @@ public class PeerIoHandler {
 		}
 	}
 
-	private void onDataRequested(Peer peer, BitTorrentSocket socket) throws IOException {
+	private void onDataRequested(SelectionKey key, Peer peer, BitTorrentSocket socket) throws IOException {
 		if (socket.hasOutboundMessages()) {
 			socket.sendMessages();
-		} else {
+		}
+
+		if (socket.releaseWriteInterest()) {
+			// All data has been written, stop listening until new messages get queued to prevent spinning on the always writable channel.
+			key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+
+			// Start reading the next blocks from disk, these will restore the write interest once they are queued.
 			peer.queueNextPieceForSending();
 		}
 	}
@@ -0,0 +1,232 @@
+package org.johnnei.javatorrent.internal.network;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.johnnei.javatorrent.async.LoopingRunnable;
+import org.johnnei.javatorrent.network.BitTorrentSocket;
+import org.johnnei.javatorrent.network.socket.ISocket;
+import org.johnnei.javatorrent.torrent.peer.Peer;
+
+/**
+ * A single selector thread which serves the channels of the peers assigned to it.
+ * The thread blocks on the selector until either a channel becomes ready, new outbound data is queued or a throttled channel may be resumed.
+ */
+class PeerIoReactor {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PeerIoReactor.class);
+
+	/**
+	 * The time after which the interest of a channel which reached its bandwidth limit is restored.
+	 */
+	private static final long THROTTLE_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+	/**
+	 * Guard which prevents the selector thread from re-entering {@link Selector#select()} while a channel is being registered.
+	 */
+	private final Object selectorGuard = new Object();
+
+	/**
+	 * The keys which must have their write interest restored before the next select.
+	 */
+	private final Queue<SelectionKey> pendingWriteKeys;
+
+	/**
+	 * The keys of which interest has been suspended due to the bandwidth limits, ordered by the time at which they may be resumed.
+	 * This queue is only accessed from the selector thread.
+	 */
+	private final Queue<ThrottledKey> throttledKeys;
+
+	/**
+	 * The amount of channels which are registered on this reactor. The key set of the selector can't be read safely outside of the selector thread.
+	 */
+	private final AtomicInteger channelCount;
+
+	private final PeerIoHandler peerIoHandler;
+
+	private final Selector selector;
+
+	private final LoopingRunnable runner;
+
+	PeerIoReactor(PeerIoHandler peerIoHandler, String name) {
+		this.peerIoHandler = peerIoHandler;
+		try {
+			selector = Selector.open();
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to create async selector.", e);
+		}
+
+		channelCount = new AtomicInteger();
+		pendingWriteKeys = new ConcurrentLinkedQueue<>();
+		throttledKeys = new ArrayDeque<>();
+		runner = new LoopingRunnable(this::pollChannels, true);
+		Thread thread = new Thread(runner, name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	void registerPeer(Peer peer, ISocket socket) {
+		SelectionKey writeKey;
+		int channels;
+		synchronized (selectorGuard) {
+			selector.wakeup();
+			try {
+				// Write interest is only enabled once the socket has data to write.
+				SelectionKey readKey = socket.getReadableChannel().register(selector, SelectionKey.OP_READ, peer);
+				if ((socket.getReadableChannel().validOps() & SelectionKey.OP_WRITE) != 0) {
+					writeKey = readKey;
+					channels = 1;
+				} else {
+					writeKey = socket.getWritableChannel().register(selector, 0, peer);
+					channels = 2;
+				}
+			} catch (ClosedChannelException e) {
+				throw new IllegalStateException("Channel mustn't be closed to be handled.", e);
+			}
+		}
+
+		channelCount.addAndGet(channels);
+
+		BitTorrentSocket bitTorrentSocket = peer.getBitTorrentSocket();
+		if (bitTorrentSocket != null) {
+			trackClose(bitTorrentSocket, channels);
+			bitTorrentSocket.setWriteRequestListener(() -> enableWriteInterest(writeKey));
+
+			if (bitTorrentSocket.hasOutboundMessages()) {
+				// Messages have been queued before the listener was set (ex. the bitfield after the handshake)
+				enableWriteInterest(writeKey);
+			}
+		}
+	}
+
+	/**
+	 * Schedules the write interest to be restored on the given key and wakes up the selector thread to apply it.
+	 * @param key The key which has outbound data available.
+	 */
+	private void enableWriteInterest(SelectionKey key) {
+		pendingWriteKeys.add(key);
+		selector.wakeup();
+	}
+
+	/**
+	 * Removes the channels of the socket from the {@link #channelCount} once the socket gets closed, which cancels their keys.
+	 * @param socket The socket of which the channels have been registered.
+	 * @param channels The amount of registered channels.
+	 */
+	private void trackClose(BitTorrentSocket socket, int channels) {
+		AtomicBoolean registered = new AtomicBoolean(true);
+		Runnable onClose = () -> {
+			if (registered.compareAndSet(true, false)) {
+				channelCount.addAndGet(-channels);
+			}
+		};
+
+		socket.setCloseListener(onClose);
+		if (socket.closed()) {
+			// The socket got closed before the listener was set.
+			onClose.run();
+		}
+	}
+
+	/**
+	 * Gets the amount of channels which are registered on this reactor.
+	 * @return The amount of registered channels.
+	 */
+	int getLoad() {
+		return channelCount.get();
+	}
+
+	void shutdown() {
+		runner.stop();
+		selector.wakeup();
+	}
+
+	void pollChannels() {
+		try {
+			synchronized (selectorGuard) {
+				// Wait for pending registrations to complete before blocking on the selector again.
+				LOGGER.trace("Polling channels.");
+			}
+
+			applyWriteInterest();
+			resumeThrottledKeys();
+
+			ThrottledKey nextResume = throttledKeys.peek();
+			if (nextResume == null) {
+				selector.select();
+			} else {
+				selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(nextResume.resumeTime - System.nanoTime())));
+			}
+
+			Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+			while (keys.hasNext()) {
+				SelectionKey key = keys.next();
+				keys.remove();
+
+				if (key.isValid()) {
+					int throttledOps = peerIoHandler.handlePeer(key, (Peer) key.attachment());
+					if (throttledOps != 0 && key.isValid()) {
+						// Stop selecting the channel until the bandwidth limiters have been refilled.
+						key.interestOps(key.interestOps() & ~throttledOps);
+						throttledKeys.add(new ThrottledKey(key, throttledOps, System.nanoTime() + THROTTLE_DELAY_NANOS));
+					}
+				}
+			}
+		} catch (Exception e) {
+			LOGGER.warn("Failed to process ready channels.", e);
+		}
+	}
+
+	private void resumeThrottledKeys() {
+		long now = System.nanoTime();
+		ThrottledKey throttledKey;
+		while ((throttledKey = throttledKeys.peek()) != null && throttledKey.resumeTime - now <= 0) {
+			throttledKeys.poll();
+			try {
+				throttledKey.key.interestOps(throttledKey.key.interestOps() | throttledKey.ops);
+			} catch (CancelledKeyException e) {
+				LOGGER.trace("Ignoring resume on cancelled key.", e);
+			}
+		}
+	}
+
+	private void applyWriteInterest() {
+		SelectionKey key;
+		while ((key = pendingWriteKeys.poll()) != null) {
+			try {
+				key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+			} catch (CancelledKeyException e) {
+				LOGGER.trace("Ignoring write interest on cancelled key.", e);
+			}
+		}
+	}
+
+	private static final class ThrottledKey {
+
+		private final SelectionKey key;
+
+		private final int ops;
+
+		private final long resumeTime;
+
+		ThrottledKey(SelectionKey key, int ops, long resumeTime) {
+			this.key = key;
+			this.ops = ops;
+			this.resumeTime = resumeTime;
+		}
+	}
+
+}
@@ -216,7 +216,7 @@ public class BitTorrentHandshakeHandlerImpl implements BitTorrentHandshakeHandle
 			.setId(receivedPeerId)
 			.setExtensionBytes(extensionBytes)
 			.setTorrent(torrent)
-			.setSocket(new BitTorrentSocket(torrentClient.getMessageFactory(), state.getSocket()))
+			.setSocket(new BitTorrentSocket(torrentClient.getMessageFactory(), state.getSocket(), torrentClient.getBufferPool()))
 			.build();
 
 		torrent.addPeer(peer);
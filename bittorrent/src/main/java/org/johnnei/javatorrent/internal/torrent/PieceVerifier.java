@@ -0,0 +1,187 @@
+package org.johnnei.javatorrent.internal.torrent;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.johnnei.javatorrent.torrent.AbstractFileSet;
+import org.johnnei.javatorrent.torrent.FileInfo;
+import org.johnnei.javatorrent.torrent.files.Piece;
+
+/**
+ * Verifies the hashes of pieces which are already available in the storage in parallel.
+ * The pieces are grouped in batches of consecutive pieces which start in the same file. Each batch is verified by a single thread in order, so
+ * the reads within a file stay sequential while different batches are verified in parallel on a {@link ForkJoinPool}.
+ */
+public class PieceVerifier {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PieceVerifier.class);
+
+	/**
+	 * The maximum amount of bytes which are verified within a single batch (64MiB).
+	 */
+	static final long MAX_BATCH_SIZE = 64L << 20;
+
+	private final List<List<Piece>> batches;
+
+	private final int pieceCount;
+
+	private final AtomicInteger checkedPieceCount;
+
+	private final Queue<Piece> verifiedPieces;
+
+	private volatile boolean cancelled;
+
+	/**
+	 * Creates a new verifier.
+	 * @param fileSet The file set which contains the pieces.
+	 * @param pieces The pieces to verify.
+	 */
+	public PieceVerifier(AbstractFileSet fileSet, Collection<Piece> pieces) {
+		pieceCount = pieces.size();
+		checkedPieceCount = new AtomicInteger();
+		verifiedPieces = new ConcurrentLinkedQueue<>();
+		batches = createBatches(fileSet, pieces);
+	}
+
+	private static List<List<Piece>> createBatches(AbstractFileSet fileSet, Collection<Piece> pieces) {
+		List<Piece> sortedPieces = new ArrayList<>(pieces);
+		sortedPieces.sort(Comparator.comparingInt(Piece::getIndex));
+
+		List<List<Piece>> batches = new ArrayList<>();
+		List<Piece> batch = new ArrayList<>();
+		FileInfo batchFile = null;
+		long batchSize = 0;
+		for (Piece piece : sortedPieces) {
+			FileInfo file = fileSet.getFileForBytes(piece.getIndex(), 0, 0);
+			boolean isConsecutive = !batch.isEmpty() && batch.get(batch.size() - 1).getIndex() + 1 == piece.getIndex();
+			if (!batch.isEmpty() && (!isConsecutive || !Objects.equals(file, batchFile) || batchSize >= MAX_BATCH_SIZE)) {
+				batches.add(batch);
+				batch = new ArrayList<>();
+				batchSize = 0;
+			}
+
+			batch.add(piece);
+			batchFile = file;
+			batchSize += piece.getSize();
+		}
+
+		if (!batch.isEmpty()) {
+			batches.add(batch);
+		}
+
+		return batches;
+	}
+
+	/**
+	 * Verifies all pieces on the given pool and blocks until the verification has completed or has been cancelled.
+	 * @param pool The pool to verify the batches on.
+	 * @return The pieces of which the hash matched, ordered by index.
+	 */
+	public List<Piece> verify(ForkJoinPool pool) {
+		if (!batches.isEmpty()) {
+			pool.invoke(new VerifyTask(0, batches.size()));
+		}
+
+		return verifiedPieces.stream().sorted(Comparator.comparingInt(Piece::getIndex)).collect(Collectors.toList());
+	}
+
+	private void verifyBatch(List<Piece> batch) {
+		for (Piece piece : batch) {
+			if (cancelled) {
+				return;
+			}
+
+			try {
+				if (piece.checkHash()) {
+					verifiedPieces.add(piece);
+				}
+			} catch (IOException e) {
+				LOGGER.warn("Failed hash check for piece {}.", piece.getIndex(), e);
+			}
+
+			checkedPieceCount.incrementAndGet();
+		}
+
+		LOGGER.debug("Checked {} of {} pieces.", checkedPieceCount.get(), pieceCount);
+	}
+
+	/**
+	 * Stops the verification. Pieces which are being verified at this moment are completed, all other pieces are skipped.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * @return <code>true</code> when {@link #cancel()} has been called.
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * @return The amount of pieces which have been verified so far, regardless of the result.
+	 */
+	public int getCheckedPieceCount() {
+		return checkedPieceCount.get();
+	}
+
+	/**
+	 * @return The amount of pieces which will be verified.
+	 */
+	public int getPieceCount() {
+		return pieceCount;
+	}
+
+	/**
+	 * @return The amount of batches in which the pieces have been split.
+	 */
+	int getBatchCount() {
+		return batches.size();
+	}
+
+	private final class VerifyTask extends RecursiveAction {
+
+		private final int startBatch;
+
+		private final int endBatch;
+
+		VerifyTask(int startBatch, int endBatch) {
+			this.startBatch = startBatch;
+			this.endBatch = endBatch;
+		}
+
+		@Override
+		protected void compute() {
+			if (cancelled) {
+				return;
+			}
+
+			if (endBatch - startBatch == 1) {
+				verifyBatch(batches.get(startBatch));
+				return;
+			}
+
+			int middle = (startBatch + endBatch) >>> 1;
+			invokeAll(new VerifyTask(startBatch, middle), new VerifyTask(middle, endBatch));
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("PieceVerifier[checked=%d, pieces=%d, batches=%d]", checkedPieceCount.get(), pieceCount, batches.size());
+	}
+}
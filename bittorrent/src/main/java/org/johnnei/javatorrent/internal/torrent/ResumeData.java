@@ -0,0 +1,214 @@
+package org.johnnei.javatorrent.internal.torrent;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.johnnei.javatorrent.bittorrent.encoding.BencodedInteger;
+import org.johnnei.javatorrent.bittorrent.encoding.BencodedList;
+import org.johnnei.javatorrent.bittorrent.encoding.BencodedMap;
+import org.johnnei.javatorrent.bittorrent.encoding.BencodedString;
+import org.johnnei.javatorrent.bittorrent.encoding.Bencoding;
+import org.johnnei.javatorrent.bittorrent.encoding.IBencodedValue;
+import org.johnnei.javatorrent.internal.torrent.peer.Bitfield;
+import org.johnnei.javatorrent.network.InStream;
+import org.johnnei.javatorrent.torrent.FileInfo;
+import org.johnnei.javatorrent.torrent.TorrentFileSet;
+import org.johnnei.javatorrent.torrent.files.BlockStatus;
+import org.johnnei.javatorrent.torrent.files.Piece;
+
+/**
+ * The fast-resume record of a torrent which allows to restore the progress without verifying the hashes of the pieces.
+ * The record contains the bitfield, the stored blocks of incomplete pieces and the size and modification time of every file. The record is
+ * only trusted when the size and modification time of every file still match, otherwise the pieces must be verified again.
+ */
+public class ResumeData {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ResumeData.class);
+
+	private static final long VERSION = 1;
+
+	private static final String KEY_VERSION = "version";
+
+	private static final String KEY_INFO_HASH = "info hash";
+
+	private static final String KEY_BITFIELD = "bitfield";
+
+	private static final String KEY_FILES = "files";
+
+	private static final String KEY_SIZE = "size";
+
+	private static final String KEY_MODIFIED = "mtime";
+
+	private static final String KEY_PARTIAL_PIECES = "partial pieces";
+
+	private final File resumeFile;
+
+	private final byte[] infoHash;
+
+	/**
+	 * Creates a new record.
+	 * @param resumeFile The file in which the record is stored.
+	 * @param infoHash The hash of the torrent to which the record belongs.
+	 */
+	public ResumeData(File resumeFile, byte[] infoHash) {
+		this.resumeFile = resumeFile;
+		this.infoHash = infoHash;
+	}
+
+	/**
+	 * Writes the current progress of the file set to the record. The storage is flushed before the files are inspected so the recorded
+	 * modification times cover all written data.
+	 * @param fileSet The file set to record.
+	 * @throws IOException When the storage can't be flushed or the record can't be written.
+	 */
+	public void save(TorrentFileSet fileSet) throws IOException {
+		BencodedMap record = new BencodedMap();
+		record.put(KEY_VERSION, new BencodedInteger(VERSION));
+		record.put(KEY_INFO_HASH, new BencodedString(infoHash));
+		record.put(KEY_BITFIELD, new BencodedString(fileSet.getBitfieldBytes()));
+		record.put(KEY_PARTIAL_PIECES, createPartialPieces(fileSet));
+
+		// Inspect the files after capturing the progress, data written in between is simply not trusted.
+		fileSet.getStorage().flush();
+		BencodedList files = new BencodedList();
+		for (FileInfo file : fileSet.getFiles()) {
+			BencodedMap fileRecord = new BencodedMap();
+			fileRecord.put(KEY_SIZE, new BencodedInteger(fileSet.getStorage().getStoredSize(file)));
+			fileRecord.put(KEY_MODIFIED, new BencodedInteger(file.getFile().lastModified()));
+			files.add(fileRecord);
+		}
+		record.put(KEY_FILES, files);
+
+		File temporaryFile = new File(resumeFile.getParentFile(), resumeFile.getName() + ".tmp");
+		Files.write(temporaryFile.toPath(), record.serialize());
+		Files.move(temporaryFile.toPath(), resumeFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static BencodedMap createPartialPieces(TorrentFileSet fileSet) {
+		BencodedMap partialPieces = new BencodedMap();
+		for (int pieceIndex = 0; pieceIndex < fileSet.getPieceCount(); pieceIndex++) {
+			Piece piece = fileSet.getPiece(pieceIndex);
+			if (piece.isDone() || piece.hasBufferedBlocks() || !piece.hasBlockWithStatus(BlockStatus.Stored)) {
+				continue;
+			}
+
+			Bitfield storedBlocks = new Bitfield((int) Math.ceil(piece.getBlockCount() / 8D));
+			for (int blockIndex = 0; blockIndex < piece.getBlockCount(); blockIndex++) {
+				if (piece.getBlockStatus(blockIndex) == BlockStatus.Stored) {
+					storedBlocks.havePiece(blockIndex);
+				}
+			}
+			partialPieces.put(Integer.toString(pieceIndex), new BencodedString(storedBlocks.getBytes()));
+		}
+		return partialPieces;
+	}
+
+	/**
+	 * Restores the progress of the file set from the record when the record matches the files on disk.
+	 * @param fileSet The file set to restore.
+	 * @return <code>true</code> when the progress has been restored, <code>false</code> when the pieces must be verified.
+	 */
+	public boolean restore(TorrentFileSet fileSet) {
+		if (!resumeFile.exists()) {
+			return false;
+		}
+
+		Map<String, IBencodedValue> record;
+		try {
+			record = new Bencoding().decode(new InStream(Files.readAllBytes(resumeFile.toPath()))).asMap();
+			if (!isMatching(record, fileSet)) {
+				LOGGER.info("Resume data in {} does not match the files, pieces will be verified.", resumeFile);
+				return false;
+			}
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warn("Failed to read resume data from {}, pieces will be verified.", resumeFile, e);
+			return false;
+		}
+
+		byte[] bitfieldBytes = get(record, KEY_BITFIELD).asBytes();
+		for (int pieceIndex = 0; pieceIndex < fileSet.getPieceCount(); pieceIndex++) {
+			if (isSet(bitfieldBytes, pieceIndex)) {
+				fileSet.setHavingPiece(pieceIndex);
+			}
+		}
+
+		for (Map.Entry<String, IBencodedValue> entry : get(record, KEY_PARTIAL_PIECES).asMap().entrySet()) {
+			Piece piece = fileSet.getPiece(Integer.parseInt(entry.getKey()));
+			byte[] storedBlocks = entry.getValue().asBytes();
+			for (int blockIndex = 0; blockIndex < piece.getBlockCount(); blockIndex++) {
+				if (isSet(storedBlocks, blockIndex)) {
+					piece.restoreStoredBlock(blockIndex);
+				}
+			}
+		}
+
+		return true;
+	}
+
+	private boolean isMatching(Map<String, IBencodedValue> record, TorrentFileSet fileSet) throws IOException {
+		if (getLong(record, KEY_VERSION) != VERSION) {
+			return false;
+		}
+
+		if (!Arrays.equals(infoHash, get(record, KEY_INFO_HASH).asBytes())) {
+			return false;
+		}
+
+		if (get(record, KEY_BITFIELD).asBytes().length != fileSet.getBitfieldBytes().length) {
+			return false;
+		}
+
+		List<IBencodedValue> files = get(record, KEY_FILES).asList();
+		if (files.size() != fileSet.getFiles().size()) {
+			return false;
+		}
+
+		for (int i = 0; i < files.size(); i++) {
+			Map<String, IBencodedValue> fileRecord = files.get(i).asMap();
+			FileInfo file = fileSet.getFiles().get(i);
+			if (getLong(fileRecord, KEY_SIZE) != fileSet.getStorage().getStoredSize(file)) {
+				return false;
+			}
+
+			if (getLong(fileRecord, KEY_MODIFIED) != file.getFile().lastModified()) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean isSet(byte[] bitfield, int index) {
+		int byteIndex = index / 8;
+		return byteIndex < bitfield.length && (bitfield[byteIndex] & (0x80 >>> (index % 8))) != 0;
+	}
+
+	private static IBencodedValue get(Map<String, IBencodedValue> map, String key) {
+		return Optional.ofNullable(map.get(key)).orElseThrow(() -> new IllegalArgumentException(String.format("Missing %s in resume data.", key)));
+	}
+
+	private static long getLong(Map<String, IBencodedValue> map, String key) {
+		return get(map, key).asLong();
+	}
+
+	/**
+	 * @return The file in which the record is stored.
+	 */
+	public File getResumeFile() {
+		return resumeFile;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ResumeData[file=%s]", resumeFile);
+	}
+}
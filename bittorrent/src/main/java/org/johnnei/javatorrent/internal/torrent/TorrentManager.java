@@ -50,6 +50,13 @@ public class TorrentManager {
 		if (connectionAcceptor != null) {
 			connectionAcceptor.stop();
 		}
+
+		synchronized (torrentListLock) {
+			for (TorrentPair torrentPair : activeTorrents) {
+				torrentPair.getTorrent().saveResumeData();
+				torrentPair.getTorrent().shutdown();
+			}
+		}
 	}
 
 	/**
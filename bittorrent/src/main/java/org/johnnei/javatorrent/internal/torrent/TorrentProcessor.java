@@ -47,6 +47,7 @@ class TorrentProcessor {
 		scheduledTasks.add(torrentClient.getExecutorService().scheduleAtFixedRate(this::updateChokingStates, 1, 10, TimeUnit.SECONDS));
 		scheduledTasks.add(torrentClient.getExecutorService().scheduleAtFixedRate(this::removeDisconnectedPeers, 30, 60, TimeUnit.SECONDS));
 		scheduledTasks.add(torrentClient.getExecutorService().scheduleAtFixedRate(this::updateTrackerStates, 10, 30, TimeUnit.SECONDS));
+		scheduledTasks.add(torrentClient.getExecutorService().scheduleAtFixedRate(torrent::saveResumeData, 60, 60, TimeUnit.SECONDS));
 	}
 
 	public void updateTrackerStates() {
@@ -92,6 +93,9 @@ class TorrentProcessor {
 			task.cancel(false);
 		}
 
+		torrent.saveResumeData();
+		torrent.shutdown();
+
 		torrentManager.removeTorrent(torrent);
 	}
 
@@ -1,8 +0,0 @@
-package org.johnnei.javatorrent.internal.utils;
-
-@FunctionalInterface
-public interface CheckedRunnable<E extends Exception> {
-
-	void run() throws E;
-
-}
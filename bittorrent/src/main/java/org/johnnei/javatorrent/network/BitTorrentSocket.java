@@ -3,27 +3,30 @@ package org.johnnei.javatorrent.network;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ByteChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SocketChannel;
 import java.nio.channels.WritableByteChannel;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.Objects;
-import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.johnnei.javatorrent.bittorrent.protocol.BitTorrent;
 import org.johnnei.javatorrent.bittorrent.protocol.MessageFactory;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.IMessage;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageBlock;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageKeepAlive;
+import org.johnnei.javatorrent.internal.network.OutboundQueue;
 import org.johnnei.javatorrent.internal.network.TransferRate;
 import org.johnnei.javatorrent.network.socket.ISocket;
 
-import static org.johnnei.javatorrent.network.ByteBufferUtils.getBytes;
-
 /**
  * Handles the raw data on the {@link ByteChannel} provided by {@link ISocket}.
  */
@@ -34,13 +37,37 @@ public class BitTorrentSocket {
 	private static final int MESSAGE_LENGTH_SIZE = 4;
 
 	/**
-	 * The amount of bytes reserved for {@link #readBuffer}.
-	 * The size is chosen to be the 'largest' regular packet. ({@link MessageBlock}
+	 * Keep alive messages have no state, so every received keep alive is represented by this instance.
+	 */
+	private static final MessageKeepAlive KEEP_ALIVE = new MessageKeepAlive();
+
+	/**
+	 * The size of the 'largest' regular packet: a {@link MessageBlock} of 16KiB including the length, id, index and offset.
+	 * The block data of such messages is read into a separate buffer, so {@link #readBuffer} only has to hold the header.
 	 */
-	private static final int READ_BUFFER_SIZE = (1 << 14) + MESSAGE_LENGTH_SIZE;
+	public static final int READ_BUFFER_SIZE = (1 << 14) + MESSAGE_LENGTH_SIZE + 9;
 
-	private final Object queueLock = new Object();
-	private final Object blockQueueLock = new Object();
+	/**
+	 * The amount of bytes reserved for {@link #controlBuffer}.
+	 * This is large enough to contain a burst of {@link org.johnnei.javatorrent.bittorrent.protocol.messages.MessageRequest}.
+	 */
+	private static final int CONTROL_BUFFER_SIZE = 1 << 12;
+
+	/**
+	 * The maximum amount of buffers which are written with a single gathering write.
+	 */
+	private static final int MAX_WRITE_BUFFERS = 16;
+
+	/**
+	 * The amount of bytes of a {@link MessageBlock} which precede the block data: the length, id, index and offset.
+	 */
+	private static final int BLOCK_HEADER_SIZE = MESSAGE_LENGTH_SIZE + 9;
+
+	/**
+	 * The amount of queued bytes from which {@link #isOutboundSaturated()} reports that the socket has enough work queued.
+	 * This allows for 64 blocks of 16KiB to be queued.
+	 */
+	private static final int OUTBOUND_QUEUE_CAPACITY = 64 * (1 << 14);
 
 	/**
 	 * Clock instance to allow for speedy unit tests on this.
@@ -51,19 +78,41 @@ public class BitTorrentSocket {
 
 	private final MessageFactory messageFactory;
 
+	private final ByteBufferPool bufferPool;
+
 	private final TransferRate downloadRate;
 
 	private final TransferRate uploadRate;
 
+	/**
+	 * The bucket which limits the amount of bytes written to the socket.
+	 */
+	private TokenBucket uploadLimiter;
+
+	/**
+	 * The bucket which limits the amount of bytes read from the socket.
+	 */
+	private TokenBucket downloadLimiter;
+
+	/**
+	 * If the last call to {@link #sendMessages()} was halted by {@link #uploadLimiter}.
+	 */
+	private boolean uploadThrottled;
+
+	/**
+	 * If the last call to {@link #canReadMessage()} was halted by {@link #downloadLimiter}.
+	 */
+	private boolean downloadThrottled;
+
 	/**
 	 * The queue containing the messages which still have to be send
 	 */
-	private Queue<IMessage> messageQueue;
+	private final OutboundQueue messageQueue;
 
 	/**
 	 * The queue containing the block message which still have to be send
 	 */
-	private Queue<IMessage> blockQueue;
+	private final OutboundQueue blockQueue;
 
 	/**
 	 * Buffer holding incomplete {@link IMessage} binary data.
@@ -71,9 +120,42 @@ public class BitTorrentSocket {
 	private ByteBuffer readBuffer;
 
 	/**
-	 * Buffer holding incomplete sent {@link IMessage} binary data.
+	 * Buffer holding the incomplete block data of a {@link MessageBlock} of which the header is in {@link #readBuffer}. The buffer is taken from
+	 * the pool with the exact size of the block so a 16KiB block doesn't occupy the next size class because of its header.
+	 * <code>null</code> when no block data is being read.
 	 */
-	private ByteBuffer writeBuffer;
+	private ByteBuffer blockBuffer;
+
+	/**
+	 * If the pooled buffers have been returned to the pool because the socket got closed.
+	 * Guarded by the lock of this socket as the socket can be closed by other threads than the one which is reading or writing.
+	 */
+	private boolean buffersReleased;
+
+	/**
+	 * Reusable buffer in which small messages are coalesced to be written together.
+	 */
+	private final ByteBuffer controlBuffer;
+
+	/**
+	 * The buffers of the batch of messages which is being written. The first buffer is always the {@link #controlBuffer}.
+	 */
+	private final ByteBuffer[] writeBuffers;
+
+	/**
+	 * The index of the first buffer in {@link #writeBuffers} which has not been completely written.
+	 */
+	private int writeBufferOffset;
+
+	/**
+	 * The amount of buffers in {@link #writeBuffers} which are part of the current batch.
+	 */
+	private int writeBufferCount;
+
+	/**
+	 * The block of which the data is being transferred straight from the file to the channel after {@link #writeBuffers} have been written.
+	 */
+	private MessageBlock pendingTransfer;
 
 	/**
 	 * The last time a buffer was created
@@ -85,118 +167,428 @@ public class BitTorrentSocket {
 	 */
 	private LocalDateTime lastActivity;
 
+	/**
+	 * The listener which gets notified when this socket has data available to write.
+	 */
+	private volatile Runnable writeRequestListener = () -> {};
+
+	/**
+	 * If all outbound data has been written and the write interest has been released. Only the transition from idle notifies the
+	 * {@link #writeRequestListener}, so messages queued while data is pending (or while the upload is throttled) don't restore the interest.
+	 */
+	private final AtomicBoolean writeIdle = new AtomicBoolean(true);
+
+	/**
+	 * The listener which is notified once this socket has been closed.
+	 */
+	private volatile Runnable closeListener = () -> {};
+
 	/**
 	 * Creates a new bound BitTorrent socket.
 	 * @param messageFactory The factory to create {@link IMessage} instances.
 	 * @param socket The bound socket.
 	 */
 	public BitTorrentSocket(MessageFactory messageFactory, ISocket socket) {
-		this(messageFactory, socket, Clock.systemDefaultZone());
+		this(messageFactory, socket, new ByteBufferPool(READ_BUFFER_SIZE, 0));
+	}
+
+	/**
+	 * Creates a new bound BitTorrent socket.
+	 * @param messageFactory The factory to create {@link IMessage} instances.
+	 * @param socket The bound socket.
+	 * @param bufferPool The pool from which the read buffers are taken. Buffers which are handed over to a {@link MessageBlock} are replaced
+	 * with a buffer from this pool.
+	 */
+	public BitTorrentSocket(MessageFactory messageFactory, ISocket socket, ByteBufferPool bufferPool) {
+		this(messageFactory, socket, bufferPool, Clock.systemDefaultZone());
 	}
 
 	BitTorrentSocket(MessageFactory messageFactory, ISocket socket, Clock clock) {
+		this(messageFactory, socket, new ByteBufferPool(READ_BUFFER_SIZE, 0), clock);
+	}
+
+	BitTorrentSocket(MessageFactory messageFactory, ISocket socket, ByteBufferPool bufferPool, Clock clock) {
 		this.clock = clock;
 		this.messageFactory = messageFactory;
-		messageQueue = new LinkedList<>();
-		blockQueue = new LinkedList<>();
+		messageQueue = new OutboundQueue(CONTROL_BUFFER_SIZE);
+		blockQueue = new OutboundQueue(OUTBOUND_QUEUE_CAPACITY);
 		lastActivity = LocalDateTime.now(clock);
 		this.socket = Objects.requireNonNull(socket, "Socket cannot be null");
-		this.readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+		this.bufferPool = Objects.requireNonNull(bufferPool, "Buffer pool cannot be null");
+		this.readBuffer = bufferPool.acquire(CONTROL_BUFFER_SIZE);
 		this.readBuffer.limit(0);
+		this.controlBuffer = ByteBuffer.allocate(CONTROL_BUFFER_SIZE);
+		this.writeBuffers = new ByteBuffer[MAX_WRITE_BUFFERS];
 		this.downloadRate = new TransferRate(clock);
 		this.uploadRate = new TransferRate(clock);
+		this.uploadLimiter = new TokenBucket(clock, null);
+		this.downloadLimiter = new TokenBucket(clock, null);
+	}
+
+	/**
+	 * Chains the bandwidth limiters of this socket to the given limiters (ex. those of the torrent).
+	 * The rates which have been configured on this socket are retained.
+	 * @param uploadParent The limiter which limits the upload of this socket.
+	 * @param downloadParent The limiter which limits the download of this socket.
+	 */
+	public void setParentLimiters(TokenBucket uploadParent, TokenBucket downloadParent) {
+		TokenBucket newUploadLimiter = new TokenBucket(clock, uploadParent);
+		newUploadLimiter.setRate(uploadLimiter.getRate());
+		TokenBucket newDownloadLimiter = new TokenBucket(clock, downloadParent);
+		newDownloadLimiter.setRate(downloadLimiter.getRate());
+
+		uploadLimiter = newUploadLimiter;
+		downloadLimiter = newDownloadLimiter;
+	}
+
+	/**
+	 * @return The limiter which limits the amount of bytes written to this socket.
+	 */
+	public TokenBucket getUploadLimiter() {
+		return uploadLimiter;
 	}
 
 	/**
-	 * Queues the message to be send
+	 * @return The limiter which limits the amount of bytes read from this socket.
+	 */
+	public TokenBucket getDownloadLimiter() {
+		return downloadLimiter;
+	}
+
+	/**
+	 * Queues the message to be send. When the socket had no outbound data the write request listener will be notified.
 	 * @param message The message to be added to the queue
 	 */
 	public void enqueueMessage(IMessage message) {
 		if (message instanceof MessageBlock) {
-			synchronized (blockQueueLock) {
-				blockQueue.add(message);
-			}
+			blockQueue.offer(message);
 		} else {
-			synchronized (queueLock) {
-				messageQueue.add(message);
-			}
+			messageQueue.offer(message);
+		}
+
+		requestWrite();
+	}
+
+	/**
+	 * Notifies the registered listener that this socket wants to write data.
+	 * This is implicitly done by {@link #enqueueMessage(IMessage)}, but can be used to indicate that messages will be queued once the socket
+	 * is writable (ex. an upload request which is read from disk when there is room to send it).
+	 */
+	public void requestWrite() {
+		// When the socket isn't idle the data is awaiting to be sent (or the upload is throttled) and the write interest is managed already.
+		if (writeIdle.compareAndSet(true, false)) {
+			writeRequestListener.run();
+		}
+	}
+
+	/**
+	 * Marks the socket as idle when all outbound data has been written, after which the write interest may be released until
+	 * {@link #requestWrite()} is invoked again.
+	 * @return <code>true</code> when the socket is idle, <code>false</code> when outbound data is pending.
+	 */
+	public boolean releaseWriteInterest() {
+		if (hasOutboundMessages()) {
+			return false;
 		}
+
+		writeIdle.set(true);
+		// A message queued before the flag was set didn't notify the listener, so the write interest must be kept for it.
+		return !hasOutboundMessages() || !writeIdle.compareAndSet(true, false);
+	}
+
+	/**
+	 * Sets the listener which will be notified when this socket gains outbound data while it was idle.
+	 * @param writeRequestListener The listener to notify.
+	 */
+	public void setWriteRequestListener(Runnable writeRequestListener) {
+		this.writeRequestListener = Objects.requireNonNull(writeRequestListener, "Write request listener cannot be null");
+	}
+
+	/**
+	 * Sets the listener which will be notified once when this socket gets closed.
+	 * @param closeListener The listener to notify.
+	 */
+	public void setCloseListener(Runnable closeListener) {
+		this.closeListener = Objects.requireNonNull(closeListener, "Close listener cannot be null");
 	}
 
 	/**
 	 * Converts the buffered message to an {@link IMessage}. <em>must</em> only be called when {@link #canReadMessage()} returns <code>true</code>.
+	 * The payload of a {@link MessageBlock} is not copied, instead the buffer into which it has been read is handed over to the message.
 	 * @return The next message on the stream.
 	 */
-	public IMessage readMessage() {
-		InStream stream = getBufferedMessage();
-		int length = stream.readInt();
-		if (length == 0) {
-			return new MessageKeepAlive();
+	public synchronized IMessage readMessage() {
+		if (buffersReleased) {
+			throw new IllegalStateException("Socket has been closed.");
 		}
 
-		int id = stream.readByte();
-		IMessage message = messageFactory.createById(id);
-		message.read(stream);
+		readBuffer.flip();
+		InStream stream = new InStream(readBuffer, getBufferLifetime());
+		try {
+			int length = stream.readInt();
+			if (length == 0) {
+				return KEEP_ALIVE;
+			}
+
+			int id = stream.readByte();
+			IMessage message = messageFactory.createById(id);
+			if (blockBuffer != null) {
+				blockBuffer.flip();
+				((MessageBlock) message).read(stream, blockBuffer);
+				// The block buffer is owned by the message from now on.
+				blockBuffer = null;
+			} else {
+				message.read(stream);
+			}
 
-		LOGGER.trace("Read message: {}", message);
-		return message;
+			LOGGER.trace("Read message: {}", message);
+			return message;
+		} finally {
+			readBuffer.clear();
+			if (blockBuffer != null) {
+				// The message failed to parse and didn't take ownership of the block data.
+				bufferPool.release(blockBuffer);
+				blockBuffer = null;
+			}
+		}
 	}
 
 	/**
 	 * Sends messages until the operation is no longer blocking. {@link org.johnnei.javatorrent.bittorrent.protocol.messages.MessageBlock} will be send last.
+	 * Queued messages are written in batches with a single gathering write when the underlying channel supports it.
+	 * The amount of written bytes is limited by the {@link #getUploadLimiter() upload limiter}.
 	 * @throws IOException When write fails.
+	 *
+	 * @see #isUploadThrottled()
 	 */
-	public void sendMessages() throws IOException {
-		ByteBuffer buffer;
+	public synchronized void sendMessages() throws IOException {
+		if (buffersReleased) {
+			throw new ClosedChannelException();
+		}
 
-		while ((buffer = prepareMessageForSending()) != null) {
-			int transferredBytes = ((WritableByteChannel) socket.getWritableChannel()).write(buffer);
+		uploadThrottled = false;
+		while (prepareBuffersForSending()) {
+			if (writeBufferOffset < writeBufferCount && !sendBuffers()) {
+				// The channel can't accept more data without blocking.
+				return;
+			}
 
-			uploadRate.addTransferredBytes(transferredBytes);
+			if (pendingTransfer != null && !transferBlock()) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Writes the buffers of the current batch.
+	 * @return <code>true</code> when all buffers have been written.
+	 * @throws IOException When write fails.
+	 */
+	private boolean sendBuffers() throws IOException {
+		int remainingBytes = getRemainingWriteBytes();
+		int grantedBytes = uploadLimiter.acquire(remainingBytes);
+		if (grantedBytes == 0) {
+			uploadThrottled = true;
+			return false;
+		}
+
+		long transferredBytes = writeBuffers(grantedBytes);
+		uploadLimiter.release(grantedBytes - (int) transferredBytes);
+		uploadThrottled = grantedBytes < remainingBytes && transferredBytes == grantedBytes;
+
+		uploadRate.addTransferredBytes((int) transferredBytes);
+		lastActivity = LocalDateTime.now(clock);
+
+		while (writeBufferOffset < writeBufferCount && !writeBuffers[writeBufferOffset].hasRemaining()) {
+			if (writeBufferOffset > 0) {
+				// All buffers but the control buffer have been taken from the pool when encoding the message.
+				bufferPool.release(writeBuffers[writeBufferOffset]);
+			}
+			writeBuffers[writeBufferOffset] = null;
+			writeBufferOffset++;
+		}
+
+		return writeBufferOffset == writeBufferCount;
+	}
+
+	/**
+	 * Transfers the data of {@link #pendingTransfer} from the file to the channel.
+	 * @return <code>true</code> when the block has been transferred completely.
+	 * @throws IOException When the transfer fails.
+	 */
+	private boolean transferBlock() throws IOException {
+		WritableByteChannel channel = (WritableByteChannel) socket.getWritableChannel();
+		while (!pendingTransfer.isTransferComplete()) {
+			int grantedBytes = uploadLimiter.acquire(pendingTransfer.getRemainingTransferLength());
+			if (grantedBytes == 0) {
+				uploadThrottled = true;
+				return false;
+			}
+
+			long transferredBytes = pendingTransfer.transferTo(channel, grantedBytes);
+			uploadLimiter.release(grantedBytes - (int) transferredBytes);
+			if (transferredBytes == 0) {
+				// The channel can't accept more data without blocking.
+				return false;
+			}
+
+			uploadRate.addTransferredBytes((int) transferredBytes);
 			lastActivity = LocalDateTime.now(clock);
+		}
 
-			if (buffer.hasRemaining()) {
-				writeBuffer = buffer;
-				return;
-			} else {
-				writeBuffer = null;
+		pendingTransfer = null;
+		return true;
+	}
+
+	private int getRemainingWriteBytes() {
+		long remainingBytes = 0;
+		for (int i = writeBufferOffset; i < writeBufferCount; i++) {
+			remainingBytes += writeBuffers[i].remaining();
+		}
+		return (int) Math.min(Integer.MAX_VALUE, remainingBytes);
+	}
+
+	/**
+	 * Writes at most <code>maxBytes</code> of the current batch.
+	 * @param maxBytes The maximum amount of bytes to write.
+	 * @return The amount of written bytes.
+	 * @throws IOException When write fails.
+	 */
+	private long writeBuffers(int maxBytes) throws IOException {
+		// Find the buffers which fit in the allowed amount of bytes and temporarily cut off the buffer which doesn't fit entirely.
+		int endOffset = writeBufferOffset;
+		int bytes = 0;
+		while (endOffset < writeBufferCount && bytes + writeBuffers[endOffset].remaining() <= maxBytes) {
+			bytes += writeBuffers[endOffset].remaining();
+			endOffset++;
+		}
+
+		ByteBuffer partialBuffer = null;
+		int partialBufferLimit = 0;
+		if (endOffset < writeBufferCount && bytes < maxBytes) {
+			partialBuffer = writeBuffers[endOffset];
+			partialBufferLimit = partialBuffer.limit();
+			partialBuffer.limit(partialBuffer.position() + maxBytes - bytes);
+			endOffset++;
+		}
+
+		try {
+			return writeBuffers(writeBufferOffset, endOffset);
+		} finally {
+			if (partialBuffer != null) {
+				partialBuffer.limit(partialBufferLimit);
 			}
+		}
+	}
 
+	private long writeBuffers(int startOffset, int endOffset) throws IOException {
+		WritableByteChannel channel = (WritableByteChannel) socket.getWritableChannel();
+		if (channel instanceof GatheringByteChannel) {
+			return ((GatheringByteChannel) channel).write(writeBuffers, startOffset, endOffset - startOffset);
+		}
+
+		long transferredBytes = 0;
+		for (int i = startOffset; i < endOffset; i++) {
+			transferredBytes += channel.write(writeBuffers[i]);
+			if (writeBuffers[i].hasRemaining()) {
+				break;
+			}
 		}
+		return transferredBytes;
 	}
 
-	private ByteBuffer prepareMessageForSending() {
-		if (writeBuffer != null) {
-			return writeBuffer;
+	/**
+	 * Fills {@link #writeBuffers} with the next batch of messages when the previous batch has been written completely.
+	 * Small messages are coalesced into {@link #controlBuffer}. Blocks are only added once all other messages have been added.
+	 * A block of which the data is transferred from the file ends the batch with its header.
+	 * @return <code>true</code> when there is data to write.
+	 */
+	private boolean prepareBuffersForSending() {
+		if (writeBufferOffset < writeBufferCount || pendingTransfer != null) {
+			return true;
 		}
 
-		IMessage message = null;
+		controlBuffer.clear();
+		writeBuffers[0] = controlBuffer;
+		writeBufferCount = 1;
 
-		if (!messageQueue.isEmpty()) {
-			synchronized (queueLock) {
-				message = messageQueue.poll();
+		boolean drainedMessages = true;
+		IMessage message;
+		while (writeBufferCount < writeBuffers.length && (message = messageQueue.poll()) != null) {
+			if (getEncodedLength(message) <= controlBuffer.remaining()) {
+				encodeMessage(message, new OutStream(controlBuffer));
+			} else {
+				// Messages must be sent in order, so this message ends the batch of regular messages.
+				writeBuffers[writeBufferCount++] = encodeMessage(message);
+				drainedMessages = false;
+				break;
 			}
-		} else if (!blockQueue.isEmpty()) {
-			synchronized (blockQueueLock) {
-				message = blockQueue.poll();
+		}
+
+		while (drainedMessages && writeBufferCount < writeBuffers.length && (message = blockQueue.poll()) != null) {
+			if (isTransferredFromFile(message)) {
+				MessageBlock block = (MessageBlock) message;
+				if (writeBufferCount == 1 && BLOCK_HEADER_SIZE <= controlBuffer.remaining()) {
+					encodeBlockHeader(block, new OutStream(controlBuffer));
+				} else {
+					ByteBuffer buffer = bufferPool.acquire(BLOCK_HEADER_SIZE);
+					encodeBlockHeader(block, new OutStream(buffer));
+					buffer.flip();
+					writeBuffers[writeBufferCount++] = buffer;
+				}
+
+				// The block data can only be sent after the header has been written.
+				pendingTransfer = block;
+				break;
 			}
+
+			writeBuffers[writeBufferCount++] = encodeMessage(message);
 		}
 
-		if (message == null) {
-			return null;
+		controlBuffer.flip();
+		writeBufferOffset = controlBuffer.hasRemaining() ? 0 : 1;
+		if (writeBufferOffset == writeBufferCount && pendingTransfer == null) {
+			writeBuffers[0] = null;
+			writeBufferOffset = 0;
+			writeBufferCount = 0;
+			return false;
 		}
 
+		return true;
+	}
+
+	private static int getEncodedLength(IMessage message) {
+		return MESSAGE_LENGTH_SIZE + message.getLength();
+	}
+
+	private ByteBuffer encodeMessage(IMessage message) {
+		ByteBuffer buffer = bufferPool.acquire(getEncodedLength(message));
+		encodeMessage(message, new OutStream(buffer));
+		buffer.flip();
+		return buffer;
+	}
+
+	private boolean isTransferredFromFile(IMessage message) {
+		return message instanceof MessageBlock && ((MessageBlock) message).isTransferredFromFile();
+	}
+
+	private static void encodeBlockHeader(MessageBlock block, OutStream outStream) {
+		LOGGER.trace("Writing message header {}", block);
+
+		outStream.writeInt(block.getLength());
+		outStream.writeByte(block.getId());
+		block.writeHeader(outStream);
+	}
+
+	private static void encodeMessage(IMessage message, OutStream outStream) {
 		LOGGER.trace("Writing message {}", message);
 
-		OutStream outBuffer = new OutStream(message.getLength() + 4);
-		outBuffer.writeInt(message.getLength());
+		outStream.writeInt(message.getLength());
 
 		if (message.getLength() > 0) {
-			outBuffer.writeByte(message.getId());
-			message.write(outBuffer);
+			outStream.writeByte(message.getId());
+			message.write(outStream);
 		}
-
-		return ByteBuffer.wrap(outBuffer.toByteArray());
 	}
 
 	/**
@@ -208,77 +600,152 @@ public class BitTorrentSocket {
 	}
 
 	/**
-	 * Closes the connection with the socket
+	 * Closes the connection with the socket and returns the pooled buffers, including those of the messages which were still queued.
 	 */
 	public void close() {
-		if (socket.isClosed()) {
-			return;
+		if (!socket.isClosed()) {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				LOGGER.warn("Failed to close socket.", e);
+			}
 		}
 
-		try {
-			socket.close();
-		} catch (IOException e) {
-			LOGGER.warn("Failed to close socket.", e);
+		if (releaseBuffers()) {
+			closeListener.run();
+		}
+	}
+
+	/**
+	 * Returns the pooled buffers when this hasn't happened yet.
+	 * @return <code>true</code> when the buffers have been released by this call.
+	 */
+	private synchronized boolean releaseBuffers() {
+		if (buffersReleased) {
+			return false;
+		}
+
+		buffersReleased = true;
+		bufferPool.release(readBuffer);
+		readBuffer = null;
+		bufferPool.release(blockBuffer);
+		blockBuffer = null;
+
+		// All buffers but the control buffer have been taken from the pool when encoding the message.
+		for (int i = Math.max(1, writeBufferOffset); i < writeBufferCount; i++) {
+			bufferPool.release(writeBuffers[i]);
+		}
+		Arrays.fill(writeBuffers, null);
+		writeBufferOffset = 0;
+		writeBufferCount = 0;
+		pendingTransfer = null;
+
+		IMessage message;
+		while ((message = blockQueue.poll()) != null) {
+			((MessageBlock) message).discard();
 		}
+
+		return true;
 	}
 
 	/**
-	 * Buffers the next message for reading.
+	 * Buffers the next message for reading. The amount of read bytes is limited by the {@link #getDownloadLimiter() download limiter}.
 	 * @return Returns <code>true</code> when enough data is buffered to read the next message without blocking.
 	 * @throws IOException When an IO error occurs during the buffering.
 	 */
-	public boolean canReadMessage() throws IOException {
+	public synchronized boolean canReadMessage() throws IOException {
+		if (buffersReleased) {
+			throw new ClosedChannelException();
+		}
+
+		downloadThrottled = false;
+		if (blockBuffer != null) {
+			return readBlockData();
+		}
+
 		if (readBuffer.position() == 0) {
 			lastBufferCreate = LocalDateTime.now(clock);
 			readBuffer.limit(4);
 		}
 
-		readInput();
+		readInput(readBuffer);
 
-		if (readBuffer.position() >= MESSAGE_LENGTH_SIZE) {
-			ByteBuffer buffer = readBuffer.asReadOnlyBuffer();
-			buffer.flip();
-			int messageLength = buffer.getInt();
-			int bytesNeeded = MESSAGE_LENGTH_SIZE + messageLength;
+		if (readBuffer.position() < MESSAGE_LENGTH_SIZE) {
+			return false;
+		}
+
+		int bytesNeeded = MESSAGE_LENGTH_SIZE + readBuffer.getInt(0);
+		if (bytesNeeded > BLOCK_HEADER_SIZE) {
+			// Read up to the end of the block header first to find out if the remainder has to be read into a block buffer.
+			readBuffer.limit(Math.max(readBuffer.limit(), BLOCK_HEADER_SIZE));
+			readInput(readBuffer);
 
-			if (readBuffer.capacity() < bytesNeeded) {
-				growReadBuffer(bytesNeeded);
+			if (readBuffer.position() < BLOCK_HEADER_SIZE) {
+				return false;
 			}
 
-			readBuffer.limit(bytesNeeded);
-			if (readBuffer.hasRemaining()) {
-				readInput();
+			if (readBuffer.get(MESSAGE_LENGTH_SIZE) == BitTorrent.MESSAGE_PIECE) {
+				blockBuffer = bufferPool.acquire(bytesNeeded - BLOCK_HEADER_SIZE);
+				blockBuffer.limit(bytesNeeded - BLOCK_HEADER_SIZE);
+				return readBlockData();
 			}
+		}
 
-			return readBuffer.position() >= bytesNeeded;
+		if (readBuffer.capacity() < bytesNeeded) {
+			growReadBuffer(bytesNeeded);
 		}
 
-		return false;
+		readBuffer.limit(bytesNeeded);
+		if (readBuffer.hasRemaining()) {
+			readInput(readBuffer);
+		}
+
+		return readBuffer.position() >= bytesNeeded;
+	}
+
+	private boolean readBlockData() throws IOException {
+		readInput(blockBuffer);
+		return !blockBuffer.hasRemaining();
 	}
 
-	private void readInput() throws IOException {
-		int readBytes = ((ReadableByteChannel) socket.getReadableChannel()).read(readBuffer);
+	private void readInput(ByteBuffer buffer) throws IOException {
+		int requestedBytes = buffer.remaining();
+		if (requestedBytes == 0) {
+			return;
+		}
+
+		int grantedBytes = downloadLimiter.acquire(requestedBytes);
+		if (grantedBytes == 0) {
+			downloadThrottled = true;
+			return;
+		}
+
+		int limit = buffer.limit();
+		int readBytes;
+		try {
+			buffer.limit(buffer.position() + grantedBytes);
+			readBytes = ((ReadableByteChannel) socket.getReadableChannel()).read(buffer);
+		} finally {
+			buffer.limit(limit);
+		}
+
+		downloadLimiter.release(grantedBytes - Math.max(0, readBytes));
 		if (readBytes == -1) {
 			throw new IOException("Unexpected end of channel.");
 		} else {
+			downloadThrottled = grantedBytes < requestedBytes && readBytes == grantedBytes;
 			downloadRate.addTransferredBytes(readBytes);
 		}
 	}
 
 	private void growReadBuffer(int desiredSize) {
-		ByteBuffer buffer = ByteBuffer.allocate(desiredSize);
+		ByteBuffer buffer = bufferPool.acquire(desiredSize);
 		readBuffer.flip();
 		buffer.put(readBuffer);
+		bufferPool.release(readBuffer);
 		this.readBuffer = buffer;
 	}
 
-	private InStream getBufferedMessage() {
-		readBuffer.flip();
-		InStream messageStream = new InStream(getBytes(readBuffer, readBuffer.remaining()), getBufferLifetime());
-		readBuffer.clear();
-		return messageStream;
-	}
-
 	/**
 	 * The time that this buffer has existed
 	 *
@@ -326,7 +793,42 @@ public class BitTorrentSocket {
 		if (hasPendingMessages) {
 			LOGGER.trace("Pending outbound messages [{}] blocks [{}]", messageQueue.size(), blockQueue.size());
 		}
-		return writeBuffer != null || hasPendingMessages;
+		return writeBufferOffset < writeBufferCount || pendingTransfer != null || hasPendingMessages;
+	}
+
+	/**
+	 * Checks if enough blocks have been queued on this socket to keep it busy. While this is the case
+	 * {@link org.johnnei.javatorrent.torrent.peer.Peer#queueNextPieceForSending()} leaves the upload requests queued on the peer.
+	 * @return <code>true</code> when the queued blocks have reached the capacity of the block queue.
+	 */
+	public boolean isOutboundSaturated() {
+		return blockQueue.isSaturated();
+	}
+
+	/**
+	 * Checks if the last call to {@link #sendMessages()} stopped writing because the upload limit has been reached.
+	 * @return <code>true</code> when messages are pending which could not be written due to the upload limit.
+	 */
+	public boolean isUploadThrottled() {
+		return uploadThrottled;
+	}
+
+	/**
+	 * Checks if the last call to {@link #canReadMessage()} stopped reading because the download limit has been reached.
+	 * @return <code>true</code> when data might be available which could not be read due to the download limit.
+	 */
+	public boolean isDownloadThrottled() {
+		return downloadThrottled;
+	}
+
+	/**
+	 * Checks if the data of a {@link MessageBlock} can be transferred straight from the file to the underlying channel.
+	 * This is only the case for TCP channels as those allow the operating system to send the file content without copying it into the JVM.
+	 * @return <code>true</code> if blocks created with {@link MessageBlock#MessageBlock(org.johnnei.javatorrent.torrent.files.Piece, int, int)} can
+	 * be sent without loading their data.
+	 */
+	public boolean supportsFileTransfer() {
+		return socket.getWritableChannel() instanceof SocketChannel;
 	}
 
 	/**
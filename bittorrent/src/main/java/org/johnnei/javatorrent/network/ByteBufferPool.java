@@ -0,0 +1,184 @@
+package org.johnnei.javatorrent.network;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.johnnei.javatorrent.utils.Argument;
+
+/**
+ * A thread-safe pool of heap and direct {@link ByteBuffer} instances.
+ * The buffers are grouped in size classes of powers of two. A request for a buffer is served by the smallest size class which fits the requested size.
+ * Buffers which are released into the pool are handed out again on the next acquire of the same size class instead of allocating a new buffer.
+ */
+public class ByteBufferPool {
+
+	/**
+	 * The shift of the smallest size class (512 bytes).
+	 */
+	private static final int MIN_SIZE_CLASS_SHIFT = 9;
+
+	private final int maxBufferSize;
+
+	private final int maxPooledBuffers;
+
+	private final SizeClass[] heapClasses;
+
+	private final SizeClass[] directClasses;
+
+	private final AtomicLong hits;
+
+	private final AtomicLong misses;
+
+	/**
+	 * Creates a new empty pool.
+	 * @param maxBufferSize The largest buffer size which will be pooled. This is rounded up to the next size class.
+	 * @param maxPooledBuffers The maximum amount of buffers which are retained per size class.
+	 */
+	public ByteBufferPool(int maxBufferSize, int maxPooledBuffers) {
+		Argument.requireWithinBounds(maxBufferSize, 1, (1 << 30) + 1, () -> "Maximum buffer size must be between 1 byte and 1GB.");
+		Argument.requirePositive(maxPooledBuffers, "Maximum amount of pooled buffers cannot be negative.");
+		this.maxPooledBuffers = maxPooledBuffers;
+
+		int sizeClassCount = getSizeClass(maxBufferSize) + 1;
+		this.maxBufferSize = getSizeClassCapacity(sizeClassCount - 1);
+		heapClasses = new SizeClass[sizeClassCount];
+		directClasses = new SizeClass[sizeClassCount];
+		for (int i = 0; i < sizeClassCount; i++) {
+			heapClasses[i] = new SizeClass();
+			directClasses[i] = new SizeClass();
+		}
+
+		hits = new AtomicLong();
+		misses = new AtomicLong();
+	}
+
+	/**
+	 * Takes a heap buffer from the pool or allocates a new one when no buffer is available.
+	 * @param size The minimal capacity of the buffer.
+	 * @return A cleared buffer with a limit of <code>size</code> bytes.
+	 */
+	public ByteBuffer acquire(int size) {
+		return acquire(size, heapClasses, false);
+	}
+
+	/**
+	 * Takes a direct buffer from the pool or allocates a new one when no buffer is available.
+	 * @param size The minimal capacity of the buffer.
+	 * @return A cleared buffer with a limit of <code>size</code> bytes.
+	 */
+	public ByteBuffer acquireDirect(int size) {
+		return acquire(size, directClasses, true);
+	}
+
+	private ByteBuffer acquire(int size, SizeClass[] sizeClasses, boolean direct) {
+		Argument.requirePositive(size, "Buffer size cannot be negative.");
+		if (size > maxBufferSize) {
+			misses.incrementAndGet();
+			return allocate(size, direct);
+		}
+
+		int sizeClass = getSizeClass(size);
+		ByteBuffer buffer = sizeClasses[sizeClass].poll();
+		if (buffer == null) {
+			misses.incrementAndGet();
+			buffer = allocate(getSizeClassCapacity(sizeClass), direct);
+		} else {
+			hits.incrementAndGet();
+			buffer.clear();
+		}
+
+		buffer.limit(size);
+		return buffer;
+	}
+
+	/**
+	 * Returns a buffer into the pool. The buffer (or any view on its content) <em>must not</em> be used anymore after this call.
+	 * Buffers which don't match a size class or which exceed the maximum amount of pooled buffers are left for the garbage collector.
+	 * @param buffer The buffer to return.
+	 */
+	public void release(ByteBuffer buffer) {
+		if (buffer == null || buffer.isReadOnly()) {
+			return;
+		}
+
+		int capacity = buffer.capacity();
+		if (capacity > maxBufferSize || Integer.bitCount(capacity) != 1 || capacity < getSizeClassCapacity(0)) {
+			return;
+		}
+
+		SizeClass[] sizeClasses = buffer.isDirect() ? directClasses : heapClasses;
+		sizeClasses[getSizeClass(capacity)].offer(buffer, maxPooledBuffers);
+	}
+
+	/**
+	 * @return The capacity of the largest size class.
+	 */
+	public int getMaxBufferSize() {
+		return maxBufferSize;
+	}
+
+	/**
+	 * @return The amount of buffers which are available in the pool.
+	 */
+	public int getPooledBufferCount() {
+		int count = 0;
+		for (int i = 0; i < heapClasses.length; i++) {
+			count += heapClasses[i].count.get() + directClasses[i].count.get();
+		}
+		return count;
+	}
+
+	/**
+	 * @return The amount of acquired buffers which have been served from the pool.
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * @return The amount of acquired buffers which had to be allocated.
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	private static ByteBuffer allocate(int capacity, boolean direct) {
+		return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+	}
+
+	private static int getSizeClass(int size) {
+		int shift = 32 - Integer.numberOfLeadingZeros(Math.max(size, 1) - 1);
+		return Math.max(0, shift - MIN_SIZE_CLASS_SHIFT);
+	}
+
+	private static int getSizeClassCapacity(int sizeClass) {
+		return 1 << (sizeClass + MIN_SIZE_CLASS_SHIFT);
+	}
+
+	private static final class SizeClass {
+
+		private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		ByteBuffer poll() {
+			ByteBuffer buffer = buffers.poll();
+			if (buffer != null) {
+				count.decrementAndGet();
+			}
+			return buffer;
+		}
+
+		void offer(ByteBuffer buffer, int maxPooledBuffers) {
+			if (count.incrementAndGet() > maxPooledBuffers) {
+				count.decrementAndGet();
+				return;
+			}
+
+			buffers.add(buffer);
+		}
+	}
+}
@@ -1,38 +1,29 @@
 package org.johnnei.javatorrent.network;
 
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
-import java.io.IOException;
-import java.nio.charset.Charset;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.Optional;
 
-import org.johnnei.javatorrent.internal.utils.CheckedRunnable;
-import org.johnnei.javatorrent.internal.utils.CheckedSupplier;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
+/**
+ * A read-only stream of network ordered (big endian) data types on top of a {@link ByteBuffer}.
+ * Reading beyond the end of the stream results in a {@link BufferUnderflowException}.
+ */
 public class InStream {
 
-	private static final Logger LOGGER = LoggerFactory.getLogger(InStream.class);
-
 	private Duration readDuration;
 
 	/**
-	 * The byte array reader
+	 * The view on the section of the supplied buffer which is readable by this stream
 	 */
-	private ByteArrayInputStream buffer;
+	private ByteBuffer buffer;
 
 	/**
-	 * The wrapper around the {@link #buffer} which provides data-type access.
+	 * The position within {@link #buffer} at which {@link #mark()} was last invoked
 	 */
-	private DataInputStream in;
-
-	/**
-	 * The total amount of supplied bytes
-	 */
-	private int length;
+	private int mark;
 
 	/**
 	 * Creates a new buffered input stream based on the given byte array.
@@ -79,9 +70,18 @@ public class InStream {
 	 * @param readDuration The duration it took to read the given buffer
 	 */
 	public InStream(byte[] data, int offset, int length, Duration readDuration) {
-		buffer = new ByteArrayInputStream(data, offset, length);
-		in = new DataInputStream(buffer);
-		this.length = length;
+		this(ByteBuffer.wrap(data, offset, length), readDuration);
+	}
+
+	/**
+	 * Creates a new buffered input stream based on the remaining bytes of the given heap or direct buffer.
+	 * The content of the buffer is not copied and the position of the given buffer is not modified.
+	 * @param buffer The buffer
+	 * @param readDuration The duration it took to read the given buffer
+	 */
+	public InStream(ByteBuffer buffer, Duration readDuration) {
+		this.buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+		this.mark = this.buffer.position();
 		this.readDuration = readDuration;
 	}
 
@@ -90,7 +90,7 @@ public class InStream {
 	 * @return The read boolean
 	 */
 	public boolean readBoolean() {
-		return doUnchecked(() -> in.readBoolean());
+		return buffer.get() != 0;
 	}
 
 	/**
@@ -98,7 +98,7 @@ public class InStream {
 	 * @return The read byte.
 	 */
 	public byte readByte() {
-		return doUnchecked(() -> in.readByte());
+		return buffer.get();
 	}
 
 	/**
@@ -106,7 +106,7 @@ public class InStream {
 	 * @return The read character.
 	 */
 	public char readChar() {
-		return doUnchecked(() -> in.readChar());
+		return buffer.getChar();
 	}
 
 	/**
@@ -124,7 +124,7 @@ public class InStream {
 	 * @param len The amount of bytes to copy.
 	 */
 	public void readFully(byte[] b, int off, int len) {
-		doUnchecked(() -> in.readFully(b, off, len));
+		buffer.get(b, off, len);
 	}
 
 	/**
@@ -138,12 +138,29 @@ public class InStream {
 		return array;
 	}
 
+	/**
+	 * Reads <code>length</code> bytes as a view on the buffer backing this stream. The content is not copied.
+	 * The returned buffer shares the capacity of the backing buffer, the read bytes are the bytes between the position and limit.
+	 * @param length The amount of bytes to read
+	 * @return The buffer containing the read bytes.
+	 */
+	public ByteBuffer readByteBuffer(int length) {
+		if (length > available()) {
+			throw new IllegalArgumentException(String.format("Cannot read %d bytes, only %d bytes are available.", length, available()));
+		}
+
+		ByteBuffer section = buffer.duplicate();
+		section.limit(section.position() + length);
+		buffer.position(section.limit());
+		return section;
+	}
+
 	/**
 	 * Reads an integer from the stream.
 	 * @return The read integer.
 	 */
 	public int readInt() {
-		return doUnchecked(() -> in.readInt());
+		return buffer.getInt();
 	}
 
 	/**
@@ -151,7 +168,7 @@ public class InStream {
 	 * @return The read long.
 	 */
 	public long readLong() {
-		return doUnchecked(() -> in.readLong());
+		return buffer.getLong();
 	}
 
 	/**
@@ -159,7 +176,7 @@ public class InStream {
 	 * @return The read short.
 	 */
 	public short readShort() {
-		return doUnchecked(() -> in.readShort());
+		return buffer.getShort();
 	}
 
 	/**
@@ -167,7 +184,7 @@ public class InStream {
 	 * @return The read byte.
 	 */
 	public int readUnsignedByte() {
-		return doUnchecked(() -> in.readUnsignedByte());
+		return buffer.get() & 0xFF;
 	}
 
 	/**
@@ -175,7 +192,7 @@ public class InStream {
 	 * @return The read short.
 	 */
 	public int readUnsignedShort() {
-		return doUnchecked(() -> in.readUnsignedShort());
+		return buffer.getShort() & 0xFFFF;
 	}
 
 	/**
@@ -184,20 +201,17 @@ public class InStream {
 	 * @return The actual amount of bytes skipped.
 	 */
 	public int skipBytes(int n) {
-		return doUnchecked(() -> in.skipBytes(n));
+		int skipped = Math.max(0, Math.min(n, available()));
+		buffer.position(buffer.position() + skipped);
+		return skipped;
 	}
 
 	/**
 	 * Moves the read pointer back with <code>n</code> position.
-	 * This method cannot be combined with {@link #mark()} on the same stream as this method assumes the marked position to be 0.
 	 * @param n The amount of bytes to 'unread'
-	 *
-	 * @see #mark()
 	 */
 	public void moveBack(int n) {
-		int offset = length - buffer.available() - n;
-		buffer.reset();
-		skipBytes(offset);
+		buffer.position(buffer.position() - n);
 	}
 
 	/**
@@ -205,7 +219,7 @@ public class InStream {
 	 * @return The amount of readable bytes.
 	 */
 	public int available() {
-		return doUnchecked(() -> in.available());
+		return buffer.remaining();
 	}
 
 	/**
@@ -214,22 +228,31 @@ public class InStream {
 	 * @return The read string.
 	 */
 	public String readString(int length) {
-		byte[] stringBytes = readFully(length);
-		return new String(stringBytes, Charset.forName("UTF-8"));
+		if (buffer.hasArray()) {
+			if (length > available()) {
+				throw new BufferUnderflowException();
+			}
+
+			String string = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+			buffer.position(buffer.position() + length);
+			return string;
+		}
+
+		return new String(readFully(length), StandardCharsets.UTF_8);
 	}
 
 	/**
 	 * Marks the current position.
 	 */
 	public void mark() {
-		buffer.mark(buffer.available());
+		mark = buffer.position();
 	}
 
 	/**
-	 * Returns to the last marked position with {@link #mark()} or <code>0</code> if no mark has happened before.
+	 * Returns to the last marked position with {@link #mark()} or the start of the stream if no mark has happened before.
 	 */
 	public void resetToMark() {
-		buffer.reset();
+		buffer.position(mark);
 	}
 
 	/**
@@ -240,22 +263,4 @@ public class InStream {
 		return Optional.ofNullable(readDuration);
 	}
 
-	private void doUnchecked(CheckedRunnable<IOException> readCall) {
-		try {
-			readCall.run();
-		} catch (IOException e) {
-			LOGGER.error("You managed to cause an IO exception on an in-memory byte array. I'm proud.", e);
-			throw new RuntimeException("IO Exception on in-memory byte array", e);
-		}
-	}
-
-	private <T> T doUnchecked(CheckedSupplier<T, IOException> readCall) {
-		try {
-			return readCall.get();
-		} catch (IOException e) {
-			LOGGER.error("You managed to cause an IO exception on an in-memory byte array. I'm proud.", e);
-			throw new RuntimeException("IO Exception on in-memory byte array", e);
-		}
-	}
-
 }
@@ -1,78 +1,120 @@
 package org.johnnei.javatorrent.network;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
-import java.io.IOException;
-import java.nio.charset.Charset;
-
-import org.johnnei.javatorrent.internal.utils.CheckedRunnable;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A stream which writes network ordered (big endian) data types into a {@link ByteBuffer}.
+ * Streams created with a buffer size grow when needed, streams created on a supplied buffer are limited to the remaining space of that buffer
+ * and will throw a {@link java.nio.BufferOverflowException} when that space is exceeded.
+ */
 public class OutStream {
 
-	private static final Logger LOGGER = LoggerFactory.getLogger(OutStream.class);
+	/**
+	 * The buffer which is being written to
+	 */
+	private ByteBuffer buffer;
 
-	private ByteArrayOutputStream buffer;
-	private DataOutputStream out;
+	/**
+	 * The position within {@link #buffer} at which this stream started writing
+	 */
+	private final int start;
+
+	/**
+	 * If {@link #buffer} is owned by this stream and can be replaced by a larger one
+	 */
+	private final boolean growable;
 
 	public OutStream() {
 		this(32);
 	}
 
 	public OutStream(int size) {
-		buffer = new ByteArrayOutputStream(size);
-		out = new DataOutputStream(buffer);
+		buffer = ByteBuffer.allocate(size);
+		start = 0;
+		growable = true;
+	}
+
+	/**
+	 * Creates a stream which writes directly into the given buffer starting at its position.
+	 * The position of the buffer is advanced with every write.
+	 * @param buffer The heap or direct buffer to write into.
+	 */
+	public OutStream(ByteBuffer buffer) {
+		this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+		start = buffer.position();
+		growable = false;
 	}
 
 	public void write(byte[] b) {
-		writeUnchecked(() -> out.write(b));
+		write(b, 0, b.length);
 	}
 
 	public void write(byte[] b, int off, int len) {
-		writeUnchecked(() -> out.write(b, off, len));
+		ensureCapacity(len);
+		buffer.put(b, off, len);
+	}
+
+	/**
+	 * Writes the remaining bytes of the given buffer. The position of the given buffer is not modified.
+	 * @param b The buffer to copy the data from.
+	 */
+	public void write(ByteBuffer b) {
+		ensureCapacity(b.remaining());
+		buffer.put(b.duplicate());
 	}
 
 	public void writeBoolean(boolean v) {
-		writeUnchecked(() -> out.writeBoolean(v));
+		writeByte(v ? 1 : 0);
 	}
 
 	public void writeByte(int v) {
-		writeUnchecked(() -> out.writeByte(v));
+		ensureCapacity(Byte.BYTES);
+		buffer.put((byte) v);
 	}
 
 	public void writeInt(int v) {
-		writeUnchecked(() -> out.writeInt(v));
+		ensureCapacity(Integer.BYTES);
+		buffer.putInt(v);
 	}
 
 	public void writeLong(long v) {
-		writeUnchecked(() -> out.writeLong(v));
+		ensureCapacity(Long.BYTES);
+		buffer.putLong(v);
 	}
 
 	public void writeShort(int v) {
-		writeUnchecked(() -> out.writeShort(v));
+		ensureCapacity(Short.BYTES);
+		buffer.putShort((short) v);
 	}
 
 	public void writeString(String s) {
-		write(s.getBytes(Charset.forName("UTF-8")));
+		write(s.getBytes(StandardCharsets.UTF_8));
 	}
 
 	public int size() {
-		return buffer.size();
+		return buffer.position() - start;
 	}
 
 	public byte[] toByteArray() {
-		return buffer.toByteArray();
+		byte[] bytes = new byte[size()];
+		ByteBuffer written = buffer.duplicate();
+		written.flip();
+		written.position(start);
+		written.get(bytes);
+		return bytes;
 	}
 
-	private void writeUnchecked(CheckedRunnable<IOException> writeCall) {
-		try {
-			writeCall.run();
-		} catch (IOException e) {
-			LOGGER.error("Somehow you managed to get an IO exception on a byte array. I'm proud.", e);
-			throw new RuntimeException("IO Exception on in-memory byte array.", e);
+	private void ensureCapacity(int length) {
+		if (!growable || buffer.remaining() >= length) {
+			return;
 		}
+
+		ByteBuffer grownBuffer = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + length));
+		buffer.flip();
+		grownBuffer.put(buffer);
+		buffer = grownBuffer;
 	}
 
 }
@@ -0,0 +1,165 @@
+package org.johnnei.javatorrent.network;
+
+import java.time.Clock;
+
+import org.johnnei.javatorrent.utils.Argument;
+
+/**
+ * A token bucket which limits the amount of bytes which can be transferred per second.
+ * Buckets can be chained to a parent bucket (ex. peer, torrent and client) in which case a transfer is limited by every bucket in the chain.
+ * A bucket with a rate of zero doesn't limit transfers by itself, but its parent still does.
+ */
+public class TokenBucket {
+
+	private final Object lock = new Object();
+
+	private final Clock clock;
+
+	private final TokenBucket parent;
+
+	/**
+	 * The amount of bytes per second which are added to the bucket. This is also the maximum amount of tokens in the bucket.
+	 */
+	private volatile int rate;
+
+	private long tokens;
+
+	/**
+	 * The timestamp (in milliseconds) up to which tokens have been added to the bucket.
+	 */
+	private long lastRefill;
+
+	/**
+	 * Creates a new unlimited bucket without a parent.
+	 */
+	public TokenBucket() {
+		this(null);
+	}
+
+	/**
+	 * Creates a new unlimited bucket.
+	 * @param parent The bucket which limits this bucket, or <code>null</code> if there is none.
+	 */
+	public TokenBucket(TokenBucket parent) {
+		this(Clock.systemDefaultZone(), parent);
+	}
+
+	/**
+	 * Creates a new unlimited bucket.
+	 * @param clock The clock used to add tokens to the bucket.
+	 * @param parent The bucket which limits this bucket, or <code>null</code> if there is none.
+	 */
+	public TokenBucket(Clock clock, TokenBucket parent) {
+		this.clock = clock;
+		this.parent = parent;
+		lastRefill = clock.millis();
+	}
+
+	/**
+	 * Changes the amount of bytes which can be transferred per second. The change takes effect immediately.
+	 * @param bytesPerSecond The allowed rate in bytes per second, or <code>0</code> to not limit the rate.
+	 */
+	public void setRate(int bytesPerSecond) {
+		Argument.requirePositive(bytesPerSecond, "Rate cannot be negative.");
+		synchronized (lock) {
+			if (rate == 0) {
+				// Start with a full bucket to allow for an initial burst.
+				tokens = bytesPerSecond;
+				lastRefill = clock.millis();
+			} else {
+				refill();
+				tokens = Math.min(tokens, bytesPerSecond);
+			}
+			rate = bytesPerSecond;
+		}
+	}
+
+	/**
+	 * @return The allowed rate in bytes per second, or <code>0</code> when this bucket isn't limiting.
+	 */
+	public int getRate() {
+		return rate;
+	}
+
+	/**
+	 * Takes up to <code>bytes</code> tokens from this bucket and its parents.
+	 * Tokens which end up not being used <em>should</em> be returned with {@link #release(int)}.
+	 * @param bytes The amount of bytes which are about to be transferred.
+	 * @return The amount of bytes which may be transferred. This is <code>0</code> when any bucket in the chain is empty.
+	 */
+	public int acquire(int bytes) {
+		int granted = take(bytes);
+		if (parent == null || granted == 0) {
+			return granted;
+		}
+
+		int parentGranted = parent.acquire(granted);
+		if (parentGranted < granted) {
+			give(granted - parentGranted);
+		}
+		return parentGranted;
+	}
+
+	/**
+	 * Returns unused tokens to this bucket and its parents.
+	 * @param bytes The amount of acquired bytes which have not been transferred.
+	 */
+	public void release(int bytes) {
+		if (bytes <= 0) {
+			return;
+		}
+
+		give(bytes);
+		if (parent != null) {
+			parent.release(bytes);
+		}
+	}
+
+	private int take(int bytes) {
+		if (rate == 0) {
+			return bytes;
+		}
+
+		synchronized (lock) {
+			if (rate == 0) {
+				return bytes;
+			}
+
+			refill();
+			int granted = (int) Math.min(bytes, tokens);
+			tokens -= granted;
+			return granted;
+		}
+	}
+
+	private void give(int bytes) {
+		if (rate == 0) {
+			return;
+		}
+
+		synchronized (lock) {
+			tokens = Math.min(rate, tokens + bytes);
+		}
+	}
+
+	private void refill() {
+		long now = clock.millis();
+		long addedTokens = ((now - lastRefill) * rate) / 1000;
+		if (addedTokens <= 0) {
+			return;
+		}
+
+		tokens = Math.min(rate, tokens + addedTokens);
+		if (tokens == rate) {
+			lastRefill = now;
+		} else {
+			// Only account the time which resulted in whole tokens to not lose partial tokens on low rates.
+			lastRefill += (addedTokens * 1000) / rate;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("TokenBucket[rate=%d]", rate);
+	}
+}
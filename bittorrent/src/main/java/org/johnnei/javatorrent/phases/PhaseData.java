@@ -52,6 +52,12 @@ public class PhaseData implements IDownloadPhase {
 
 	@Override
 	public void process() {
+		if (torrentClient.isDiskThrottled()) {
+			// The disk can't keep up with the blocks which are already received, requesting more would only grow the backlog in memory.
+			LOGGER.trace("Not requesting blocks as the disk is throttled.");
+			return;
+		}
+
 		getRelevantPeers(torrent.getPeers()).forEach(peer -> {
 			while (peer.getFreeWorkTime() > 0) {
 				Optional<Piece> piece = torrent.getPieceSelector().getPieceForPeer(peer);
@@ -3,8 +3,12 @@ package org.johnnei.javatorrent.torrent;
 import java.util.Collections;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Optional;
 import java.util.stream.Stream;
 
+import org.johnnei.javatorrent.disk.IStorage;
+import org.johnnei.javatorrent.disk.PieceWriteCache;
+import org.johnnei.javatorrent.disk.RandomAccessFileStorage;
 import org.johnnei.javatorrent.torrent.files.BlockStatus;
 import org.johnnei.javatorrent.torrent.files.IFileSetRequestFactory;
 import org.johnnei.javatorrent.torrent.files.Piece;
@@ -23,13 +27,38 @@ public abstract class AbstractFileSet {
 	 */
 	protected List<FileInfo> fileInfos;
 
+	/**
+	 * The first byte offsets of the {@link #fileInfos} in ascending order, built on first lookup.
+	 */
+	private volatile FileOffsets fileOffsets;
+
 	/**
 	 * The size of a single block within a {@link Piece} in bytes.
 	 */
 	private final int blockSize;
 
+	/**
+	 * The backend which stores the data of the files.
+	 */
+	private final IStorage storage;
+
+	/**
+	 * The cache in which pieces are assembled before they are written to the {@link #storage}.
+	 */
+	private PieceWriteCache writeCache;
+
 	public AbstractFileSet(int blockSize) {
+		this(blockSize, new RandomAccessFileStorage());
+	}
+
+	/**
+	 * Creates a new file set.
+	 * @param blockSize The size of a single block within a piece in bytes.
+	 * @param storage The backend which stores the data of the files.
+	 */
+	public AbstractFileSet(int blockSize, IStorage storage) {
 		this.blockSize = blockSize;
+		this.storage = Argument.requireNonNull(storage, "Storage cannot be null.");
 	}
 
 	/**
@@ -69,15 +98,37 @@ public abstract class AbstractFileSet {
 		validateGetFileForBytes(pieceIndex, blockIndex, byteOffset);
 		long bytesStartPosition = (pieceIndex * getPieceSize()) + (blockIndex * getBlockSize()) + byteOffset;
 
-		// Iterate in reverse order so that first file having a smaller first byte offset will be the file containing this section.
-		for (int i = fileInfos.size() - 1; i >= 0; i--) {
-			FileInfo fileInfo = fileInfos.get(i);
-			if (fileInfo.getFirstByteOffset() <= bytesStartPosition) {
-				return fileInfo;
+		// Find the last file which starts at or before the position, so empty files sharing an offset with the next file are skipped.
+		FileOffsets files = getFileOffsets();
+		long[] offsets = files.offsets;
+		int low = 0;
+		int high = offsets.length - 1;
+		int fileIndex = -1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (offsets[middle] <= bytesStartPosition) {
+				fileIndex = middle;
+				low = middle + 1;
+			} else {
+				high = middle - 1;
 			}
 		}
 
-		throw new IllegalArgumentException("Piece is not within fileset.");
+		if (fileIndex < 0) {
+			throw new IllegalArgumentException("Piece is not within fileset.");
+		}
+
+		return files.files.get(fileIndex);
+	}
+
+	private FileOffsets getFileOffsets() {
+		FileOffsets offsets = fileOffsets;
+		if (offsets == null || offsets.files != fileInfos || offsets.offsets.length != fileInfos.size()) {
+			offsets = new FileOffsets(fileInfos);
+			fileOffsets = offsets;
+		}
+
+		return offsets;
 	}
 
 	private void validateGetFileForBytes(int pieceIndex, int blockIndex, int byteOffset) {
@@ -127,6 +178,36 @@ public abstract class AbstractFileSet {
 		return blockSize;
 	}
 
+	/**
+	 * @return The backend which stores the data of the files.
+	 */
+	public IStorage getStorage() {
+		return storage;
+	}
+
+	/**
+	 * Sets the cache in which the pieces of this file set are assembled and verified before being written to the storage.
+	 * @param writeCache The cache to use or <code>null</code> to write every block to the storage directly.
+	 */
+	public void setWriteCache(PieceWriteCache writeCache) {
+		this.writeCache = writeCache;
+	}
+
+	/**
+	 * @return The cache in which the pieces are assembled before being written to the storage.
+	 */
+	public Optional<PieceWriteCache> getWriteCache() {
+		return Optional.ofNullable(writeCache);
+	}
+
+	/**
+	 * Returns the buffers of the pieces which are being assembled in memory to the {@link #getWriteCache() write cache}. The blocks in those
+	 * buffers are discarded.
+	 */
+	public void releaseWriteBuffers() {
+		pieces.forEach(Piece::releaseWriteBuffer);
+	}
+
 	/**
 	 * Tests if all pieces of this fileset have been completed.
 	 * @return <code>true</code> when all pieces are done an verified, otherwise <code>false</code>
@@ -195,4 +276,19 @@ public abstract class AbstractFileSet {
 		return Collections.unmodifiableList(fileInfos);
 	}
 
+	/**
+	 * The first byte offsets of a list of files.
+	 */
+	private static final class FileOffsets {
+
+		private final List<FileInfo> files;
+
+		private final long[] offsets;
+
+		FileOffsets(List<FileInfo> files) {
+			this.files = files;
+			offsets = files.stream().mapToLong(FileInfo::getFirstByteOffset).toArray();
+		}
+	}
+
 }
@@ -1,47 +1,35 @@
 package org.johnnei.javatorrent.torrent;
 
 import java.io.File;
-import java.io.IOException;
-import java.io.RandomAccessFile;
 
 import org.johnnei.javatorrent.torrent.fileset.FileEntry;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
+/**
+ * A file of a torrent. The file is not opened by this class, the {@link org.johnnei.javatorrent.disk.IStorage} of the file set opens it on demand.
+ */
 public class FileInfo {
 
-	private static final Logger LOGGER = LoggerFactory.getLogger(FileInfo.class);
-
 	private final FileEntry fileEntry;
 
 	/**
-	 * The amount of pieces which contain a part of data for this file
+	 * The location of the file on the harddrive
 	 */
-	private int pieceCount;
+	private final File file;
 
 	/**
-	 * The link between the file on the harddrive
+	 * The amount of pieces which contain a part of data for this file
 	 */
-	private RandomAccessFile fileAccess;
+	private int pieceCount;
 
 	/**
-	 * A lock to prevent concurrent writes to a single file
+	 * A lock to guard the position of the channel of this file. Positional reads and writes don't need it.
 	 */
 	public final Object fileLock = new Object();
 
 	public FileInfo(long filesize, long firstByteOffset, File file, int pieceCount) {
 		this.fileEntry = new FileEntry(file.getName(), filesize, firstByteOffset);
+		this.file = file;
 		this.pieceCount = pieceCount;
-		try {
-			if (!file.exists()) {
-				file.getParentFile().mkdirs();
-				file.createNewFile();
-			}
-			fileAccess = new RandomAccessFile(file, "rw");
-		} catch (IOException ex) {
-			LOGGER.warn("Failed to open read/write access to {}", file.getAbsolutePath(), ex);
-		}
 	}
 
 	/**
@@ -72,19 +60,19 @@ public class FileInfo {
 	}
 
 	/**
-	 * Gets the name of this file.
-	 * @return The name of this file.
+	 * Gets the location of this file.
+	 * @return The file on the harddrive.
 	 */
-	public String getFileName() {
-		return fileEntry.getFileName();
+	public File getFile() {
+		return file;
 	}
 
 	/**
-	 * Gets the handle to write/read from this file.
-	 * @return The IO handle.
+	 * Gets the name of this file.
+	 * @return The name of this file.
 	 */
-	public RandomAccessFile getFileAccess() {
-		return fileAccess;
+	public String getFileName() {
+		return fileEntry.getFileName();
 	}
 
 	@Override
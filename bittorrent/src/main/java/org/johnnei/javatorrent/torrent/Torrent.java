@@ -2,10 +2,17 @@ package org.johnnei.javatorrent.torrent;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,10 +21,18 @@ import org.johnnei.javatorrent.TorrentClient;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.IMessage;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageBitfield;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageHave;
+import org.johnnei.javatorrent.disk.BlockReadCache;
 import org.johnnei.javatorrent.disk.DiskJobCheckHash;
 import org.johnnei.javatorrent.disk.DiskJobWriteBlock;
+import org.johnnei.javatorrent.disk.FileHandlePool;
 import org.johnnei.javatorrent.disk.IDiskJob;
+import org.johnnei.javatorrent.disk.IStorage;
+import org.johnnei.javatorrent.disk.RandomAccessFileStorage;
+import org.johnnei.javatorrent.internal.torrent.PieceVerifier;
+import org.johnnei.javatorrent.internal.torrent.ResumeData;
 import org.johnnei.javatorrent.module.IModule;
+import org.johnnei.javatorrent.network.ByteBufferPool;
+import org.johnnei.javatorrent.network.TokenBucket;
 import org.johnnei.javatorrent.torrent.algos.pieceselector.FullPieceSelect;
 import org.johnnei.javatorrent.torrent.algos.pieceselector.IPieceSelector;
 import org.johnnei.javatorrent.torrent.algos.requests.IRequestLimiter;
@@ -56,19 +71,44 @@ public class Torrent {
 	private IPieceSelector pieceSelector;
 
 	/**
-	 * The amount of downloaded bytes
+	 * The amount of downloaded bytes. Pieces complete concurrently on the disk workers.
 	 */
-	private long downloadedBytes;
+	private final AtomicLong downloadedBytes;
 	/**
-	 * The amount of uploaded bytes
+	 * The amount of uploaded bytes. Uploads are counted concurrently by the peer IO threads.
 	 */
-	private long uploadedBytes;
+	private final AtomicLong uploadedBytes;
 
 	/**
 	 * The torrent client which created this Torrent object.
 	 */
 	private TorrentClient torrentClient;
 
+	/**
+	 * The limiter which caps the upload rate of this torrent.
+	 */
+	private TokenBucket uploadLimiter;
+
+	/**
+	 * The limiter which caps the download rate of this torrent.
+	 */
+	private TokenBucket downloadLimiter;
+
+	/**
+	 * The supplier of the backend which stores the files of this torrent.
+	 */
+	private final Supplier<IStorage> storageSupplier;
+
+	/**
+	 * The verifier of the last {@link #checkProgress()} call.
+	 */
+	private volatile PieceVerifier pieceVerifier;
+
+	/**
+	 * If the progress of the {@link #fileSet} has been determined by {@link #checkProgress()}.
+	 */
+	private volatile boolean progressChecked;
+
 	/**
 	 * Creates a new Torrent.
 	 *
@@ -83,7 +123,16 @@ public class Torrent {
 			displayName = builder.displayName;
 		}
 		torrentClient = builder.torrentClient;
-		downloadedBytes = 0L;
+		storageSupplier = builder.getStorageSupplier();
+		if (torrentClient != null) {
+			uploadLimiter = new TokenBucket(torrentClient.getUploadLimiter());
+			downloadLimiter = new TokenBucket(torrentClient.getDownloadLimiter());
+		} else {
+			uploadLimiter = new TokenBucket();
+			downloadLimiter = new TokenBucket();
+		}
+		downloadedBytes = new AtomicLong();
+		uploadedBytes = new AtomicLong();
 		peers = new LinkedList<>();
 		pieceSelector = new FullPieceSelect(this);
 	}
@@ -187,15 +236,41 @@ public class Torrent {
 	 * @param data The bytes to be stored
 	 */
 	public void onReceivedBlock(AbstractFileSet fileSet, int index, int offset, byte[] data) {
+		storeBlock(fileSet, index, offset, ByteBuffer.wrap(data), this::onStoreBlockComplete);
+	}
+
+	/**
+	 * Tells the torrent to save a block of data which has been read into a buffer of {@link TorrentClient#getBufferPool()}.
+	 * The torrent takes ownership of the buffer and returns it to the pool once the block has been stored or discarded.
+	 *
+	 * @param fileSet The fileset for which the block of data has been received.
+	 * @param index The piece index
+	 * @param offset The offset within the piece
+	 * @param data The buffer of which the remaining bytes are to be stored
+	 */
+	public void onReceivedBlock(AbstractFileSet fileSet, int index, int offset, ByteBuffer data) {
+		if (!storeBlock(fileSet, index, offset, data, this::onStorePooledBlockComplete)) {
+			torrentClient.getBufferPool().release(data);
+		}
+	}
+
+	private boolean storeBlock(AbstractFileSet fileSet, int index, int offset, ByteBuffer data, Consumer<DiskJobWriteBlock> callback) {
 		int blockIndex = offset / fileSet.getBlockSize();
 
 		Piece piece = fileSet.getPiece(index);
-		if (piece.getBlockSize(blockIndex) != data.length) {
+		if (piece.getBlockSize(blockIndex) != data.remaining()) {
 			LOGGER.debug("Received incorrect sized block for piece {}, offset {}", index, offset);
 			piece.setBlockStatus(blockIndex, BlockStatus.Needed);
-		} else {
-			addDiskJob(new DiskJobWriteBlock(piece, blockIndex, data, this::onStoreBlockComplete));
+			return false;
 		}
+
+		addDiskJob(new DiskJobWriteBlock(piece, blockIndex, data, callback));
+		return true;
+	}
+
+	private void onStorePooledBlockComplete(DiskJobWriteBlock storeBlock) {
+		torrentClient.getBufferPool().release(storeBlock.getBlockData());
+		onStoreBlockComplete(storeBlock);
 	}
 
 	private void onStoreBlockComplete(DiskJobWriteBlock storeBlock) {
@@ -217,10 +292,13 @@ public class Torrent {
 			return;
 		}
 
-		piece.getFileSet().setHavingPiece(piece.getIndex());
-		if (piece.getFileSet().equals(fileSet)) {
-			broadcastMessage(new MessageHave(piece.getIndex()));
-			downloadedBytes += piece.getSize();
+		// Pieces of different stripes complete concurrently, the bitfield of the file set is shared between them.
+		synchronized (this) {
+			piece.getFileSet().setHavingPiece(piece.getIndex());
+			if (piece.getFileSet().equals(fileSet)) {
+				broadcastMessage(new MessageHave(piece.getIndex()));
+				downloadedBytes.addAndGet(piece.getSize());
+			}
 		}
 
 		LOGGER.debug("Completed piece {}", piece.getIndex());
@@ -245,22 +323,108 @@ public class Torrent {
 	 * Calculates the current progress based on all available fileSet on the HDD
 	 */
 	public void checkProgress() {
+		if (createResumeData().restore(fileSet)) {
+			LOGGER.info("Restored progress from resume data");
+			for (int pieceIndex = 0; pieceIndex < fileSet.getPieceCount(); pieceIndex++) {
+				if (fileSet.hasPiece(pieceIndex)) {
+					broadcastMessage(new MessageHave(pieceIndex));
+				}
+			}
+			progressChecked = true;
+			return;
+		}
+
 		LOGGER.info("Checking progress...");
-		fileSet.getNeededPieces()
-				.filter(p -> {
-					try {
-						return p.checkHash();
-					} catch (IOException e) {
-						LOGGER.warn("Failed hash check for piece {}.", p.getIndex(), e);
-						return false;
-					}
-				}).
-				forEach(p -> {
-						fileSet.setHavingPiece(p.getIndex());
-						broadcastMessage(new MessageHave(p.getIndex()));
-					}
-				);
-		LOGGER.info("Checking progress done");
+		PieceVerifier verifier = new PieceVerifier(fileSet, fileSet.getNeededPieces().collect(Collectors.toList()));
+		pieceVerifier = verifier;
+		verifier.verify(getHashCheckPool()).forEach(p -> {
+			fileSet.setHavingPiece(p.getIndex());
+			broadcastMessage(new MessageHave(p.getIndex()));
+		});
+
+		if (verifier.isCancelled()) {
+			// The unchecked pieces are still marked as needed, saving them would drop the progress of the previous resume data.
+			LOGGER.info("Checking progress cancelled after {} of {} pieces", verifier.getCheckedPieceCount(), verifier.getPieceCount());
+		} else {
+			progressChecked = true;
+			LOGGER.info("Checking progress done");
+		}
+	}
+
+	/**
+	 * Writes the fast-resume record which allows {@link #checkProgress()} to restore the progress without verifying the pieces on the next
+	 * start. Nothing is written while the progress has not been determined yet.
+	 */
+	public void saveResumeData() {
+		if (fileSet == null || !progressChecked) {
+			return;
+		}
+
+		try {
+			createResumeData().save(fileSet);
+		} catch (IOException e) {
+			LOGGER.warn("Failed to save resume data.", e);
+		}
+	}
+
+	/**
+	 * Releases the resources which are held for the file set of this torrent. Pieces which were being assembled in memory are discarded, so the
+	 * resume data should be saved before. The cached blocks of the file set are dropped and the storage is flushed and closed.
+	 */
+	public void shutdown() {
+		if (fileSet == null) {
+			return;
+		}
+
+		if (torrentClient != null) {
+			getReadCache().ifPresent(cache -> cache.invalidate(fileSet));
+		}
+		fileSet.releaseWriteBuffers();
+		try {
+			fileSet.getStorage().close();
+		} catch (IOException e) {
+			LOGGER.warn("Failed to close the storage of {}.", this, e);
+		}
+	}
+
+	private ResumeData createResumeData() {
+		File resumeFile = new File(fileSet.getDownloadFolder(), String.format(".%s.resume", metadata.getHashString()));
+		return new ResumeData(resumeFile, metadata.getHash());
+	}
+
+	private ForkJoinPool getHashCheckPool() {
+		if (torrentClient == null || torrentClient.getHashCheckPool() == null) {
+			return ForkJoinPool.commonPool();
+		}
+
+		return torrentClient.getHashCheckPool();
+	}
+
+	/**
+	 * Gets the progress of the (last) verification of the pieces which were already on disk.
+	 * @return The fraction of the pieces which have been verified, 1 when all pieces have been checked or no check has been started.
+	 *
+	 * @see #checkProgress()
+	 */
+	public double getCheckProgress() {
+		PieceVerifier verifier = pieceVerifier;
+		if (verifier == null || verifier.getPieceCount() == 0) {
+			return 1;
+		}
+
+		return verifier.getCheckedPieceCount() / (double) verifier.getPieceCount();
+	}
+
+	/**
+	 * Cancels the running verification of the pieces which were already on disk. The pieces which have not been checked will be downloaded.
+	 *
+	 * @see #checkProgress()
+	 */
+	public void cancelCheckProgress() {
+		PieceVerifier verifier = pieceVerifier;
+		if (verifier != null) {
+			verifier.cancel();
+		}
 	}
 
 	/**
@@ -269,7 +433,7 @@ public class Torrent {
 	 * @param l The amount of bytes to add
 	 */
 	public void addUploadedBytes(long l) {
-		uploadedBytes += l;
+		uploadedBytes.addAndGet(l);
 	}
 
 	/**
@@ -278,6 +442,9 @@ public class Torrent {
 	 * @param files The file set.
 	 */
 	public void setFileSet(TorrentFileSet files) {
+		if (files != null && torrentClient != null) {
+			files.setWriteCache(torrentClient.getPieceWriteCache());
+		}
 		this.fileSet = files;
 	}
 
@@ -374,7 +541,7 @@ public class Torrent {
 	 * @return The amount of bytes downloaded this session
 	 */
 	public long getDownloadedBytes() {
-		return downloadedBytes;
+		return downloadedBytes.get();
 	}
 
 	/**
@@ -383,7 +550,7 @@ public class Torrent {
 	 * @return The amount of bytes uploaded this session.
 	 */
 	public long getUploadedBytes() {
-		return uploadedBytes;
+		return uploadedBytes.get();
 	}
 
 	/**
@@ -424,6 +591,48 @@ public class Torrent {
 		return torrentClient.getRequestLimiter();
 	}
 
+	/**
+	 * @return The buffer pool of the client which manages this torrent.
+	 * @see TorrentClient#getBufferPool()
+	 */
+	public ByteBufferPool getBufferPool() {
+		return torrentClient.getBufferPool();
+	}
+
+	/**
+	 * @return The cache which serves the blocks which are uploaded by the peers of this torrent.
+	 * @see TorrentClient#getReadCache()
+	 */
+	public Optional<BlockReadCache> getReadCache() {
+		return Optional.ofNullable(torrentClient.getReadCache());
+	}
+
+	/**
+	 * Gets the limiter which caps the upload rate of this torrent. The limit is applied in addition to {@link TorrentClient#getUploadLimiter()}.
+	 * @return The upload limiter of this torrent.
+	 */
+	public TokenBucket getUploadLimiter() {
+		return uploadLimiter;
+	}
+
+	/**
+	 * Gets the limiter which caps the download rate of this torrent. The limit is applied in addition to {@link TorrentClient#getDownloadLimiter()}.
+	 * @return The download limiter of this torrent.
+	 */
+	public TokenBucket getDownloadLimiter() {
+		return downloadLimiter;
+	}
+
+	/**
+	 * Creates a new instance of the backend which stores the files of this torrent.
+	 * @return The newly created storage.
+	 *
+	 * @see Builder#setStorage(Supplier)
+	 */
+	public IStorage createStorage() {
+		return storageSupplier.get();
+	}
+
 	/**
 	 * A builder to create new instances of {@link Torrent}
 	 */
@@ -437,6 +646,8 @@ public class Torrent {
 
 		private String displayName;
 
+		private Supplier<IStorage> storageSupplier;
+
 		/**
 		 * Sets the torrent client on which this torrent will be registered.
 		 * @param torrentClient The client.
@@ -467,6 +678,30 @@ public class Torrent {
 			return this;
 		}
 
+		/**
+		 * Sets the backend which stores the files of this torrent (ex. {@link org.johnnei.javatorrent.disk.MemoryMappedStorage}).
+		 * By default {@link RandomAccessFileStorage} is used with the file handle pool of the torrent client.
+		 * @param storageSupplier The supplier which creates a new storage for every file set of the torrent.
+		 * @return The adjusted builder.
+		 */
+		public Builder setStorage(Supplier<IStorage> storageSupplier) {
+			this.storageSupplier = Argument.requireNonNull(storageSupplier, "Storage supplier cannot be null.");
+			return this;
+		}
+
+		private Supplier<IStorage> getStorageSupplier() {
+			if (storageSupplier != null) {
+				return storageSupplier;
+			}
+
+			if (torrentClient == null || torrentClient.getFileHandlePool() == null) {
+				return RandomAccessFileStorage::new;
+			}
+
+			FileHandlePool fileHandlePool = torrentClient.getFileHandlePool();
+			return () -> new RandomAccessFileStorage(fileHandlePool);
+		}
+
 		/**
 		 * @return <code>true</code> if the hash of the metadata is available.
 		 */
@@ -486,7 +721,7 @@ public class Torrent {
 			}
 
 			if (!metadata.getFileEntries().isEmpty()) {
-				TorrentFileSet fileSet = new TorrentFileSet(metadata, downloadFolder);
+				TorrentFileSet fileSet = new TorrentFileSet(metadata, downloadFolder, torrent.createStorage());
 				torrent.setFileSet(fileSet);
 			}
 
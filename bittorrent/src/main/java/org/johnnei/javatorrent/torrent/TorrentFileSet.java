@@ -4,6 +4,8 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.johnnei.javatorrent.disk.IStorage;
+import org.johnnei.javatorrent.disk.RandomAccessFileStorage;
 import org.johnnei.javatorrent.internal.torrent.TorrentFileSetRequestFactory;
 import org.johnnei.javatorrent.internal.torrent.peer.Bitfield;
 import org.johnnei.javatorrent.torrent.files.Piece;
@@ -37,7 +39,19 @@ public class TorrentFileSet extends AbstractFileSet {
 	 * @throws IllegalArgumentException When the torrent file is missing or incomplete.
 	 */
 	public TorrentFileSet(Metadata metadata, File downloadFolder) {
-		super(BLOCK_SIZE);
+		this(metadata, downloadFolder, new RandomAccessFileStorage());
+	}
+
+	/**
+	 * Creates a TorrentFileSet instance based upon a .torrent file
+	 *
+	 * @param metadata The metadata containing the torrent information
+	 * @param downloadFolder The folder in which the downloads need to be stored.
+	 * @param storage The backend which stores the data of the files.
+	 * @throws IllegalArgumentException When the torrent file is missing or incomplete.
+	 */
+	public TorrentFileSet(Metadata metadata, File downloadFolder, IStorage storage) {
+		super(BLOCK_SIZE, storage);
 		this.metadata = Argument.requireNonNull(metadata, "Torrent metadata can not be null");
 		this.downloadFolder = Argument.requireNonNull(downloadFolder, "Download folder cannot be null");
 
@@ -0,0 +1,68 @@
+package org.johnnei.javatorrent.torrent.files;
+
+import org.johnnei.javatorrent.torrent.FileInfo;
+
+/**
+ * The section of a {@link Piece} which is stored in a single file.
+ */
+final class FileSpan {
+
+	private final FileInfo file;
+
+	private final int pieceOffset;
+
+	private final int length;
+
+	private final long fileOffset;
+
+	/**
+	 * Creates a new span.
+	 * @param file The file which stores the section.
+	 * @param pieceOffset The offset of the first byte of the section within the piece.
+	 * @param length The amount of bytes in the section.
+	 * @param fileOffset The offset of the first byte of the section within the file.
+	 */
+	FileSpan(FileInfo file, int pieceOffset, int length, long fileOffset) {
+		this.file = file;
+		this.pieceOffset = pieceOffset;
+		this.length = length;
+		this.fileOffset = fileOffset;
+	}
+
+	/**
+	 * @param offset The offset within the piece.
+	 * @return <code>true</code> when the byte at the given offset is stored in this span.
+	 */
+	boolean contains(int offset) {
+		return offset >= pieceOffset && offset < pieceOffset + length;
+	}
+
+	/**
+	 * @param offset The offset within the piece.
+	 * @return The offset within the file of the byte at the given offset.
+	 */
+	long getOffsetInFile(int offset) {
+		return fileOffset + (offset - pieceOffset);
+	}
+
+	/**
+	 * @param offset The offset within the piece.
+	 * @return The amount of bytes from the given offset up to the end of this span.
+	 */
+	int getRemainingBytes(int offset) {
+		return pieceOffset + length - offset;
+	}
+
+	FileInfo getFile() {
+		return file;
+	}
+
+	int getPieceOffset() {
+		return pieceOffset;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("FileSpan[file=%s, pieceOffset=%d, length=%d, fileOffset=%d]", file, pieceOffset, length, fileOffset);
+	}
+}
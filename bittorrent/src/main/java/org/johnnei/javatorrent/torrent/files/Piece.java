@@ -1,7 +1,9 @@
 package org.johnnei.javatorrent.torrent.files;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -9,6 +11,8 @@ import java.util.Objects;
 import java.util.Optional;
 
 import org.johnnei.javatorrent.bittorrent.encoding.SHA1;
+import org.johnnei.javatorrent.disk.IStorage;
+import org.johnnei.javatorrent.disk.PieceWriteCache;
 import org.johnnei.javatorrent.torrent.AbstractFileSet;
 import org.johnnei.javatorrent.torrent.FileInfo;
 import org.johnnei.javatorrent.utils.MathUtils;
@@ -21,6 +25,11 @@ public class Piece {
 
 	private static final String ERR_BLOCK_IS_NOT_WITHIN_PIECE = "Block %d is not within the %d blocks of %s";
 
+	/**
+	 * The size of the regions of a file by which the disk jobs are striped over the disk workers.
+	 */
+	private static final long STRIPE_REGION_SIZE = 16 * 1024 * 1024;
+
 	/**
 	 * The files associated with this piece
 	 */
@@ -40,6 +49,38 @@ public class Piece {
 
 	private byte[] expectedHash;
 
+	/**
+	 * The buffer in which the blocks are assembled until the hash has been verified. <code>null</code> when the blocks are written to the storage.
+	 * The buffer and the state of the hashing are guarded by the lock of this piece as the buffer can be released while a disk job uses it.
+	 */
+	private ByteBuffer writeBuffer;
+
+	/**
+	 * The cache which allocated the {@link #writeBuffer}.
+	 */
+	private PieceWriteCache writeCache;
+
+	/**
+	 * If any block has been written to the storage directly. Once this happened the piece can no longer be assembled in memory.
+	 */
+	private boolean storedOnDisk;
+
+	/**
+	 * The digest which has been fed with the blocks which have been stored in order. <code>null</code> when no block has been hashed yet.
+	 */
+	private MessageDigest runningDigest;
+
+	/**
+	 * The amount of leading blocks which have been fed to the {@link #runningDigest}.
+	 */
+	private int hashedBlockCount;
+
+	/**
+	 * The sections of the files in which this piece is stored, ordered by their offset in the piece. Spans are resolved on first use and replaced
+	 * as a whole when a new span is added so the lookup doesn't require locking.
+	 */
+	private volatile FileSpan[] spans;
+
 	/**
 	 * Creates a new piece.
 	 * @param files The {@link AbstractFileSet} which owns this piece.
@@ -52,6 +93,7 @@ public class Piece {
 		this.index = index;
 		this.files = files;
 		this.expectedHash = hash;
+		spans = new FileSpan[0];
 		blocks = new ArrayList<>(MathUtils.ceilDivision(pieceSize, blockSize));
 		int blockIndex = 0;
 		int remainingPieceSize = pieceSize;
@@ -86,80 +128,228 @@ public class Piece {
 	 */
 	public byte[] loadPiece(int offset, int length) throws IOException {
 		byte[] pieceData = new byte[length];
+		loadPiece(offset, ByteBuffer.wrap(pieceData));
+		return pieceData;
+	}
+
+	/**
+	 * Loads a bit of data from the file into the remaining bytes of the given buffer. The position of the given buffer is not modified.
+	 *
+	 * @param offset The offset in the piece
+	 * @param pieceData The buffer to fill
+	 * @throws IOException When the underlying IO causes an error.
+	 */
+	public void loadPiece(int offset, ByteBuffer pieceData) throws IOException {
+		int length = pieceData.remaining();
+		ByteBuffer section = pieceData.duplicate();
 
 		int readBytes = 0;
 		while (readBytes < length) {
 			// Offset within the piece
 			int alreadyReadOffset = offset + readBytes;
+			FileSpan span = getSpan(alreadyReadOffset);
+
+			// Calculate how many bytes we want/can read from the file
+			int bytesToRead = Math.min(length - readBytes, span.getRemainingBytes(alreadyReadOffset));
+
+			section.limit(pieceData.position() + readBytes + bytesToRead);
+			section.position(pieceData.position() + readBytes);
+
+			// Read the actual files
+			files.getStorage().read(span.getFile(), span.getOffsetInFile(alreadyReadOffset), section);
+			readBytes += bytesToRead;
+		}
+	}
 
-			// Find file for the given offset
-			FileInfo outputFile = files.getFileForBytes(index, alreadyReadOffset / files.getBlockSize(), alreadyReadOffset % files.getBlockSize());
+	/**
+	 * Finds the section of the file which stores the byte at the given offset. The file is only resolved through the file set the first time
+	 * a byte of the section is accessed.
+	 *
+	 * @param offset The offset in the piece
+	 * @return The span which contains the offset.
+	 * @throws IOException When the offset is not stored within the file which the file set returned.
+	 */
+	private FileSpan getSpan(int offset) throws IOException {
+		FileSpan[] currentSpans = spans;
+		int spanIndex = findSpan(currentSpans, offset);
+		if (spanIndex >= 0) {
+			return currentSpans[spanIndex];
+		}
 
-			// Calculate offset as if the torrent was one file
-			long pieceIndexOffset = index * files.getPieceSize();
-			long totalOffset = pieceIndexOffset + alreadyReadOffset;
+		// Resolve the block by the size this piece was created with, only the last block can be smaller.
+		int blockSize = blocks.get(0).getSize();
+		FileInfo file = files.getFileForBytes(index, offset / blockSize, offset % blockSize);
 
-			// Calculate the offset within the file
-			long offsetInFile = totalOffset - outputFile.getFirstByteOffset();
+		// Calculate the offsets as if the torrent was one file
+		long pieceStart = index * files.getPieceSize();
+		long offsetInFile = pieceStart + offset - file.getFirstByteOffset();
+		if (offsetInFile < 0 || offsetInFile >= file.getSize()) {
+			throw new IOException("Cannot seek to position: " + offsetInFile);
+		}
 
-			// Calculate how many bytes we want/can read from the file
-			int bytesToRead = Math.min(length - readBytes, (int) (outputFile.getSize() - offsetInFile));
+		int spanStart = (int) Math.max(0, file.getFirstByteOffset() - pieceStart);
+		int spanEnd = (int) Math.min(getSize(), file.getFirstByteOffset() + file.getSize() - pieceStart);
+		FileSpan span = new FileSpan(file, spanStart, spanEnd - spanStart, offsetInFile - (offset - spanStart));
 
-			// Check if we don't read outside the file
-			if (offsetInFile < 0) {
-				// TODO Figure out why this exception can be thrown in the first place.
-				throw new IOException("Cannot seek to position: " + offsetInFile);
+		synchronized (this) {
+			currentSpans = spans;
+			spanIndex = findSpan(currentSpans, offset);
+			if (spanIndex >= 0) {
+				return currentSpans[spanIndex];
 			}
 
-			// Read the actual files
-			synchronized (outputFile.fileLock) {
-				RandomAccessFile file = outputFile.getFileAccess();
-				file.seek(offsetInFile);
-				file.readFully(pieceData, readBytes, bytesToRead);
-				readBytes += bytesToRead;
+			int insertionIndex = -(spanIndex + 1);
+			FileSpan[] newSpans = new FileSpan[currentSpans.length + 1];
+			System.arraycopy(currentSpans, 0, newSpans, 0, insertionIndex);
+			newSpans[insertionIndex] = span;
+			System.arraycopy(currentSpans, insertionIndex, newSpans, insertionIndex + 1, currentSpans.length - insertionIndex);
+			spans = newSpans;
+		}
+
+		return span;
+	}
+
+	/**
+	 * Searches the span which contains the given offset.
+	 * @param spans The spans ordered by offset.
+	 * @param offset The offset in the piece.
+	 * @return The index of the span or <code>(-(insertion point) - 1)</code> when no span contains the offset.
+	 */
+	private static int findSpan(FileSpan[] spans, int offset) {
+		int low = 0;
+		int high = spans.length - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			FileSpan span = spans[middle];
+			if (span.contains(offset)) {
+				return middle;
+			} else if (span.getPieceOffset() < offset) {
+				low = middle + 1;
+			} else {
+				high = middle - 1;
 			}
 		}
-		return pieceData;
+
+		return -(low + 1);
+	}
+
+	/**
+	 * Transfers a section of this piece directly from the file to the given channel. When the section spans multiple files only the bytes of
+	 * the first file are transferred. Depending on the channel fewer bytes than requested can be transferred, the caller is responsible to
+	 * invoke this method again for the remaining bytes.
+	 *
+	 * @param offset The offset in the piece
+	 * @param length The amount of bytes to transfer
+	 * @param target The channel to transfer the bytes to
+	 * @return The amount of transferred bytes
+	 * @throws IOException When the underlying IO causes an error.
+	 * @see IStorage#transferTo(FileInfo, long, long, WritableByteChannel)
+	 */
+	public long transferTo(int offset, int length, WritableByteChannel target) throws IOException {
+		FileSpan span = getSpan(offset);
+		long bytesToTransfer = Math.min(length, span.getRemainingBytes(offset));
+
+		return files.getStorage().transferTo(span.getFile(), span.getOffsetInFile(offset), bytesToTransfer, target);
 	}
 
 	/**
-	 * Checks if the received bytes hash matches with the hash which was given in the metadata
+	 * Checks if the received bytes hash matches with the hash which was given in the metadata.
+	 * When the piece has been assembled in memory the hash is computed from memory and the piece is only written to the storage when it matched.
+	 * Blocks which have been stored in order have already been hashed and are not read again.
 	 *
 	 * @return hashMatched ? true : false
 	 */
-	public boolean checkHash() throws IOException {
+	public synchronized boolean checkHash() throws IOException {
 		final int pieceSize = getSize();
+		final int hashedBytes = blocks.stream().limit(hashedBlockCount).mapToInt(Block::getSize).sum();
+		MessageDigest digest = runningDigest != null ? runningDigest : SHA1.createDigest();
+		// The running digest is consumed by this check, regardless of the result.
+		resetRunningDigest();
 
-		// Test if the piece is completely available on disk.
-		int remainingBytes = pieceSize;
-		int alreadyReadOffset = 0;
-		while (remainingBytes > 0) {
-			FileInfo file = files.getFileForBytes(index, alreadyReadOffset / files.getBlockSize(), alreadyReadOffset % files.getBlockSize());
-
-			long pieceIndexOffset = index * files.getPieceSize();
-			long totalOffset = pieceIndexOffset + alreadyReadOffset;
+		if (writeBuffer != null) {
+			return checkWriteBuffer(digest, hashedBytes);
+		}
 
-			// Calculate the offset within the file
-			long offsetInFile = totalOffset - file.getFirstByteOffset();
-			long fileSize;
-			synchronized (file.fileLock) {
-				fileSize = file.getFileAccess().length();
-			}
+		// Test if the remainder of the piece is completely available on disk.
+		int alreadyReadOffset = hashedBytes;
+		while (alreadyReadOffset < pieceSize) {
+			FileSpan span = getSpan(alreadyReadOffset);
+			int spanBytes = span.getRemainingBytes(alreadyReadOffset);
 
-			// Subtract the available bytes.
-			long availableBytes = fileSize - offsetInFile;
-			if (availableBytes <= 0) {
+			long availableBytes = files.getStorage().getStoredSize(span.getFile()) - span.getOffsetInFile(alreadyReadOffset);
+			if (availableBytes < spanBytes) {
 				// Not enough bytes are available to read this entire piece.
 				return false;
 			}
 
-			remainingBytes -= availableBytes;
-			alreadyReadOffset += availableBytes;
+			alreadyReadOffset += spanBytes;
 		}
 
 		// Verify the hash.
-		byte[] pieceData = loadPiece(0, pieceSize);
-		return Arrays.equals(expectedHash, SHA1.hash(pieceData));
+		hashFiles(digest, hashedBytes);
+		return Arrays.equals(expectedHash, digest.digest());
+	}
+
+	/**
+	 * Feeds the piece from the given offset onwards to the digest by reading the regions of the files through the storage.
+	 * @param digest The digest to update.
+	 * @param offset The offset in the piece to start at.
+	 * @throws IOException When the files can't be read.
+	 */
+	private void hashFiles(MessageDigest digest, int offset) throws IOException {
+		int pieceSize = getSize();
+		int hashedBytes = offset;
+		while (hashedBytes < pieceSize) {
+			FileSpan span = getSpan(hashedBytes);
+			int bytesToHash = Math.min(pieceSize - hashedBytes, span.getRemainingBytes(hashedBytes));
+
+			files.getStorage().hash(span.getFile(), span.getOffsetInFile(hashedBytes), bytesToHash, digest);
+			hashedBytes += bytesToHash;
+		}
+	}
+
+	private boolean checkWriteBuffer(MessageDigest digest, int hashedBytes) throws IOException {
+		ByteBuffer remainder = writeBuffer.duplicate();
+		remainder.clear();
+		remainder.position(hashedBytes);
+		digest.update(remainder);
+
+		if (!Arrays.equals(expectedHash, digest.digest())) {
+			// Keep the buffer, the blocks which will be downloaded again overwrite the corrupted data.
+			return false;
+		}
+
+		writeBuffer.clear();
+		writeToFiles(0, writeBuffer);
+		writeCache.release(writeBuffer);
+		writeBuffer = null;
+		writeCache = null;
+		storedOnDisk = true;
+		return true;
+	}
+
+	/**
+	 * Writes a range of bytes of this piece into the correct file(s) with a single write per file.
+	 *
+	 * @param offset The offset in the piece
+	 * @param data The buffer of which the remaining bytes are written. The position of the buffer is not modified.
+	 */
+	private void writeToFiles(int offset, ByteBuffer data) throws IOException {
+		int length = data.remaining();
+		ByteBuffer section = data.duplicate();
+
+		int writtenBytes = 0;
+		while (writtenBytes < length) {
+			int pieceOffset = offset + writtenBytes;
+			FileSpan span = getSpan(pieceOffset);
+			int bytesToWrite = Math.min(length - writtenBytes, span.getRemainingBytes(pieceOffset));
+
+			section.limit(data.position() + writtenBytes + bytesToWrite);
+			section.position(data.position() + writtenBytes);
+
+			files.getStorage().write(span.getFile(), span.getOffsetInFile(pieceOffset), section);
+			writtenBytes += bytesToWrite;
+		}
 	}
 
 	/**
@@ -169,39 +359,172 @@ public class Piece {
 	 * @param blockData The data of the block
 	 */
 	public void storeBlock(int blockIndex, byte[] blockData) throws IOException {
+		storeBlock(blockIndex, ByteBuffer.wrap(blockData));
+	}
+
+	/**
+	 * Writes the block into the correct file(s). The position of the given buffer is not modified.
+	 *
+	 * @param blockIndex The index of the block to write
+	 * @param blockData The buffer of which the remaining bytes are the data of the block
+	 */
+	public synchronized void storeBlock(int blockIndex, ByteBuffer blockData) throws IOException {
 		Block block = blocks.get(blockIndex);
+		if (storeInWriteBuffer(block, blockData)) {
+			updateRunningDigest(block, blockData);
+			return;
+		}
+
 		int remainingBytesToWrite = block.getSize();
+		ByteBuffer section = blockData.duplicate();
+		final int blockOffset = blockIndex * files.getBlockSize();
 		// Write Block
 		while (remainingBytesToWrite > 0) {
 			// The offset within the block itself
 			int dataOffset = block.getSize() - remainingBytesToWrite;
-			// Retrieve the file to which we need to write
-			FileInfo outputFile = files.getFileForBytes(index, blockIndex, dataOffset);
+			// Retrieve the file section to which we need to write
+			FileSpan span = getSpan(blockOffset + dataOffset);
 
-			// Calculate the offset in bytes as if the torrent was one file
-			final long pieceOffset = index * files.getPieceSize();
-			final long blockOffset = (long) blockIndex * files.getBlockSize();
-			final long totalOffset = pieceOffset + blockOffset + dataOffset;
+			// Determine how many bytes still belong in this file
+			int bytesToWrite = Math.min(remainingBytesToWrite, span.getRemainingBytes(blockOffset + dataOffset));
 
-			// Calculate the offset within the file
-			long offsetInFile = totalOffset - outputFile.getFirstByteOffset();
+			section.limit(blockData.position() + dataOffset + bytesToWrite);
+			section.position(blockData.position() + dataOffset);
 
-			// Determine how many bytes still belong in this file
-			int bytesToWrite = Math.min(remainingBytesToWrite, (int) (outputFile.getSize() - offsetInFile));
+			// Write the actual bytes
+			files.getStorage().write(span.getFile(), span.getOffsetInFile(blockOffset + dataOffset), section);
+			remainingBytesToWrite -= bytesToWrite;
+		}
+
+		updateRunningDigest(block, blockData);
+	}
 
-			// Check if the calculated offset is within the file
-			if (offsetInFile < 0) {
-				throw new IOException("Cannot seek to position: " + offsetInFile);
+	/**
+	 * Writes consecutive blocks into the correct file(s) with a single gathering write per file. When the piece is being assembled in memory the
+	 * blocks are stored one by one. The positions of the given buffers are not modified.
+	 *
+	 * @param firstBlockIndex The index of the first block to write
+	 * @param blockData The buffers of which the remaining bytes are the data of the blocks, starting at the first block
+	 */
+	public synchronized void storeBlocks(int firstBlockIndex, ByteBuffer[] blockData) throws IOException {
+		Block firstBlock = blocks.get(firstBlockIndex);
+		if (storeInWriteBuffer(firstBlock, blockData[0])) {
+			updateRunningDigest(firstBlock, blockData[0]);
+			// The buffer has been allocated, so the remaining blocks will be buffered as well.
+			for (int i = 1; i < blockData.length; i++) {
+				storeBlock(firstBlockIndex + i, blockData[i]);
 			}
+			return;
+		}
 
-			// Write the actual bytes
-			synchronized (outputFile.fileLock) {
-				RandomAccessFile file = outputFile.getFileAccess();
-				file.seek(offsetInFile);
-				file.write(blockData, dataOffset, bytesToWrite);
-				remainingBytesToWrite -= bytesToWrite;
+		ByteBuffer[] sections = new ByteBuffer[blockData.length];
+		int length = 0;
+		for (int i = 0; i < blockData.length; i++) {
+			Block block = blocks.get(firstBlockIndex + i);
+			sections[i] = blockData[i].duplicate();
+			sections[i].limit(sections[i].position() + block.getSize());
+			length += block.getSize();
+		}
+
+		final int startOffset = firstBlockIndex * files.getBlockSize();
+		int writtenBytes = 0;
+		int sectionIndex = 0;
+		while (writtenBytes < length) {
+			int pieceOffset = startOffset + writtenBytes;
+			FileSpan span = getSpan(pieceOffset);
+			int bytesToWrite = Math.min(length - writtenBytes, span.getRemainingBytes(pieceOffset));
+
+			// Gather the (parts of the) blocks which belong in this file.
+			List<ByteBuffer> gather = new ArrayList<>();
+			int gatheredBytes = 0;
+			while (gatheredBytes < bytesToWrite) {
+				ByteBuffer section = sections[sectionIndex];
+				int bytesFromSection = Math.min(section.remaining(), bytesToWrite - gatheredBytes);
+				ByteBuffer part = section.duplicate();
+				part.limit(part.position() + bytesFromSection);
+				gather.add(part);
+
+				section.position(section.position() + bytesFromSection);
+				if (!section.hasRemaining()) {
+					sectionIndex++;
+				}
+				gatheredBytes += bytesFromSection;
 			}
+
+			files.getStorage().writeGathered(span.getFile(), span.getOffsetInFile(pieceOffset), gather.toArray(new ByteBuffer[gather.size()]));
+			writtenBytes += bytesToWrite;
+		}
+
+		for (int i = 0; i < blockData.length; i++) {
+			updateRunningDigest(blocks.get(firstBlockIndex + i), blockData[i]);
+		}
+	}
+
+	/**
+	 * Feeds the stored block to the {@link #runningDigest} when it is the next block in order.
+	 *
+	 * @param block The block which has been stored
+	 * @param blockData The buffer of which the remaining bytes are the data of the block
+	 */
+	private void updateRunningDigest(Block block, ByteBuffer blockData) {
+		if (block.getIndex() < hashedBlockCount) {
+			// The block has been overwritten, the digest no longer matches the stored data.
+			resetRunningDigest();
+			return;
 		}
+
+		if (block.getIndex() != hashedBlockCount) {
+			// Out of order, this block will be read back by the hash check.
+			return;
+		}
+
+		if (runningDigest == null) {
+			runningDigest = SHA1.createDigest();
+		}
+
+		ByteBuffer section = blockData.duplicate();
+		section.limit(section.position() + block.getSize());
+		runningDigest.update(section);
+		hashedBlockCount++;
+	}
+
+	private void resetRunningDigest() {
+		runningDigest = null;
+		hashedBlockCount = 0;
+	}
+
+	/**
+	 * Copies the block into the {@link #writeBuffer}. The buffer is allocated from the {@link PieceWriteCache} of the file set for the first
+	 * block of the piece.
+	 *
+	 * @param block The block to store
+	 * @param blockData The buffer of which the remaining bytes are the data of the block
+	 * @return <code>true</code> when the block has been buffered, <code>false</code> when it must be written to the storage.
+	 */
+	private boolean storeInWriteBuffer(Block block, ByteBuffer blockData) {
+		if (writeBuffer == null) {
+			if (storedOnDisk) {
+				return false;
+			}
+
+			Optional<PieceWriteCache> cache = files.getWriteCache();
+			Optional<ByteBuffer> buffer = cache.flatMap(c -> c.allocate(getSize()));
+			if (!buffer.isPresent()) {
+				storedOnDisk = true;
+				return false;
+			}
+
+			writeCache = cache.get();
+			writeBuffer = buffer.get();
+		}
+
+		ByteBuffer section = blockData.duplicate();
+		section.limit(section.position() + block.getSize());
+
+		ByteBuffer target = writeBuffer.duplicate();
+		target.position(block.getIndex() * files.getBlockSize());
+		target.put(section);
+		return true;
 	}
 
 	/**
@@ -227,6 +550,42 @@ public class Piece {
 		blocks.get(blockIndex).setStatus(blockStatus);
 	}
 
+	/**
+	 * Marks a block as {@link BlockStatus#Stored} of which the data has been written to the storage in an earlier session.
+	 *
+	 * @param blockIndex The index of the block.
+	 */
+	public synchronized void restoreStoredBlock(int blockIndex) {
+		setBlockStatus(blockIndex, BlockStatus.Stored);
+		// The other blocks can't be assembled in memory as the hash check would miss this block.
+		storedOnDisk = true;
+	}
+
+	/**
+	 * Returns the buffer in which the blocks are assembled to the {@link PieceWriteCache}. The blocks which were only stored in that buffer are
+	 * discarded and marked as {@link BlockStatus#Needed} again.
+	 */
+	public synchronized void releaseWriteBuffer() {
+		if (writeBuffer == null) {
+			return;
+		}
+
+		writeCache.release(writeBuffer);
+		writeBuffer = null;
+		writeCache = null;
+		resetRunningDigest();
+		blocks.stream()
+				.filter(block -> block.getStatus() == BlockStatus.Stored)
+				.forEach(block -> block.setStatus(BlockStatus.Needed));
+	}
+
+	/**
+	 * @return <code>true</code> when the stored blocks are assembled in memory and have not been written to the storage yet.
+	 */
+	public synchronized boolean hasBufferedBlocks() {
+		return writeBuffer != null;
+	}
+
 	/**
 	 * Gets the block status for the block at the given index
 	 *
@@ -341,6 +700,24 @@ public class Piece {
 		return files;
 	}
 
+	/**
+	 * Gets the key by which the disk jobs of this piece are striped over the disk workers. The key is the region of the file in which this piece
+	 * starts, so all jobs of this piece are processed in order while pieces in other regions or files are processed in parallel. Distinct pieces
+	 * never share bytes on disk, so pieces of different stripes can't overlap when they are processed concurrently.
+	 *
+	 * @return The stripe key of this piece.
+	 * @see org.johnnei.javatorrent.disk.IDiskJob#getStripeKey()
+	 */
+	public Object getStripeKey() {
+		try {
+			FileSpan span = getSpan(0);
+			return new StripeKey(span.getFile(), span.getOffsetInFile(0) / STRIPE_REGION_SIZE);
+		} catch (IOException e) {
+			// The job will fail on the same lookup, until then keep the jobs of this piece on a single stripe.
+			return this;
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -379,4 +756,39 @@ public class Piece {
 		return String.format("Piece[index=%d, hash=%s]", index, StringUtils.byteArrayToString(expectedHash));
 	}
 
+	/**
+	 * A region of a file. Files are compared by identity as files of different torrents can have equal names and sizes.
+	 */
+	private static final class StripeKey {
+
+		private final FileInfo file;
+
+		private final long region;
+
+		StripeKey(FileInfo file, long region) {
+			this.file = file;
+			this.region = region;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof StripeKey)) {
+				return false;
+			}
+
+			StripeKey other = (StripeKey) obj;
+			return file == other.file && region == other.region;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(file) + Long.hashCode(region);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("StripeKey[file=%s, region=%d]", file.getFileName(), region);
+		}
+	}
+
 }
@@ -1,5 +1,6 @@
 package org.johnnei.javatorrent.torrent.peer;
 
+import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -16,12 +17,14 @@ import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageInterested;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageKeepAlive;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageUnchoke;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageUninterested;
+import org.johnnei.javatorrent.disk.BlockReadCache;
 import org.johnnei.javatorrent.disk.DiskJobReadBlock;
 import org.johnnei.javatorrent.internal.torrent.peer.Bitfield;
 import org.johnnei.javatorrent.internal.torrent.peer.Client;
 import org.johnnei.javatorrent.internal.torrent.peer.Job;
 import org.johnnei.javatorrent.module.IModule;
 import org.johnnei.javatorrent.network.BitTorrentSocket;
+import org.johnnei.javatorrent.network.ByteBufferPool;
 import org.johnnei.javatorrent.torrent.Torrent;
 import org.johnnei.javatorrent.torrent.files.BlockStatus;
 import org.johnnei.javatorrent.torrent.files.Piece;
@@ -111,6 +114,7 @@ public class Peer {
 		this.extensionBytes = Argument.requireNonNull(builder.extensionBytes, "Peer extension bytes must be set.");
 		this.id = Argument.requireNonNull(builder.id, "Peer ID must be set.");
 		this.idString = StringUtils.byteArrayToString(id);
+		socket.setParentLimiters(torrent.getUploadLimiter(), torrent.getDownloadLimiter());
 
 		peerClient = new Client();
 		myClient = new Client();
@@ -198,6 +202,8 @@ public class Peer {
 		getClientByDirection(type).addJob(job);
 
 		if (type != PeerDirection.Download) {
+			// The job stays queued (and thus cancellable) until the socket is writable, which reads it from disk.
+			socket.requestWrite();
 			return;
 		}
 
@@ -533,19 +539,58 @@ public class Peer {
 	 * Requests to queue the next piece in the socket for sending
 	 */
 	public void queueNextPieceForSending() {
-		while (pendingMessages < 5) {
+		// Blocks which are transferred from the file or served from the read cache are queued on the socket immediately, so the amount of pending
+		// disk reads doesn't bound them. Leave the remaining requests with the peer client until the socket has drained, which keeps them cancellable.
+		while (pendingMessages < 5 && !socket.isOutboundSaturated()) {
 
 			Job request = peerClient.popNextJob();
 			if (request == null) {
 				return;
 			}
 
+			if (socket.supportsFileTransfer() && request.getPiece().getFileSet().getStorage().supportsZeroCopyTransfer()) {
+				// The block data will be transferred from the file to the socket once the message is being sent.
+				socket.enqueueMessage(new MessageBlock(request.getPiece(), request.getBlockIndex(), request.getLength()));
+				torrent.addUploadedBytes(request.getLength());
+				continue;
+			}
+
+			Optional<BlockReadCache> readCache = torrent.getReadCache();
+			if (readCache.isPresent() && sendCachedBlock(readCache.get(), request)) {
+				continue;
+			}
+
 			addToPendingMessages(1);
 
-			torrent.addDiskJob(new DiskJobReadBlock(request.getPiece(), request.getBlockIndex(), request.getLength(), this::onReadBlockComplete));
+			torrent.addDiskJob(new DiskJobReadBlock(
+					request.getPiece(),
+					request.getBlockIndex(),
+					request.getLength(),
+					torrent.getBufferPool(),
+					readCache.orElse(null),
+					this::onReadBlockComplete));
 		}
 	}
 
+	/**
+	 * Sends the requested block straight from the read cache without queueing a disk job.
+	 * @param readCache The cache to read from.
+	 * @param request The requested block.
+	 * @return <code>true</code> when the block was cached and has been queued for sending.
+	 */
+	private boolean sendCachedBlock(BlockReadCache readCache, Job request) {
+		ByteBufferPool bufferPool = torrent.getBufferPool();
+		ByteBuffer data = bufferPool.acquire(request.getLength());
+		if (!readCache.read(request.getPiece(), request.getBlockIndex(), data)) {
+			bufferPool.release(data);
+			return false;
+		}
+
+		socket.enqueueMessage(new MessageBlock(request.getPiece().getIndex(), request.getBlockIndex(), data, bufferPool));
+		torrent.addUploadedBytes(request.getLength());
+		return true;
+	}
+
 	/**
 	 * @return The ID of the peer in base-12.
 	 */
@@ -554,10 +599,11 @@ public class Peer {
 	}
 
 	private void onReadBlockComplete(DiskJobReadBlock readJob) {
-		final byte[] data = readJob.getBlockData();
-		socket.enqueueMessage(new MessageBlock(readJob.getPiece().getIndex(), readJob.getOffset(), data));
+		final ByteBuffer data = readJob.getBlockBuffer();
+		final int length = data.remaining();
+		socket.enqueueMessage(new MessageBlock(readJob.getPiece().getIndex(), readJob.getOffset(), data, torrent.getBufferPool()));
 		addToPendingMessages(-1);
-		torrent.addUploadedBytes(data.length);
+		torrent.addUploadedBytes(length);
 	}
 
 	public static final class Builder {
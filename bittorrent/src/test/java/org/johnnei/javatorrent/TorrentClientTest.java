@@ -113,6 +113,37 @@ public class TorrentClientTest {
 		assertThrows(IllegalStateException.class, () -> new TorrentClient.Builder().registerModule(moduleMock));
 	}
 
+	@Test
+	public void testSetPeerIoThreadCountInvalid() {
+		assertThrows(IllegalArgumentException.class, () -> new TorrentClient.Builder().setPeerIoThreadCount(0));
+	}
+
+	@Test
+	public void testSetDiskIoThreadCountInvalid() {
+		assertThrows(IllegalArgumentException.class, () -> new TorrentClient.Builder().setDiskIoThreadCount(0));
+	}
+
+	@Test
+	public void testSetHashCheckThreadCountInvalid() {
+		assertThrows(IllegalArgumentException.class, () -> new TorrentClient.Builder().setHashCheckThreadCount(0));
+	}
+
+	@Test
+	public void testSetMaxOpenFilesInvalid() {
+		assertThrows(IllegalArgumentException.class, () -> new TorrentClient.Builder().setMaxOpenFiles(0));
+	}
+
+	@Test
+	public void testSetDiskWriteWatermarksInvalid() {
+		assertThrows(IllegalArgumentException.class, () -> new TorrentClient.Builder().setDiskWriteWatermarks(-1, 10));
+		assertThrows(IllegalArgumentException.class, () -> new TorrentClient.Builder().setDiskWriteWatermarks(10, 5));
+	}
+
+	@Test
+	public void testSetPieceWriteCacheSizeInvalid() {
+		assertThrows(IllegalArgumentException.class, () -> new TorrentClient.Builder().setPieceWriteCacheSize(-1));
+	}
+
 	@Test
 	public void testGetExtensionBytesEnableSpecificBit() throws Exception {
 		ConnectionDegradation connectionDegradationMock = mock(ConnectionDegradation.class);
@@ -230,7 +261,7 @@ public class TorrentClientTest {
 				.registerModule(moduleMock)
 				.build();
 
-		verify(executorServiceMock, times(2)).scheduleWithFixedDelay(notNull(), anyLong(), anyLong(), notNull());
+		verify(executorServiceMock).scheduleWithFixedDelay(notNull(), anyLong(), anyLong(), notNull());
 
 		cut.shutdown();
 
@@ -240,7 +271,7 @@ public class TorrentClientTest {
 
 		verify(peerConnectorMock).start();
 		verify(peerConnectorMock).stop();
-		verify(futureMock, times(2)).cancel(false);
+		verify(futureMock).cancel(false);
 
 		verify(executorServiceMock).shutdown();
 	}
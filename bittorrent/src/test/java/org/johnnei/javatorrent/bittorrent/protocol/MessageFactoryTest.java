@@ -2,6 +2,7 @@ package org.johnnei.javatorrent.bittorrent.protocol;
 
 import org.junit.jupiter.api.Test;
 
+import org.johnnei.javatorrent.bittorrent.protocol.messages.IMessage;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageBitfield;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageBlock;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageCancel;
@@ -15,7 +16,10 @@ import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageUninterested;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
 
 /**
  * Tests {@link MessageFactory}
@@ -53,4 +57,30 @@ public class MessageFactoryTest {
 
 	}
 
+	@Test
+	public void testErrorOnOutOfRangeId() {
+		MessageFactory cut = new MessageFactory.Builder().build();
+		assertThrows(IllegalArgumentException.class, () -> cut.createById(-1));
+		assertThrows(IllegalArgumentException.class, () -> cut.createById(256));
+		assertThrows(IllegalArgumentException.class, () -> new MessageFactory.Builder().registerMessage(256, MessageBlock::new));
+	}
+
+	@Test
+	public void testStatelessMessagesAreReused() {
+		MessageFactory cut = new MessageFactory.Builder().build();
+
+		assertSame(cut.createById(BitTorrent.MESSAGE_CHOKE), cut.createById(BitTorrent.MESSAGE_CHOKE), "Choke should be reused");
+		assertSame(cut.createById(BitTorrent.MESSAGE_UNCHOKE), cut.createById(BitTorrent.MESSAGE_UNCHOKE), "Unchoke should be reused");
+		assertSame(cut.createById(BitTorrent.MESSAGE_INTERESTED), cut.createById(BitTorrent.MESSAGE_INTERESTED), "Interested should be reused");
+		assertNotSame(cut.createById(BitTorrent.MESSAGE_HAVE), cut.createById(BitTorrent.MESSAGE_HAVE), "Have has state and must not be reused");
+	}
+
+	@Test
+	public void testRegisterStatelessMessage() {
+		IMessage message = mock(IMessage.class);
+		MessageFactory cut = new MessageFactory.Builder().registerStatelessMessage(255, message).build();
+
+		assertSame(message, cut.createById(255), "Registered instance should be returned");
+	}
+
 }
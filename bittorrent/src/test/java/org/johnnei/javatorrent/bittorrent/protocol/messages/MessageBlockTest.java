@@ -1,7 +1,13 @@
 package org.johnnei.javatorrent.bittorrent.protocol.messages;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
 import org.junit.jupiter.api.Test;
 
+import org.johnnei.javatorrent.network.ByteBufferPool;
 import org.johnnei.javatorrent.network.InStream;
 import org.johnnei.javatorrent.network.OutStream;
 import org.johnnei.javatorrent.torrent.Torrent;
@@ -12,7 +18,13 @@ import org.johnnei.javatorrent.torrent.peer.Peer;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -50,12 +62,17 @@ public class MessageBlockTest {
 	@Test
 	public void testProcessInvalidLength() {
 		prepareTest();
+		ByteBufferPool bufferPoolMock = mock(ByteBufferPool.class);
+		when(torrentMock.getBufferPool()).thenReturn(bufferPoolMock);
 
-		MessageBlock cut = new MessageBlock(5, 0x37FF, new byte[] {});
+		ByteBuffer data = ByteBuffer.allocate(0);
+		MessageBlock cut = new MessageBlock();
+		cut.read(new InStream(new byte[] { 0x00, 0x00, 0x00, 0x05, 0x00, 0x00, 0x37, (byte) 0xFF }), data);
 		cut.process(peerMock);
 
 		verify(peerMock).onReceivedBlock(pieceMock, 0x37FF);
 		verify(peerMock).addStrike(1);
+		verify(bufferPoolMock).release(data);
 	}
 
 	@Test
@@ -74,7 +91,7 @@ public class MessageBlockTest {
 		cut.read(inStream);
 		cut.process(peerMock);
 
-		verify(torrentMock).onReceivedBlock(fileSetMock, 5, 0x3800, new byte[] { 0x00 });
+		verify(torrentMock).onReceivedBlock(fileSetMock, 5, 0x3800, ByteBuffer.wrap(new byte[] { 0x00 }));
 		verify(peerMock).onReceivedBlock(pieceMock, 0x3800);
 		verify(peerMock).addStrike(-1);
 		verify(requestLimiterMock).onReceivedBlock(peerMock, cut);
@@ -96,7 +113,7 @@ public class MessageBlockTest {
 		cut.read(inStream);
 		cut.process(peerMock);
 
-		verify(torrentMock).onReceivedBlock(fileSetMock, 5, 0x3800, new byte[] { 0x00 });
+		verify(torrentMock).onReceivedBlock(fileSetMock, 5, 0x3800, ByteBuffer.wrap(new byte[] { 0x00 }));
 		verify(peerMock).onReceivedBlock(pieceMock, 0x3800);
 		verify(peerMock).addStrike(-1);
 	}
@@ -118,4 +135,66 @@ public class MessageBlockTest {
 		assertArrayEquals(expectedOutput, outStream.toByteArray(), "Incorrect output");
 	}
 
+	@Test
+	public void testWritePooledData() {
+		ByteBufferPool bufferPoolMock = mock(ByteBufferPool.class);
+		ByteBuffer data = ByteBuffer.wrap(new byte[] { 0x05, 0x06, 0x07 });
+		data.position(1);
+
+		MessageBlock cut = new MessageBlock(1, 2, data, bufferPoolMock);
+		assertEquals(11, cut.getLength(), "Incorrect message length");
+
+		OutStream outStream = new OutStream();
+		cut.write(outStream);
+
+		assertArrayEquals(new byte[] { 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x02, 0x06, 0x07 }, outStream.toByteArray(), "Incorrect output");
+		verify(bufferPoolMock).release(data);
+	}
+
+	@Test
+	public void testTransferFromFile() throws Exception {
+		WritableByteChannel channelMock = mock(WritableByteChannel.class);
+		when(pieceMock.getIndex()).thenReturn(1);
+		when(pieceMock.transferTo(2, 3, channelMock)).thenReturn(3L);
+		when(pieceMock.transferTo(5, 2, channelMock)).thenReturn(2L);
+
+		MessageBlock cut = new MessageBlock(pieceMock, 2, 5);
+		assertEquals(14, cut.getLength(), "Incorrect message length");
+		assertTrue(cut.isTransferredFromFile(), "Block data should be transferred from the file");
+
+		OutStream outStream = new OutStream();
+		cut.writeHeader(outStream);
+		assertArrayEquals(new byte[] { 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x02 }, outStream.toByteArray(), "Incorrect header output");
+
+		assertEquals(3, cut.transferTo(channelMock, 3), "Incorrect amount of transferred bytes");
+		assertFalse(cut.isTransferComplete(), "Block has only partially been transferred");
+		assertEquals(2, cut.getRemainingTransferLength(), "Incorrect remaining length");
+		assertEquals(2, cut.transferTo(channelMock, 16), "Incorrect amount of transferred bytes");
+		assertTrue(cut.isTransferComplete(), "Block has been completely transferred");
+	}
+
+	@Test
+	public void testWriteLoadsDataFromFile() throws Exception {
+		when(pieceMock.getIndex()).thenReturn(1);
+		doAnswer(inv -> {
+			ByteBuffer buffer = inv.getArgument(1);
+			buffer.duplicate().put(new byte[] { 0x05, 0x06 });
+			return null;
+		}).when(pieceMock).loadPiece(eq(2), isA(ByteBuffer.class));
+
+		MessageBlock cut = new MessageBlock(pieceMock, 2, 2);
+		OutStream outStream = new OutStream();
+		cut.write(outStream);
+
+		assertArrayEquals(new byte[] { 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x02, 0x05, 0x06 }, outStream.toByteArray(), "Incorrect output");
+	}
+
+	@Test
+	public void testWriteLoadsDataFromFileFailure() throws Exception {
+		doThrow(new IOException("Test")).when(pieceMock).loadPiece(eq(2), isA(ByteBuffer.class));
+
+		MessageBlock cut = new MessageBlock(pieceMock, 2, 2);
+		assertThrows(UncheckedIOException.class, () -> cut.write(new OutStream()));
+	}
+
 }
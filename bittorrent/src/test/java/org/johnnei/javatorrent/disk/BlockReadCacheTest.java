@@ -0,0 +1,148 @@
+package org.johnnei.javatorrent.disk;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+import org.johnnei.javatorrent.torrent.AbstractFileSet;
+import org.johnnei.javatorrent.torrent.files.Piece;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link BlockReadCache}
+ */
+public class BlockReadCacheTest {
+
+	@Test
+	public void testMissReadsWindow() throws Exception {
+		Piece piece = mockPiece(8);
+		BlockReadCache cut = new BlockReadCache(16, Integer.MAX_VALUE);
+
+		ByteBuffer first = ByteBuffer.allocate(4);
+		cut.load(piece, 0, first);
+		ByteBuffer second = ByteBuffer.allocate(4);
+		assertTrue(cut.read(piece, 4, second), "Second block should have been read ahead");
+
+		assertArrayEquals(new byte[] { 0, 1, 2, 3 }, first.array(), "Incorrect first block");
+		assertArrayEquals(new byte[] { 4, 5, 6, 7 }, second.array(), "Incorrect second block");
+		assertEquals(0, first.position(), "Position should not have been modified");
+		assertEquals(8, cut.getUsedBytes(), "Entire piece should have been cached");
+		assertEquals(1, cut.getHitCount(), "Incorrect hit count");
+		assertEquals(1, cut.getMissCount(), "Incorrect miss count");
+		verify(piece).loadPiece(0, 8);
+	}
+
+	@Test
+	public void testReadAheadWindow() throws Exception {
+		Piece piece = mockPiece(8);
+		BlockReadCache cut = new BlockReadCache(16, 4);
+
+		ByteBuffer block = ByteBuffer.allocate(2);
+		cut.load(piece, 4, block);
+
+		assertArrayEquals(new byte[] { 4, 5 }, block.array(), "Incorrect block");
+		assertFalse(cut.read(piece, 0, ByteBuffer.allocate(2)), "Other window should not have been read");
+		assertTrue(cut.read(piece, 6, ByteBuffer.allocate(2)), "Remainder of window should have been read");
+		verify(piece).loadPiece(4, 4);
+	}
+
+	@Test
+	public void testEvictsLeastRecentlyUsed() throws Exception {
+		Piece pieceZero = mockPiece(4);
+		Piece pieceOne = mockPiece(4);
+		Piece pieceTwo = mockPiece(4);
+		BlockReadCache cut = new BlockReadCache(8, Integer.MAX_VALUE);
+
+		cut.load(pieceZero, 0, ByteBuffer.allocate(4));
+		cut.load(pieceOne, 0, ByteBuffer.allocate(4));
+		assertTrue(cut.read(pieceZero, 0, ByteBuffer.allocate(4)), "Piece zero should be cached");
+		cut.load(pieceTwo, 0, ByteBuffer.allocate(4));
+
+		assertEquals(8, cut.getUsedBytes(), "Cache should not exceed its capacity");
+		assertTrue(cut.read(pieceZero, 0, ByteBuffer.allocate(4)), "Recently used piece should have been kept");
+		assertFalse(cut.read(pieceOne, 0, ByteBuffer.allocate(4)), "Least recently used piece should have been evicted");
+		assertTrue(cut.read(pieceTwo, 0, ByteBuffer.allocate(4)), "New piece should be cached");
+	}
+
+	@Test
+	public void testWindowExceedingCapacityBypassesCache() throws Exception {
+		Piece piece = mockPiece(8);
+		BlockReadCache cut = new BlockReadCache(4, Integer.MAX_VALUE);
+
+		cut.load(piece, 0, ByteBuffer.allocate(4));
+
+		assertEquals(0, cut.getUsedBytes(), "Window should not have been cached");
+		verify(piece).loadPiece(eq(0), any(ByteBuffer.class));
+		verify(piece, never()).loadPiece(anyInt(), anyInt());
+	}
+
+	@Test
+	public void testHitDoesNotReadPiece() throws Exception {
+		Piece piece = mockPiece(8);
+		BlockReadCache cut = new BlockReadCache(8, Integer.MAX_VALUE);
+
+		cut.load(piece, 0, ByteBuffer.allocate(4));
+		cut.load(piece, 4, ByteBuffer.allocate(4));
+
+		verify(piece, times(1)).loadPiece(anyInt(), anyInt());
+		assertEquals(1, cut.getHitCount(), "Second load should have been a hit");
+	}
+
+	@Test
+	public void testInvalidateFileSet() throws Exception {
+		AbstractFileSet fileSet = mock(AbstractFileSet.class);
+		AbstractFileSet otherFileSet = mock(AbstractFileSet.class);
+		Piece piece = mockPiece(4);
+		when(piece.getFileSet()).thenReturn(fileSet);
+		Piece otherPiece = mockPiece(4);
+		when(otherPiece.getFileSet()).thenReturn(otherFileSet);
+		BlockReadCache cut = new BlockReadCache(8, Integer.MAX_VALUE);
+
+		cut.load(piece, 0, ByteBuffer.allocate(4));
+		cut.load(otherPiece, 0, ByteBuffer.allocate(4));
+		cut.invalidate(fileSet);
+
+		assertEquals(4, cut.getUsedBytes(), "Only the windows of the other file set should remain");
+		assertFalse(cut.read(piece, 0, ByteBuffer.allocate(4)), "Windows of the file set should have been dropped");
+		assertTrue(cut.read(otherPiece, 0, ByteBuffer.allocate(4)), "Windows of other file sets should have been kept");
+	}
+
+	@Test
+	public void testNegativeCapacity() {
+		assertThrows(IllegalArgumentException.class, () -> new BlockReadCache(-1, 1));
+	}
+
+	@Test
+	public void testInvalidReadAheadSize() {
+		assertThrows(IllegalArgumentException.class, () -> new BlockReadCache(1, 0));
+	}
+
+	private static Piece mockPiece(int size) throws Exception {
+		Piece piece = mock(Piece.class);
+		when(piece.getSize()).thenReturn(size);
+		when(piece.loadPiece(anyInt(), anyInt())).thenAnswer(invocation -> {
+			int offset = invocation.getArgument(0);
+			int length = invocation.getArgument(1);
+			byte[] data = new byte[length];
+			for (int i = 0; i < length; i++) {
+				data[i] = (byte) (offset + i);
+			}
+			return data;
+		});
+		return piece;
+	}
+
+}
@@ -0,0 +1,40 @@
+package org.johnnei.javatorrent.disk;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link DiskBackpressure}
+ */
+public class DiskBackpressureTest {
+
+	@Test
+	public void testInvalidWatermarks() {
+		assertThrows(IllegalArgumentException.class, () -> new DiskBackpressure(-1, 10));
+		assertThrows(IllegalArgumentException.class, () -> new DiskBackpressure(10, 5));
+	}
+
+	@Test
+	public void testHysteresis() {
+		DiskBackpressure cut = new DiskBackpressure(10, 20);
+
+		cut.onQueued(20);
+		assertFalse(cut.isThrottled(), "Reaching the high watermark should not throttle yet");
+
+		cut.onQueued(5);
+		assertTrue(cut.isThrottled(), "Exceeding the high watermark should throttle");
+		assertEquals(25, cut.getPendingBytes(), "Incorrect pending bytes");
+
+		cut.onReleased(10);
+		assertTrue(cut.isThrottled(), "Dropping below the high watermark should not resume yet");
+
+		cut.onReleased(5);
+		assertFalse(cut.isThrottled(), "Draining to the low watermark should resume");
+		assertEquals(10, cut.getPendingBytes(), "Incorrect pending bytes");
+	}
+
+}
@@ -1,6 +1,7 @@
 package org.johnnei.javatorrent.disk;
 
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -8,6 +9,7 @@ import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import org.johnnei.javatorrent.network.ByteBufferPool;
 import org.johnnei.javatorrent.test.StubEntity;
 import org.johnnei.javatorrent.torrent.AbstractFileSet;
 import org.johnnei.javatorrent.torrent.FileInfo;
@@ -53,4 +55,23 @@ public class DiskJobReadBlockTest {
 		);
 	}
 
+	@Test
+	public void testReadBlockIntoPooledBuffer() throws Exception {
+		FileInfo fileInfo = new FileInfo(11560, 0, testFile, 1);
+		AbstractFileSet filesStub = StubEntity.stubAFiles(1, fileInfo, 18);
+		Piece piece = new Piece(filesStub, new byte[20], 0, 18, 18);
+		ByteBufferPool bufferPool = new ByteBufferPool(1024, 1);
+		DiskJobReadBlock cut = new DiskJobReadBlock(piece, 6, 12, bufferPool, x -> countDownLatch.countDown());
+		cut.process();
+
+		assertTrue(countDownLatch.await(5, TimeUnit.SECONDS), "Callback method wasn't called");
+		ByteBuffer buffer = cut.getBlockBuffer();
+		assertAll(
+			() -> assertEquals(512, buffer.capacity(), "Buffer should have been taken from the pool"),
+			() -> assertEquals(12, buffer.remaining(), "Incorrect amount of bytes read"),
+			() -> assertEquals("world block!", new String(cut.getBlockData(), Charset.forName("UTF-8")), "Incorrect message read"),
+			() -> assertEquals(1, bufferPool.getMissCount(), "Buffer should have been acquired from the pool")
+		);
+	}
+
 }
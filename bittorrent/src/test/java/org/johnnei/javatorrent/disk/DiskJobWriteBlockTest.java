@@ -2,6 +2,7 @@ package org.johnnei.javatorrent.disk;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -65,4 +66,35 @@ public class DiskJobWriteBlockTest {
 		);
 	}
 
+	@Test
+	public void testWriteBlockFromBuffer(@Folder Path tempFolder) throws Exception {
+		byte[] bytes = "Hello world write!".getBytes(Charset.forName("UTF-8"));
+		ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 4);
+		buffer.position(2);
+		buffer.put(bytes);
+		buffer.flip();
+		buffer.position(2);
+
+		File testFile = Files.createFile(tempFolder.resolve("testfile.torrent")).toFile();
+		FileInfo fileInfo = new FileInfo(18, 0, testFile, 1);
+		AbstractFileSet filesStub = StubEntity.stubAFiles(1, fileInfo);
+		Piece piece = new Piece(filesStub, new byte[20], 0, 18, 18);
+		DiskJobWriteBlock cut = new DiskJobWriteBlock(piece, 0, buffer, x -> countDownLatch.countDown());
+		cut.process();
+
+		byte[] writtenBytes;
+
+		try (ByteInputStream inputStream = new ByteInputStream(new FileInputStream(testFile))) {
+			writtenBytes = inputStream.readByteArray(18);
+		}
+
+		assertTrue(countDownLatch.await(5, TimeUnit.SECONDS));
+		assertAll(
+			() -> assertArrayEquals(bytes, writtenBytes, "Incorrect output"),
+			() -> assertEquals(2, buffer.position(), "Buffer position should not have been modified"),
+			() -> assertEquals(buffer, cut.getBlockData(), "Incorrect block data"),
+			() -> assertEquals(22, cut.getBufferedBytes(), "The full buffer should be counted as buffered")
+		);
+	}
+
 }
@@ -0,0 +1,140 @@
+package org.johnnei.javatorrent.disk;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.johnnei.javatorrent.torrent.FileInfo;
+import org.johnnei.junit.jupiter.Folder;
+import org.johnnei.junit.jupiter.TempFolderExtension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link FileHandlePool}
+ */
+@ExtendWith(TempFolderExtension.class)
+public class FileHandlePoolTest {
+
+	@Test
+	public void testOpensLazily(@Folder Path temporaryFolder) throws Exception {
+		File file = temporaryFolder.resolve("dir").resolve("file").toFile();
+		FileInfo fileInfo = new FileInfo(10, 0, file, 1);
+
+		assertFalse(file.exists(), "File should not have been created before it is used");
+
+		FileHandlePool cut = new FileHandlePool(2);
+		cut.acquire(fileInfo);
+		cut.release(fileInfo);
+
+		assertTrue(file.exists(), "File should have been created on first use");
+		assertEquals(1, cut.getOpenFileCount(), "Handle should have been kept open");
+		cut.close();
+	}
+
+	@Test
+	public void testClosesLeastRecentlyUsed(@Folder Path temporaryFolder) throws Exception {
+		FileInfo fileOne = new FileInfo(10, 0, temporaryFolder.resolve("1").toFile(), 1);
+		FileInfo fileTwo = new FileInfo(10, 10, temporaryFolder.resolve("2").toFile(), 1);
+		FileInfo fileThree = new FileInfo(10, 20, temporaryFolder.resolve("3").toFile(), 1);
+
+		FileHandlePool cut = new FileHandlePool(2);
+		FileChannel channelOne = cut.acquire(fileOne);
+		cut.release(fileOne);
+		FileChannel channelTwo = cut.acquire(fileTwo);
+		cut.release(fileTwo);
+		assertSame(channelOne, cut.acquire(fileOne), "Open handle should have been reused");
+		cut.release(fileOne);
+
+		cut.acquire(fileThree);
+		cut.release(fileThree);
+
+		assertEquals(2, cut.getOpenFileCount(), "Pool should not exceed its limit");
+		assertTrue(channelOne.isOpen(), "Recently used handle should have been kept open");
+		assertFalse(channelTwo.isOpen(), "Least recently used handle should have been closed");
+		assertNotSame(channelTwo, cut.acquire(fileTwo), "Closed handle should have been reopened");
+		cut.close();
+	}
+
+	@Test
+	public void testBorrowedHandleIsNotClosed(@Folder Path temporaryFolder) throws Exception {
+		FileInfo fileOne = new FileInfo(10, 0, temporaryFolder.resolve("1").toFile(), 1);
+		FileInfo fileTwo = new FileInfo(10, 10, temporaryFolder.resolve("2").toFile(), 1);
+
+		FileHandlePool cut = new FileHandlePool(1);
+		FileChannel channelOne = cut.acquire(fileOne);
+		cut.acquire(fileTwo);
+
+		assertEquals(2, cut.getOpenFileCount(), "Limit should be exceeded while all handles are borrowed");
+		channelOne.write(ByteBuffer.wrap(new byte[] { 1 }), 0);
+
+		cut.release(fileOne);
+
+		assertFalse(channelOne.isOpen(), "Returned handle should have been closed");
+		assertEquals(1, cut.getOpenFileCount(), "Pool should have returned to its limit");
+		cut.close();
+	}
+
+	@Test
+	public void testCloseFile(@Folder Path temporaryFolder) throws Exception {
+		FileInfo file = new FileInfo(10, 0, temporaryFolder.resolve("1").toFile(), 1);
+
+		FileHandlePool cut = new FileHandlePool(2);
+		FileChannel channel = cut.acquire(file);
+		cut.close(file);
+		assertTrue(channel.isOpen(), "Borrowed handle should not have been closed");
+
+		cut.release(file);
+		assertFalse(channel.isOpen(), "Handle should have been closed once it was returned");
+		assertEquals(0, cut.getOpenFileCount(), "Handle should have been removed");
+
+		channel = cut.acquire(file);
+		cut.release(file);
+		cut.close(file);
+		assertFalse(channel.isOpen(), "Idle handle should have been closed");
+		assertEquals(0, cut.getOpenFileCount(), "Handle should have been removed");
+	}
+
+	@Test
+	public void testClosedChannelIsReplaced(@Folder Path temporaryFolder) throws Exception {
+		FileInfo file = new FileInfo(10, 0, temporaryFolder.resolve("1").toFile(), 1);
+
+		FileHandlePool cut = new FileHandlePool(2);
+		FileChannel channel = cut.acquire(file);
+		// Interrupting a thread during an operation closes the channel for all users.
+		channel.close();
+
+		FileChannel replacement = cut.acquire(file);
+		assertNotSame(channel, replacement, "Closed handle should have been replaced");
+		assertTrue(replacement.isOpen(), "Replacement should be open");
+
+		cut.release(file);
+		cut.release(file);
+		assertTrue(replacement.isOpen(), "Idle handle should have been kept open");
+		assertEquals(1, cut.getOpenFileCount(), "Closed handle should have been dropped");
+		assertThrows(IllegalStateException.class, () -> cut.release(file), "All borrows should have been returned");
+		cut.close();
+	}
+
+	@Test
+	public void testReleaseWithoutAcquire(@Folder Path temporaryFolder) {
+		FileInfo file = new FileInfo(10, 0, temporaryFolder.resolve("1").toFile(), 1);
+
+		assertThrows(IllegalStateException.class, () -> new FileHandlePool(1).release(file));
+	}
+
+	@Test
+	public void testInvalidMaxOpenFiles() {
+		assertThrows(IllegalArgumentException.class, () -> new FileHandlePool(0));
+	}
+
+}
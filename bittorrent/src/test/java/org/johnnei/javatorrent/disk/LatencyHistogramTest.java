@@ -0,0 +1,59 @@
+package org.johnnei.javatorrent.disk;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests {@link LatencyHistogram}
+ */
+public class LatencyHistogramTest {
+
+	@Test
+	public void testEmpty() {
+		LatencyHistogram cut = new LatencyHistogram();
+
+		assertEquals(0, cut.getCount(), "Nothing has been recorded");
+		assertEquals(Duration.ZERO, cut.getMean(), "Mean of nothing should be zero");
+		assertEquals(Duration.ZERO, cut.getPercentile(0.99), "Percentile of nothing should be zero");
+	}
+
+	@Test
+	public void testRecord() {
+		LatencyHistogram cut = new LatencyHistogram();
+
+		for (int i = 0; i < 99; i++) {
+			cut.record(100);
+		}
+		cut.record(10_000);
+
+		assertEquals(100, cut.getCount(), "Incorrect amount of recorded durations");
+		assertEquals(Duration.ofNanos(199), cut.getMean(), "Incorrect mean");
+		assertEquals(Duration.ofNanos(10_000), cut.getMax(), "Incorrect max");
+		assertEquals(Duration.ofNanos(128), cut.getPercentile(0.5), "Median should be the upper bound of the bucket of 100ns");
+		assertEquals(Duration.ofNanos(10_000), cut.getPercentile(1), "Percentile should be capped at the max");
+		assertEquals(99, cut.getBucketCount(7), "100ns should be in the bucket of [64, 128)");
+	}
+
+	@Test
+	public void testRecordNegative() {
+		LatencyHistogram cut = new LatencyHistogram();
+
+		cut.record(-5);
+
+		assertEquals(1, cut.getBucketCount(0), "Negative durations should be recorded as 0");
+		assertEquals(Duration.ZERO, cut.getMax(), "Negative durations should be recorded as 0");
+	}
+
+	@Test
+	public void testInvalidPercentile() {
+		LatencyHistogram cut = new LatencyHistogram();
+
+		assertThrows(IllegalArgumentException.class, () -> cut.getPercentile(1.5));
+		assertThrows(IllegalArgumentException.class, () -> cut.getPercentile(-0.1));
+	}
+
+}
@@ -0,0 +1,71 @@
+package org.johnnei.javatorrent.disk;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link PieceWriteCache}
+ */
+public class PieceWriteCacheTest {
+
+	@Test
+	public void testAllocateWithinCapacity() {
+		PieceWriteCache cut = new PieceWriteCache(10);
+
+		Optional<ByteBuffer> first = cut.allocate(6);
+		assertTrue(first.isPresent(), "Buffer should fit in the cache");
+		assertEquals(6, first.get().capacity(), "Incorrect buffer size");
+		assertFalse(cut.allocate(6).isPresent(), "Second buffer exceeds the capacity");
+		assertEquals(6, cut.getUsedBytes(), "Failed allocation should not use the budget");
+
+		cut.release(first.get());
+
+		assertEquals(0, cut.getUsedBytes(), "Budget should have been returned");
+		assertTrue(cut.allocate(6).isPresent(), "Buffer should fit after release");
+	}
+
+	@Test
+	public void testReuseReleasedBuffer() {
+		PieceWriteCache cut = new PieceWriteCache(10);
+
+		ByteBuffer first = cut.allocate(6).get();
+		first.position(3);
+		cut.release(first);
+
+		assertEquals(6, cut.getIdleBytes(), "Released buffer should be kept");
+		ByteBuffer second = cut.allocate(6).get();
+		assertSame(first, second, "Released buffer should have been reused");
+		assertEquals(0, second.position(), "Reused buffer should have been cleared");
+		assertEquals(0, cut.getIdleBytes(), "Reused buffer is no longer idle");
+	}
+
+	@Test
+	public void testEvictIdleBuffersOfOtherSize() {
+		PieceWriteCache cut = new PieceWriteCache(10);
+
+		cut.release(cut.allocate(6).get());
+		ByteBuffer buffer = cut.allocate(5).get();
+
+		assertEquals(5, buffer.capacity(), "Incorrect buffer size");
+		assertEquals(0, cut.getIdleBytes(), "Idle buffer should have been dropped to stay within the capacity");
+	}
+
+	@Test
+	public void testDisabledCache() {
+		assertFalse(new PieceWriteCache(0).allocate(1).isPresent(), "Cache without capacity should not allocate");
+	}
+
+	@Test
+	public void testNegativeCapacity() {
+		assertThrows(IllegalArgumentException.class, () -> new PieceWriteCache(-1));
+	}
+
+}
@@ -0,0 +1,129 @@
+package org.johnnei.javatorrent.disk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.johnnei.javatorrent.bittorrent.encoding.SHA1;
+import org.johnnei.javatorrent.torrent.FileInfo;
+import org.johnnei.junit.jupiter.Folder;
+import org.johnnei.junit.jupiter.TempFolderExtension;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests {@link RandomAccessFileStorage}
+ */
+@ExtendWith(TempFolderExtension.class)
+public class RandomAccessFileStorageTest {
+
+	@Test
+	public void testWriteReadAndHash(@Folder Path temporaryFolder) throws Exception {
+		FileInfo file = new FileInfo(10, 0, temporaryFolder.resolve("file").toFile(), 1);
+
+		try (RandomAccessFileStorage cut = new RandomAccessFileStorage()) {
+			ByteBuffer source = ByteBuffer.wrap(new byte[] { 1, 2, 3, 4, 5 });
+			cut.write(file, 2, source);
+			cut.flush();
+
+			assertFalse(source.hasRemaining(), "Source should have been consumed");
+			assertEquals(7, cut.getStoredSize(file), "Incorrect stored size");
+
+			ByteBuffer target = ByteBuffer.allocate(4);
+			cut.read(file, 3, target);
+			assertArrayEquals(new byte[] { 2, 3, 4, 5 }, target.array(), "Incorrect data read from file");
+
+			MessageDigest digest = SHA1.createDigest();
+			cut.hash(file, 2, 3, digest);
+			assertArrayEquals(SHA1.hash(new byte[] { 1, 2, 3 }), digest.digest(), "Incorrect hash of region");
+		}
+	}
+
+	@Test
+	public void testGatheringWrite(@Folder Path temporaryFolder) throws Exception {
+		FileInfo file = new FileInfo(10, 0, temporaryFolder.resolve("file").toFile(), 1);
+
+		try (RandomAccessFileStorage cut = new RandomAccessFileStorage()) {
+			ByteBuffer first = ByteBuffer.wrap(new byte[] { 1, 2 });
+			ByteBuffer second = ByteBuffer.wrap(new byte[] { 3, 4, 5 });
+			cut.writeGathered(file, 1, new ByteBuffer[] { first, second });
+
+			assertFalse(first.hasRemaining(), "First source should have been consumed");
+			assertFalse(second.hasRemaining(), "Second source should have been consumed");
+			assertEquals(6, cut.getStoredSize(file), "Incorrect stored size");
+
+			ByteBuffer target = ByteBuffer.allocate(5);
+			cut.read(file, 1, target);
+			assertArrayEquals(new byte[] { 1, 2, 3, 4, 5 }, target.array(), "Incorrect data read from file");
+		}
+	}
+
+	@Test
+	public void testPositionalOperationsDoNotLockFile(@Folder Path temporaryFolder) throws Exception {
+		FileInfo file = new FileInfo(10, 0, temporaryFolder.resolve("file").toFile(), 1);
+
+		try (RandomAccessFileStorage cut = new RandomAccessFileStorage()) {
+			cut.write(file, 0, ByteBuffer.wrap(new byte[] { 1, 2, 3, 4 }));
+
+			ExecutorService executor = Executors.newSingleThreadExecutor();
+			try {
+				synchronized (file.fileLock) {
+					Future<?> io = executor.submit(() -> {
+						cut.write(file, 4, ByteBuffer.wrap(new byte[] { 5 }));
+						cut.read(file, 0, ByteBuffer.allocate(5));
+						return cut.transferTo(file, 0, 5, Channels.newChannel(new ByteArrayOutputStream()));
+					});
+
+					assertEquals(5L, io.get(5, TimeUnit.SECONDS), "Positional IO should not wait for the file lock");
+				}
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+	}
+
+	@Test
+	public void testReadBeyondEndOfFile(@Folder Path temporaryFolder) throws Exception {
+		FileInfo file = new FileInfo(10, 0, temporaryFolder.resolve("file").toFile(), 1);
+
+		try (RandomAccessFileStorage cut = new RandomAccessFileStorage()) {
+			cut.write(file, 0, ByteBuffer.wrap(new byte[] { 1, 2 }));
+
+			assertThrows(EOFException.class, () -> cut.read(file, 1, ByteBuffer.allocate(4)));
+		}
+	}
+
+	@Test
+	public void testSharedPoolWithSingleHandle(@Folder Path temporaryFolder) throws Exception {
+		FileInfo fileOne = new FileInfo(10, 0, temporaryFolder.resolve("1").toFile(), 1);
+		FileInfo fileTwo = new FileInfo(10, 10, temporaryFolder.resolve("2").toFile(), 1);
+		FileHandlePool handlePool = new FileHandlePool(1);
+
+		try (RandomAccessFileStorage cut = new RandomAccessFileStorage(handlePool)) {
+			cut.write(fileOne, 0, ByteBuffer.wrap(new byte[] { 1, 2 }));
+			cut.write(fileTwo, 0, ByteBuffer.wrap(new byte[] { 3, 4 }));
+
+			ByteBuffer target = ByteBuffer.allocate(2);
+			cut.read(fileOne, 0, target);
+
+			assertArrayEquals(new byte[] { 1, 2 }, target.array(), "File should have been reopened");
+			assertEquals(1, handlePool.getOpenFileCount(), "Only a single handle should have been open");
+		}
+
+		assertEquals(0, handlePool.getOpenFileCount(), "Handles of the storage should have been closed");
+	}
+
+}
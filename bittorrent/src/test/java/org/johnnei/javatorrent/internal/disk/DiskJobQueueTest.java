@@ -0,0 +1,173 @@
+package org.johnnei.javatorrent.internal.disk;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import org.johnnei.javatorrent.disk.IDiskJob;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link DiskJobQueue}
+ */
+public class DiskJobQueueTest {
+
+	private final AtomicLong clock = new AtomicLong();
+
+	@Test
+	public void testHonorPriority() {
+		DiskJobQueue cut = new DiskJobQueue(clock::get);
+		DiskJobWrapper lowPriority = createJob(10, null);
+		DiskJobWrapper highPriority = createJob(0, null);
+
+		cut.add(lowPriority);
+		cut.add(highPriority);
+
+		assertSame(highPriority, cut.poll(), "Job with the highest priority should be first");
+		assertSame(lowPriority, cut.poll(), "Job with the lowest priority should be last");
+		assertNull(cut.poll(), "Queue should be empty");
+	}
+
+	@Test
+	public void testAging() {
+		DiskJobQueue cut = new DiskJobQueue(clock::get);
+		DiskJobWrapper waitingJob = createJob(10, null);
+		cut.add(waitingJob);
+
+		clock.addAndGet(DiskJobQueue.AGING_INTERVAL_NANOS * 11);
+		DiskJobWrapper newJob = createJob(0, null);
+		cut.add(newJob);
+
+		assertSame(waitingJob, cut.poll(), "Job which waited long enough should overtake the higher priority job");
+		assertSame(newJob, cut.poll(), "New job should be processed after the aged job");
+	}
+
+	@Test
+	public void testFairnessBetweenOwners() {
+		Object torrentOne = new Object();
+		Object torrentTwo = new Object();
+		DiskJobQueue cut = new DiskJobQueue(clock::get);
+		DiskJobWrapper jobOne = createJob(0, torrentOne);
+		DiskJobWrapper jobTwo = createJob(0, torrentOne);
+		DiskJobWrapper jobThree = createJob(0, torrentOne);
+		DiskJobWrapper otherJob = createJob(0, torrentTwo);
+
+		cut.add(jobOne);
+		cut.add(jobTwo);
+		cut.add(jobThree);
+		cut.add(otherJob);
+
+		assertSame(jobOne, cut.poll(), "First owner should be served first");
+		assertSame(otherJob, cut.poll(), "Second owner should be served before the remaining jobs of the first owner");
+		assertSame(jobTwo, cut.poll(), "Jobs of a single owner should stay in order");
+		assertSame(jobThree, cut.poll(), "Jobs of a single owner should stay in order");
+	}
+
+	@Test
+	public void testDelayedJob() {
+		DiskJobQueue cut = new DiskJobQueue(clock::get);
+		DiskJobWrapper job = createJob(0, null);
+
+		assertEquals(Long.MAX_VALUE, cut.getNanosUntilReady(), "Empty queue should never become ready");
+
+		cut.addDelayed(job, TimeUnit.MILLISECONDS.toNanos(10));
+
+		assertEquals(1, cut.size(), "Delayed job should be counted");
+		assertNull(cut.poll(), "Delayed job should not be ready");
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(10), cut.getNanosUntilReady(), "Incorrect time until the job is ready");
+
+		clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(10));
+
+		assertEquals(0, cut.getNanosUntilReady(), "Job should be ready");
+		assertSame(job, cut.poll(), "Job should have become ready");
+		assertTrue(cut.isEmpty(), "Queue should be empty");
+	}
+
+	@Test
+	public void testRetriedJobKeepsOrder() {
+		DiskJobQueue cut = new DiskJobQueue(clock::get);
+		DiskJobWrapper failedJob = createJob(0, null);
+		DiskJobWrapper nextJob = createJob(0, null);
+
+		cut.add(failedJob);
+		cut.add(nextJob);
+		assertSame(failedJob, cut.poll(), "First job should be first");
+
+		cut.addDelayed(failedJob, 1);
+		clock.incrementAndGet();
+
+		assertSame(failedJob, cut.poll(), "Retried job should be put back before the later jobs");
+		assertSame(nextJob, cut.poll(), "Later job should be processed after the retried job");
+	}
+
+	@Test
+	public void testRetriedJobHoldsBackItsStripe() {
+		Object stripe = new Object();
+		DiskJobQueue cut = new DiskJobQueue(clock::get);
+		DiskJobWrapper failedJob = createJob(5, null, stripe);
+		DiskJobWrapper queuedJob = createJob(5, null, stripe);
+		DiskJobWrapper otherStripeJob = createJob(5, null, new Object());
+		DiskJobWrapper laterJob = createJob(0, null, stripe);
+
+		cut.add(failedJob);
+		cut.add(queuedJob);
+		cut.add(otherStripeJob);
+		assertSame(failedJob, cut.poll(), "First job should be first");
+
+		cut.addDelayed(failedJob, 10);
+		cut.add(laterJob);
+
+		assertEquals(4, cut.size(), "Held jobs should be counted");
+		assertSame(otherStripeJob, cut.poll(), "Other stripes should not be held back");
+		assertNull(cut.poll(), "Jobs of the stripe should wait for the retried job");
+
+		clock.addAndGet(10);
+
+		assertSame(failedJob, cut.poll(), "Retried job should be processed before the other jobs of its stripe");
+		assertSame(laterJob, cut.poll(), "Released jobs should be served by their priority");
+		assertSame(queuedJob, cut.poll(), "Released jobs should be served by their priority");
+		assertTrue(cut.isEmpty(), "Queue should be empty");
+	}
+
+	@Test
+	public void testPollMatching() {
+		Object owner = new Object();
+		DiskJobQueue cut = new DiskJobQueue(clock::get);
+		DiskJobWrapper job = createJob(0, owner);
+		DiskJobWrapper otherOwnerJob = createJob(0, null);
+		DiskJobWrapper otherPriorityJob = createJob(5, owner);
+		DiskJobWrapper matchingJob = createJob(0, owner);
+
+		cut.add(job);
+		cut.add(otherOwnerJob);
+		cut.add(otherPriorityJob);
+		cut.add(matchingJob);
+
+		assertSame(job, cut.poll(), "First job should be first");
+		assertNull(cut.pollMatching(job, candidate -> candidate != matchingJob), "Only jobs of the same priority and owner should match");
+		assertSame(matchingJob, cut.pollMatching(job, candidate -> true), "Matching job should have been taken out of turn");
+		assertEquals(2, cut.size(), "Matched job should have been removed");
+		assertSame(otherOwnerJob, cut.poll(), "Remaining jobs should be unaffected");
+		assertSame(otherPriorityJob, cut.poll(), "Remaining jobs should be unaffected");
+	}
+
+	private static DiskJobWrapper createJob(int priority, Object owner) {
+		return createJob(priority, owner, null);
+	}
+
+	private static DiskJobWrapper createJob(int priority, Object owner, Object stripe) {
+		IDiskJob job = mock(IDiskJob.class);
+		when(job.getPriority()).thenReturn(priority);
+		when(job.getFairnessKey()).thenReturn(owner);
+		when(job.getStripeKey()).thenReturn(stripe);
+		return new DiskJobWrapper(job);
+	}
+
+}
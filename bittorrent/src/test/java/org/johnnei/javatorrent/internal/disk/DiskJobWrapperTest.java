@@ -1,11 +1,17 @@
 package org.johnnei.javatorrent.internal.disk;
 
+import java.io.IOException;
+
 import org.junit.jupiter.api.Test;
 
+import org.johnnei.javatorrent.disk.DiskBackpressure;
+import org.johnnei.javatorrent.disk.DiskJobStatistics;
 import org.johnnei.javatorrent.disk.IDiskJob;
 import org.johnnei.javatorrent.test.TestUtils;
 
 import static org.johnnei.javatorrent.test.TestUtils.assertEqualsMethod;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 
 /**
@@ -25,4 +31,31 @@ public class DiskJobWrapperTest {
 		assertEqualsMethod(wrapperOne);
 		TestUtils.assertEqualityMethods(wrapperOne, wrapperTwo, wrapperThree);
 	}
+
+	@Test
+	public void testRetryDelayBackoff() throws Exception {
+		IDiskJob diskJob = mock(IDiskJob.class);
+		doThrow(new IOException("Test failure")).when(diskJob).process();
+
+		DiskJobStatistics statistics = new DiskJobStatistics("Test");
+		statistics.onQueued();
+		DiskJobWrapper cut = new DiskJobWrapper(diskJob, statistics, new DiskBackpressure());
+
+		assertEquals(0, cut.getRetryDelay(), "Job which hasn't failed should not be delayed");
+
+		cut.process();
+		assertEquals(DiskJobWrapper.INITIAL_RETRY_DELAY_NANOS, cut.getRetryDelay(), "First retry should use the initial delay");
+
+		cut.process();
+		assertEquals(DiskJobWrapper.INITIAL_RETRY_DELAY_NANOS * 2, cut.getRetryDelay(), "Delay should double on every failure");
+
+		for (int i = 0; i < 100; i++) {
+			cut.process();
+		}
+		assertEquals(DiskJobWrapper.MAX_RETRY_DELAY_NANOS, cut.getRetryDelay(), "Delay should be capped");
+
+		assertEquals(102, statistics.getFailedCount(), "Failures should be recorded");
+		assertEquals(0, statistics.getCompletedCount(), "Job should not have completed");
+		assertEquals(1, statistics.getQueueDepth(), "Failed job should remain queued");
+	}
 }
@@ -0,0 +1,217 @@
+package org.johnnei.javatorrent.internal.disk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.powermock.reflect.Whitebox;
+
+import org.johnnei.javatorrent.disk.DiskJobWriteBlock;
+import org.johnnei.javatorrent.disk.IDiskJob;
+import org.johnnei.javatorrent.torrent.files.Piece;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link DiskWorker}
+ */
+public class DiskWorkerTest {
+
+	@Test
+	public void testAwaitTask() throws Exception {
+		/*
+		 * There's nothing in the manager so this call must return without invoking anything so can't cause exceptions.
+		 */
+		DiskWorker cut = new DiskWorker();
+
+		IDiskJob diskJobMock = mock(IDiskJob.class);
+		diskJobMock.process();
+
+		ReentrantLock cutLock = Whitebox.getInternalState(cut, "lock");
+		Condition cutCondition = Whitebox.getInternalState(cut, "newTaskEvent");
+
+		Thread thread = new Thread(cut);
+		thread.start();
+
+		await().atMost(1, TimeUnit.SECONDS).until(() -> {
+			cutLock.lock();
+			try {
+				cutLock.hasWaiters(cutCondition);
+			} finally {
+				cutLock.unlock();
+			}
+		});
+
+		cut.addTask(new DiskJobWrapper(diskJobMock));
+		thread.join(5000);
+	}
+
+	@Test
+	public void testAwaitTaskInterrupt() throws Exception {
+		DiskWorker cut = new DiskWorker();
+
+		ReentrantLock cutLock = Whitebox.getInternalState(cut, "lock");
+		Condition cutCondition = Whitebox.getInternalState(cut, "newTaskEvent");
+
+		Thread thread = new Thread(cut);
+		thread.start();
+
+		await().atMost(1, TimeUnit.SECONDS).until(() -> {
+			cutLock.lock();
+			try {
+				cutLock.hasWaiters(cutCondition);
+			} finally {
+				cutLock.unlock();
+			}
+		});
+
+		thread.interrupt();
+
+		await("Worker to stop on interrupt.").until(() -> !thread.isAlive());
+	}
+
+	@Test
+	public void testOnSucces() throws Exception {
+		DiskWorker cut = new DiskWorker();
+
+		IDiskJob diskJobMock = mock(IDiskJob.class);
+
+		when(diskJobMock.getPriority()).thenReturn(5);
+
+		cut.addTask(new DiskJobWrapper(diskJobMock));
+		cut.run();
+
+		verify(diskJobMock).process();
+	}
+
+	@Test
+	public void testFailOnFirstProcess() throws Exception {
+		DiskWorker cut = new DiskWorker();
+
+		IDiskJob diskJobMock = mock(IDiskJob.class);
+
+		when(diskJobMock.getPriority()).thenReturn(5);
+		doThrow(new IOException("Stubbed IO Exception")).doNothing().when(diskJobMock).process();
+
+		cut.addTask(new DiskJobWrapper(diskJobMock));
+		cut.run();
+
+		verify(diskJobMock, times(2)).process();
+	}
+
+	@Test
+	public void testHonorPriority() throws IOException {
+		DiskWorker cut = new DiskWorker();
+
+		IDiskJob diskJobOneMock = mock(IDiskJob.class, "JobOne");
+		IDiskJob diskJobTwoMock = mock(IDiskJob.class, "JobTwo");
+		when(diskJobOneMock.getPriority()).thenReturn(15);
+		when(diskJobTwoMock.getPriority()).thenReturn(5);
+
+		// Test twice with the order swapped to ensure that the ordering isn't accidental
+		cut.addTask(new DiskJobWrapper(diskJobOneMock));
+		cut.addTask(new DiskJobWrapper(diskJobTwoMock));
+		cut.run();
+
+		cut.addTask(new DiskJobWrapper(diskJobTwoMock));
+		cut.addTask(new DiskJobWrapper(diskJobOneMock));
+		cut.run();
+
+		InOrder ordered = inOrder(diskJobOneMock, diskJobTwoMock);
+		ordered.verify(diskJobTwoMock).process();
+		ordered.verify(diskJobTwoMock).getBufferedBytes();
+		ordered.verify(diskJobOneMock).process();
+		ordered.verify(diskJobOneMock).getBufferedBytes();
+		ordered.verify(diskJobTwoMock).process();
+		ordered.verify(diskJobTwoMock).getBufferedBytes();
+		ordered.verify(diskJobOneMock).process();
+		ordered.verify(diskJobOneMock).getBufferedBytes();
+		ordered.verifyNoMoreInteractions();
+	}
+
+	@Test
+	public void testKeepSubmissionOrderOnEqualPriority() throws IOException {
+		DiskWorker cut = new DiskWorker();
+
+		IDiskJob diskJobOneMock = mock(IDiskJob.class, "JobOne");
+		IDiskJob diskJobTwoMock = mock(IDiskJob.class, "JobTwo");
+		IDiskJob diskJobThreeMock = mock(IDiskJob.class, "JobThree");
+
+		cut.addTask(new DiskJobWrapper(diskJobOneMock));
+		cut.addTask(new DiskJobWrapper(diskJobTwoMock));
+		cut.addTask(new DiskJobWrapper(diskJobThreeMock));
+		assertEquals(3, cut.getQueueSize(), "Jobs should be queued");
+		cut.run();
+
+		InOrder ordered = inOrder(diskJobOneMock, diskJobTwoMock, diskJobThreeMock);
+		ordered.verify(diskJobOneMock).process();
+		ordered.verify(diskJobTwoMock).process();
+		ordered.verify(diskJobThreeMock).process();
+		assertEquals(0, cut.getQueueSize(), "All jobs should have been processed");
+	}
+
+	@Test
+	public void testCoalesceAdjacentWrites() throws IOException {
+		DiskWorker cut = new DiskWorker();
+
+		Piece pieceMock = mock(Piece.class, "Piece");
+		Piece otherPieceMock = mock(Piece.class, "OtherPiece");
+		Consumer<DiskJobWriteBlock> callbackMock = mock(Consumer.class);
+
+		ByteBuffer blockZero = ByteBuffer.allocate(5);
+		ByteBuffer blockOne = ByteBuffer.allocate(5);
+		DiskJobWriteBlock writeZero = new DiskJobWriteBlock(pieceMock, 0, blockZero, callbackMock);
+		DiskJobWriteBlock writeOther = new DiskJobWriteBlock(otherPieceMock, 1, ByteBuffer.allocate(5), callbackMock);
+		DiskJobWriteBlock writeOne = new DiskJobWriteBlock(pieceMock, 1, blockOne, callbackMock);
+
+		cut.addTask(new DiskJobWrapper(writeZero));
+		cut.addTask(new DiskJobWrapper(writeOther));
+		cut.addTask(new DiskJobWrapper(writeOne));
+		cut.run();
+
+		verify(pieceMock).storeBlocks(0, new ByteBuffer[] { blockZero, blockOne });
+		verify(otherPieceMock).storeBlock(eq(1), any(ByteBuffer.class));
+		verify(callbackMock).accept(writeZero);
+		verify(callbackMock).accept(writeOne);
+		verify(callbackMock).accept(writeOther);
+		assertEquals(0, cut.getQueueSize(), "All jobs should have been processed");
+	}
+
+	@Test
+	public void testCoalescedWriteFailureFallsBackToSingleWrites() throws IOException {
+		DiskWorker cut = new DiskWorker();
+
+		Piece pieceMock = mock(Piece.class);
+		Consumer<DiskJobWriteBlock> callbackMock = mock(Consumer.class);
+		doThrow(new IOException("Stubbed IO Exception")).when(pieceMock).storeBlocks(anyInt(), any());
+
+		ByteBuffer blockZero = ByteBuffer.allocate(5);
+		ByteBuffer blockOne = ByteBuffer.allocate(5);
+		DiskJobWriteBlock writeZero = new DiskJobWriteBlock(pieceMock, 0, blockZero, callbackMock);
+		DiskJobWriteBlock writeOne = new DiskJobWriteBlock(pieceMock, 1, blockOne, callbackMock);
+
+		cut.addTask(new DiskJobWrapper(writeZero));
+		cut.addTask(new DiskJobWrapper(writeOne));
+		cut.run();
+
+		verify(pieceMock).storeBlock(0, blockZero);
+		verify(pieceMock).storeBlock(1, blockOne);
+		verify(callbackMock).accept(writeZero);
+		verify(callbackMock).accept(writeOne);
+	}
+}
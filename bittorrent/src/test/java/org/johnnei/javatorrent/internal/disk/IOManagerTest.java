@@ -1,21 +1,22 @@
 package org.johnnei.javatorrent.internal.disk;
 
-import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.junit.jupiter.api.Test;
-import org.mockito.InOrder;
-import org.powermock.reflect.Whitebox;
 
+import org.johnnei.javatorrent.disk.DiskBackpressure;
 import org.johnnei.javatorrent.disk.IDiskJob;
 
 import static com.jayway.awaitility.Awaitility.await;
-import static org.mockito.Mockito.doThrow;
-import static org.mockito.Mockito.inOrder;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -25,110 +26,110 @@ import static org.mockito.Mockito.when;
 public class IOManagerTest {
 
 	@Test
-	public void testAwaitTask() throws Exception {
-		/*
-		 * There's nothing in the manager so this call must return without invoking anything so can't cause exceptions.
-		 */
-		IOManager cut = new IOManager();
-
-		IDiskJob diskJobMock = mock(IDiskJob.class);
-		diskJobMock.process();
-
-		ReentrantLock cutLock = Whitebox.getInternalState(cut, "lock");
-		Condition cutCondition = Whitebox.getInternalState(cut, "newTaskEvent");
-
-		Thread thread = new Thread(cut);
-		thread.start();
-
-		await().atMost(1, TimeUnit.SECONDS).until(() -> {
-			cutLock.lock();
-			try {
-				cutLock.hasWaiters(cutCondition);
-			} finally {
-				cutLock.unlock();
-			}
-		});
-
-		cut.addTask(diskJobMock);
-		thread.join(5000);
+	public void testRequireWorker() {
+		assertThrows(IllegalArgumentException.class, () -> new IOManager(0));
 	}
 
 	@Test
-	public void testAwaitTaskInterrupt() throws Exception {
+	public void testProcessTask() throws Exception {
 		IOManager cut = new IOManager();
+		try {
+			IDiskJob diskJobMock = mock(IDiskJob.class);
 
-		ReentrantLock cutLock = Whitebox.getInternalState(cut, "lock");
-		Condition cutCondition = Whitebox.getInternalState(cut, "newTaskEvent");
-
-		Thread thread = new Thread(cut);
-		thread.start();
-
-		await().atMost(1, TimeUnit.SECONDS).until(() -> {
-			cutLock.lock();
-			try {
-				cutLock.hasWaiters(cutCondition);
-			} finally {
-				cutLock.unlock();
-			}
-		});
-
-		thread.interrupt();
+			cut.addTask(diskJobMock);
 
-		await("Worker to stop on interrupt.").until(() -> !thread.isAlive());
+			verify(diskJobMock, timeout(5000)).process();
+		} finally {
+			cut.shutdown();
+		}
 	}
 
 	@Test
-	public void testOnSucces() throws Exception {
+	public void testAwaitIdle() throws Exception {
 		IOManager cut = new IOManager();
+		CountDownLatch releaseBlockingJob = new CountDownLatch(1);
+		try {
+			IDiskJob blockingJobMock = mock(IDiskJob.class);
+			doAnswer(invocation -> {
+				releaseBlockingJob.await(5, TimeUnit.SECONDS);
+				return null;
+			}).when(blockingJobMock).process();
 
-		IDiskJob diskJobMock = mock(IDiskJob.class);
+			cut.addTask(blockingJobMock);
 
-		when(diskJobMock.getPriority()).thenReturn(5);
+			assertFalse(cut.awaitIdle(50, TimeUnit.MILLISECONDS), "Job is still being processed");
 
-		cut.addTask(diskJobMock);
-		cut.run();
+			releaseBlockingJob.countDown();
 
-		verify(diskJobMock).process();
+			assertTrue(cut.awaitIdle(5, TimeUnit.SECONDS), "Job should have been processed");
+			verify(blockingJobMock).process();
+		} finally {
+			cut.shutdown();
+		}
 	}
 
 	@Test
-	public void testFailOnFirstProcess() throws Exception {
-		IOManager cut = new IOManager();
-
-		IDiskJob diskJobMock = mock(IDiskJob.class);
-
-		when(diskJobMock.getPriority()).thenReturn(5);
-		doThrow(new IOException("Stubbed IO Exception")).doNothing().when(diskJobMock).process();
-
-		cut.addTask(diskJobMock);
-		cut.run();
-
-		verify(diskJobMock, times(2)).process();
+	public void testStripesAreProcessedInParallel() throws Exception {
+		IOManager cut = new IOManager(2);
+		CountDownLatch blockingJobStarted = new CountDownLatch(1);
+		CountDownLatch releaseBlockingJob = new CountDownLatch(1);
+		try {
+			IDiskJob blockingJobMock = mock(IDiskJob.class, "BlockingJob");
+			when(blockingJobMock.getStripeKey()).thenReturn(0);
+			doAnswer(invocation -> {
+				blockingJobStarted.countDown();
+				releaseBlockingJob.await(5, TimeUnit.SECONDS);
+				return null;
+			}).when(blockingJobMock).process();
+
+			IDiskJob sameStripeJobMock = mock(IDiskJob.class, "SameStripeJob");
+			when(sameStripeJobMock.getStripeKey()).thenReturn(0);
+
+			IDiskJob otherStripeJobMock = mock(IDiskJob.class, "OtherStripeJob");
+			when(otherStripeJobMock.getStripeKey()).thenReturn(1);
+
+			cut.addTask(blockingJobMock);
+			blockingJobStarted.await(5, TimeUnit.SECONDS);
+			cut.addTask(sameStripeJobMock);
+			cut.addTask(otherStripeJobMock);
+
+			verify(otherStripeJobMock, timeout(5000)).process();
+			verify(sameStripeJobMock, never()).process();
+
+			releaseBlockingJob.countDown();
+			verify(sameStripeJobMock, timeout(5000)).process();
+			await().atMost(5, TimeUnit.SECONDS).until(() -> cut.getQueueSize() == 0);
+		} finally {
+			releaseBlockingJob.countDown();
+			cut.shutdown();
+		}
 	}
 
 	@Test
-	public void testHonorPriority() throws IOException {
-		IOManager cut = new IOManager();
-
-		IDiskJob diskJobOneMock = mock(IDiskJob.class, "JobOne");
-		IDiskJob diskJobTwoMock = mock(IDiskJob.class, "JobTwo");
-		when(diskJobOneMock.getPriority()).thenReturn(15);
-		when(diskJobTwoMock.getPriority()).thenReturn(5);
-
-		// Test twice with the order swapped to ensure that the ordering isn't accidental
-		cut.addTask(diskJobOneMock);
-		cut.addTask(diskJobTwoMock);
-		cut.run();
-
-		cut.addTask(diskJobTwoMock);
-		cut.addTask(diskJobOneMock);
-		cut.run();
-
-		InOrder ordered = inOrder(diskJobOneMock, diskJobTwoMock);
-		ordered.verify(diskJobTwoMock).process();
-		ordered.verify(diskJobOneMock).process();
-		ordered.verify(diskJobTwoMock).process();
-		ordered.verify(diskJobOneMock).process();
-		ordered.verifyNoMoreInteractions();
+	public void testBufferedBytesAreTracked() throws Exception {
+		DiskBackpressure backpressure = new DiskBackpressure(0, 10);
+		IOManager cut = new IOManager(1, backpressure);
+		CountDownLatch releaseJob = new CountDownLatch(1);
+		try {
+			IDiskJob diskJobMock = mock(IDiskJob.class);
+			when(diskJobMock.getBufferedBytes()).thenReturn(16);
+			doAnswer(invocation -> {
+				releaseJob.await(5, TimeUnit.SECONDS);
+				return null;
+			}).when(diskJobMock).process();
+
+			cut.addTask(diskJobMock);
+
+			assertEquals(16, backpressure.getPendingBytes(), "Queued bytes should be pending");
+			assertTrue(backpressure.isThrottled(), "Exceeding the high watermark should throttle");
+
+			releaseJob.countDown();
+			await().atMost(5, TimeUnit.SECONDS).until(() -> backpressure.getPendingBytes() == 0);
+			assertFalse(backpressure.isThrottled(), "Processed bytes should have been released");
+		} finally {
+			releaseJob.countDown();
+			cut.shutdown();
+		}
 	}
+
 }
@@ -0,0 +1,104 @@
+package org.johnnei.javatorrent.internal.disk;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.johnnei.javatorrent.bittorrent.encoding.SHA1;
+import org.johnnei.junit.jupiter.Folder;
+import org.johnnei.junit.jupiter.TempFolderExtension;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests {@link MappedFile}
+ */
+@ExtendWith(TempFolderExtension.class)
+public class MappedFileTest {
+
+	@Test
+	public void testWriteAndReadAcrossWindows(@Folder Path temporaryFolder) throws Exception {
+		try (RandomAccessFile file = new RandomAccessFile(temporaryFolder.resolve("mapped").toFile(), "rw")) {
+			MappedFile cut = new MappedFile(file.getChannel(), 10, 4);
+
+			ByteBuffer source = ByteBuffer.wrap(new byte[] { 1, 2, 3, 4, 5, 6, 7 });
+			cut.write(2, source);
+			cut.flush();
+
+			assertFalse(source.hasRemaining(), "Source should have been consumed");
+			assertEquals(10, file.length(), "File should have been grown to the mapped size");
+
+			byte[] fileContent = new byte[10];
+			file.seek(0);
+			file.readFully(fileContent);
+			assertArrayEquals(new byte[] { 0, 0, 1, 2, 3, 4, 5, 6, 7, 0 }, fileContent, "Incorrect data written to file");
+
+			ByteBuffer target = ByteBuffer.allocate(6);
+			cut.read(3, target);
+			assertArrayEquals(new byte[] { 2, 3, 4, 5, 6, 7 }, target.array(), "Incorrect data read from file");
+		}
+	}
+
+	@Test
+	public void testDigest(@Folder Path temporaryFolder) throws Exception {
+		try (RandomAccessFile file = new RandomAccessFile(temporaryFolder.resolve("mapped").toFile(), "rw")) {
+			file.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 });
+			MappedFile cut = new MappedFile(file.getChannel(), 9, 4);
+
+			MessageDigest digest = SHA1.createDigest();
+			cut.digest(1, 7, digest);
+
+			assertArrayEquals(SHA1.hash(new byte[] { 2, 3, 4, 5, 6, 7, 8 }), digest.digest(), "Incorrect hash of mapped region");
+		}
+	}
+
+	@Test
+	public void testGrowsWithMappedWindows(@Folder Path temporaryFolder) throws Exception {
+		try (RandomAccessFile file = new RandomAccessFile(temporaryFolder.resolve("mapped").toFile(), "rw")) {
+			MappedFile cut = new MappedFile(file.getChannel(), 10, 4);
+
+			cut.write(1, ByteBuffer.wrap(new byte[] { 1 }));
+
+			assertEquals(4, file.length(), "File should only have been grown to the end of the mapped window");
+			cut.close();
+		}
+	}
+
+	@Test
+	public void testClose(@Folder Path temporaryFolder) throws Exception {
+		try (RandomAccessFile file = new RandomAccessFile(temporaryFolder.resolve("mapped").toFile(), "rw")) {
+			MappedFile cut = new MappedFile(file.getChannel(), 4, 4);
+
+			cut.write(0, ByteBuffer.wrap(new byte[] { 1, 2, 3, 4 }));
+			cut.close();
+			cut.close();
+
+			byte[] fileContent = new byte[4];
+			file.readFully(fileContent);
+			assertArrayEquals(new byte[] { 1, 2, 3, 4 }, fileContent, "Data should have been written before unmapping");
+			assertThrows(IOException.class, () -> cut.read(0, ByteBuffer.allocate(1)));
+			assertThrows(IOException.class, () -> cut.write(0, ByteBuffer.allocate(1)));
+			assertThrows(IOException.class, () -> cut.digest(0, 1, SHA1.createDigest()));
+		}
+	}
+
+	@Test
+	public void testOutsideOfFile(@Folder Path temporaryFolder) throws Exception {
+		try (RandomAccessFile file = new RandomAccessFile(temporaryFolder.resolve("mapped").toFile(), "rw")) {
+			MappedFile cut = new MappedFile(file.getChannel(), 5, 4);
+
+			assertEquals(5, cut.getSize(), "Incorrect size");
+			assertThrows(IOException.class, () -> cut.read(3, ByteBuffer.allocate(3)));
+			assertThrows(IOException.class, () -> cut.write(-1, ByteBuffer.allocate(1)));
+		}
+	}
+
+}
@@ -0,0 +1,110 @@
+package org.johnnei.javatorrent.internal.network;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import org.johnnei.javatorrent.bittorrent.protocol.messages.IMessage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link OutboundQueue}
+ */
+public class OutboundQueueTest {
+
+	@Test
+	public void testNegativeCapacity() {
+		assertThrows(IllegalArgumentException.class, () -> new OutboundQueue(-1));
+	}
+
+	@Test
+	public void testOfferAndPoll() {
+		IMessage messageOne = mock(IMessage.class);
+		when(messageOne.getLength()).thenReturn(5);
+		IMessage messageTwo = mock(IMessage.class);
+		when(messageTwo.getLength()).thenReturn(1);
+
+		OutboundQueue cut = new OutboundQueue(100);
+
+		assertTrue(cut.isEmpty(), "Queue should be empty initially");
+		assertTrue(cut.offer(messageOne), "Queue was empty before the first message");
+		assertFalse(cut.offer(messageTwo), "Queue wasn't empty before the second message");
+
+		assertEquals(2, cut.size(), "Incorrect size");
+		assertEquals(14, cut.getQueuedBytes(), "Queued bytes should include the length prefixes");
+
+		assertSame(messageOne, cut.poll(), "Messages should be polled in order");
+		assertEquals(5, cut.getQueuedBytes(), "Polled message should no longer be accounted");
+		assertSame(messageTwo, cut.poll(), "Messages should be polled in order");
+		assertNull(cut.poll(), "Empty queue should return null");
+
+		assertTrue(cut.isEmpty(), "All messages have been polled");
+		assertEquals(0, cut.getQueuedBytes(), "All messages have been polled");
+		assertTrue(cut.offer(messageOne), "Queue was empty again");
+	}
+
+	@Test
+	public void testSaturated() {
+		IMessage message = mock(IMessage.class);
+		when(message.getLength()).thenReturn(6);
+
+		OutboundQueue cut = new OutboundQueue(20);
+
+		cut.offer(message);
+		assertFalse(cut.isSaturated(), "10 out of 20 bytes are queued");
+		cut.offer(message);
+		assertTrue(cut.isSaturated(), "20 out of 20 bytes are queued");
+		cut.offer(message);
+		assertEquals(3, cut.size(), "Messages must not be rejected when saturated");
+
+		cut.poll();
+		cut.poll();
+		assertFalse(cut.isSaturated(), "Queue should be no longer saturated after polling");
+	}
+
+	@Test
+	public void testConcurrentProducers() throws Exception {
+		IMessage message = mock(IMessage.class);
+		when(message.getLength()).thenReturn(1);
+
+		OutboundQueue cut = new OutboundQueue(0);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		CountDownLatch latch = new CountDownLatch(4);
+		try {
+			for (int i = 0; i < 4; i++) {
+				executor.submit(() -> {
+					for (int j = 0; j < 1000; j++) {
+						cut.offer(message);
+					}
+					latch.countDown();
+				});
+			}
+
+			assertTrue(latch.await(5, TimeUnit.SECONDS), "Producers did not finish in time");
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(4000, cut.size(), "All messages should have been queued");
+		assertEquals(20000, cut.getQueuedBytes(), "All messages should have been accounted");
+
+		int polled = 0;
+		while (cut.poll() != null) {
+			polled++;
+		}
+		assertEquals(4000, polled, "All messages should have been polled");
+		assertEquals(0, cut.getQueuedBytes(), "All bytes should have been released");
+	}
+
+}
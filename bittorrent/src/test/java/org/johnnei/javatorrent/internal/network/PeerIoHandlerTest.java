@@ -3,25 +3,31 @@ package org.johnnei.javatorrent.internal.network;
 import java.io.IOException;
 import java.nio.channels.Pipe;
 import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.powermock.reflect.Whitebox;
 
 import org.johnnei.javatorrent.bittorrent.protocol.BitTorrentProtocolViolationException;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.IMessage;
+import org.johnnei.javatorrent.disk.DiskBackpressure;
 import org.johnnei.javatorrent.network.BitTorrentSocket;
 import org.johnnei.javatorrent.network.socket.ISocket;
 import org.johnnei.javatorrent.torrent.peer.Peer;
+import org.johnnei.javatorrent.torrent.peer.PeerDirection;
 
-import static org.mockito.ArgumentMatchers.eq;
+import static com.jayway.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -32,30 +38,14 @@ public class PeerIoHandlerTest {
 
 	private PeerIoHandler cut;
 
-	private ScheduledExecutorService scheduler;
-
-	private Runnable pollTask;
-
-	private ScheduledFuture scheduledFuture;
-
 	@BeforeEach
 	public void setUp() {
-		scheduler = mock(ScheduledExecutorService.class);
-		scheduledFuture = mock(ScheduledFuture.class);
-
-		ArgumentCaptor<Runnable> runnableCaptor = ArgumentCaptor.forClass(Runnable.class);
-
-		when(scheduler.scheduleWithFixedDelay(runnableCaptor.capture(), eq(50L), eq(50L), eq(TimeUnit.MILLISECONDS)))
-			.thenReturn(scheduledFuture);
-
-		cut = new PeerIoHandler(scheduler);
-		pollTask = runnableCaptor.getValue();
+		cut = new PeerIoHandler();
 	}
 
 	@AfterEach
 	public void tearDown() {
 		cut.shutdown();
-		verify(scheduledFuture).cancel(false);
 	}
 
 	@Test
@@ -108,6 +98,36 @@ public class PeerIoHandlerTest {
 		verify(message).process(peer);
 	}
 
+	@Test
+	@DisplayName("testHandlePeer() - Read - Disk throttled")
+	public void testHandlePeerReadDiskThrottled() throws Exception {
+		DiskBackpressure backpressure = new DiskBackpressure(0, 10);
+		backpressure.onQueued(11);
+		PeerIoHandler throttledCut = new PeerIoHandler(1, backpressure);
+
+		try {
+			Peer downloadPeer = mock(Peer.class, "Download Peer");
+			Peer uploadPeer = mock(Peer.class, "Upload Peer");
+			SelectionKey key = mock(SelectionKey.class);
+			BitTorrentSocket downloadSocket = mock(BitTorrentSocket.class);
+			BitTorrentSocket uploadSocket = mock(BitTorrentSocket.class);
+
+			when(downloadPeer.getBitTorrentSocket()).thenReturn(downloadSocket);
+			when(downloadPeer.getWorkQueueSize(PeerDirection.Download)).thenReturn(5);
+			when(uploadPeer.getBitTorrentSocket()).thenReturn(uploadSocket);
+			when(uploadPeer.getWorkQueueSize(PeerDirection.Upload)).thenReturn(5);
+			when(key.readyOps()).thenReturn(SelectionKey.OP_READ);
+
+			assertEquals(SelectionKey.OP_READ, throttledCut.handlePeer(key, downloadPeer), "Read interest should be suspended while the disk is throttled");
+			assertEquals(0, throttledCut.handlePeer(key, uploadPeer), "Peers which mostly download from us should not be suspended");
+
+			verify(downloadSocket, never()).readMessage();
+			verify(uploadSocket).canReadMessage();
+		} finally {
+			throttledCut.shutdown();
+		}
+	}
+
 	@Test
 	@DisplayName("testHandlePeer() - Read - Protocol Error")
 	public void testHandlePeerReadViolation() throws Exception {
@@ -134,11 +154,58 @@ public class PeerIoHandlerTest {
 
 		when(peer.getBitTorrentSocket()).thenReturn(socket);
 		when(key.readyOps()).thenReturn(SelectionKey.OP_WRITE);
-		when(socket.hasOutboundMessages()).thenReturn(true, false);
+		when(key.interestOps()).thenReturn(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+		when(socket.hasOutboundMessages()).thenReturn(true);
+		when(socket.releaseWriteInterest()).thenReturn(true);
+
+		cut.handlePeer(key, peer);
+
+		verify(socket).sendMessages();
+		verify(key).interestOps(SelectionKey.OP_READ);
+		verify(peer).queueNextPieceForSending();
+	}
+
+	@Test
+	@DisplayName("testHandlePeer() - Write - Partial write")
+	public void testHandlePeerWritePartial() throws Exception {
+		Peer peer = mock(Peer.class);
+		SelectionKey key = mock(SelectionKey.class);
+		BitTorrentSocket socket = mock(BitTorrentSocket.class);
+
+		when(peer.getBitTorrentSocket()).thenReturn(socket);
+		when(key.readyOps()).thenReturn(SelectionKey.OP_WRITE);
+		when(socket.hasOutboundMessages()).thenReturn(true);
 
 		cut.handlePeer(key, peer);
 
 		verify(socket).sendMessages();
+		verify(key, never()).interestOps(anyInt());
+		verify(peer, never()).queueNextPieceForSending();
+	}
+
+	@Test
+	@DisplayName("testRegisterPeer() - Messages queued before registration")
+	public void testRegisterPeerWithQueuedMessages() throws Exception {
+		Peer peer = mock(Peer.class);
+		BitTorrentSocket bitTorrentSocket = mock(BitTorrentSocket.class);
+		ISocket<Pipe.SourceChannel, Pipe.SinkChannel> socket = mock(ISocket.class);
+		Pipe pipe = Pipe.open();
+		pipe.source().configureBlocking(false);
+		pipe.sink().configureBlocking(false);
+		when(peer.getBitTorrentSocket()).thenReturn(bitTorrentSocket);
+		when(socket.getReadableChannel()).thenReturn(pipe.source());
+		when(socket.getWritableChannel()).thenReturn(pipe.sink());
+
+		AtomicBoolean sentMessages = new AtomicBoolean();
+		doAnswer(invocation -> {
+			sentMessages.set(true);
+			return null;
+		}).when(bitTorrentSocket).sendMessages();
+		when(bitTorrentSocket.hasOutboundMessages()).thenReturn(true);
+
+		cut.registerPeer(peer, socket);
+
+		await().untilTrue(sentMessages);
 	}
 
 	@Test
@@ -159,4 +226,92 @@ public class PeerIoHandlerTest {
 		verify(socket).close();
 	}
 
+	@Test
+	@DisplayName("testHandlePeer() - Write - Nothing queued")
+	public void testHandlePeerWriteNothingQueued() throws Exception {
+		Peer peer = mock(Peer.class);
+		SelectionKey key = mock(SelectionKey.class);
+		BitTorrentSocket socket = mock(BitTorrentSocket.class);
+
+		when(peer.getBitTorrentSocket()).thenReturn(socket);
+		when(key.readyOps()).thenReturn(SelectionKey.OP_WRITE);
+		when(key.interestOps()).thenReturn(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+		when(socket.hasOutboundMessages()).thenReturn(false);
+		when(socket.releaseWriteInterest()).thenReturn(true);
+
+		cut.handlePeer(key, peer);
+
+		verify(peer).queueNextPieceForSending();
+		verify(key).interestOps(SelectionKey.OP_READ);
+		verify(socket, never()).sendMessages();
+	}
+
+	@Test
+	@DisplayName("testRegisterPeer() - Write request enables write interest")
+	public void testWriteRequestEnablesWriteInterest() throws Exception {
+		Peer peer = mock(Peer.class);
+		BitTorrentSocket bitTorrentSocket = mock(BitTorrentSocket.class);
+		ISocket<Pipe.SourceChannel, Pipe.SinkChannel> socket = mock(ISocket.class);
+		Pipe pipe = Pipe.open();
+		pipe.source().configureBlocking(false);
+		pipe.sink().configureBlocking(false);
+		when(peer.getBitTorrentSocket()).thenReturn(bitTorrentSocket);
+		when(socket.getReadableChannel()).thenReturn(pipe.source());
+		when(socket.getWritableChannel()).thenReturn(pipe.sink());
+
+		ArgumentCaptor<Runnable> listenerCaptor = ArgumentCaptor.forClass(Runnable.class);
+
+		cut.registerPeer(peer, socket);
+		verify(bitTorrentSocket).setWriteRequestListener(listenerCaptor.capture());
+
+		// The sink is writable but nothing is queued, the write interest should not be registered.
+		assertEquals(0, pipe.sink().keyFor(getSelector()).interestOps(), "Write interest should not be registered without outbound data");
+		verify(bitTorrentSocket, never()).sendMessages();
+
+		AtomicBoolean sentMessages = new AtomicBoolean();
+		doAnswer(invocation -> {
+			sentMessages.set(true);
+			return null;
+		}).when(bitTorrentSocket).sendMessages();
+		when(bitTorrentSocket.hasOutboundMessages()).thenReturn(true);
+		listenerCaptor.getValue().run();
+
+		await().untilTrue(sentMessages);
+	}
+
+	@Test
+	@DisplayName("testRegisterPeer() - Spread over reactors")
+	public void testRegisterPeerLeastLoadedReactor() throws Exception {
+		cut.shutdown();
+		cut = new PeerIoHandler(2);
+
+		Pipe pipeOne = Pipe.open();
+		Pipe pipeTwo = Pipe.open();
+		registerPipe(pipeOne);
+		registerPipe(pipeTwo);
+
+		PeerIoReactor[] reactors = Whitebox.getInternalState(cut, "reactors");
+		assertEquals(2, reactors[0].getLoad(), "First peer should have been assigned to the first reactor");
+		assertEquals(2, reactors[1].getLoad(), "Second peer should have been assigned to the least loaded reactor");
+	}
+
+	@Test
+	public void testRequireAtLeastOneReactor() {
+		assertThrows(IllegalArgumentException.class, () -> new PeerIoHandler(0));
+	}
+
+	private void registerPipe(Pipe pipe) throws IOException {
+		ISocket<Pipe.SourceChannel, Pipe.SinkChannel> socket = mock(ISocket.class);
+		pipe.source().configureBlocking(false);
+		pipe.sink().configureBlocking(false);
+		when(socket.getReadableChannel()).thenReturn(pipe.source());
+		when(socket.getWritableChannel()).thenReturn(pipe.sink());
+		cut.registerPeer(mock(Peer.class), socket);
+	}
+
+	private Selector getSelector() {
+		PeerIoReactor[] reactors = Whitebox.getInternalState(cut, "reactors");
+		return Whitebox.getInternalState(reactors[0], Selector.class);
+	}
+
 }
@@ -0,0 +1,107 @@
+package org.johnnei.javatorrent.internal.network;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.powermock.reflect.Whitebox;
+
+import org.johnnei.javatorrent.bittorrent.protocol.MessageFactory;
+import org.johnnei.javatorrent.network.BitTorrentSocket;
+import org.johnnei.javatorrent.network.socket.ISocket;
+import org.johnnei.javatorrent.torrent.peer.Peer;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.notNull;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link PeerIoReactor}
+ */
+public class PeerIoReactorTest {
+
+	private PeerIoHandler peerIoHandler;
+
+	private PeerIoReactor cut;
+
+	@BeforeEach
+	public void setUp() {
+		peerIoHandler = mock(PeerIoHandler.class);
+		cut = new PeerIoReactor(peerIoHandler, "Test Reactor");
+	}
+
+	@AfterEach
+	public void tearDown() {
+		cut.shutdown();
+	}
+
+	@Test
+	public void testRegisterPeer() throws Exception {
+		Peer peer = mock(Peer.class);
+		ISocket<Pipe.SourceChannel, Pipe.SinkChannel> socket = mock(ISocket.class);
+		Pipe pipe = Pipe.open();
+		pipe.source().configureBlocking(false);
+		pipe.sink().configureBlocking(false);
+		when(socket.getReadableChannel()).thenReturn(pipe.source());
+		when(socket.getWritableChannel()).thenReturn(pipe.sink());
+
+		assertEquals(0, cut.getLoad(), "No channels should be registered yet");
+
+		cut.registerPeer(peer, socket);
+
+		assertEquals(2, cut.getLoad(), "Both the source and sink should have been registered");
+		Selector selector = Whitebox.getInternalState(cut, Selector.class);
+		assertEquals(SelectionKey.OP_READ, pipe.source().keyFor(selector).interestOps(), "Source should be registered for reading");
+		assertEquals(0, pipe.sink().keyFor(selector).interestOps(), "Sink should not be registered for writing without outbound data");
+	}
+
+	@Test
+	public void testLoadExcludesClosedSockets() throws Exception {
+		Peer peer = mock(Peer.class);
+		ISocket<Pipe.SourceChannel, Pipe.SinkChannel> socket = mock(ISocket.class);
+		Pipe pipe = Pipe.open();
+		pipe.source().configureBlocking(false);
+		pipe.sink().configureBlocking(false);
+		when(socket.getReadableChannel()).thenReturn(pipe.source());
+		when(socket.getWritableChannel()).thenReturn(pipe.sink());
+
+		BitTorrentSocket bitTorrentSocket = new BitTorrentSocket(mock(MessageFactory.class), socket);
+		when(peer.getBitTorrentSocket()).thenReturn(bitTorrentSocket);
+
+		cut.registerPeer(peer, socket);
+		assertEquals(2, cut.getLoad(), "Both the source and sink should have been registered");
+
+		bitTorrentSocket.close();
+		bitTorrentSocket.close();
+		assertEquals(0, cut.getLoad(), "Channels of the closed socket should no longer be counted");
+	}
+
+	@Test
+	public void testPollChannelsDispatchesReadyPeer() throws Exception {
+		Peer peer = mock(Peer.class);
+		ISocket<Pipe.SourceChannel, Pipe.SinkChannel> socket = mock(ISocket.class);
+		Pipe pipe = Pipe.open();
+		pipe.source().configureBlocking(false);
+		pipe.sink().configureBlocking(false);
+		when(socket.getReadableChannel()).thenReturn(pipe.source());
+		when(socket.getWritableChannel()).thenReturn(pipe.sink());
+
+		cut.registerPeer(peer, socket);
+		pipe.sink().write(ByteBuffer.wrap(new byte[] { 1 }));
+
+		// The source is now readable, so the handler must get invoked without any polling delay.
+		await().until(() -> {
+			verify(peerIoHandler, atLeastOnce()).handlePeer(notNull(), same(peer));
+		});
+	}
+
+}
@@ -27,6 +27,8 @@ import org.slf4j.LoggerFactory;
 
 import org.johnnei.javatorrent.TorrentClient;
 import org.johnnei.javatorrent.internal.network.PeerIoHandler;
+import org.johnnei.javatorrent.network.BitTorrentSocket;
+import org.johnnei.javatorrent.network.ByteBufferPool;
 import org.johnnei.javatorrent.network.socket.ISocket;
 import org.johnnei.javatorrent.network.socket.NioTcpSocket;
 import org.johnnei.javatorrent.test.DummyEntity;
@@ -71,6 +73,7 @@ class BitTorrentHandshakeHandlerImplTest {
 		when(torrentClient.getExtensionBytes()).thenReturn(extensionBytes);
 
 		when(torrentClient.getExecutorService()).thenReturn(executorService);
+		when(torrentClient.getBufferPool()).thenReturn(new ByteBufferPool(BitTorrentSocket.READ_BUFFER_SIZE, 0));
 		cut = new BitTorrentHandshakeHandlerImpl(torrentClient, peerIoHandler);
 	}
 
@@ -0,0 +1,91 @@
+package org.johnnei.javatorrent.internal.torrent;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import org.johnnei.javatorrent.torrent.AbstractFileSet;
+import org.johnnei.javatorrent.torrent.FileInfo;
+import org.johnnei.javatorrent.torrent.files.Piece;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link PieceVerifier}
+ */
+public class PieceVerifierTest {
+
+	@Test
+	public void testVerify() throws Exception {
+		FileInfo fileOne = mock(FileInfo.class);
+		FileInfo fileTwo = mock(FileInfo.class);
+		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		when(fileSetMock.getFileForBytes(anyInt(), anyInt(), anyInt())).thenAnswer(invocation -> {
+			int pieceIndex = invocation.getArgument(0);
+			return pieceIndex < 2 ? fileOne : fileTwo;
+		});
+
+		Piece pieceZero = mockPiece(0, true);
+		Piece pieceOne = mockPiece(1, false);
+		Piece pieceTwo = mockPiece(2, true);
+		Piece pieceFour = mockPiece(4, true);
+		when(pieceFour.checkHash()).thenThrow(new IOException("Test exception"));
+
+		PieceVerifier cut = new PieceVerifier(fileSetMock, Arrays.asList(pieceFour, pieceTwo, pieceOne, pieceZero));
+
+		assertEquals(3, cut.getBatchCount(), "Pieces should have been split on file boundaries and gaps");
+
+		List<Piece> verifiedPieces = cut.verify(new ForkJoinPool(2));
+
+		assertEquals(Arrays.asList(pieceZero, pieceTwo), verifiedPieces, "Incorrect pieces verified");
+		assertEquals(4, cut.getCheckedPieceCount(), "All pieces should have been checked");
+		assertEquals(4, cut.getPieceCount(), "Incorrect piece count");
+	}
+
+	@Test
+	public void testBatchSizeIsLimited() {
+		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		Piece pieceZero = mockPiece(0, true);
+		Piece pieceOne = mockPiece(1, true);
+		when(pieceZero.getSize()).thenReturn((int) PieceVerifier.MAX_BATCH_SIZE);
+
+		PieceVerifier cut = new PieceVerifier(fileSetMock, Arrays.asList(pieceZero, pieceOne));
+
+		assertEquals(2, cut.getBatchCount(), "Full batch should not have been extended");
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		Piece pieceMock = mockPiece(0, true);
+
+		PieceVerifier cut = new PieceVerifier(fileSetMock, Collections.singletonList(pieceMock));
+		cut.cancel();
+
+		assertTrue(cut.isCancelled(), "Verifier should have been cancelled");
+		assertEquals(Collections.emptyList(), cut.verify(ForkJoinPool.commonPool()), "No pieces should have been verified");
+		verify(pieceMock, never()).checkHash();
+	}
+
+	private static Piece mockPiece(int index, boolean matchingHash) {
+		Piece piece = mock(Piece.class);
+		when(piece.getIndex()).thenReturn(index);
+		try {
+			when(piece.checkHash()).thenReturn(matchingHash);
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+		return piece;
+	}
+
+}
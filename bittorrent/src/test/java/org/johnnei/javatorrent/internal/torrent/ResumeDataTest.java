@@ -0,0 +1,110 @@
+package org.johnnei.javatorrent.internal.torrent;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.johnnei.javatorrent.disk.RandomAccessFileStorage;
+import org.johnnei.javatorrent.torrent.FileInfo;
+import org.johnnei.javatorrent.torrent.TorrentFileSet;
+import org.johnnei.javatorrent.torrent.files.BlockStatus;
+import org.johnnei.javatorrent.torrent.files.Piece;
+import org.johnnei.junit.jupiter.Folder;
+import org.johnnei.junit.jupiter.TempFolderExtension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link ResumeData}
+ */
+@ExtendWith(TempFolderExtension.class)
+public class ResumeDataTest {
+
+	private static final byte[] INFO_HASH = new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20 };
+
+	@Test
+	public void testSaveAndRestore(@Folder Path temporaryFolder) throws Exception {
+		FileInfo fileInfo = new FileInfo(20, 0, temporaryFolder.resolve("file").toFile(), 2);
+		Files.write(fileInfo.getFile().toPath(), new byte[15]);
+
+		TorrentFileSet savedFileSet = mockFileSet(fileInfo);
+		when(savedFileSet.getBitfieldBytes()).thenReturn(new byte[] { (byte) 0x80 });
+		savedFileSet.getPiece(0).setBlockStatus(0, BlockStatus.Verified);
+		savedFileSet.getPiece(0).setBlockStatus(1, BlockStatus.Verified);
+		savedFileSet.getPiece(1).setBlockStatus(0, BlockStatus.Stored);
+
+		File resumeFile = temporaryFolder.resolve(".resume").toFile();
+		new ResumeData(resumeFile, INFO_HASH).save(savedFileSet);
+
+		TorrentFileSet restoredFileSet = mockFileSet(fileInfo);
+		when(restoredFileSet.getBitfieldBytes()).thenReturn(new byte[1]);
+
+		assertTrue(new ResumeData(resumeFile, INFO_HASH).restore(restoredFileSet), "Matching resume data should have been restored");
+		verify(restoredFileSet).setHavingPiece(0);
+		verify(restoredFileSet, never()).setHavingPiece(1);
+		assertEquals(BlockStatus.Stored, restoredFileSet.getPiece(1).getBlockStatus(0), "Stored block should have been restored");
+		assertEquals(BlockStatus.Needed, restoredFileSet.getPiece(1).getBlockStatus(1), "Missing block should be needed");
+	}
+
+	@Test
+	public void testRestoreModifiedFile(@Folder Path temporaryFolder) throws Exception {
+		File file = temporaryFolder.resolve("file").toFile();
+		FileInfo fileInfo = new FileInfo(20, 0, file, 2);
+		Files.write(file.toPath(), new byte[0]);
+
+		TorrentFileSet fileSet = mockFileSet(fileInfo);
+		when(fileSet.getBitfieldBytes()).thenReturn(new byte[1]);
+
+		File resumeFile = temporaryFolder.resolve(".resume").toFile();
+		new ResumeData(resumeFile, INFO_HASH).save(fileSet);
+
+		assertTrue(file.setLastModified(file.lastModified() - 10_000), "Failed to change modification time");
+
+		assertFalse(new ResumeData(resumeFile, INFO_HASH).restore(fileSet), "Modified file should not be trusted");
+		verify(fileSet, never()).setHavingPiece(anyInt());
+	}
+
+	@Test
+	public void testRestoreOtherTorrent(@Folder Path temporaryFolder) throws Exception {
+		FileInfo fileInfo = new FileInfo(20, 0, temporaryFolder.resolve("file").toFile(), 2);
+		TorrentFileSet fileSet = mockFileSet(fileInfo);
+		when(fileSet.getBitfieldBytes()).thenReturn(new byte[1]);
+
+		File resumeFile = temporaryFolder.resolve(".resume").toFile();
+		new ResumeData(resumeFile, INFO_HASH).save(fileSet);
+
+		assertFalse(new ResumeData(resumeFile, new byte[20]).restore(fileSet), "Resume data of another torrent should not be trusted");
+	}
+
+	@Test
+	public void testRestoreMissingFile(@Folder Path temporaryFolder) {
+		TorrentFileSet fileSet = mockFileSet();
+
+		assertFalse(new ResumeData(temporaryFolder.resolve(".resume").toFile(), INFO_HASH).restore(fileSet), "Missing resume data");
+	}
+
+	private static TorrentFileSet mockFileSet(FileInfo... files) {
+		TorrentFileSet fileSet = mock(TorrentFileSet.class);
+		Piece pieceZero = new Piece(fileSet, new byte[20], 0, 10, 5);
+		Piece pieceOne = new Piece(fileSet, new byte[20], 1, 10, 5);
+		when(fileSet.getStorage()).thenReturn(new RandomAccessFileStorage());
+		when(fileSet.getFiles()).thenReturn(files.length == 0 ? Collections.emptyList() : Arrays.asList(files));
+		when(fileSet.getPieceCount()).thenReturn(2);
+		when(fileSet.getPiece(0)).thenReturn(pieceZero);
+		when(fileSet.getPiece(1)).thenReturn(pieceOne);
+		return fileSet;
+	}
+
+}
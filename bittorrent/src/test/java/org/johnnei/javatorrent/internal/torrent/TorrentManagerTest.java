@@ -54,6 +54,7 @@ public class TorrentManagerTest {
 		when(executorServiceMock.scheduleAtFixedRate(notNull(), eq(1L), eq(10L), eq(TimeUnit.SECONDS))).thenReturn(futureMock);
 		when(executorServiceMock.scheduleAtFixedRate(notNull(), eq(30L), eq(60L), eq(TimeUnit.SECONDS))).thenReturn(futureMock);
 		when(executorServiceMock.scheduleAtFixedRate(notNull(), eq(10L), eq(30L), eq(TimeUnit.SECONDS))).thenReturn(futureMock);
+		when(executorServiceMock.scheduleAtFixedRate(notNull(), eq(60L), eq(60L), eq(TimeUnit.SECONDS))).thenReturn(futureMock);
 
 		Metadata metadata = new Metadata.Builder()
 				.setHash(DummyEntity.createUniqueTorrentHash())
@@ -116,6 +117,7 @@ public class TorrentManagerTest {
 		when(executorServiceMock.scheduleAtFixedRate(notNull(), eq(1L), eq(10L), eq(TimeUnit.SECONDS))).thenReturn(futureMock);
 		when(executorServiceMock.scheduleAtFixedRate(notNull(), eq(30L), eq(60L), eq(TimeUnit.SECONDS))).thenReturn(futureMock);
 		when(executorServiceMock.scheduleAtFixedRate(notNull(), eq(10L), eq(30L), eq(TimeUnit.SECONDS))).thenReturn(futureMock);
+		when(executorServiceMock.scheduleAtFixedRate(notNull(), eq(60L), eq(60L), eq(TimeUnit.SECONDS))).thenReturn(futureMock);
 
 		Metadata metadata = new Metadata.Builder()
 				.setHash(DummyEntity.createUniqueTorrentHash())
@@ -147,6 +149,7 @@ public class TorrentManagerTest {
 		cut.shutdownTorrent(torrentTwo);
 
 		verify(phaseMock, times(2)).onPhaseEnter();
+		verify(futureMock, times(5)).cancel(false);
 	}
 
 	@Test
@@ -1,14 +1,16 @@
 package org.johnnei.javatorrent.network;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
 import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
-import java.util.Queue;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -20,7 +22,9 @@ import org.johnnei.javatorrent.bittorrent.protocol.MessageFactory;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.IMessage;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageBlock;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageKeepAlive;
+import org.johnnei.javatorrent.internal.network.OutboundQueue;
 import org.johnnei.javatorrent.network.socket.ISocket;
+import org.johnnei.javatorrent.torrent.files.Piece;
 import org.johnnei.javatorrent.test.DummyEntity;
 import org.johnnei.javatorrent.test.TestClock;
 import org.johnnei.javatorrent.test.TestUtils;
@@ -30,16 +34,23 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNotNull;
 import static org.mockito.ArgumentMatchers.notNull;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
 
 /**
  * Tests {@link BitTorrentSocket}
@@ -57,6 +68,46 @@ public class BitTorrentSocketTest {
 		assertTrue(cut.getSocketName().length() > 0, "Incorrect socket name on nonnull socket");
 	}
 
+	@Test
+	public void testEnqueueMessageRequestsWrite() {
+		MessageFactory messageFactoryMock = mock(MessageFactory.class);
+		ISocket socketMock = mock(ISocket.class);
+		Runnable listenerMock = mock(Runnable.class);
+
+		BitTorrentSocket cut = new BitTorrentSocket(messageFactoryMock, socketMock);
+		cut.setWriteRequestListener(listenerMock);
+
+		cut.enqueueMessage(mock(IMessage.class));
+		cut.enqueueMessage(mock(MessageBlock.class));
+		cut.requestWrite();
+
+		// Only the first message makes the socket leave the idle state, the others are pending behind it.
+		verify(listenerMock).run();
+		assertFalse(cut.releaseWriteInterest(), "Write interest must be kept while messages are pending");
+	}
+
+	@Test
+	public void testReleaseWriteInterest() throws Exception {
+		MessageFactory messageFactoryMock = mock(MessageFactory.class);
+		ISocket socketMock = mock(ISocket.class);
+		Runnable listenerMock = mock(Runnable.class);
+		SocketChannel socketChannel = mock(SocketChannel.class);
+		when(socketMock.getWritableChannel()).thenReturn(socketChannel);
+		mockGatheringWrite(socketChannel, new ByteArrayOutputStream());
+
+		BitTorrentSocket cut = new BitTorrentSocket(messageFactoryMock, socketMock);
+		cut.setWriteRequestListener(listenerMock);
+
+		cut.enqueueMessage(new MessageKeepAlive());
+		cut.sendMessages();
+
+		assertTrue(cut.releaseWriteInterest(), "Socket should be idle once all messages have been written");
+
+		cut.enqueueMessage(new MessageKeepAlive());
+
+		verify(listenerMock, times(2)).run();
+	}
+
 	@Test
 	public void testIsClosed() {
 		MessageFactory messageFactoryMock = mock(MessageFactory.class);
@@ -101,10 +152,7 @@ public class BitTorrentSocketTest {
 		when(socket.getReadableChannel()).thenReturn(socketChannel);
 		when(socket.getWritableChannel()).thenReturn(socketChannel);
 
-		when(socketChannel.write((ByteBuffer) notNull())).thenAnswer(inv -> {
-			ByteBuffer buffer = inv.getArgument(0);
-			return buffer.remaining();
-		});
+		mockGatheringWrite(socketChannel, new ByteArrayOutputStream());
 
 		Clock fixedClock = Clock.fixed(Instant.now(), ZoneId.systemDefault());
 		TestClock clock = new TestClock(fixedClock);
@@ -206,6 +254,92 @@ public class BitTorrentSocketTest {
 		verify(messageMock).read(any());
 	}
 
+	@Test
+	public void testReadMessageBlockHandsOverBuffer() throws Exception {
+		MessageFactory messageFactoryMock = mock(MessageFactory.class);
+		when(messageFactoryMock.createById(BitTorrent.MESSAGE_PIECE)).thenReturn(new MessageBlock());
+
+		byte[] blockData = DummyEntity.createRandomBytes(1 << 14);
+		ByteBuffer input = ByteBuffer.allocate(13 + blockData.length);
+		input.putInt(9 + blockData.length);
+		input.put((byte) BitTorrent.MESSAGE_PIECE);
+		input.putInt(1);
+		input.putInt(0);
+		input.put(blockData);
+		input.flip();
+
+		ISocket socketMock = mock(ISocket.class);
+		SocketChannel channelMock = mock(SocketChannel.class);
+		when(socketMock.getReadableChannel()).thenReturn(channelMock);
+		mockReadInput(channelMock, input, input.remaining());
+
+		ByteBufferPool bufferPool = new ByteBufferPool(BitTorrentSocket.READ_BUFFER_SIZE, 1);
+		BitTorrentSocket cut = new BitTorrentSocket(messageFactoryMock, socketMock, bufferPool);
+		ByteBuffer readBuffer = Whitebox.getInternalState(cut, "readBuffer");
+
+		assertTrue(cut.canReadMessage(), "Should be able to read message");
+		MessageBlock message = (MessageBlock) cut.readMessage();
+
+		ByteBuffer data = Whitebox.getInternalState(message, "data");
+		assertEquals(ByteBuffer.wrap(blockData), data, "Incorrect block data");
+		assertEquals(1 << 14, data.capacity(), "Block data should have been read into a buffer which exactly fits the block");
+		assertEquals(1, (int) Whitebox.getInternalState(message, "index"), "Incorrect piece index");
+		assertSame(readBuffer, Whitebox.getInternalState(cut, "readBuffer"), "Read buffer should have been kept");
+	}
+
+	@Test
+	public void testReadMessageBlockFailureReleasesBuffer() throws Exception {
+		MessageFactory messageFactoryMock = mock(MessageFactory.class);
+		when(messageFactoryMock.createById(BitTorrent.MESSAGE_PIECE)).thenThrow(new IllegalArgumentException("Test exception path"));
+
+		ByteBuffer input = ByteBuffer.allocate(13 + (1 << 14));
+		input.putInt(9 + (1 << 14));
+		input.put((byte) BitTorrent.MESSAGE_PIECE);
+		input.position(input.capacity());
+		input.flip();
+
+		ISocket socketMock = mock(ISocket.class);
+		SocketChannel channelMock = mock(SocketChannel.class);
+		when(socketMock.getReadableChannel()).thenReturn(channelMock);
+		mockReadInput(channelMock, input, input.remaining());
+
+		ByteBufferPool bufferPool = new ByteBufferPool(BitTorrentSocket.READ_BUFFER_SIZE, 1);
+		BitTorrentSocket cut = new BitTorrentSocket(messageFactoryMock, socketMock, bufferPool);
+
+		assertTrue(cut.canReadMessage(), "Should be able to read message");
+		assertThrows(IllegalArgumentException.class, cut::readMessage);
+
+		assertEquals(1, bufferPool.getPooledBufferCount(), "Block buffer should have been returned to the pool");
+		assertNull(Whitebox.getInternalState(cut, "blockBuffer"), "Block buffer should have been dropped");
+	}
+
+	@Test
+	public void testReadMessageBlockInMultipleReads() throws Exception {
+		MessageFactory messageFactoryMock = mock(MessageFactory.class);
+		when(messageFactoryMock.createById(BitTorrent.MESSAGE_PIECE)).thenReturn(new MessageBlock());
+
+		ByteBuffer input = ByteBuffer.wrap(new byte[] {
+			0x00, 0x00, 0x00, 0x0B, BitTorrent.MESSAGE_PIECE, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x00, 0x05, 0x06
+		});
+
+		ISocket socketMock = mock(ISocket.class);
+		SocketChannel channelMock = mock(SocketChannel.class);
+		when(socketMock.getReadableChannel()).thenReturn(channelMock);
+		mockReadInput(channelMock, input, 3);
+
+		BitTorrentSocket cut = new BitTorrentSocket(messageFactoryMock, socketMock);
+
+		int attempts = 0;
+		while (!cut.canReadMessage()) {
+			attempts++;
+			assertTrue(attempts < input.capacity(), "Message should have become available");
+		}
+
+		MessageBlock message = (MessageBlock) cut.readMessage();
+		assertEquals(ByteBuffer.wrap(new byte[] { 0x05, 0x06 }), Whitebox.getInternalState(message, "data"), "Incorrect block data");
+		assertFalse(input.hasRemaining(), "All input should have been consumed");
+	}
+
 	@Test
 	public void testClose() throws Exception {
 		MessageFactory messageFactory = mock(MessageFactory.class);
@@ -225,6 +359,25 @@ public class BitTorrentSocketTest {
 		verify(socketTwoMock).close();
 	}
 
+	@Test
+	public void testCloseReleasesBuffers() throws Exception {
+		ISocket socketMock = mock(ISocket.class);
+		ByteBufferPool bufferPool = new ByteBufferPool(BitTorrentSocket.READ_BUFFER_SIZE, 2);
+		Runnable closeListener = mock(Runnable.class);
+		BitTorrentSocket cut = new BitTorrentSocket(mock(MessageFactory.class), socketMock, bufferPool);
+		cut.setCloseListener(closeListener);
+
+		cut.enqueueMessage(new MessageBlock(1, 0, bufferPool.acquire(1 << 14), bufferPool));
+		cut.close();
+		cut.close();
+
+		verify(closeListener).run();
+		assertEquals(2, bufferPool.getPooledBufferCount(), "Read buffer and queued block data should have been returned to the pool");
+		assertFalse(cut.hasOutboundMessages(), "Queued blocks should have been dropped");
+		assertThrows(IOException.class, cut::canReadMessage);
+		assertThrows(IOException.class, cut::sendMessages);
+	}
+
 	@Test
 	public void testEnqueueMessage() {
 		MessageFactory messageFactoryMock = mock(MessageFactory.class);
@@ -237,12 +390,12 @@ public class BitTorrentSocketTest {
 
 		assertFalse(cut.hasOutboundMessages(), "0 messages are pending, has outbound should be false");
 		cut.enqueueMessage(pieceMessageMock);
-		assertTrue(Whitebox.<Queue>getInternalState(cut, "blockQueue").size() == 1, "Block queue must have 1 message");
+		assertTrue(Whitebox.<OutboundQueue>getInternalState(cut, "blockQueue").size() == 1, "Block queue must have 1 message");
 		assertTrue(cut.hasOutboundMessages(), "1 message is pending, has outbound should be true");
 
 		cut.enqueueMessage(messageMock);
-		assertTrue(Whitebox.<Queue>getInternalState(cut, "blockQueue").size() == 1, "Block queue must have 1 message");
-		assertTrue(Whitebox.<Queue>getInternalState(cut, "messageQueue").size() == 1, "Message queue must have 1 message");
+		assertTrue(Whitebox.<OutboundQueue>getInternalState(cut, "blockQueue").size() == 1, "Block queue must have 1 message");
+		assertTrue(Whitebox.<OutboundQueue>getInternalState(cut, "messageQueue").size() == 1, "Message queue must have 1 message");
 
 		assertTrue(cut.hasOutboundMessages(), "2 messages are pending, has outbound should be true");
 	}
@@ -272,15 +425,101 @@ public class BitTorrentSocketTest {
 		// KeepAlive
 		when(messageMock.getLength()).thenReturn(0);
 
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		mockGatheringWrite(channelMock, output);
+
 		BitTorrentSocket cut = new BitTorrentSocket(messageFactoryMock, socketMock, clock);
 		cut.enqueueMessage(messageMock);
 
 		cut.sendMessages();
 
-		ArgumentCaptor<ByteBuffer> bufferCaptor = ArgumentCaptor.forClass(ByteBuffer.class);
-		verify(channelMock).write(bufferCaptor.capture());
+		assertArrayEquals(new byte[4], output.toByteArray(), "Incorrect keep alive output.");
+		assertFalse(cut.hasOutboundMessages(), "All messages should have been written");
+	}
+
+	@Test
+	@DisplayName("testSendMessage() -> Coalesced messages")
+	public void testSendMessagesCoalesced() throws Exception {
+		MessageFactory messageFactoryMock = mock(MessageFactory.class);
+		ISocket socketMock = mock(ISocket.class);
+		SocketChannel channelMock = mock(SocketChannel.class);
+		when(socketMock.getWritableChannel()).thenReturn(channelMock);
 
-		assertArrayEquals(new byte[4], ByteBufferUtils.getBytes(bufferCaptor.getValue(), 4), "Incorrect keep alive output.");
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		mockGatheringWrite(channelMock, output);
+
+		BitTorrentSocket cut = new BitTorrentSocket(messageFactoryMock, socketMock);
+		byte[] randomBytes = mockSendBlock(cut);
+		cut.enqueueMessage(new MessageKeepAlive());
+		cut.enqueueMessage(new MessageKeepAlive());
+
+		cut.sendMessages();
+
+		// Both keep alives and the block must have been written in a single call.
+		verify(channelMock).write(notNull(), eq(0), eq(2));
+
+		byte[] expectedBytes = new byte[13 + randomBytes.length];
+		expectedBytes[11] = (byte) (1 + randomBytes.length);
+		expectedBytes[12] = (byte) BitTorrent.MESSAGE_PIECE;
+		TestUtils.copySection(randomBytes, expectedBytes, 13);
+		assertArrayEquals(expectedBytes, output.toByteArray(), "Incorrect output, regular messages must be send before blocks.");
+	}
+
+	@Test
+	@DisplayName("testSendMessage() -> Partial write")
+	public void testSendMessagesPartialWrite() throws Exception {
+		MessageFactory messageFactoryMock = mock(MessageFactory.class);
+		ISocket socketMock = mock(ISocket.class);
+		SocketChannel channelMock = mock(SocketChannel.class);
+		when(socketMock.getWritableChannel()).thenReturn(channelMock);
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		when(channelMock.write(notNull(), anyInt(), anyInt())).thenAnswer(inv -> {
+			ByteBuffer buffer = ((ByteBuffer[]) inv.getArgument(0))[inv.getArgument(1)];
+			// Only accept a single byte
+			output.write(buffer.get());
+			return 1L;
+		});
+
+		BitTorrentSocket cut = new BitTorrentSocket(messageFactoryMock, socketMock);
+		cut.enqueueMessage(new MessageKeepAlive());
+
+		cut.sendMessages();
+		assertTrue(cut.hasOutboundMessages(), "Message has been partially written, data should still be pending");
+		assertEquals(1, output.size(), "Only a single byte should have been accepted");
+
+		for (int i = 0; i < 3; i++) {
+			cut.sendMessages();
+		}
+
+		assertFalse(cut.hasOutboundMessages(), "Message has been completely written");
+		assertArrayEquals(new byte[4], output.toByteArray(), "Incorrect keep alive output.");
+	}
+
+	@Test
+	@DisplayName("testSendMessage() -> Non-gathering channel")
+	public void testSendMessagesNonGatheringChannel() throws Exception {
+		MessageFactory messageFactoryMock = mock(MessageFactory.class);
+		ISocket socketMock = mock(ISocket.class);
+		SelectableChannel channelMock = mock(SelectableChannel.class, withSettings().extraInterfaces(WritableByteChannel.class));
+		when(socketMock.getWritableChannel()).thenReturn(channelMock);
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		when(((WritableByteChannel) channelMock).write(notNull())).thenAnswer(inv -> {
+			ByteBuffer buffer = inv.getArgument(0);
+			int remaining = buffer.remaining();
+			output.write(ByteBufferUtils.getBytes(buffer, remaining));
+			return remaining;
+		});
+
+		BitTorrentSocket cut = new BitTorrentSocket(messageFactoryMock, socketMock);
+		byte[] randomBytes = mockSendBlock(cut);
+		cut.enqueueMessage(new MessageKeepAlive());
+
+		cut.sendMessages();
+
+		assertEquals(9 + randomBytes.length, output.size(), "Incorrect amount of bytes written");
+		assertFalse(cut.hasOutboundMessages(), "All messages should have been written");
 	}
 
 	@Test
@@ -294,29 +533,107 @@ public class BitTorrentSocketTest {
 		when(socketMock.getReadableChannel()).thenReturn(channelMock);
 		when(socketMock.getWritableChannel()).thenReturn(channelMock);
 
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		mockGatheringWrite(channelMock, output);
+
 		BitTorrentSocket cut = new BitTorrentSocket(messageFactoryMock, socketMock, clock);
 
 		byte[] randomBytes = mockSendBlock(cut);
 
 		cut.sendMessages();
 
-		ArgumentCaptor<ByteBuffer> bufferCaptor = ArgumentCaptor.forClass(ByteBuffer.class);
-		verify(channelMock).write(bufferCaptor.capture());
-
 		byte[] expectedBytes = new byte[5 + randomBytes.length];
-		expectedBytes[3] = (byte) randomBytes.length;
+		expectedBytes[3] = (byte) (1 + randomBytes.length);
 		expectedBytes[4] = (byte) BitTorrent.MESSAGE_PIECE;
 		TestUtils.copySection(randomBytes, expectedBytes, 5);
-		assertArrayEquals(expectedBytes, ByteBufferUtils.getBytes(bufferCaptor.getValue(), expectedBytes.length), "Incorrect piece output.");
+		assertArrayEquals(expectedBytes, output.toByteArray(), "Incorrect piece output.");
 		assertEquals(LocalDateTime.now(clock), cut.getLastActivity(), "Incorrect last activity timestamp");
 	}
 
+	@Test
+	@DisplayName("testSendMessage() -> Piece transferred from file")
+	public void testSendMessageFileBlock() throws Exception {
+		MessageFactory messageFactoryMock = mock(MessageFactory.class);
+		ISocket socketMock = mock(ISocket.class);
+		SocketChannel channelMock = mock(SocketChannel.class);
+		when(socketMock.getWritableChannel()).thenReturn(channelMock);
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		mockGatheringWrite(channelMock, output);
+
+		byte[] randomBytes = DummyEntity.createRandomBytes(5);
+		Piece pieceMock = mock(Piece.class);
+		when(pieceMock.getIndex()).thenReturn(1);
+		when(pieceMock.transferTo(2, 5, channelMock)).thenAnswer(inv -> {
+			output.write(randomBytes);
+			return 5L;
+		});
+
+		BitTorrentSocket cut = new BitTorrentSocket(messageFactoryMock, socketMock);
+		assertTrue(cut.supportsFileTransfer(), "TCP channels should support file transfers");
+		cut.enqueueMessage(new MessageBlock(pieceMock, 2, 5));
+		cut.enqueueMessage(new MessageKeepAlive());
+
+		cut.sendMessages();
+
+		// The keep alive and block header must have been coalesced.
+		verify(channelMock).write(notNull(), eq(0), eq(1));
+
+		byte[] expectedBytes = new byte[4 + 13 + randomBytes.length];
+		expectedBytes[7] = (byte) (9 + randomBytes.length);
+		expectedBytes[8] = (byte) BitTorrent.MESSAGE_PIECE;
+		expectedBytes[12] = 1;
+		expectedBytes[16] = 2;
+		TestUtils.copySection(randomBytes, expectedBytes, 17);
+		assertArrayEquals(expectedBytes, output.toByteArray(), "Incorrect piece output.");
+		assertFalse(cut.hasOutboundMessages(), "All messages should have been written");
+	}
+
+	@Test
+	@DisplayName("testSendMessage() -> Piece partially transferred from file")
+	public void testSendMessageFileBlockPartialTransfer() throws Exception {
+		MessageFactory messageFactoryMock = mock(MessageFactory.class);
+		ISocket socketMock = mock(ISocket.class);
+		SocketChannel channelMock = mock(SocketChannel.class);
+		when(socketMock.getWritableChannel()).thenReturn(channelMock);
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		mockGatheringWrite(channelMock, output);
+
+		Piece pieceMock = mock(Piece.class);
+		when(pieceMock.transferTo(0, 5, channelMock)).thenReturn(2L);
+		when(pieceMock.transferTo(2, 3, channelMock)).thenReturn(0L).thenReturn(3L);
+
+		BitTorrentSocket cut = new BitTorrentSocket(messageFactoryMock, socketMock);
+		cut.enqueueMessage(new MessageBlock(pieceMock, 0, 5));
+
+		cut.sendMessages();
+		assertTrue(cut.hasOutboundMessages(), "Block has been partially transferred, data should still be pending");
+		assertEquals(13, output.size(), "Header should have been written");
+
+		cut.sendMessages();
+
+		assertFalse(cut.hasOutboundMessages(), "Block has been completely transferred");
+		assertEquals(13, output.size(), "Header must not be written again");
+		verify(pieceMock, times(2)).transferTo(2, 3, channelMock);
+	}
+
+	@Test
+	public void testSupportsFileTransfer() {
+		ISocket socketMock = mock(ISocket.class);
+		SelectableChannel channelMock = mock(SelectableChannel.class, withSettings().extraInterfaces(WritableByteChannel.class));
+		when(socketMock.getWritableChannel()).thenReturn(channelMock);
+
+		BitTorrentSocket cut = new BitTorrentSocket(mock(MessageFactory.class), socketMock);
+		assertFalse(cut.supportsFileTransfer(), "Only TCP channels can receive file transfers");
+	}
+
 	private byte[] mockSendBlock(BitTorrentSocket cut) {
 		IMessage pieceMessageMock = mock(MessageBlock.class);
 		when(pieceMessageMock.getId()).thenReturn(BitTorrent.MESSAGE_PIECE);
 
 		byte[] randomBytes = DummyEntity.createRandomBytes(5);
-		when(pieceMessageMock.getLength()).thenReturn(randomBytes.length);
+		when(pieceMessageMock.getLength()).thenReturn(1 + randomBytes.length);
 		ArgumentCaptor<OutStream> outStreamCapture = ArgumentCaptor.forClass(OutStream.class);
 		doAnswer(inv -> {
 			outStreamCapture.getValue().write(randomBytes);
@@ -327,6 +644,33 @@ public class BitTorrentSocketTest {
 		return randomBytes;
 	}
 
+	private void mockGatheringWrite(SocketChannel channelMock, ByteArrayOutputStream output) throws IOException {
+		when(channelMock.write(notNull(), anyInt(), anyInt())).thenAnswer(inv -> {
+			ByteBuffer[] buffers = inv.getArgument(0);
+			int offset = inv.getArgument(1);
+			int length = inv.getArgument(2);
+
+			long writtenBytes = 0;
+			for (int i = offset; i < offset + length; i++) {
+				writtenBytes += buffers[i].remaining();
+				output.write(ByteBufferUtils.getBytes(buffers[i], buffers[i].remaining()));
+			}
+			return writtenBytes;
+		});
+	}
+
+	private void mockReadInput(SocketChannel channelMock, ByteBuffer input, int maxChunkSize) throws IOException {
+		when(channelMock.read((ByteBuffer) isNotNull())).thenAnswer(inv -> {
+			ByteBuffer buffer = inv.getArgument(0);
+			ByteBuffer chunk = input.duplicate();
+			chunk.limit(chunk.position() + Math.min(maxChunkSize, Math.min(chunk.remaining(), buffer.remaining())));
+			buffer.put(chunk);
+			int readBytes = chunk.position() - input.position();
+			input.position(chunk.position());
+			return readBytes;
+		});
+	}
+
 	private void mockReadMessage(MessageFactory messageFactoryMock, IMessage messageMock, SocketChannel channelMock) throws IOException {
 		when(messageFactoryMock.createById(eq(1))).thenReturn(messageMock);
 		when(channelMock.read((ByteBuffer) isNotNull())).thenAnswer(inv -> {
@@ -0,0 +1,117 @@
+package org.johnnei.javatorrent.network;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link ByteBufferPool}
+ */
+public class ByteBufferPoolTest {
+
+	@Test
+	public void testAcquireAllocatesWhenEmpty() {
+		ByteBufferPool cut = new ByteBufferPool(4096, 2);
+
+		ByteBuffer buffer = cut.acquire(1000);
+
+		assertEquals(1024, buffer.capacity(), "Buffer should have been rounded up to the size class");
+		assertEquals(1000, buffer.limit(), "Buffer should be limited to the requested size");
+		assertFalse(buffer.isDirect(), "Heap buffer should have been allocated");
+		assertEquals(0, cut.getPooledBufferCount(), "Pool should be empty");
+		assertEquals(0, cut.getHitCount(), "No buffer could have been served from the pool");
+		assertEquals(1, cut.getMissCount(), "Allocation should have been counted");
+	}
+
+	@Test
+	public void testAcquireSmallestSizeClass() {
+		ByteBufferPool cut = new ByteBufferPool(4096, 2);
+
+		assertEquals(512, cut.acquire(0).capacity(), "Small buffers should use the smallest size class");
+		assertEquals(512, cut.acquire(512).capacity(), "Exact size should not be rounded up");
+		assertEquals(4096, cut.getMaxBufferSize(), "Incorrect max buffer size");
+	}
+
+	@Test
+	public void testAcquireAboveMaxBufferSize() {
+		ByteBufferPool cut = new ByteBufferPool(4000, 2);
+
+		ByteBuffer buffer = cut.acquire(5000);
+		cut.release(buffer);
+
+		assertEquals(4096, cut.getMaxBufferSize(), "Max buffer size should have been rounded up to a size class");
+		assertEquals(5000, buffer.capacity(), "Large buffers should be allocated with the exact size");
+		assertEquals(0, cut.getPooledBufferCount(), "Large buffers should not be pooled");
+	}
+
+	@Test
+	public void testReleaseReusesBuffer() {
+		ByteBufferPool cut = new ByteBufferPool(4096, 2);
+
+		ByteBuffer buffer = cut.acquire(2048);
+		buffer.put((byte) 5);
+		cut.release(ByteBuffer.wrap(buffer.array(), 1, 2));
+		assertEquals(1, cut.getPooledBufferCount(), "Buffer should have been pooled");
+
+		ByteBuffer reused = cut.acquire(1500);
+		assertSame(buffer.array(), reused.array(), "Buffer should have been reused");
+		assertEquals(0, reused.position(), "Buffer should have been cleared");
+		assertEquals(1500, reused.limit(), "Buffer should be limited to the requested size");
+		assertEquals(1, cut.getHitCount(), "Reuse should have been counted");
+	}
+
+	@Test
+	public void testDirectBuffersArePooledSeparately() {
+		ByteBufferPool cut = new ByteBufferPool(4096, 2);
+
+		ByteBuffer direct = cut.acquireDirect(1024);
+		assertTrue(direct.isDirect(), "Direct buffer should have been allocated");
+
+		cut.release(direct);
+		ByteBuffer heap = cut.acquire(1024);
+
+		assertFalse(heap.isDirect(), "Direct buffer should not be handed out as heap buffer");
+		assertSame(direct, cut.acquireDirect(1024), "Direct buffer should have been reused");
+	}
+
+	@Test
+	public void testReleaseIgnoresForeignBuffers() {
+		ByteBufferPool cut = new ByteBufferPool(4096, 2);
+
+		cut.release(ByteBuffer.allocate(1000));
+		cut.release(ByteBuffer.allocate(256));
+		cut.release(ByteBuffer.allocate(8192));
+		cut.release(ByteBuffer.allocate(1024).asReadOnlyBuffer());
+		cut.release(null);
+
+		assertEquals(0, cut.getPooledBufferCount(), "None of the buffers should have been pooled");
+	}
+
+	@Test
+	public void testReleaseIsBounded() {
+		ByteBufferPool cut = new ByteBufferPool(4096, 1);
+
+		ByteBuffer buffer = ByteBuffer.allocate(1024);
+		cut.release(buffer);
+		cut.release(ByteBuffer.allocate(1024));
+		cut.release(ByteBuffer.allocate(2048));
+
+		assertEquals(2, cut.getPooledBufferCount(), "Only a single buffer per size class should be retained");
+		assertSame(buffer, cut.acquire(1024), "First buffer should have been retained");
+		assertNotSame(buffer, cut.acquire(1024), "Size class should be empty");
+	}
+
+	@Test
+	public void testInvalidArguments() {
+		assertThrows(IllegalArgumentException.class, () -> new ByteBufferPool(4096, -1));
+		assertThrows(IllegalArgumentException.class, () -> new ByteBufferPool(0, 1));
+		assertThrows(IllegalArgumentException.class, () -> new ByteBufferPool(4096, 1).acquire(-1));
+	}
+}
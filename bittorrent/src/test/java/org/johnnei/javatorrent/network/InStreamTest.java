@@ -1,19 +1,16 @@
 package org.johnnei.javatorrent.network;
 
-import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
-import org.powermock.reflect.Whitebox;
 
-import org.johnnei.javatorrent.internal.utils.CheckedRunnable;
-import org.johnnei.javatorrent.internal.utils.CheckedSupplier;
-
-import static org.hamcrest.MatcherAssert.assertThat;
-import static org.hamcrest.Matchers.containsString;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -67,6 +64,22 @@ public class InStreamTest {
 		Assertions.assertEquals(0, inStream.available(), "All data should have been read");
 	}
 
+	@Test
+	public void testReadByteBuffer() {
+		byte[] data = new byte[] { 0x1, 0x2, 0x3, 0x4, 0x5 };
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+		buffer.position(1);
+		InStream inStream = new InStream(buffer, Duration.ZERO);
+
+		Assertions.assertEquals(2, inStream.readByte(), "Incorrect byte value");
+		ByteBuffer section = inStream.readByteBuffer(2);
+
+		assertSame(data, section.array(), "Section should be a view on the original data");
+		Assertions.assertEquals(ByteBuffer.wrap(new byte[] { 0x3, 0x4 }), section, "Incorrect section");
+		Assertions.assertEquals(1, inStream.available(), "Section should have been consumed");
+		assertThrows(IllegalArgumentException.class, () -> inStream.readByteBuffer(2));
+	}
+
 	@Test
 	public void testSkipBytes() {
 		InStream inStream = new InStream(new byte[] { 0x0, 0x0, 0x0 });
@@ -108,21 +121,38 @@ public class InStreamTest {
 	}
 
 	@Test
-	public void testExceptionDoUncheckedSupplier() throws Exception {
-		CheckedSupplier<Integer, IOException> runnable = () -> { throw new IOException("Test exception path"); };
-		InStream cut = new InStream(new byte[0]);
+	public void testReadBeyondEnd() {
+		InStream cut = new InStream(new byte[] { 0x1, 0x2 });
 
-		Exception e = assertThrows(RuntimeException.class, () -> Whitebox.invokeMethod(cut, "doUnchecked", runnable));
-		assertThat(e.getMessage(), containsString("IO Exception on in-memory byte array"));
+		assertThrows(BufferUnderflowException.class, cut::readInt);
+		Assertions.assertEquals(2, cut.available(), "Failed read should not consume data");
+		assertThrows(BufferUnderflowException.class, () -> cut.readString(3));
 	}
 
 	@Test
-	public void testExceptionDoUncheckedRunnable() throws Exception {
-		CheckedRunnable<IOException> runnable = () -> { throw new IOException("Test exception path"); };
-		InStream cut = new InStream(new byte[0]);
+	public void testReadDirectBuffer() {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(6);
+		buffer.putShort((short) 0x1234);
+		buffer.put("abcd".getBytes(StandardCharsets.UTF_8));
+		buffer.flip();
+
+		InStream cut = new InStream(buffer, null);
 
-		Exception e = assertThrows(RuntimeException.class, () -> Whitebox.invokeMethod(cut, "doUnchecked", runnable));
-		assertThat(e.getMessage(), containsString("IO Exception on in-memory byte array"));
+		Assertions.assertEquals(0x1234, cut.readShort(), "Incorrect short value");
+		Assertions.assertEquals("abcd", cut.readString(4), "Incorrect string value");
+		Assertions.assertEquals(0, buffer.position(), "Position of the supplied buffer should not have been modified");
+	}
+
+	@Test
+	public void testMarkAfterStart() {
+		InStream cut = new InStream(new byte[] { 0x1, 0x2, 0x3 }, 1, 2);
+
+		cut.resetToMark();
+		Assertions.assertEquals(2, cut.readByte(), "Reset without mark should return to start of stream");
+		cut.mark();
+		Assertions.assertEquals(3, cut.readByte(), "Incorrect byte value");
+		cut.resetToMark();
+		Assertions.assertEquals(3, cut.readByte(), "Incorrect byte value after returning to mark");
 	}
 
 }
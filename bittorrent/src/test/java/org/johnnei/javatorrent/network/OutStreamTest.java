@@ -1,15 +1,11 @@
 package org.johnnei.javatorrent.network;
 
-import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.powermock.reflect.Whitebox;
 
-import org.johnnei.javatorrent.internal.utils.CheckedRunnable;
-
-import static org.hamcrest.MatcherAssert.assertThat;
-import static org.hamcrest.Matchers.containsString;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -114,11 +110,39 @@ public class OutStreamTest {
 	}
 
 	@Test
-	public void testExceptionWriteUnchecked() throws Exception {
-		CheckedRunnable<IOException> runnable = () -> { throw new IOException("Test exception path"); };
-		OutStream cut = new OutStream();
+	public void testWriteByteBuffer() throws Exception {
+		ByteBuffer input = ByteBuffer.wrap(new byte[] { 1, 2, 3, 4 });
+		input.position(1);
+
+		cut.write(input);
+
+		assertEquals(3, cut.size(), "Incorrect amount of bytes written");
+		assertArrayEquals(new byte[] { 2, 3, 4 }, cut.toByteArray(), "Incorrect written bytes");
+		assertEquals(1, input.position(), "Position of the input buffer should not have been modified");
+	}
+
+	@Test
+	public void testGrowBuffer() throws Exception {
+		OutStream cut = new OutStream(2);
+
+		cut.writeInt(0x01020304);
+		cut.writeLong(0x05060708090A0B0CL);
 
-		RuntimeException exception = assertThrows(RuntimeException.class, () -> Whitebox.invokeMethod(cut, "writeUnchecked", runnable));
-		assertThat(exception.getMessage(), containsString("IO Exception on in-memory byte array"));
+		assertEquals(12, cut.size(), "Incorrect amount of bytes written");
+		assertArrayEquals(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12 }, cut.toByteArray(), "Incorrect written bytes");
+	}
+
+	@Test
+	public void testWriteIntoBuffer() throws Exception {
+		ByteBuffer buffer = ByteBuffer.allocate(4);
+		buffer.put((byte) 1);
+
+		OutStream cut = new OutStream(buffer);
+		cut.writeShort(0x0203);
+
+		assertEquals(2, cut.size(), "Incorrect amount of bytes written");
+		assertArrayEquals(new byte[] { 2, 3 }, cut.toByteArray(), "Incorrect written bytes");
+		assertEquals(3, buffer.position(), "Position of the buffer should have been advanced");
+		assertThrows(BufferOverflowException.class, () -> cut.writeShort(0x0405));
 	}
 }
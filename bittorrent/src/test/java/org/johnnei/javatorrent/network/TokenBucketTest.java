@@ -0,0 +1,92 @@
+package org.johnnei.javatorrent.network;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+
+import org.junit.jupiter.api.Test;
+
+import org.johnnei.javatorrent.test.TestClock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests {@link TokenBucket}
+ */
+public class TokenBucketTest {
+
+	@Test
+	public void testUnlimited() {
+		TokenBucket cut = new TokenBucket();
+
+		assertEquals(0, cut.getRate(), "Bucket should not be limiting by default");
+		assertEquals(5000, cut.acquire(5000), "Unlimited bucket should grant everything");
+		assertEquals(5000, cut.acquire(5000), "Unlimited bucket should grant everything");
+	}
+
+	@Test
+	public void testSetRateNegative() {
+		TokenBucket cut = new TokenBucket();
+
+		assertThrows(IllegalArgumentException.class, () -> cut.setRate(-1));
+	}
+
+	@Test
+	public void testAcquireAndRefill() {
+		Clock fixedClock = Clock.fixed(Instant.now(), ZoneId.systemDefault());
+		TestClock clock = new TestClock(fixedClock);
+
+		TokenBucket cut = new TokenBucket(clock, null);
+		cut.setRate(1000);
+
+		assertEquals(600, cut.acquire(600), "Initial burst should be granted");
+		assertEquals(400, cut.acquire(600), "Only the remaining tokens should be granted");
+		assertEquals(0, cut.acquire(600), "Empty bucket should not grant tokens");
+
+		clock.setClock(Clock.offset(fixedClock, Duration.ofMillis(500)));
+		assertEquals(500, cut.acquire(600), "Half a second should have added half the rate");
+
+		clock.setClock(Clock.offset(fixedClock, Duration.ofSeconds(10)));
+		assertEquals(1000, cut.acquire(5000), "Bucket should not exceed its rate");
+	}
+
+	@Test
+	public void testRelease() {
+		Clock fixedClock = Clock.fixed(Instant.now(), ZoneId.systemDefault());
+		TokenBucket cut = new TokenBucket(fixedClock, null);
+		cut.setRate(1000);
+
+		assertEquals(1000, cut.acquire(1000), "Initial burst should be granted");
+		cut.release(300);
+		assertEquals(300, cut.acquire(1000), "Released tokens should be available again");
+	}
+
+	@Test
+	public void testParentLimits() {
+		Clock fixedClock = Clock.fixed(Instant.now(), ZoneId.systemDefault());
+		TokenBucket parent = new TokenBucket(fixedClock, null);
+		parent.setRate(500);
+		TokenBucket cut = new TokenBucket(fixedClock, parent);
+		cut.setRate(1000);
+
+		assertEquals(500, cut.acquire(800), "Parent should have limited the transfer");
+		assertEquals(0, parent.acquire(1), "Parent should have been drained");
+
+		parent.release(500);
+		assertEquals(500, cut.acquire(800), "Tokens which the parent couldn't grant should have been returned");
+	}
+
+	@Test
+	public void testUnlimitedChildWithParent() {
+		Clock fixedClock = Clock.fixed(Instant.now(), ZoneId.systemDefault());
+		TokenBucket parent = new TokenBucket(fixedClock, null);
+		parent.setRate(100);
+		TokenBucket cut = new TokenBucket(fixedClock, parent);
+
+		assertEquals(100, cut.acquire(800), "Parent should limit an unlimited child");
+		assertEquals(0, cut.acquire(800), "Parent should have been drained");
+	}
+
+}
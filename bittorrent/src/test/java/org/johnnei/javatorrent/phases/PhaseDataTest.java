@@ -45,6 +45,7 @@ import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -100,6 +101,19 @@ public class PhaseDataTest {
 		return trackerMock;
 	}
 
+	@Test
+	public void testProcessWhileDiskThrottled() {
+		TorrentClient torrentClientMock = mock(TorrentClient.class);
+		Torrent torrentMock = mock(Torrent.class);
+
+		when(torrentClientMock.isDiskThrottled()).thenReturn(true);
+
+		PhaseData cut = new PhaseData(torrentClientMock, torrentMock);
+		cut.process();
+
+		verify(torrentMock, never()).getPeers();
+	}
+
 	@Test
 	public void testOnPhaseExit() {
 		TorrentClient torrentClientMock = mock(TorrentClient.class);
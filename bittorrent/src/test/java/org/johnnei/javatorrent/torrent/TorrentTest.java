@@ -1,6 +1,7 @@
 package org.johnnei.javatorrent.torrent;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -16,11 +17,14 @@ import org.powermock.reflect.Whitebox;
 import org.johnnei.javatorrent.TorrentClient;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageBitfield;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageHave;
+import org.johnnei.javatorrent.disk.BlockReadCache;
 import org.johnnei.javatorrent.disk.DiskJobCheckHash;
 import org.johnnei.javatorrent.disk.DiskJobWriteBlock;
 import org.johnnei.javatorrent.disk.IDiskJob;
+import org.johnnei.javatorrent.disk.IStorage;
 import org.johnnei.javatorrent.module.IModule;
 import org.johnnei.javatorrent.network.BitTorrentSocket;
+import org.johnnei.javatorrent.network.ByteBufferPool;
 import org.johnnei.javatorrent.test.DummyEntity;
 import org.johnnei.javatorrent.test.TestUtils;
 import org.johnnei.javatorrent.torrent.algos.pieceselector.IPieceSelector;
@@ -41,10 +45,12 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -411,6 +417,100 @@ public class TorrentTest {
 		writeJobCapture.getValue().process();
 	}
 
+	@Test
+	public void testOnReceivedBlockReleasesPooledBuffer() throws Exception {
+		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
+		TorrentClient torrentClient = mock(TorrentClient.class);
+		ByteBufferPool bufferPool = mock(ByteBufferPool.class);
+		Piece pieceMock = mock(Piece.class);
+
+		ArgumentCaptor<DiskJobWriteBlock> writeJobCapture = ArgumentCaptor.forClass(DiskJobWriteBlock.class);
+
+		when(torrentClient.getBufferPool()).thenReturn(bufferPool);
+		when(fileSetMock.getBlockSize()).thenReturn(15);
+		when(fileSetMock.getPiece(eq(0))).thenReturn(pieceMock);
+		when(pieceMock.getBlockSize(eq(1))).thenReturn(15);
+		when(pieceMock.countBlocksWithStatus(eq(BlockStatus.Stored))).thenReturn(1);
+		when(pieceMock.getBlockCount()).thenReturn(2);
+
+		Torrent cut = new Torrent.Builder()
+				.setName("On Received Block Test")
+				.setMetadata(DummyEntity.createMetadata())
+				.setTorrentClient(torrentClient)
+				.build();
+		cut.setFileSet(fileSetMock);
+
+		ByteBuffer data = ByteBuffer.allocate(15);
+		cut.onReceivedBlock(fileSetMock, 0, 15, data);
+
+		verify(torrentClient).addDiskJob(writeJobCapture.capture());
+		verify(bufferPool, never()).release(any());
+
+		writeJobCapture.getValue().process();
+
+		verify(pieceMock).storeBlock(1, data);
+		verify(pieceMock).setBlockStatus(1, BlockStatus.Stored);
+		verify(bufferPool).release(data);
+	}
+
+	@Test
+	public void testOnReceivedBlockIncorrectSizeReleasesPooledBuffer() {
+		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
+		TorrentClient torrentClient = mock(TorrentClient.class);
+		ByteBufferPool bufferPool = mock(ByteBufferPool.class);
+		Piece pieceMock = mock(Piece.class);
+
+		when(torrentClient.getBufferPool()).thenReturn(bufferPool);
+		when(fileSetMock.getBlockSize()).thenReturn(15);
+		when(fileSetMock.getPiece(eq(0))).thenReturn(pieceMock);
+		when(pieceMock.getBlockSize(eq(1))).thenReturn(10);
+
+		Torrent cut = new Torrent.Builder()
+				.setName("On Received Block Test")
+				.setMetadata(DummyEntity.createMetadata())
+				.setTorrentClient(torrentClient)
+				.build();
+		cut.setFileSet(fileSetMock);
+
+		ByteBuffer data = ByteBuffer.allocate(15);
+		cut.onReceivedBlock(fileSetMock, 0, 15, data);
+
+		verify(pieceMock).setBlockStatus(1, BlockStatus.Needed);
+		verify(torrentClient, never()).addDiskJob(any());
+		verify(bufferPool).release(data);
+	}
+
+	@Test
+	public void testShutdown() throws Exception {
+		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
+		IStorage storageMock = mock(IStorage.class);
+
+		when(fileSetMock.getStorage()).thenReturn(storageMock);
+
+		Torrent cut = DummyEntity.createUniqueTorrent();
+		cut.setFileSet(fileSetMock);
+		cut.shutdown();
+
+		verify(fileSetMock).releaseWriteBuffers();
+		verify(storageMock).close();
+	}
+
+	@Test
+	public void testShutdownInvalidatesReadCache() throws Exception {
+		TorrentClient torrentClientMock = mock(TorrentClient.class);
+		BlockReadCache readCacheMock = mock(BlockReadCache.class);
+		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
+
+		when(torrentClientMock.getReadCache()).thenReturn(readCacheMock);
+		when(fileSetMock.getStorage()).thenReturn(mock(IStorage.class));
+
+		Torrent cut = DummyEntity.createUniqueTorrent(torrentClientMock);
+		cut.setFileSet(fileSetMock);
+		cut.shutdown();
+
+		verify(readCacheMock).invalidate(fileSetMock);
+	}
+
 	@Test
 	public void testToString() {
 		Torrent cut = DummyEntity.createUniqueTorrent();
@@ -616,6 +716,29 @@ public class TorrentTest {
 		assertEquals(15, cut.getUploadedBytes(), "Incorrect amount of uploaded bytes, data has been uploaded");
 	}
 
+	@Test
+	public void testAddUploadedBytesConcurrently() throws Exception {
+		Torrent cut = new Torrent.Builder()
+				.setName("Test")
+				.setMetadata(DummyEntity.createMetadata())
+				.build();
+
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(() -> {
+				for (int j = 0; j < 10_000; j++) {
+					cut.addUploadedBytes(1);
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(40_000, cut.getUploadedBytes(), "Concurrently uploaded bytes should not get lost");
+	}
+
 	@Test
 	public void testIsDownloadingMetadata() {
 		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
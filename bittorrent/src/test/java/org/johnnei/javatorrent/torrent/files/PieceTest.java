@@ -1,6 +1,11 @@
 package org.johnnei.javatorrent.torrent.files;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
@@ -10,17 +15,34 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import org.johnnei.javatorrent.bittorrent.encoding.SHA1;
+import org.johnnei.javatorrent.disk.IStorage;
+import org.johnnei.javatorrent.disk.MemoryMappedStorage;
+import org.johnnei.javatorrent.disk.PieceWriteCache;
+import org.johnnei.javatorrent.disk.RandomAccessFileStorage;
 import org.johnnei.javatorrent.torrent.AbstractFileSet;
 import org.johnnei.javatorrent.torrent.FileInfo;
 import org.johnnei.junit.jupiter.Folder;
 import org.johnnei.junit.jupiter.TempFolderExtension;
 
 import static org.johnnei.javatorrent.test.TestUtils.assertEqualityMethods;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -140,6 +162,7 @@ public class PieceTest {
 	@Test
 	public void testCheckHashOnIncompleteFile(@Folder Path temporaryFolder) throws Exception {
 		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		when(fileSetMock.getStorage()).thenReturn(new RandomAccessFileStorage());
 		when(fileSetMock.getBlockSize()).thenReturn(5);
 		when(fileSetMock.getPieceSize()).thenReturn(20L);
 
@@ -154,14 +177,14 @@ public class PieceTest {
 	@Test
 	public void testCheckHashOnIncompleteFileSpanningMultipleFiles(@Folder Path temporaryFolder) throws Exception {
 		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		when(fileSetMock.getStorage()).thenReturn(new RandomAccessFileStorage());
 		when(fileSetMock.getBlockSize()).thenReturn(5);
 		when(fileSetMock.getPieceSize()).thenReturn(20L);
 
 		FileInfo fileInfoOne = new FileInfo(10, 0, temporaryFolder.resolve("1").toFile(), 1);
 
 		// Ensure that the first file passes the length requirement so the test could fail on the second file.
-		fileInfoOne.getFileAccess().seek(0);
-		fileInfoOne.getFileAccess().setLength(10);
+		Files.write(fileInfoOne.getFile().toPath(), new byte[10]);
 
 		FileInfo fileInfoTwo = new FileInfo(10, 10, temporaryFolder.resolve("2").toFile(), 1);
 		when(fileSetMock.getFileForBytes(0, 0, 0)).thenReturn(fileInfoOne);
@@ -172,4 +195,253 @@ public class PieceTest {
 		assertFalse(cut.checkHash(), "Hash should not be matching, but also not throw an exception.");
 	}
 
+	@Test
+	public void testMemoryMappedStoreLoadAndHash(@Folder Path temporaryFolder) throws Exception {
+		byte[] data = new byte[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19 };
+
+		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		when(fileSetMock.getStorage()).thenReturn(new MemoryMappedStorage());
+		when(fileSetMock.getBlockSize()).thenReturn(5);
+		when(fileSetMock.getPieceSize()).thenReturn(20L);
+
+		FileInfo fileInfoOne = new FileInfo(8, 0, temporaryFolder.resolve("1").toFile(), 1);
+		FileInfo fileInfoTwo = new FileInfo(12, 8, temporaryFolder.resolve("2").toFile(), 1);
+		when(fileSetMock.getFileForBytes(eq(0), anyInt(), anyInt())).thenAnswer(invocation -> {
+			int offset = (int) invocation.getArguments()[1] * 5 + (int) invocation.getArguments()[2];
+			return offset < 8 ? fileInfoOne : fileInfoTwo;
+		});
+
+		Piece cut = new Piece(fileSetMock, SHA1.hash(data), 0, 20, 5);
+		for (int block = 0; block < 4; block++) {
+			cut.storeBlock(block, ByteBuffer.wrap(data, block * 5, 5));
+		}
+
+		assertArrayEquals(new byte[] { 6, 7, 8, 9 }, cut.loadPiece(6, 4), "Data spanning both files should have been read");
+		assertTrue(cut.checkHash(), "Hash should have been computed over the mapped files");
+		assertEquals(12, fileInfoTwo.getFile().length(), "Second file should have been mapped with its full size");
+	}
+
+	@Test
+	public void testTransferTo(@Folder Path temporaryFolder) throws Exception {
+		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		when(fileSetMock.getStorage()).thenReturn(new RandomAccessFileStorage());
+		when(fileSetMock.getBlockSize()).thenReturn(5);
+		when(fileSetMock.getPieceSize()).thenReturn(20L);
+
+		FileInfo fileInfoOne = new FileInfo(10, 0, temporaryFolder.resolve("1").toFile(), 1);
+		Files.write(fileInfoOne.getFile().toPath(), new byte[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 });
+		when(fileSetMock.getFileForBytes(0, 0, 3)).thenReturn(fileInfoOne);
+		when(fileSetMock.getFileForBytes(0, 1, 3)).thenReturn(fileInfoOne);
+
+		Piece cut = new Piece(fileSetMock, new byte[20], 0, 20, 5);
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		assertEquals(2, cut.transferTo(3, 2, Channels.newChannel(output)), "Incorrect amount of bytes transferred");
+		assertArrayEquals(new byte[] { 3, 4 }, output.toByteArray(), "Incorrect data transferred");
+
+		output.reset();
+		assertEquals(2, cut.transferTo(8, 5, Channels.newChannel(output)), "Transfer should have stopped at the end of the file");
+		assertArrayEquals(new byte[] { 8, 9 }, output.toByteArray(), "Incorrect data transferred");
+	}
+
+	@Test
+	public void testWriteCacheVerifiesBeforeWriting(@Folder Path temporaryFolder) throws Exception {
+		byte[] data = new byte[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+		PieceWriteCache writeCache = new PieceWriteCache(10);
+
+		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		when(fileSetMock.getStorage()).thenReturn(new RandomAccessFileStorage());
+		when(fileSetMock.getWriteCache()).thenReturn(Optional.of(writeCache));
+		when(fileSetMock.getBlockSize()).thenReturn(5);
+		when(fileSetMock.getPieceSize()).thenReturn(10L);
+
+		FileInfo fileInfoOne = new FileInfo(4, 0, temporaryFolder.resolve("1").toFile(), 1);
+		FileInfo fileInfoTwo = new FileInfo(6, 4, temporaryFolder.resolve("2").toFile(), 1);
+		when(fileSetMock.getFileForBytes(eq(0), anyInt(), anyInt())).thenAnswer(invocation -> {
+			int offset = (int) invocation.getArguments()[1] * 5 + (int) invocation.getArguments()[2];
+			return offset < 4 ? fileInfoOne : fileInfoTwo;
+		});
+
+		Piece cut = new Piece(fileSetMock, SHA1.hash(data), 0, 10, 5);
+		cut.storeBlock(1, ByteBuffer.wrap(data, 5, 5));
+		cut.storeBlock(0, ByteBuffer.wrap(new byte[5]));
+
+		assertEquals(10, writeCache.getUsedBytes(), "Piece should have been assembled in the cache");
+		assertFalse(cut.checkHash(), "Corrupted block should fail the hash check");
+		assertEquals(0, fileInfoOne.getFile().length(), "Unverified data should not have been written");
+
+		cut.storeBlock(0, ByteBuffer.wrap(data, 0, 5));
+
+		assertTrue(cut.checkHash(), "Repaired piece should pass the hash check");
+		assertEquals(0, writeCache.getUsedBytes(), "Buffer should have been released after writing");
+		assertArrayEquals(new byte[] { 4, 5 }, cut.loadPiece(4, 2), "Verified data should have been written to the files");
+		assertTrue(cut.checkHash(), "Hash should match from the written files");
+	}
+
+	@Test
+	public void testReleaseWriteBuffer() throws Exception {
+		PieceWriteCache writeCache = new PieceWriteCache(10);
+
+		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		when(fileSetMock.getWriteCache()).thenReturn(Optional.of(writeCache));
+		when(fileSetMock.getBlockSize()).thenReturn(5);
+
+		Piece cut = new Piece(fileSetMock, new byte[20], 0, 10, 5);
+		cut.storeBlock(0, ByteBuffer.wrap(new byte[5]));
+		cut.setBlockStatus(0, BlockStatus.Stored);
+
+		assertTrue(cut.hasBufferedBlocks(), "Block should have been assembled in the cache");
+
+		cut.releaseWriteBuffer();
+
+		assertFalse(cut.hasBufferedBlocks(), "Buffer should have been released");
+		assertEquals(0, writeCache.getUsedBytes(), "Buffer should have been returned to the cache");
+		assertEquals(BlockStatus.Needed, cut.getBlockStatus(0), "Discarded block should be needed again");
+	}
+
+	@Test
+	public void testCheckHashUsesRunningDigestForInOrderBlocks() throws Exception {
+		byte[] data = new byte[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11 };
+
+		IStorage storageMock = mock(IStorage.class);
+		FileInfo fileInfoMock = mock(FileInfo.class);
+		when(fileInfoMock.getSize()).thenReturn(12L);
+		when(storageMock.getStoredSize(fileInfoMock)).thenReturn(12L);
+
+		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		when(fileSetMock.getStorage()).thenReturn(storageMock);
+		when(fileSetMock.getBlockSize()).thenReturn(5);
+		when(fileSetMock.getPieceSize()).thenReturn(12L);
+		when(fileSetMock.getFileForBytes(eq(0), anyInt(), anyInt())).thenReturn(fileInfoMock);
+
+		Piece cut = new Piece(fileSetMock, SHA1.hash(data), 0, 12, 5);
+		cut.storeBlock(0, ByteBuffer.wrap(data, 0, 5));
+		cut.storeBlock(1, ByteBuffer.wrap(data, 5, 5));
+		cut.storeBlock(2, ByteBuffer.wrap(data, 10, 2));
+
+		assertTrue(cut.checkHash(), "Hash should match from the running digest");
+		verify(storageMock, never()).hash(any(), anyLong(), anyInt(), any());
+	}
+
+	@Test
+	public void testCheckHashReadsOutOfOrderBlocks() throws Exception {
+		byte[] data = new byte[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11 };
+
+		IStorage storageMock = mock(IStorage.class);
+		FileInfo fileInfoMock = mock(FileInfo.class);
+		when(fileInfoMock.getSize()).thenReturn(12L);
+		when(storageMock.getStoredSize(fileInfoMock)).thenReturn(12L);
+		doAnswer(invocation -> {
+			MessageDigest digest = invocation.getArgument(3);
+			digest.update(data, (int) (long) invocation.getArgument(1), invocation.getArgument(2));
+			return null;
+		}).when(storageMock).hash(same(fileInfoMock), anyLong(), anyInt(), any());
+
+		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		when(fileSetMock.getStorage()).thenReturn(storageMock);
+		when(fileSetMock.getBlockSize()).thenReturn(5);
+		when(fileSetMock.getPieceSize()).thenReturn(12L);
+		when(fileSetMock.getFileForBytes(eq(0), anyInt(), anyInt())).thenReturn(fileInfoMock);
+
+		Piece cut = new Piece(fileSetMock, SHA1.hash(data), 0, 12, 5);
+		cut.storeBlock(0, ByteBuffer.wrap(data, 0, 5));
+		cut.storeBlock(2, ByteBuffer.wrap(data, 10, 2));
+		cut.storeBlock(1, ByteBuffer.wrap(data, 5, 5));
+
+		assertTrue(cut.checkHash(), "Hash should match after reading the remainder");
+		verify(storageMock).hash(same(fileInfoMock), eq(10L), eq(2), any());
+	}
+
+	@Test
+	public void testStoreBlocksWritesOncePerFile(@Folder Path temporaryFolder) throws Exception {
+		byte[] data = new byte[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19 };
+
+		IStorage storage = spy(new RandomAccessFileStorage());
+		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		when(fileSetMock.getStorage()).thenReturn(storage);
+		when(fileSetMock.getBlockSize()).thenReturn(5);
+		when(fileSetMock.getPieceSize()).thenReturn(20L);
+
+		FileInfo fileInfoOne = new FileInfo(7, 0, temporaryFolder.resolve("1").toFile(), 1);
+		FileInfo fileInfoTwo = new FileInfo(13, 7, temporaryFolder.resolve("2").toFile(), 1);
+		when(fileSetMock.getFileForBytes(eq(0), anyInt(), anyInt())).thenAnswer(invocation -> {
+			int offset = (int) invocation.getArguments()[1] * 5 + (int) invocation.getArguments()[2];
+			return offset < 7 ? fileInfoOne : fileInfoTwo;
+		});
+
+		Piece cut = new Piece(fileSetMock, SHA1.hash(data), 0, 20, 5);
+		cut.storeBlocks(0, new ByteBuffer[] {
+			ByteBuffer.wrap(data, 0, 5),
+			ByteBuffer.wrap(data, 5, 5),
+			ByteBuffer.wrap(data, 10, 5),
+			ByteBuffer.wrap(data, 15, 5)
+		});
+
+		verify(storage).writeGathered(same(fileInfoOne), eq(0L), any());
+		verify(storage).writeGathered(same(fileInfoTwo), eq(0L), any());
+		assertArrayEquals(new byte[] { 5, 6, 7, 8 }, cut.loadPiece(5, 4), "Data spanning both files should have been written");
+		assertTrue(cut.checkHash(), "Hash should match from the running digest");
+		verify(storage, never()).hash(any(), anyLong(), anyInt(), any());
+	}
+
+	@Test
+	public void testFileSpansAreResolvedOnce() throws Exception {
+		IStorage storageMock = mock(IStorage.class);
+		FileInfo fileInfoOne = mock(FileInfo.class);
+		when(fileInfoOne.getSize()).thenReturn(7L);
+		FileInfo fileInfoTwo = mock(FileInfo.class);
+		when(fileInfoTwo.getSize()).thenReturn(13L);
+		when(fileInfoTwo.getFirstByteOffset()).thenReturn(7L);
+
+		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		when(fileSetMock.getStorage()).thenReturn(storageMock);
+		when(fileSetMock.getBlockSize()).thenReturn(5);
+		when(fileSetMock.getPieceSize()).thenReturn(20L);
+		when(fileSetMock.getFileForBytes(eq(0), anyInt(), anyInt())).thenAnswer(invocation -> {
+			int offset = (int) invocation.getArguments()[1] * 5 + (int) invocation.getArguments()[2];
+			return offset < 7 ? fileInfoOne : fileInfoTwo;
+		});
+
+		Piece cut = new Piece(fileSetMock, new byte[20], 0, 20, 5);
+		for (int block = 0; block < 4; block++) {
+			cut.storeBlock(block, ByteBuffer.allocate(5));
+		}
+		cut.loadPiece(0, 20);
+
+		verify(fileSetMock, times(2)).getFileForBytes(eq(0), anyInt(), anyInt());
+		verify(storageMock).write(same(fileInfoOne), eq(0L), any());
+		verify(storageMock).write(same(fileInfoOne), eq(5L), any());
+		verify(storageMock).write(same(fileInfoTwo), eq(0L), any());
+		verify(storageMock).write(same(fileInfoTwo), eq(3L), any());
+		verify(storageMock).write(same(fileInfoTwo), eq(8L), any());
+		verify(storageMock).read(same(fileInfoOne), eq(0L), any());
+		verify(storageMock).read(same(fileInfoTwo), eq(0L), any());
+	}
+
+	@Test
+	public void testStripeKeyIsFileRegion() {
+		FileInfo fileInfo = mock(FileInfo.class);
+		when(fileInfo.getSize()).thenReturn(64L * 1024 * 1024);
+		FileInfo otherFileInfo = mock(FileInfo.class);
+		when(otherFileInfo.getSize()).thenReturn(64L * 1024 * 1024);
+
+		int pieceSize = 1024 * 1024;
+		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		when(fileSetMock.getPieceSize()).thenReturn((long) pieceSize);
+		when(fileSetMock.getFileForBytes(anyInt(), anyInt(), anyInt())).thenReturn(fileInfo);
+		AbstractFileSet otherFileSetMock = mock(AbstractFileSet.class);
+		when(otherFileSetMock.getPieceSize()).thenReturn((long) pieceSize);
+		when(otherFileSetMock.getFileForBytes(anyInt(), anyInt(), anyInt())).thenReturn(otherFileInfo);
+
+		Piece first = new Piece(fileSetMock, new byte[20], 0, pieceSize, 16384);
+		Piece sameRegion = new Piece(fileSetMock, new byte[20], 15, pieceSize, 16384);
+		Piece nextRegion = new Piece(fileSetMock, new byte[20], 16, pieceSize, 16384);
+		Piece otherTorrent = new Piece(otherFileSetMock, new byte[20], 0, pieceSize, 16384);
+
+		assertEquals(first.getStripeKey(), sameRegion.getStripeKey(), "Pieces within the same region should share the stripe");
+		assertEquals(first.getStripeKey().hashCode(), sameRegion.getStripeKey().hashCode(), "Equal keys should have equal hash codes");
+		assertNotEquals(first.getStripeKey(), nextRegion.getStripeKey(), "Pieces in the next region should be on another stripe");
+		assertNotEquals(first.getStripeKey(), otherTorrent.getStripeKey(), "Equal piece indices of other files should be on another stripe");
+	}
+
 }
@@ -1,7 +1,9 @@
 package org.johnnei.javatorrent.torrent.peer;
 
+import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.Optional;
 
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -12,9 +14,13 @@ import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageInterested;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageKeepAlive;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageUnchoke;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageUninterested;
+import org.johnnei.javatorrent.disk.BlockReadCache;
 import org.johnnei.javatorrent.disk.DiskJobReadBlock;
+import org.johnnei.javatorrent.disk.IStorage;
+import org.johnnei.javatorrent.disk.RandomAccessFileStorage;
 import org.johnnei.javatorrent.internal.torrent.TorrentFileSetRequestFactory;
 import org.johnnei.javatorrent.network.BitTorrentSocket;
+import org.johnnei.javatorrent.network.ByteBufferPool;
 import org.johnnei.javatorrent.test.DummyEntity;
 import org.johnnei.javatorrent.test.TestUtils;
 import org.johnnei.javatorrent.torrent.AbstractFileSet;
@@ -37,7 +43,9 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Matchers.isNotNull;
+import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -245,6 +253,7 @@ public class PeerTest {
 		peer.addBlockRequest(pieceMock, 15, 15, PeerDirection.Upload);
 
 		assertEquals(1, peer.getWorkQueueSize(PeerDirection.Upload), "Working queue should have increased");
+		verify(socketMock).requestWrite();
 	}
 
 	@Test
@@ -381,12 +390,10 @@ public class PeerTest {
 		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
 		Piece pieceMock = mock(Piece.class);
 
-		socketMock.enqueueMessage(isA(MessageBlock.class));
-		torrentMock.addUploadedBytes(15);
 		when(torrentMock.getFileSet()).thenReturn(fileSetMock);
 		when(fileSetMock.getBitfieldBytes()).thenReturn(new byte[1]);
 		when(pieceMock.getIndex()).thenReturn(0);
-		when(pieceMock.loadPiece(eq(0), eq(15))).thenReturn(new byte[15]);
+		when(torrentMock.getBufferPool()).thenReturn(new ByteBufferPool(1024, 1));
 
 		Peer cut = new Peer.Builder()
 				.setTorrent(torrentMock)
@@ -402,6 +409,131 @@ public class PeerTest {
 		verify(torrentMock).addDiskJob(diskJobCapture.capture());
 
 		diskJobCapture.getValue().process();
+
+		verify(pieceMock).loadPiece(eq(0), isA(ByteBuffer.class));
+		verify(socketMock).enqueueMessage(isA(MessageBlock.class));
+		verify(torrentMock).addUploadedBytes(15);
+	}
+
+	@Test
+	public void testQueueNextPieceForSendingFromReadCache() throws Exception {
+		Torrent torrentMock = mock(Torrent.class);
+		BitTorrentSocket socketMock = mock(BitTorrentSocket.class);
+		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
+		Piece pieceMock = mock(Piece.class);
+		BlockReadCache readCacheMock = mock(BlockReadCache.class);
+
+		when(torrentMock.getFileSet()).thenReturn(fileSetMock);
+		when(fileSetMock.getBitfieldBytes()).thenReturn(new byte[1]);
+		when(pieceMock.getIndex()).thenReturn(0);
+		when(torrentMock.getBufferPool()).thenReturn(new ByteBufferPool(1024, 1));
+		when(torrentMock.getReadCache()).thenReturn(Optional.of(readCacheMock));
+		when(readCacheMock.read(same(pieceMock), eq(0), isA(ByteBuffer.class))).thenReturn(true);
+
+		Peer cut = new Peer.Builder()
+				.setTorrent(torrentMock)
+				.setSocket(socketMock)
+				.setId(DummyEntity.createUniquePeerId())
+				.setExtensionBytes(DummyEntity.createRandomBytes(8))
+				.build();
+
+		cut.addBlockRequest(pieceMock, 0, 15, PeerDirection.Upload);
+		cut.queueNextPieceForSending();
+
+		verify(torrentMock, never()).addDiskJob(any());
+		verify(socketMock).enqueueMessage(isA(MessageBlock.class));
+		verify(torrentMock).addUploadedBytes(15);
+	}
+
+	@Test
+	public void testQueueNextPieceForSendingFileTransfer() throws Exception {
+		Torrent torrentMock = mock(Torrent.class);
+		BitTorrentSocket socketMock = mock(BitTorrentSocket.class);
+		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
+		Piece pieceMock = mock(Piece.class);
+
+		when(torrentMock.getFileSet()).thenReturn(fileSetMock);
+		when(fileSetMock.getBitfieldBytes()).thenReturn(new byte[1]);
+		when(pieceMock.getIndex()).thenReturn(0);
+		when(pieceMock.getFileSet()).thenReturn(fileSetMock);
+		when(fileSetMock.getStorage()).thenReturn(new RandomAccessFileStorage());
+		when(socketMock.supportsFileTransfer()).thenReturn(true);
+
+		Peer cut = new Peer.Builder()
+				.setTorrent(torrentMock)
+				.setSocket(socketMock)
+				.setId(DummyEntity.createUniquePeerId())
+				.setExtensionBytes(DummyEntity.createRandomBytes(8))
+				.build();
+
+		cut.addBlockRequest(pieceMock, 0, 15, PeerDirection.Upload);
+		cut.queueNextPieceForSending();
+
+		ArgumentCaptor<MessageBlock> messageCapture = ArgumentCaptor.forClass(MessageBlock.class);
+		verify(socketMock).enqueueMessage(messageCapture.capture());
+		verify(torrentMock, never()).addDiskJob(any());
+		verify(torrentMock).addUploadedBytes(15);
+
+		assertTrue(messageCapture.getValue().isTransferredFromFile(), "Block data should be transferred from the file");
+		assertEquals(24, messageCapture.getValue().getLength(), "Incorrect message length");
+	}
+
+	@Test
+	public void testQueueNextPieceForSendingStorageWithoutZeroCopyTransfer() throws Exception {
+		Torrent torrentMock = mock(Torrent.class);
+		BitTorrentSocket socketMock = mock(BitTorrentSocket.class);
+		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
+		Piece pieceMock = mock(Piece.class);
+
+		when(torrentMock.getFileSet()).thenReturn(fileSetMock);
+		when(fileSetMock.getBitfieldBytes()).thenReturn(new byte[1]);
+		when(pieceMock.getIndex()).thenReturn(0);
+		when(pieceMock.getFileSet()).thenReturn(fileSetMock);
+		when(fileSetMock.getStorage()).thenReturn(mock(IStorage.class));
+		when(socketMock.supportsFileTransfer()).thenReturn(true);
+
+		Peer cut = new Peer.Builder()
+				.setTorrent(torrentMock)
+				.setSocket(socketMock)
+				.setId(DummyEntity.createUniquePeerId())
+				.setExtensionBytes(DummyEntity.createRandomBytes(8))
+				.build();
+
+		cut.addBlockRequest(pieceMock, 0, 15, PeerDirection.Upload);
+		cut.queueNextPieceForSending();
+
+		verify(torrentMock).addDiskJob(isA(DiskJobReadBlock.class));
+		verify(socketMock, never()).enqueueMessage(any());
+	}
+
+	@Test
+	public void testQueueNextPieceForSendingOutboundSaturated() throws Exception {
+		Torrent torrentMock = mock(Torrent.class);
+		BitTorrentSocket socketMock = mock(BitTorrentSocket.class);
+		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
+		Piece pieceMock = mock(Piece.class);
+
+		when(torrentMock.getFileSet()).thenReturn(fileSetMock);
+		when(fileSetMock.getBitfieldBytes()).thenReturn(new byte[1]);
+		when(pieceMock.getIndex()).thenReturn(0);
+		when(pieceMock.getFileSet()).thenReturn(fileSetMock);
+		when(fileSetMock.getStorage()).thenReturn(new RandomAccessFileStorage());
+		when(socketMock.supportsFileTransfer()).thenReturn(true);
+		when(socketMock.isOutboundSaturated()).thenReturn(false, true);
+
+		Peer cut = new Peer.Builder()
+				.setTorrent(torrentMock)
+				.setSocket(socketMock)
+				.setId(DummyEntity.createUniquePeerId())
+				.setExtensionBytes(DummyEntity.createRandomBytes(8))
+				.build();
+
+		cut.addBlockRequest(pieceMock, 0, 15, PeerDirection.Upload);
+		cut.addBlockRequest(pieceMock, 15, 15, PeerDirection.Upload);
+		cut.queueNextPieceForSending();
+
+		verify(socketMock).enqueueMessage(isA(MessageBlock.class));
+		assertEquals(1, cut.getWorkQueueSize(PeerDirection.Upload), "The second request should wait until the socket has drained");
 	}
 
 	@Test